@@ -0,0 +1,46 @@
+package com.example.swingapp.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line
+ * (e.g. "CanvasBench.hitTest -p size=100,10000") and adds the GC profiler,
+ * so every result carries its allocation rate (gc.alloc.rate.norm is bytes
+ * per operation). Defaults are short enough for the 1M scenes; override
+ * them with -wi/-i/-w/-r/-f as usual.
+ */
+public final class Benchmarks {
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        List<String> jvmArgs = new ArrayList<>(List.of("-Djava.awt.headless=true", "-Xmx8g"));
+        jvmArgs.addAll(cmd.getJvmArgsAppend().orElse(Collections.emptyList()));
+        ChainedOptionsBuilder b = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(cmd.getWarmupIterations().orElse(3))
+                .warmupTime(cmd.getWarmupTime().orElse(TimeValue.seconds(2)))
+                .measurementIterations(cmd.getMeasurementIterations().orElse(5))
+                .measurementTime(cmd.getMeasurementTime().orElse(TimeValue.seconds(2)))
+                .forks(cmd.getForkCount().orElse(1))
+                .jvmArgsAppend(jvmArgs.toArray(new String[0]));
+        if (cmd.getBenchModes().isEmpty()) b.mode(Mode.AverageTime);
+        if (!cmd.getTimeUnit().hasValue()) b.timeUnit(TimeUnit.MICROSECONDS);
+        new Runner(b.build()).run();
+    }
+}
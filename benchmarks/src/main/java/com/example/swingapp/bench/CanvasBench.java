@@ -0,0 +1,117 @@
+package com.example.swingapp.bench;
+
+import com.example.swingapp.DrawingCanvas;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.render.Scene;
+import com.example.swingapp.render.SceneBuilder;
+import com.example.swingapp.render.SceneRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+
+/**
+ * Paths run on every mouse event or repaint: hit testing, buffer redraw,
+ * single-shape drawing, region rendering, text layout and the scene
+ * rebuild after a model reset. The scene and renderer are public; the
+ * canvas' buffer redraw is private and reached through a method handle,
+ * as the benchmark jar runs the editor from the class path.
+ */
+@State(Scope.Benchmark)
+public class CanvasBench {
+    @Param({ "100", "10000", "100000", "1000000" })
+    public int size;
+
+    private ReMoDeLModel model;
+    private DrawingCanvas canvas;
+    private Scene scene;
+    private final SceneRenderer renderer = new SceneRenderer();
+    private BufferedImage image;
+    private Graphics2D g;
+    private SplittableRandom rnd;
+    private int extent;
+
+    private MethodHandle redrawBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        model = Scenes.model(size, 42);
+        extent = Scenes.extent(size);
+        canvas = new DrawingCanvas();
+        // the buffer covers the whole canvas up to the canvas' own pixel cap
+        canvas.setSize(Math.min(extent, 2048), Math.min(extent, 2048));
+        canvas.setModel(model);
+        scene = canvas.getScene();
+
+        MethodHandles.Lookup l = MethodHandles.privateLookupIn(DrawingCanvas.class, MethodHandles.lookup());
+        redrawBuffer = l.findVirtual(DrawingCanvas.class, "redrawBuffer", MethodType.methodType(void.class));
+
+        image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        rnd = new SplittableRandom(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g.dispose();
+        canvas.setModel(null);
+    }
+
+    /** Top-most shape under a random point of the scene. */
+    @Benchmark
+    public int hitTest() {
+        return scene.hitTest(rnd.nextInt(extent), rnd.nextInt(extent));
+    }
+
+    /** Full redraw of the canvas back buffer. */
+    @Benchmark
+    public void redrawBuffer() throws Throwable {
+        redrawBuffer.invokeExact(canvas);
+    }
+
+    /** One shape drawn into a headless image. */
+    @Benchmark
+    public void drawShape() {
+        renderer.draw(g, scene.get(rnd.nextInt(scene.size())));
+    }
+
+    /** A random 512x512 region of the scene rendered into a headless image. */
+    @Benchmark
+    public int renderRegion() {
+        int x = rnd.nextInt(Math.max(1, extent - 512)), y = rnd.nextInt(Math.max(1, extent - 512));
+        Graphics2D rg = (Graphics2D) g.create();
+        rg.translate(-x, -y);
+        int drawn = renderer.render(rg, scene, new Rectangle2D.Double(x, y, 512, 512));
+        rg.dispose();
+        return drawn;
+    }
+
+    /** Scene rebuilt from the model, as after a reset. */
+    @Benchmark
+    public Scene buildScene() {
+        return SceneBuilder.build(model.getAll(), 3f);
+    }
+
+    /** Wrapped text laid out into a box. */
+    @Benchmark
+    public void drawText() {
+        renderer.drawText(g, "customer order " + rnd.nextInt(size) + " awaiting payment and shipment",
+                new Font("SansSerif", Font.PLAIN, 12), new Rectangle2D.Double(10, 10, 120, 60), Color.BLACK);
+    }
+}
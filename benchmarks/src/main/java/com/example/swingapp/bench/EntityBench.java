@@ -0,0 +1,40 @@
+package com.example.swingapp.bench;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * ReMoDeLEntity.copy() of entities picked across a scene, so larger scenes
+ * show the cost of copying entities that are no longer in cache.
+ */
+@State(Scope.Benchmark)
+public class EntityBench {
+    @Param({ "100", "10000", "100000", "1000000" })
+    public int size;
+
+    private ReMoDeLEntity[] entities;
+    private SplittableRandom rnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ReMoDeLModel m = Scenes.model(size, 42);
+        List<ReMoDeLEntity> all = m.getAll();
+        entities = all.toArray(new ReMoDeLEntity[0]);
+        rnd = new SplittableRandom(5);
+    }
+
+    @Benchmark
+    public ReMoDeLEntity copy() {
+        return entities[rnd.nextInt(entities.length)].copy();
+    }
+}
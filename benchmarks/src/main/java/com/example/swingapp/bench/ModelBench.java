@@ -0,0 +1,142 @@
+package com.example.swingapp.bench;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * ReMoDeLModel operations against a model already holding 'size' entities,
+ * with a few listeners attached as the canvas, router and indexes would be.
+ */
+@State(Scope.Benchmark)
+public class ModelBench {
+    private static final int LISTENERS = 4;
+    private static final int BATCH = 100;
+
+    @Param({ "100", "10000", "100000", "1000000" })
+    public int size;
+
+    private ReMoDeLModel model;
+    private ReMoDeLEntity[] updates;
+    private SplittableRandom rnd;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = Scenes.model(size, 42);
+        updates = new ReMoDeLEntity[Math.min(size, 4096)];
+        Random r = new Random(9);
+        for (int i = 0; i < updates.length; i++) {
+            int id = (int) ((long) i * size / updates.length);
+            ReMoDeLEntity e = Scenes.entity(id, size, r);
+            updates[i] = e;
+        }
+        rnd = new SplittableRandom(3);
+        next = size;
+    }
+
+    // listeners are attached per iteration so listener-free benchmarks stay listener-free
+    @State(Scope.Benchmark)
+    public static class Listened {
+        ReMoDeLModel model;
+        private final ModelListener[] listeners = new ModelListener[LISTENERS];
+
+        @Setup(Level.Iteration)
+        public void attach(ModelBench bench, Blackhole bh) {
+            model = bench.model;
+            for (int i = 0; i < LISTENERS; i++) {
+                listeners[i] = (ModelEvent e) -> bh.consume(e.getEntityIds());
+                model.addListener(listeners[i]);
+            }
+        }
+
+        @org.openjdk.jmh.annotations.TearDown(Level.Iteration)
+        public void detach() {
+            for (ModelListener l : listeners) model.removeListener(l);
+        }
+    }
+
+    /** Add one entity and remove it again, keeping the model at its size. */
+    @Benchmark
+    public ReMoDeLEntity addRemove() {
+        ReMoDeLEntity e = ReMoDeLEntity.create("shape", "n" + next++);
+        e.put("x1", 0);
+        e.put("y1", 0);
+        e.put("x2", 40);
+        e.put("y2", 30);
+        model.addEntity(e);
+        return model.removeEntity(e.getId());
+    }
+
+    /** Replace an existing entity. */
+    @Benchmark
+    public void update() {
+        model.updateEntity(updates[rnd.nextInt(updates.length)].copy());
+    }
+
+    /** Change one property of an existing entity, keeping concurrent changes to the others. */
+    @Benchmark
+    public ReMoDeLEntity patch() {
+        return model.patch(updates[rnd.nextInt(updates.length)].getId(), Map.of("x1", rnd.nextInt(1000)));
+    }
+
+    /** Look an entity up by id. */
+    @Benchmark
+    public ReMoDeLEntity get() {
+        return model.get(updates[rnd.nextInt(updates.length)].getId());
+    }
+
+    /** An update delivered to the attached listeners. */
+    @Benchmark
+    public void dispatch(Listened l) {
+        l.model.updateEntity(updates[rnd.nextInt(updates.length)].copy());
+    }
+
+    /** Updates collapsed into one batch event for the attached listeners. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dispatchBatch(Listened l) {
+        l.model.beginBatch();
+        try {
+            for (int i = 0; i < BATCH; i++) l.model.updateEntity(updates[rnd.nextInt(updates.length)].copy());
+        } finally {
+            l.model.endBatch();
+        }
+    }
+
+    /** A consistent view of the model for a background reader. */
+    @Benchmark
+    public ModelSnapshot snapshot() {
+        return model.snapshot();
+    }
+
+    /** A reader going through every entity of a snapshot. */
+    @Benchmark
+    public int iterateSnapshot() {
+        int n = 0;
+        for (ReMoDeLEntity e : model.snapshot()) if (e.getType() != null) n++;
+        return n;
+    }
+
+    /** An update followed by a snapshot, as a writer with readers polling would see. */
+    @Benchmark
+    public ModelSnapshot updateThenSnapshot() {
+        model.updateEntity(updates[rnd.nextInt(updates.length)].copy());
+        return model.snapshot();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.swingapp.bench;
+
+import com.example.swingapp.model.Concept;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.util.Random;
+
+/**
+ * Synthetic documents for the benchmarks: a square grid of rectangles,
+ * ovals, text boxes and labelled concepts, the mix a diagram typically has.
+ */
+final class Scenes {
+    static final int CELL = 60;
+    private static final String[] TOOLS = { "RECTANGLE", "OVAL", "ROUNDED_RECTANGLE" };
+    private static final String[] WORDS = { "order", "customer", "invoice", "payment", "product", "shipment" };
+
+    private Scenes() {
+    }
+
+    static ReMoDeLModel model(int size, long seed) {
+        ReMoDeLModel m = new ReMoDeLModel();
+        m.beginBatch();
+        try {
+            for (int i = 0; i < size; i++) m.addEntity(entity(i, size, new Random(seed + i)));
+        } finally {
+            m.endBatch();
+        }
+        return m;
+    }
+
+    static int columns(int size) {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(size)));
+    }
+
+    /** Width and height of the area the scene covers. */
+    static int extent(int size) {
+        return columns(size) * CELL;
+    }
+
+    static ReMoDeLEntity entity(int i, int size, Random rnd) {
+        int cols = columns(size);
+        int x = (i % cols) * CELL + 5, y = (i / cols) * CELL + 5;
+        ReMoDeLEntity e;
+        switch (i % 4) {
+            case 0:
+                e = ReMoDeLEntity.create("text", "t" + i);
+                e.put("text", WORDS[rnd.nextInt(WORDS.length)] + " note " + i);
+                e.put("fontName", "SansSerif");
+                e.put("fontSize", 12);
+                break;
+            case 1:
+                Concept c = new Concept("c" + i);
+                c.setLabel(WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+                e = c;
+                break;
+            default:
+                e = ReMoDeLEntity.create("shape", "s" + i);
+                e.put("tool", TOOLS[rnd.nextInt(TOOLS.length)]);
+        }
+        e.put("x1", x);
+        e.put("y1", y);
+        e.put("x2", x + 40 + rnd.nextInt(10));
+        e.put("y2", y + 30 + rnd.nextInt(10));
+        e.put("colorRGB", 0xff000000 | rnd.nextInt(0xffffff));
+        return e;
+    }
+}
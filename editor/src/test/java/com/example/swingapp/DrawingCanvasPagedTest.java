@@ -0,0 +1,56 @@
+package com.example.swingapp;
+
+import com.example.swingapp.io.DocumentReader;
+import com.example.swingapp.io.DocumentWriter;
+import com.example.swingapp.io.PagedDocument;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DrawingCanvasPagedTest {
+
+    @Test
+    void pagerIsInPlaceWhenTheModelChangeFires(@TempDir Path dir) throws Exception {
+        List<ReMoDeLEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ReMoDeLEntity e = ReMoDeLEntity.create("Concept", "c" + i);
+            e.put("x1", i * 50);
+            e.put("y1", 0);
+            e.put("x2", i * 50 + 40);
+            e.put("y2", 40);
+            entities.add(e);
+        }
+        Path file = dir.resolve("doc.vdoc");
+        new DocumentWriter().write(file, entities, null);
+
+        ReMoDeLModel m = new ReMoDeLModel();
+        PagedDocument paged = new PagedDocument(DocumentReader.open(file), m);
+        paged.setPublisher(Runnable::run);
+        paged.attach();
+
+        DrawingCanvas canvas = new DrawingCanvas();
+        // what a "model" listener such as the autosave journal sees
+        List<Object> seen = new ArrayList<>();
+        canvas.addPropertyChangeListener("model", e -> seen.add(canvas.getPagedDocument()));
+
+        assertThrows(IllegalArgumentException.class, () -> canvas.setModel(new ReMoDeLModel(), paged));
+        canvas.setModel(m, paged);
+        assertSame(paged, canvas.getPagedDocument());
+
+        canvas.setModel(new ReMoDeLModel());
+        assertNull(canvas.getPagedDocument());
+        assertEquals(Arrays.asList(paged, null), seen);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.swingapp;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.model.Region;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DrawingCanvasRegionTest {
+
+    private static ReMoDeLEntity box(ReMoDeLEntity e, double x, double y, double w, double h) {
+        e.put("x1", x);
+        e.put("y1", y);
+        e.put("x2", x + w);
+        e.put("y2", y + h);
+        return e;
+    }
+
+    @Test
+    void selectsTheEntitiesInsideTheSelectedRegion() {
+        ReMoDeLModel m = new ReMoDeLModel();
+        Region r = new Region("r");
+        r.setShapePath(new Path2D.Double(new Rectangle2D.Double(0, 0, 300, 300)));
+        m.addEntity(box(r, 0, 0, 300, 300));
+        m.addEntity(box(ReMoDeLEntity.create("Concept", "in"), 40, 40, 40, 40));
+        m.addEntity(box(ReMoDeLEntity.create("Concept", "out"), 400, 40, 40, 40));
+
+        DrawingCanvas canvas = new DrawingCanvas();
+        canvas.setModel(m);
+        assertEquals(Set.of("in"), canvas.getRegionEngine().entitiesIn("r"));
+
+        // nothing is a region: the selection stays
+        canvas.setSelection(List.of("out"));
+        assertFalse(canvas.selectInsideRegions());
+        assertEquals(Set.of("out"), canvas.getSelection());
+
+        // the engine follows model edits made after setModel
+        m.patch("out", Map.of("x1", 200.0, "x2", 240.0));
+        canvas.setSelection(List.of("r"));
+        assertTrue(canvas.selectInsideRegions());
+        assertEquals(Set.of("in", "out"), canvas.getSelection());
+
+        canvas.setModel(null);
+        assertNull(canvas.getRegionEngine());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.swingapp.perf;
+
+import com.example.swingapp.DrawingCanvas;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TraceReplayerTest {
+    private DrawingCanvas canvas;
+    private TraceRecorder recorder;
+
+    // through the event queue, as real input arrives
+    private void drag(int x0, int y0, int x1, int y1) throws Exception {
+        EventQueue q = Toolkit.getDefaultToolkit().getSystemEventQueue();
+        long now = System.currentTimeMillis();
+        q.postEvent(new MouseEvent(canvas, MouseEvent.MOUSE_PRESSED, now, InputEvent.BUTTON1_DOWN_MASK,
+                x0, y0, 1, false, MouseEvent.BUTTON1));
+        q.postEvent(new MouseEvent(canvas, MouseEvent.MOUSE_DRAGGED, now, InputEvent.BUTTON1_DOWN_MASK,
+                x1, y1, 0, false, MouseEvent.NOBUTTON));
+        q.postEvent(new MouseEvent(canvas, MouseEvent.MOUSE_RELEASED, now, 0,
+                x1, y1, 1, false, MouseEvent.BUTTON1));
+        EventQueue.invokeAndWait(() -> { });
+    }
+
+    // the entities without their ids, which differ between recording and replay
+    private static List<String> content(ReMoDeLModel m) {
+        List<String> out = new ArrayList<>();
+        for (ReMoDeLEntity e : m.getAll()) out.add(e.getType() + new TreeMap<>(e.getProperties()));
+        out.sort(null);
+        return out;
+    }
+
+    @Test
+    void replayedInputKeepsLaterChangesOnTheSameEntities(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("session.trace");
+        ReMoDeLModel m = new ReMoDeLModel();
+        EventQueue.invokeAndWait(() -> {
+            canvas = new DrawingCanvas();
+            canvas.setSize(800, 600);
+            canvas.setModel(m);
+            canvas.setCurrentTool(DrawingCanvas.Tool.RECTANGLE);
+            try {
+                recorder = TraceRecorder.start(canvas, file);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        drag(100, 100, 200, 160);
+        String first = m.getAll().get(0).getId();
+        // a keyboard or menu edit of the drawn shape
+        EventQueue.invokeAndWait(() -> m.patch(first, Map.of("label", "first")));
+        drag(300, 100, 380, 200);
+        EventQueue.invokeAndWait(() -> m.removeEntity(first));
+        drag(100, 300, 150, 340);
+        EventQueue.invokeAndWait(() -> {
+            for (ReMoDeLEntity e : m.getAll()) m.patch(e.getId(), Map.of("label", "later"));
+        });
+        EventQueue.invokeAndWait(() -> {
+            try {
+                recorder.close();
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertEquals(2, m.size());
+
+        TraceReplayer replayer = new TraceReplayer(file);
+        replayer.setPaint(false);
+        replayer.run();
+        assertEquals(content(m), content(replayer.getModel()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.swingapp.region;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.model.Region;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Path2D;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionEngineTest {
+
+    private static ReMoDeLEntity box(String id, double x, double y) {
+        ReMoDeLEntity e = ReMoDeLEntity.create("Concept", id);
+        e.put("x1", x);
+        e.put("y1", y);
+        e.put("x2", x + 20);
+        e.put("y2", y + 20);
+        return e;
+    }
+
+    // right triangle (0,0) (200,0) (0,200): its bounds hold points it does not
+    private static Region triangle(String id) {
+        Path2D p = new Path2D.Double();
+        p.moveTo(0, 0);
+        p.lineTo(200, 0);
+        p.lineTo(0, 200);
+        p.closePath();
+        Region r = new Region(id);
+        r.setShapePath(p);
+        return r;
+    }
+
+    @Test
+    void indexesTheModelOnAttach() {
+        ReMoDeLModel m = new ReMoDeLModel();
+        m.addEntity(triangle("r"));
+        m.addEntity(box("in", 10, 10));
+        m.addEntity(box("corner", 160, 160));
+        RegionEngine engine = new RegionEngine(m);
+        engine.attach();
+
+        assertEquals(Set.of("in"), engine.entitiesIn("r"));
+        assertEquals(Set.of("r"), engine.regionsContaining("in"));
+        assertEquals(List.of("r"), engine.regionsAt(20, 20));
+        assertTrue(engine.regionsAt(180, 180).isEmpty());
+    }
+
+    @Test
+    void followsEntitiesAndRegionsAsTheyMove() {
+        ReMoDeLModel m = new ReMoDeLModel();
+        RegionEngine engine = new RegionEngine(m);
+        engine.attach();
+        m.addEntity(triangle("r"));
+        m.addEntity(box("a", 10, 10));
+        assertEquals(Set.of("a"), engine.entitiesIn("r"));
+
+        // the entity leaves the outline
+        m.patch("a", Map.of("x1", 300.0, "x2", 320.0));
+        assertTrue(engine.entitiesIn("r").isEmpty());
+        assertTrue(engine.regionsContaining("a").isEmpty());
+
+        // the region is reshaped over it
+        Region wide = triangle("r");
+        Path2D p = new Path2D.Double();
+        p.moveTo(0, 0);
+        p.lineTo(400, 0);
+        p.lineTo(0, 400);
+        p.closePath();
+        wide.setShapePath(p);
+        m.updateEntity(wide);
+        assertEquals(Set.of("a"), engine.entitiesIn("r"));
+
+        m.removeEntity("r");
+        assertTrue(engine.regionsContaining("a").isEmpty());
+        m.removeEntity("a");
+        assertTrue(engine.regionsAt(5, 5).isEmpty());
+
+        engine.detach();
+        m.addEntity(triangle("s"));
+        assertTrue(engine.regionsAt(5, 5).isEmpty());
+    }
+}
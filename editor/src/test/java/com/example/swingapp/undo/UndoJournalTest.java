@@ -0,0 +1,81 @@
+package com.example.swingapp.undo;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UndoJournalTest {
+
+    // one step adding n entities
+    private static void addStep(UndoJournal journal, int step, int n) {
+        UndoJournal.Transaction tx = journal.begin("Add");
+        for (int i = 0; i < n; i++) {
+            ReMoDeLEntity e = ReMoDeLEntity.create("Concept", step + "-" + i);
+            e.put("x1", i);
+            e.put("y1", step);
+            e.put("label", "entity " + i + " of step " + step);
+            tx.put(e);
+        }
+        tx.commit();
+    }
+
+    @Test
+    void stepsLargerThanTheBudgetAreSpilledNotDropped(@TempDir Path dir) {
+        ReMoDeLModel model = new ReMoDeLModel();
+        UndoJournal journal = new UndoJournal(model);
+        journal.setSpillDirectory(dir);
+        journal.setMemoryBudget(200 << 10);
+        try {
+            for (int s = 0; s < 6; s++) addStep(journal, s, 2000);
+            // the newest step alone is over the budget; the older ones go to disk
+            assertEquals(6, journal.getStepCount());
+            assertTrue(journal.getDiskBytes() > 0);
+            for (int s = 5; s >= 0; s--) {
+                assertEquals(2000 * (s + 1), model.size());
+                journal.undo();
+            }
+            assertEquals(0, model.size());
+            assertTrue(journal.canRedo());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void withoutDiskTheOldestStepsAreDropped() {
+        ReMoDeLModel model = new ReMoDeLModel();
+        UndoJournal journal = new UndoJournal(model);
+        journal.setDiskQuota(0);
+        journal.setMemoryBudget(200 << 10);
+        for (int s = 0; s < 6; s++) addStep(journal, s, 2000);
+        assertEquals(1, journal.getStepCount());
+        assertEquals(0, journal.getDiskBytes());
+        journal.close();
+    }
+
+    @Test
+    void theDiskQuotaDropsWholeSegments(@TempDir Path dir) {
+        ReMoDeLModel model = new ReMoDeLModel();
+        UndoJournal journal = new UndoJournal(model);
+        journal.setSpillDirectory(dir);
+        journal.setMemoryBudget(200 << 10);
+        journal.setDiskQuota(4 << 20);
+        try {
+            for (int s = 0; s < 40; s++) addStep(journal, s, 2000);
+            assertTrue(journal.getStepCount() < 40);
+            assertTrue(journal.getDiskBytes() <= 4 << 20);
+            // whatever is left can still be undone from disk
+            while (journal.canUndo()) journal.undo();
+            assertEquals(2000 * (40 - journal.getStepCount()), model.size());
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -1,23 +1,40 @@
 // This class implements a drawing canvas with basic shape tools, selection, and editing.
 package com.example.swingapp;
 
+import com.example.swingapp.edit.BulkTransform;
+import com.example.swingapp.edit.Clipboard;
+import com.example.swingapp.io.PagedDocument;
+import com.example.swingapp.model.ModelSnapshot;
 import com.example.swingapp.model.ReMoDeLEntity;
 import com.example.swingapp.model.ReMoDeLModel;
 import com.example.swingapp.model.Concept;
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.monitor.BufferRedrawEvent;
+import com.example.swingapp.monitor.RenderCounters;
+import com.example.swingapp.perf.FrameStats;
+import com.example.swingapp.region.RegionEngine;
+import com.example.swingapp.render.Scene;
+import com.example.swingapp.render.SceneBuilder;
+import com.example.swingapp.render.SceneEngine;
+import com.example.swingapp.render.SceneRenderer;
+import com.example.swingapp.render.SceneShape;
+import com.example.swingapp.render.ShapeKind;
+import com.example.swingapp.routing.ConnectiveRouter;
+import com.example.swingapp.search.SearchIndex;
+import com.example.swingapp.snap.SnapIndex;
+import com.example.swingapp.undo.UndoJournal;
 
 import javax.swing.*;
-import javax.swing.undo.UndoManager;
 import javax.swing.undo.UndoableEdit;
-import javax.swing.undo.AbstractUndoableEdit;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.font.TextLayout;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.awt.font.FontRenderContext;
 import java.awt.font.TextAttribute;
-import java.text.LineBreakMeasurer;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
 import java.text.BreakIterator;
@@ -26,273 +43,352 @@ import java.util.*;
 import java.util.function.Consumer;
 import java.util.List;
 
-public class DrawingCanvas extends JComponent {
+public class DrawingCanvas extends JComponent implements RenderCounters {
     private BufferedImage buf;
+    private Rectangle bufArea = new Rectangle(); // canvas area covered by buf
     private Color drawColor = Color.BLACK;
     private float strokeWidth = 3f;
     private int lastX = -1, lastY = -1;
     private Consumer<String> statusConsumer = s -> {};
-    private final UndoManager undoManager = new UndoManager();
-    // currently active move/resize undoable edit (grouped per drag)
-    private MoveEdit currentMoveEdit = null;
-
-    // helper to create a defensive copy of a ShapeRecord (reconstruct shapes from numeric coords)
-    private ShapeRecord copyShapeRecord(ShapeRecord r) {
-        if (r == null) return null;
-        if (r.tool == Tool.TEXT) {
-            double x = r.x1, y = r.y1, w = r.x2 - r.x1, h = r.y2 - r.y1;
-            Shape rect = new Rectangle2D.Double(x, y, w, h);
-            return new ShapeRecord(Tool.TEXT, rect, r.color, r.stroke, r.x1, r.y1, r.x2, r.y2, r.text, r.font, r.entityId);
-        } else {
-            // use existing factory to rebuild shape from coords
-            ShapeRecord nr = createRecordFromTool(r.tool, r.color, r.stroke, (int) Math.round(r.x1), (int) Math.round(r.y1), (int) Math.round(r.x2), (int) Math.round(r.y2));
-            if (nr != null) {
-                return new ShapeRecord(nr.tool, nr.shape, nr.color, nr.stroke, nr.x1, nr.y1, nr.x2, nr.y2, nr.text, nr.font, r.entityId);
-            }
-            return r;
-        }
-    }
+    // undo history of the current model (null without a model)
+    private UndoJournal undoJournal = null;
+    private long undoMemoryBudget = 64L << 20;
+    // drag steps of one gesture coalesce into a single undo step
+    private int dragGesture = 0;
 
     // --- Model wiring -----------------------------------------------------------------
     private com.example.swingapp.model.ModelListener modelListener = null;
+    // keeps connectives anchored to their from/to entities
+    private ConnectiveRouter router = null;
+    // snap targets of the model's shapes, followed incrementally
+    private SnapIndex snapIndex = null;
+    private boolean snapEnabled = true;
+    private int gridSize = 0;
+    private List<SnapIndex.Guide> snapGuides = Collections.emptyList();
+    private Rectangle2D dragOrigin = null; // bounds of the dragged shapes at the press
+    private ModelSnapshot dragBase = null; // the model at the press of a group resize
+    // full-text index of labels and text, followed incrementally
+    private SearchIndex searchIndex = null;
+    // region outlines and the entities inside them, followed incrementally
+    private RegionEngine regionEngine = null;
+    // told which canvas area the model changed (null: all of it), e.g. by the minimap
+    private final List<Consumer<Rectangle2D>> sceneListeners = new ArrayList<>();
+    // set while a document is browsed in paged mode (entities loaded around the viewport)
+    private PagedDocument pager = null;
+    private javax.swing.event.ChangeListener viewportListener = null;
+
+    // --- Performance overlay: frame times, shapes drawn and model dispatch time
+    private static final int OVERLAY_PERIOD_MS = 500;
+    private final FrameStats frameStats = new FrameStats(240);
+    private long renderNanos = 0; // buffer redraws since the last frame
+    private int drawnShapes = 0;
+    private boolean perfOverlay = false;
+    private javax.swing.Timer perfTimer = null;
+    private Rectangle overlayArea = null;
+    private String[] overlayLines = new String[0];
+    private long sampledAt, sampledDispatchNanos, sampledDispatchCount;
+    // read by the monitoring MBeans from other threads
+    private volatile long lastFrameNanos = 0;
+    private volatile long bufferHits = 0, bufferMisses = 0;
 
     public void setModel(ReMoDeLModel m) {
+        setModel(m, null);
+    }
+
+    /**
+     * Show the model of a paged document, browsed through the pager. The
+     * pager is in place when the "model" property change fires.
+     */
+    public void setModel(ReMoDeLModel m, PagedDocument paged) {
+        if (paged != null && paged.getModel() != m) {
+            throw new IllegalArgumentException("paged document is for another model");
+        }
+        ReMoDeLModel old = this.model;
+        setPagedDocument(null);
         if (this.model != null && modelListener != null) {
             this.model.removeListener(modelListener);
         }
+        if (router != null) {
+            router.detach();
+            router = null;
+        }
+        if (snapIndex != null) {
+            snapIndex.detach();
+            snapIndex = null;
+        }
+        if (searchIndex != null) {
+            searchIndex.detach();
+            searchIndex = null;
+        }
+        if (regionEngine != null) {
+            regionEngine.detach();
+            regionEngine = null;
+        }
+        if (engine != null) {
+            engine.detach();
+            engine = null;
+        }
         this.model = m;
-        idToIndex.clear();
-        shapes.clear();
+        scene = Scene.EMPTY;
+        if (undoJournal != null) undoJournal.close();
+        undoJournal = m == null ? null : new UndoJournal(m);
+        if (undoJournal != null) undoJournal.setMemoryBudget(undoMemoryBudget);
+        bulk = m == null ? null : new BulkTransform(undoJournal);
+        updateUndoRedoState();
+        clearSelection();
         if (m == null) {
             redrawBuffer();
             repaint();
+            firePropertyChange("model", old, m);
             return;
         }
-        // build initial shapes from model
+        // route connectives, then build initial shapes from model
+        router = new ConnectiveRouter(m);
+        router.attach();
+        snapIndex = new SnapIndex(m);
+        snapIndex.setGridSize(gridSize);
+        snapIndex.attach();
+        searchIndex = new SearchIndex(m);
+        searchIndex.attach();
+        regionEngine = new RegionEngine(m);
+        regionEngine.attach();
+        engine = new SceneEngine(m);
+        engine.setStroke(strokeWidth);
+        engine.attach();
         rebuildShapesFromModel();
 
         // register listener to keep canvas in sync
-        modelListener = new com.example.swingapp.model.ModelListener() {
-            @Override
-            public void modelChanged(com.example.swingapp.model.ModelEvent e) {
-                // Ensure UI updates happen on EDT
-                SwingUtilities.invokeLater(() -> {
-                    rebuildShapesFromModel();
-                });
-            }
-        };
+        modelListener = new ModelSync(m);
         m.addListener(modelListener);
+        if (paged != null) setPagedDocument(paged);
+        firePropertyChange("model", old, m);
     }
 
-    private void rebuildShapesFromModel() {
-        if (model == null) return;
-        shapes.clear();
-        idToIndex.clear();
-        java.util.List<ReMoDeLEntity> all = model.getAll();
-        for (int i = 0; i < all.size(); i++) {
-            ReMoDeLEntity e = all.get(i);
-            ShapeRecord r = shapeFromEntity(e);
-            if (r != null) {
-                shapes.add(r);
-                if (r.entityId != null) idToIndex.put(r.entityId, i);
-            }
-        }
-        redrawBuffer();
-        repaint();
+    public ReMoDeLModel getModel() {
+        return model;
     }
 
-    private ShapeRecord shapeFromEntity(ReMoDeLEntity e) {
-        if (e == null) return null;
-        String type = e.getType();
-        if ("text".equalsIgnoreCase(type)) {
-            Object ox1 = e.get("x1"); Object oy1 = e.get("y1"); Object ox2 = e.get("x2"); Object oy2 = e.get("y2");
-            int x1 = ox1 instanceof Number ? ((Number)ox1).intValue() : 0;
-            int y1 = oy1 instanceof Number ? ((Number)oy1).intValue() : 0;
-            int x2 = ox2 instanceof Number ? ((Number)ox2).intValue() : x1 + 80;
-            int y2 = oy2 instanceof Number ? ((Number)oy2).intValue() : y1 + 30;
-            String txt = e.get("text") instanceof String ? (String)e.get("text") : "";
-            String fontName = e.get("fontName") instanceof String ? (String)e.get("fontName") : "SansSerif";
-            int fontStyle = e.get("fontStyle") instanceof Number ? ((Number)e.get("fontStyle")).intValue() : Font.PLAIN;
-            int fontSize = e.get("fontSize") instanceof Number ? ((Number)e.get("fontSize")).intValue() : Math.max(12, (y2 - y1) / 2);
-            int rgb = e.get("colorRGB") instanceof Number ? ((Number)e.get("colorRGB")).intValue() : Color.BLACK.getRGB();
-            Font f = new Font(fontName, fontStyle, fontSize);
-            Color c = new Color(rgb, true);
-            int w = Math.max(4, x2 - x1);
-            int h = Math.max(4, y2 - y1);
-            return ShapeRecord.textRecord(txt, f, c, strokeWidth, x1, y1, w, h, e.getId());
-        }
-        // other types: try to read bbox and draw a rectangle placeholder
-        Object ox1 = e.get("x1"); Object oy1 = e.get("y1"); Object ox2 = e.get("x2"); Object oy2 = e.get("y2");
-        int x1 = ox1 instanceof Number ? ((Number)ox1).intValue() : 10;
-        int y1 = oy1 instanceof Number ? ((Number)oy1).intValue() : 10;
-        int x2 = ox2 instanceof Number ? ((Number)ox2).intValue() : x1 + 80;
-        int y2 = oy2 instanceof Number ? ((Number)oy2).intValue() : y1 + 40;
-        Shape s = new Rectangle2D.Double(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1));
-        return new ShapeRecord(Tool.RECTANGLE, s, Color.BLACK, strokeWidth, x1, y1, x2, y2, null, null, e.getId());
-    }
-
-    private ReMoDeLEntity entityFromShape(ShapeRecord r) {
-        if (r == null) return null;
-        ReMoDeLEntity ent = new ReMoDeLEntity(r.entityId);
-        if (r.tool == Tool.TEXT) {
-            ent.setType("text");
-            ent.put("x1", (int) Math.round(r.x1));
-            ent.put("y1", (int) Math.round(r.y1));
-            ent.put("x2", (int) Math.round(r.x2));
-            ent.put("y2", (int) Math.round(r.y2));
-            ent.put("text", r.text != null ? r.text : "");
-            if (r.font != null) {
-                ent.put("fontName", r.font.getName());
-                ent.put("fontStyle", r.font.getStyle());
-                ent.put("fontSize", r.font.getSize());
+    /**
+     * Browse a paged document: the canvas is sized to the document extent and
+     * the pager is told whenever the scroll pane viewport moves. Call after
+     * setModel() with the pager's model, or use setModel(m, paged); setModel()
+     * closes the current pager.
+     */
+    public void setPagedDocument(PagedDocument p) {
+        PagedDocument old = pager;
+        if (old == p) return;
+        pager = p;
+        if (old != null) {
+            try {
+                old.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
             }
-            if (r.color != null) ent.put("colorRGB", r.color.getRGB());
-            return ent;
-        }
-        ent.setType("shape");
-        ent.put("x1", (int) Math.round(r.x1));
-        ent.put("y1", (int) Math.round(r.y1));
-        ent.put("x2", (int) Math.round(r.x2));
-        ent.put("y2", (int) Math.round(r.y2));
-        return ent;
-    }
-
-    // Undoable edit for moving/resizing a shape (stores before/after ShapeRecord)
-    private class MoveEdit extends AbstractUndoableEdit {
-        private final int index;
-        private final ShapeRecord before;
-        private ShapeRecord after;
-
-        MoveEdit(int index, ShapeRecord before) {
-            this.index = index;
-            this.before = before;
-        }
-
-        void setAfter(ShapeRecord after) {
-            this.after = after;
         }
-
-        @Override
-        public void undo() {
-            super.undo();
-            if (index >= 0 && index < shapes.size()) {
-                shapes.set(index, copyShapeRecord(before));
-                redrawBuffer();
-                repaint();
+        if (p != null) {
+            Rectangle2D ext = p.getExtent();
+            if (ext != null) {
+                setPreferredSize(new Dimension(Math.max(1600, (int) Math.ceil(ext.getMaxX()) + 200),
+                        Math.max(1200, (int) Math.ceil(ext.getMaxY()) + 200)));
+                revalidate();
             }
-        }
-
-        @Override
-        public void redo() {
-            super.redo();
-            if (after != null && index >= 0 && index < shapes.size()) {
-                shapes.set(index, copyShapeRecord(after));
-                redrawBuffer();
-                repaint();
+            JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+            if (vp != null && viewportListener == null) {
+                viewportListener = e -> {
+                    if (pager != null) pager.setViewport(getVisibleRect());
+                };
+                vp.addChangeListener(viewportListener);
             }
+            p.setViewport(getVisibleRect());
         }
+        firePropertyChange("pagedDocument", old, p);
+    }
 
-        @Override
-        public String getPresentationName() {
-            return "Move/Resize";
-        }
+    public PagedDocument getPagedDocument() {
+        return pager;
     }
 
-    // Undoable edit for creating a text shape
-    private class TextCreateEdit extends AbstractUndoableEdit {
-        private final int index;
-        private final ShapeRecord record;
-        private final ReMoDeLEntity entityCopy; // optional model entity snapshot
+    /**
+     * Collects model events and takes the engine's next scene on the EDT;
+     * only the area covered by the changed entities is redrawn.
+     */
+    private class ModelSync implements com.example.swingapp.model.ModelListener {
+        private final ReMoDeLModel source;
+        private final Set<String> pendingIds = new HashSet<>();
+        private boolean pendingReset, queued;
 
-        TextCreateEdit(int index, ShapeRecord record) {
-            this(index, record, null);
+        ModelSync(ReMoDeLModel source) {
+            this.source = source;
         }
 
-        TextCreateEdit(int index, ShapeRecord record, ReMoDeLEntity entityCopy) {
-            this.index = index;
-            this.record = record;
-            this.entityCopy = entityCopy;
+        synchronized int backlog() {
+            return pendingIds.size() + (pendingReset ? 1 : 0);
         }
 
         @Override
-        public void undo() {
-            super.undo();
-            // If backed by model, remove from model (listener will update shapes)
-            if (record != null && record.entityId != null && model != null) {
-                model.removeEntity(record.entityId);
-                return;
-            }
-            if (index >= 0 && index < shapes.size()) {
-                shapes.remove(index);
-                redrawBuffer();
-                repaint();
+        public void modelChanged(com.example.swingapp.model.ModelEvent e) {
+            synchronized (this) {
+                if (e.getType() == com.example.swingapp.model.ModelEvent.Type.RESET) pendingReset = true;
+                else pendingIds.addAll(e.getEntityIds());
+                if (queued) return;
+                queued = true;
             }
+            // Ensure UI updates happen on EDT
+            SwingUtilities.invokeLater(this::apply);
         }
 
-        @Override
-        public void redo() {
-            super.redo();
-            if (record != null && record.entityId != null && model != null && entityCopy != null) {
-                // re-add entity to model; model listener will rebuild shapes
-                model.addEntity(entityCopy.copy());
+        private void apply() {
+            Set<String> ids;
+            boolean reset;
+            synchronized (this) {
+                ids = new HashSet<>(pendingIds);
+                reset = pendingReset;
+                pendingIds.clear();
+                pendingReset = false;
+                queued = false;
+            }
+            if (model != source) return; // document replaced meanwhile
+            if (reset) {
+                rebuildShapesFromModel();
                 return;
             }
-            if (index >= 0 && index <= shapes.size()) {
-                shapes.add(index, copyShapeRecord(record));
-                redrawBuffer();
-                repaint();
+            // the outline of a multi-selection spans the gaps between its shapes
+            Rectangle2D damage = union(scene.bounds(ids), selection.size() > 1 ? scene.bounds(selection) : null);
+            adopt(engine.snapshot());
+            damage = union(damage, scene.bounds(ids));
+            if (selection.size() > 1) damage = union(damage, scene.bounds(selection));
+            if (damage != null) {
+                redrawDamage(damage);
+                fireSceneChanged(damage);
             }
         }
-
-        @Override
-        public String getPresentationName() { return "Add Text"; }
     }
 
-    // Undoable edit for editing text content/font/color
-    private class TextEdit extends AbstractUndoableEdit {
-        private final int index;
-        private final ShapeRecord before;
-        private final ShapeRecord after;
+    private void rebuildShapesFromModel() {
+        if (model == null) return;
+        adopt(engine.snapshot());
+        redrawBuffer();
+        repaint();
+        fireSceneChanged(null);
+    }
 
-        TextEdit(int index, ShapeRecord before, ShapeRecord after) {
-            this.index = index;
-            this.before = before;
-            this.after = after;
+    // take over the engine's scene; if shapes moved, re-resolve the selection by id
+    private void adopt(Scene next) {
+        boolean moved = !scene.sameLayout(next);
+        scene = next;
+        if (!moved) return;
+        selection.retainAll(next.entityIds());
+        if (primaryId != null) {
+            selectedIndex = next.indexOf(primaryId);
+            if (selectedIndex < 0) primaryId = null;
         }
+    }
 
-        @Override
-        public void undo() {
-            super.undo();
-            // if model-backed, update model entity instead (listener will rebuild)
-            String eid = before != null ? before.entityId : null;
-            if (eid != null && model != null) {
-                model.updateEntity(entityFromShape(before));
-                return;
-            }
-            if (index >= 0 && index < shapes.size()) {
-                shapes.set(index, copyShapeRecord(before));
-                redrawBuffer();
-                repaint();
-            }
-        }
+    /**
+     * The shapes on the canvas as of the last model sync. Immutable, so it
+     * may be handed to other threads for rendering or hit-testing.
+     */
+    public Scene getScene() {
+        return scene;
+    }
 
-        @Override
-        public void redo() {
-            super.redo();
-            String eid = after != null ? after.entityId : null;
-            if (eid != null && model != null) {
-                model.updateEntity(entityFromShape(after));
-                return;
-            }
-            if (index >= 0 && index < shapes.size()) {
-                shapes.set(index, copyShapeRecord(after));
-                redrawBuffer();
-                repaint();
-            }
+    /**
+     * Scene engine following the current model, or null without a model.
+     */
+    public SceneEngine getSceneEngine() {
+        return engine;
+    }
+
+    private static Rectangle2D union(Rectangle2D a, Rectangle2D b) {
+        if (a == null) return b == null ? null : (Rectangle2D) b.clone();
+        if (b != null) a.add(b);
+        return a;
+    }
+
+    /**
+     * Redraw the part of the buffer under the damaged area and repaint just that.
+     */
+    private void redrawDamage(Rectangle2D damage) {
+        BufferRedrawEvent ev = new BufferRedrawEvent();
+        ev.begin();
+        long t0 = System.nanoTime();
+        double m = damageMargin();
+        Rectangle r = new Rectangle2D.Double(damage.getX() - m, damage.getY() - m,
+                damage.getWidth() + 2 * m, damage.getHeight() + 2 * m).getBounds();
+        if (buf == null || !bufArea.equals(bufferArea())) {
+            redrawBuffer();
+            repaint();
+            return;
+        }
+        Rectangle clip = r.intersection(bufArea);
+        int drawn = drawnShapes;
+        if (!clip.isEmpty()) {
+            Graphics2D g = buf.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.translate(-bufArea.x, -bufArea.y);
+            g.clip(clip);
+            g.setColor(Color.WHITE);
+            g.fill(clip);
+            drawnShapes += renderer.render(g, scene, clip);
+            g.dispose();
         }
+        renderNanos += System.nanoTime() - t0;
+        if (ev.shouldCommit()) {
+            ev.shapes = drawnShapes - drawn;
+            ev.pixels = clip.isEmpty() ? 0 : (long) clip.width * clip.height;
+            ev.commit();
+        }
+        repaint(r);
+    }
 
-        @Override
-        public String getPresentationName() { return "Edit Text"; }
+    /**
+     * Listen for model changes reaching the canvas; the listener gets the
+     * canvas area that changed, or null when everything may have.
+     */
+    public void addSceneListener(Consumer<Rectangle2D> l) {
+        if (l != null) sceneListeners.add(l);
+    }
+
+    public void removeSceneListener(Consumer<Rectangle2D> l) {
+        sceneListeners.remove(l);
+    }
+
+    private void fireSceneChanged(Rectangle2D area) {
+        Rectangle2D grown = area == null ? null : new Rectangle2D.Double(area.getX() - damageMargin(),
+                area.getY() - damageMargin(), area.getWidth() + 2 * damageMargin(), area.getHeight() + 2 * damageMargin());
+        for (Consumer<Rectangle2D> l : new ArrayList<>(sceneListeners)) l.accept(grown);
+    }
+
+    /**
+     * Paint the shapes that intersect 'area' for an overview at a small scale:
+     * text boxes are drawn as tinted blocks instead of laid-out text.
+     */
+    public void paintOverview(Graphics2D g, Rectangle2D area) {
+        renderer.renderOverview(g, scene, area);
+    }
+
+    // how far strokes, arrow heads and selection handles reach beyond a shape's geometry
+    private double damageMargin() {
+        return 2 * strokeWidth + 16 + HANDLE_SIZE;
+    }
+
+    // connectives with both ends bound follow their entities and are not dragged directly
+    private boolean isAnchored(SceneShape r) {
+        if (r == null || r.getEntityId() == null || model == null) return false;
+        ReMoDeLEntity e = model.get(r.getEntityId());
+        return e instanceof Connective && ((Connective) e).getFromId() != null && ((Connective) e).getToId() != null;
+    }
+
+    // start from the backing entity (if any) so type-specific properties survive edits
+    private ReMoDeLEntity entityFromShape(SceneShape r) {
+        ReMoDeLEntity existing = (model != null && r.getEntityId() != null) ? model.get(r.getEntityId()) : null;
+        return SceneBuilder.toEntity(r, existing);
+    }
+
+    // what a drawing tool draws; SELECT and DELETE fall back to a line
+    private static ShapeKind kindOf(Tool t) {
+        ShapeKind k = ShapeKind.parse(t.name());
+        return k != null ? k : ShapeKind.LINE;
     }
 
     // tools
@@ -304,22 +400,33 @@ public class DrawingCanvas extends JComponent {
     }
     private Tool currentTool = Tool.SELECT;
 
-    // stored shapes
-    private final java.util.List<ShapeRecord> shapes = new ArrayList<>();
-    private ShapeRecord preview = null;
+    // shapes as of the last model sync (or as drawn without a model), and what draws them
+    private Scene scene = Scene.EMPTY;
+    private final SceneRenderer renderer = new SceneRenderer();
+    // follows the model; the canvas takes its snapshots on the EDT
+    private SceneEngine engine = null;
+    private SceneShape preview = null;
 
-    // optional backing model and mapping from entity id -> shape index
+    // optional backing model
     private ReMoDeLModel model = null;
-    private final java.util.Map<String, Integer> idToIndex = new java.util.HashMap<>();
 
     // selection/edit state
     private int selectedIndex = -1;
+    // model-backed selection by entity id; selectedIndex/primaryId is the shape clicked last
+    private final Set<String> selection = new LinkedHashSet<>();
+    private String primaryId = null;
+    private Rectangle rubberBand = null;
+    private boolean groupResizing = false;
+    private BulkTransform bulk = null;
+    private final Clipboard clipboard = new Clipboard();
+    private static final int PASTE_OFFSET = 20;
     private boolean draggingMove = false;
     private boolean resizing = false;
     private int activeHandle = -1; // 0..3 corners
     private int pressX, pressY;
 
     private static final int HANDLE_SIZE = 8;
+    private static final long MAX_BUFFER_PIXELS = 4096L * 4096L;
 
     public DrawingCanvas() {
         setPreferredSize(new Dimension(1600, 1200));
@@ -329,67 +436,47 @@ public class DrawingCanvas extends JComponent {
         setFocusable(true);
     }
 
-    private static class ShapeRecord {
-        final Tool tool;
-        final Shape shape; // primary geometry (Line2D, Path2D, Rect/Ellipse)
-        final Color color;
-        final float stroke;
-    // extra data for arrows and geometry
-    final String entityId; // optional associated model entity id (if this shape is backed by ReMoDeLModel)
-        final double x1, y1, x2, y2;
-        // text-specific
-        final String text;
-        final Font font;
-
-        ShapeRecord(Tool tool, Shape shape, Color color, float stroke, double x1, double y1, double x2, double y2, String text, Font font) {
-            this(tool, shape, color, stroke, x1, y1, x2, y2, text, font, null);
-        }
-
-        ShapeRecord(Tool tool, Shape shape, Color color, float stroke, double x1, double y1, double x2, double y2, String text, Font font, String entityId) {
-            this.tool = tool;
-            this.shape = shape;
-            this.color = color;
-            this.stroke = stroke;
-            this.x1 = x1; this.y1 = y1; this.x2 = x2; this.y2 = y2;
-            this.text = text; this.font = font;
-            this.entityId = entityId;
-        }
-
-        // convenience constructor for non-text shapes
-        ShapeRecord(Tool tool, Shape shape, Color color, float stroke, double x1, double y1, double x2, double y2) {
-            this(tool, shape, color, stroke, x1, y1, x2, y2, null, null);
-        }
-
-        // convenience factory for text records (bounding rect + text/font)
-        static ShapeRecord textRecord(String text, Font font, Color color, float stroke, double x, double y, double w, double h) {
-            return textRecord(text, font, color, stroke, x, y, w, h, null);
-        }
-
-        static ShapeRecord textRecord(String text, Font font, Color color, float stroke, double x, double y, double w, double h, String entityId) {
-            Shape rect = new Rectangle2D.Double(x, y, w, h);
-            return new ShapeRecord(Tool.TEXT, rect, color, stroke, x, y, x + w, y + h, text, font, entityId);
-        }
-    }
-
     private void ensureBuffer() {
 
-        if (buf == null || buf.getWidth() != getWidth() || buf.getHeight() != getHeight()) {
+        if (buf == null || !bufArea.equals(bufferArea())) {
+            bufferMisses++;
             redrawBuffer();
+        } else {
+            bufferHits++;
         }
     }
 
-    private void redrawBuffer() {
+    // the whole canvas, unless that is too big to keep as an image (paged documents)
+    private Rectangle bufferArea() {
+        if ((long) getWidth() * getHeight() <= MAX_BUFFER_PIXELS) return new Rectangle(0, 0, getWidth(), getHeight());
+        return getVisibleRect();
+    }
 
-        BufferedImage newBuf = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()), BufferedImage.TYPE_INT_ARGB);
+    private void redrawBuffer() {
+        BufferRedrawEvent ev = new BufferRedrawEvent();
+        ev.begin();
+        long t0 = System.nanoTime();
+        Rectangle area = bufferArea();
+        BufferedImage newBuf = new BufferedImage(Math.max(1, area.width), Math.max(1, area.height), BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = newBuf.createGraphics();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         // clear background
         g.setColor(Color.WHITE);
         g.fillRect(0, 0, newBuf.getWidth(), newBuf.getHeight());
         // redraw existing shapes into new buffer
-        for (ShapeRecord r : shapes) drawRecord(g, r, false);
+        g.translate(-area.x, -area.y);
+        int drawn = renderer.render(g, scene, area);
         g.dispose();
         buf = newBuf;
+        bufArea = area;
+        drawnShapes += drawn;
+        renderNanos += System.nanoTime() - t0;
+        if (ev.shouldCommit()) {
+            ev.full = true;
+            ev.shapes = drawn;
+            ev.pixels = (long) area.width * area.height;
+            ev.commit();
+        }
     }
 
     private void initMouse() {
@@ -405,42 +492,81 @@ public class DrawingCanvas extends JComponent {
                 if (currentTool == Tool.FREEHAND) {
                     freePath = new GeneralPath();
                     freePath.moveTo(lastX, lastY);
-                    preview = new ShapeRecord(Tool.FREEHAND, freePath, drawColor, strokeWidth, lastX, lastY, lastX, lastY);
+                    preview = freehandPreview();
                     repaint();
                     return;
                 }
 
                 if (currentTool == Tool.SELECT) {
+                    boolean shift = e.isShiftDown();
+                    // a multi-selection is resized from the handles around all of it
+                    if (!shift && selection.size() > 1) {
+                        activeHandle = handleHit(scene.bounds(selection), lastX, lastY);
+                        if (activeHandle >= 0) {
+                            groupResizing = true;
+                            // every step scales the selection as it was at the press
+                            dragBase = model.snapshot();
+                            dragOrigin = bulk.boundsOf(selection);
+                            dragGesture++;
+                            return;
+                        }
+                    }
                     // hit-test shapes from top-most to bottom
-                    int hit = hitTest(lastX, lastY);
+                    int hit = scene.hitTest(lastX, lastY);
                     if (hit >= 0) {
+                        SceneShape rec = scene.get(hit);
                         // if double-clicked a text item, start inline editing
-                        if (e.getClickCount() == 2 && shapes.get(hit).tool == Tool.TEXT) {
+                        if (e.getClickCount() == 2 && rec.getKind() == ShapeKind.TEXT && !shift) {
                             startEditingText(hit);
                             return;
                         }
+                        if (shift && rec.getEntityId() != null) {
+                            // shift-click adds the shape to the selection or takes it out
+                            if (selection.remove(rec.getEntityId())) {
+                                if (hit == selectedIndex) {
+                                    selectedIndex = -1;
+                                    primaryId = null;
+                                }
+                            } else {
+                                selection.add(rec.getEntityId());
+                                selectedIndex = hit;
+                                primaryId = rec.getEntityId();
+                            }
+                            repaint();
+                            return;
+                        }
+                        if (rec.getEntityId() == null || !selection.contains(rec.getEntityId())) {
+                            selection.clear();
+                            if (rec.getEntityId() != null) selection.add(rec.getEntityId());
+                        }
                         selectedIndex = hit;
-                        // check if clicked on a handle
-                        Rectangle2D bounds = getShapeBounds(shapes.get(selectedIndex));
-                        activeHandle = handleHit(bounds, lastX, lastY);
+                        primaryId = rec.getEntityId();
+                        // check if clicked on a handle (a single shape only; groups use the outer handles)
+                        activeHandle = selection.size() > 1 ? -1 : handleHit(rec.getBounds(), lastX, lastY);
                         if (activeHandle >= 0) {
                             resizing = true;
                         } else {
                             draggingMove = true;
+                            dragOrigin = bulk != null ? bulk.boundsOf(selection) : null;
                         }
-                        // start a grouped move/resize edit: capture the original record
-                        ShapeRecord before = copyShapeRecord(shapes.get(selectedIndex));
-                        currentMoveEdit = new MoveEdit(selectedIndex, before);
+                        // the drag steps of this gesture form one undo step
+                        dragGesture++;
                         repaint();
                     } else {
-                        // clicked empty area -> clear selection
-                        selectedIndex = -1;
+                        // clicked empty area -> clear selection (unless extending it) and start a rubber band
+                        if (!shift) clearSelection();
+                        rubberBand = new Rectangle(lastX, lastY, 0, 0);
                         repaint();
                     }
                     return;
                 }
 
                 // other drawing tools: set preview (but TEXT uses separate placer and shouldn't show preview)
+                if (snapsPoints()) {
+                    Point p = snapPoint(lastX, lastY, e.isAltDown());
+                    pressX = lastX = p.x;
+                    pressY = lastY = p.y;
+                }
                 if (currentTool != Tool.TEXT) {
                     preview = createPreview(lastX, lastY, lastX, lastY);
                 } else {
@@ -457,44 +583,51 @@ public class DrawingCanvas extends JComponent {
                     lastX = x; lastY = y;
                     return;
                 }
-                if (currentTool == Tool.FREEHAND && preview != null && preview.shape instanceof GeneralPath) {
-                    ((GeneralPath) preview.shape).lineTo(x, y);
+                if (currentTool == Tool.FREEHAND && preview != null && freePath != null) {
+                    freePath.lineTo(x, y);
+                    preview = freehandPreview();
                     lastX = x; lastY = y;
                     repaint();
                     return;
                 }
 
                 if (currentTool == Tool.SELECT) {
-                    if (selectedIndex >= 0) {
-                        ShapeRecord sel = shapes.get(selectedIndex);
-                        int dx = x - lastX, dy = y - lastY;
-                        if (draggingMove) {
-                            // translate shape by dx,dy
-                            if (sel.tool == Tool.TEXT) {
-                                // preserve text and font when translating
-                                double nx1 = sel.x1 + dx, ny1 = sel.y1 + dy, nx2 = sel.x2 + dx, ny2 = sel.y2 + dy;
-                                Shape rect = new Rectangle2D.Double(Math.min(nx1, nx2), Math.min(ny1, ny2), Math.abs(nx2 - nx1), Math.abs(ny2 - ny1));
-                                ShapeRecord nr = new ShapeRecord(Tool.TEXT, rect, sel.color, sel.stroke, nx1, ny1, nx2, ny2, sel.text, sel.font, sel.entityId);
-                                if (sel.entityId != null && model != null) {
-                                    model.updateEntity(entityFromShape(nr));
-                                } else {
-                                    shapes.set(selectedIndex, nr);
-                                }
+                    if (rubberBand != null) {
+                        rubberBand.setFrameFromDiagonal(pressX, pressY, x, y);
+                        repaint();
+                    } else if (groupResizing) {
+                        // drag one corner of the selection bounds; the opposite corner stays put
+                        Rectangle2D b = dragOrigin;
+                        if (b != null) {
+                            double x1 = b.getMinX(), y1 = b.getMinY(), x2 = b.getMaxX(), y2 = b.getMaxY();
+                            if (activeHandle == 0 || activeHandle == 3) x1 = Math.min(x, x2 - 4); else x2 = Math.max(x, x1 + 4);
+                            if (activeHandle == 0 || activeHandle == 1) y1 = Math.min(y, y2 - 4); else y2 = Math.max(y, y1 + 4);
+                            applyBulk(bulk.resize(selection, dragBase, b, new Rectangle2D.Double(x1, y1, x2 - x1, y2 - y1),
+                                    "Resize#" + dragGesture));
+                        }
+                    } else if (draggingMove && selection.size() > 1) {
+                        // the whole selection moves in one model batch per step
+                        Point d = snappedStep(x, y, e.isAltDown());
+                        applyBulk(bulk.move(selection, d.x, d.y, "Move#" + dragGesture));
+                    } else if (selectedIndex >= 0) {
+                        SceneShape sel = scene.get(selectedIndex);
+                        Point step = draggingMove ? snappedStep(x, y, e.isAltDown()) : new Point(x - lastX, y - lastY);
+                        int dx = step.x, dy = step.y;
+                        if (isAnchored(sel)) {
+                            // anchored connectives are re-routed when their ends move
+                        } else if (draggingMove) {
+                            // translate shape by dx,dy; text keeps its text and font
+                            SceneShape nr = sel.translated(dx, dy);
+                            if (sel.getEntityId() != null && model != null) {
+                                applyDragStep("Move", entityFromShape(nr));
                             } else {
-                                Shape moved = AffineTransform.getTranslateInstance(dx, dy).createTransformedShape(sel.shape);
-                                ShapeRecord nr = new ShapeRecord(sel.tool, moved, sel.color, sel.stroke,
-                                        sel.x1 + dx, sel.y1 + dy, sel.x2 + dx, sel.y2 + dy, null, null, sel.entityId);
-                                if (sel.entityId != null && model != null) {
-                                    model.updateEntity(entityFromShape(nr));
-                                } else {
-                                    shapes.set(selectedIndex, nr);
-                                }
+                                scene = scene.with(selectedIndex, nr);
                             }
                             redrawBuffer();
                             repaint();
                         } else if (resizing) {
                             // compute new bounds using which corner is dragged
-                            Rectangle2D b = getShapeBounds(sel);
+                            Rectangle2D b = sel.getBounds();
                             double x1 = b.getX(), y1 = b.getY(), x2 = b.getX() + b.getWidth(), y2 = b.getY() + b.getHeight();
                             switch (activeHandle) {
                                 case 0: // top-left
@@ -510,32 +643,16 @@ public class DrawingCanvas extends JComponent {
                                     x1 = x; y2 = y;
                                     break;
                             }
-                            if (sel.tool == Tool.TEXT) {
-                                // resize text box, preserve text/font
-                                ShapeRecord nr = new ShapeRecord(Tool.TEXT,
-                                        new Rectangle2D.Double(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1)),
-                                        sel.color, sel.stroke, x1, y1, x2, y2, sel.text, sel.font, sel.entityId);
-                                if (sel.entityId != null && model != null) {
-                                    model.updateEntity(entityFromShape(nr));
-                                } else {
-                                    shapes.set(selectedIndex, nr);
-                                }
-                                redrawBuffer();
-                                repaint();
+                            // text keeps its text and font; other shapes are rebuilt on the whole-pixel box
+                            SceneShape nr = sel.getKind() == ShapeKind.TEXT ? sel.resized(x1, y1, x2, y2)
+                                    : sel.resized((int) x1, (int) y1, (int) x2, (int) y2);
+                            if (sel.getEntityId() != null && model != null) {
+                                applyDragStep("Resize", entityFromShape(nr));
                             } else {
-                                ShapeRecord nr = createRecordFromTool(sel.tool, sel.color, sel.stroke, (int)x1, (int)y1, (int)x2, (int)y2);
-                                if (nr != null) {
-                                    if (sel.entityId != null && model != null) {
-                                        // preserve entity id
-                                        ShapeRecord withId = new ShapeRecord(nr.tool, nr.shape, nr.color, nr.stroke, nr.x1, nr.y1, nr.x2, nr.y2, nr.text, nr.font, sel.entityId);
-                                        model.updateEntity(entityFromShape(withId));
-                                    } else {
-                                        shapes.set(selectedIndex, nr);
-                                    }
-                                    redrawBuffer();
-                                    repaint();
-                                }
+                                scene = scene.with(selectedIndex, nr);
                             }
+                            redrawBuffer();
+                            repaint();
                         }
                     }
                     lastX = x; lastY = y;
@@ -543,6 +660,11 @@ public class DrawingCanvas extends JComponent {
                 }
 
                 // other drawing tools: update preview
+                if (snapsPoints()) {
+                    Point p = snapPoint(x, y, e.isAltDown());
+                    x = p.x;
+                    y = p.y;
+                }
                 preview = createPreview(pressX, pressY, x, y);
                 lastX = x; lastY = y;
                 repaint();
@@ -554,13 +676,12 @@ public class DrawingCanvas extends JComponent {
                 if (currentTool == Tool.FREEHAND) {
                     if (preview != null) {
                         if (model != null) {
-                            ReMoDeLEntity ent = entityFromShape(preview);
-                            model.addEntity(ent);
+                            apply(undoJournal.begin("Draw").put(entityFromShape(preview)));
                         } else {
-                            shapes.add(preview);
+                            scene = scene.plus(preview);
                         }
                         Graphics2D g = getBufferGraphics();
-                        drawRecord(g, preview, false);
+                        renderer.draw(g, preview);
                         g.dispose();
                         preview = null;
                         repaint();
@@ -571,32 +692,48 @@ public class DrawingCanvas extends JComponent {
                 }
 
                 if (currentTool == Tool.SELECT) {
-                    // finish move/resize
-                    draggingMove = false; resizing = false; activeHandle = -1;
-                    // finalize move/resize undo edit
-                    if (currentMoveEdit != null) {
-                        // capture 'after' state if shape still exists at that index
-                        if (selectedIndex >= 0 && selectedIndex < shapes.size()) {
-                            currentMoveEdit.setAfter(copyShapeRecord(shapes.get(selectedIndex)));
-                        }
-                        addUndoableEdit(currentMoveEdit);
-                        currentMoveEdit = null;
+                    if (rubberBand != null) {
+                        Rectangle band = rubberBand;
+                        rubberBand = null;
+                        if (band.width > 2 || band.height > 2) selectInside(band);
+                        repaint();
+                        statusConsumer.accept(selection.isEmpty() ? "Ready" : selection.size() + " selected");
+                        return;
                     }
+                    // finish move/resize
+                    draggingMove = false; resizing = false; groupResizing = false; activeHandle = -1;
+                    dragOrigin = null;
+                    dragBase = null;
+                    showGuides(Collections.emptyList());
+                    // the gesture is over: later drags start a new undo step
+                    if (undoJournal != null) undoJournal.seal();
                     redrawBuffer();
                     repaint();
                     statusConsumer.accept("Ready");
                     return;
                 }
 
+                showGuides(Collections.emptyList());
                 if (preview != null) {
-                    if (model != null) {
-                        ReMoDeLEntity ent = entityFromShape(preview);
-                        model.addEntity(ent);
+                    boolean connector = currentTool == Tool.LINE || currentTool == Tool.ARROW_FILLED
+                            || currentTool == Tool.ARROW_DIAMOND || currentTool == Tool.ARROW_OPEN;
+                    String fromId = connector && model != null ? scene.anchorAt(pressX, pressY) : null;
+                    String toId = connector && model != null ? scene.anchorAt(x, y) : null;
+                    if (fromId != null && toId != null && !fromId.equals(toId)) {
+                        // line drawn between two entities: bind it as a routed Connective
+                        Connective c = new Connective();
+                        c.setFromId(fromId);
+                        c.setToId(toId);
+                        c.put("tool", currentTool.name());
+                        c.put("colorRGB", drawColor.getRGB());
+                        apply(undoJournal.begin("Connect").put(c));
+                    } else if (model != null) {
+                        apply(undoJournal.begin("Draw").put(entityFromShape(preview)));
                     } else {
-                        shapes.add(preview);
+                        scene = scene.plus(preview);
                     }
                     Graphics2D g = getBufferGraphics();
-                    drawRecord(g, preview, false);
+                    renderer.draw(g, preview);
                     g.dispose();
                     preview = null;
                 }
@@ -604,6 +741,11 @@ public class DrawingCanvas extends JComponent {
                 statusConsumer.accept("Ready");
                 repaint();
             }
+
+            // a new record each step: scene shapes cache their bounds
+            private SceneShape freehandPreview() {
+                return new SceneShape(ShapeKind.FREEHAND, freePath, drawColor, strokeWidth, pressX, pressY, pressX, pressY, null, null, null);
+            }
         };
         addMouseListener(ma);
         addMouseMotionListener(ma);
@@ -615,24 +757,104 @@ public class DrawingCanvas extends JComponent {
         });
     }
 
-    private int hitTest(int x, int y) {
+    // --- Search -----------------------------------------------------------------------
 
-        Point2D p = new Point2D.Double(x, y);
-        for (int i = shapes.size() - 1; i >= 0; i--) {
-            ShapeRecord r = shapes.get(i);
-            Shape pick = new BasicStroke(Math.max(6f, r.stroke + 6f)).createStrokedShape(r.shape);
-            if (pick.contains(p)) return i;
-            // for filled shapes also test interior
-            try {
-                if (r.shape.contains(p)) return i;
-            } catch (Exception ignored) {}
+    /**
+     * Full-text index of the current model, or null without a model.
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Scroll so the entity is in the middle of the view and select it.
+     * Returns false if the entity is not on the canvas.
+     */
+    public boolean centerOn(String entityId) {
+        SceneShape s = scene.find(entityId);
+        ReMoDeLEntity e = model == null || entityId == null ? null : model.get(entityId);
+        Rectangle2D b = s != null ? s.getBounds() : e != null ? BulkTransform.extent(e) : null;
+        if (b == null) return false;
+        Rectangle view = getVisibleRect();
+        Rectangle target = new Rectangle((int) Math.round(b.getCenterX() - view.width / 2.0),
+                (int) Math.round(b.getCenterY() - view.height / 2.0), view.width, view.height);
+        scrollRectToVisible(target);
+        setSelection(Collections.singletonList(entityId));
+        return true;
+    }
+
+    // --- Snapping ---------------------------------------------------------------------
+
+    /**
+     * Snap dragged and newly drawn shapes to other shapes' edges, centres and
+     * spacing (default on). Holding Alt while dragging suspends it.
+     */
+    public void setSnapEnabled(boolean on) {
+        snapEnabled = on;
+        if (!on) showGuides(Collections.emptyList());
+    }
+
+    public boolean isSnapEnabled() {
+        return snapEnabled;
+    }
+
+    /**
+     * Grid spacing to snap to, in pixels; 0 turns grid snapping off.
+     */
+    public void setGridSize(int px) {
+        if (px < 0) throw new IllegalArgumentException("grid size must not be negative");
+        gridSize = px;
+        if (snapIndex != null) snapIndex.setGridSize(px);
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    // step from the current position of the dragged shapes to the snapped mouse offset since the press
+    private Point snappedStep(int x, int y, boolean suspended) {
+        Point raw = new Point(x - lastX, y - lastY);
+        Rectangle2D now = dragOrigin == null ? null : bulk.boundsOf(selection);
+        if (!snapEnabled || suspended || snapIndex == null || now == null) {
+            showGuides(Collections.emptyList());
+            return raw;
         }
-        return -1;
+        Rectangle2D moved = new Rectangle2D.Double(dragOrigin.getX() + x - pressX, dragOrigin.getY() + y - pressY,
+                dragOrigin.getWidth(), dragOrigin.getHeight());
+        SnapIndex.Snap s = snapIndex.snap(moved, selection);
+        showGuides(s.getGuides());
+        return new Point((int) Math.round(moved.getX() + s.getDx() - now.getX()),
+                (int) Math.round(moved.getY() + s.getDy() - now.getY()));
+    }
+
+    // box tools place their corners on snap targets; connectors keep the exact point for anchoring
+    private boolean snapsPoints() {
+        return snapEnabled && snapIndex != null && (currentTool == Tool.RECTANGLE || currentTool == Tool.OVAL
+                || currentTool == Tool.ROUNDED_RECTANGLE);
     }
 
-    private Rectangle2D getShapeBounds(ShapeRecord r) {
+    private Point snapPoint(int x, int y, boolean suspended) {
+        if (suspended) {
+            showGuides(Collections.emptyList());
+            return new Point(x, y);
+        }
+        SnapIndex.Snap s = snapIndex.snap(new Point2D.Double(x, y), null);
+        showGuides(s.getGuides());
+        return new Point((int) Math.round(x + s.getDx()), (int) Math.round(y + s.getDy()));
+    }
+
+    private void showGuides(List<SnapIndex.Guide> guides) {
+        if (guides.isEmpty() && snapGuides.isEmpty()) return;
+        repaintGuides(snapGuides);
+        snapGuides = guides;
+        repaintGuides(guides);
+    }
 
-        return r.shape.getBounds2D();
+    private void repaintGuides(List<SnapIndex.Guide> guides) {
+        for (SnapIndex.Guide guide : guides) {
+            Rectangle r = guide.getLine().getBounds();
+            repaint(r.x - 2, r.y - 2, r.width + 4, r.height + 4);
+        }
     }
 
     private int handleHit(Rectangle2D b, int x, int y) {
@@ -650,296 +872,208 @@ public class DrawingCanvas extends JComponent {
         return -1;
     }
 
-    private ShapeRecord createPreview(int x1, int y1, int x2, int y2) {
-        
-        Shape s = null;
-        Tool t = currentTool;
-        int rx = Math.min(x1, x2);
-        int ry = Math.min(y1, y2);
-        int rw = Math.abs(x2 - x1);
-        int rh = Math.abs(y2 - y1);
-
-        switch (t) {
-
-            case LINE:
-            case ARROW_FILLED:
-            case ARROW_DIAMOND:
-            case ARROW_OPEN:
-                s = new Line2D.Double(x1, y1, x2, y2);
-                break;
-            case OVAL:
-                s = new Ellipse2D.Double(rx, ry, rw, rh);
-                break;
-            case RECTANGLE:
-                s = new Rectangle2D.Double(rx, ry, rw, rh);
-                break;
-            case ROUNDED_RECTANGLE:
-                s = new RoundRectangle2D.Double(rx, ry, rw, rh, Math.max(8, Math.min(rw, rh) / 4.0), Math.max(8, Math.min(rw, rh) / 4.0));
-                break;
-            default:
-                s = new Line2D.Double(x1, y1, x2, y2);
-        }
-        return new ShapeRecord(t, s, drawColor, strokeWidth, x1, y1, x2, y2);
-    }
-
-    private ShapeRecord createRecordFromTool(Tool t, Color c, float sWidth, int x1, int y1, int x2, int y2) {
-
-        // helper to construct a new shape record with normalized coords
-        int rx = Math.min(x1, x2);
-        int ry = Math.min(y1, y2);
-        int rw = Math.abs(x2 - x1);
-        int rh = Math.abs(y2 - y1);
-        Shape s = null;
-        switch (t) {
-            case LINE:
-            case ARROW_FILLED:
-            case ARROW_DIAMOND:
-            case ARROW_OPEN:
-                s = new Line2D.Double(x1, y1, x2, y2);
-                break;
-            case OVAL:
-                s = new Ellipse2D.Double(rx, ry, rw, rh);
-                break;
-            case RECTANGLE:
-                s = new Rectangle2D.Double(rx, ry, rw, rh);
-                break;
-            case ROUNDED_RECTANGLE:
-                s = new RoundRectangle2D.Double(rx, ry, rw, rh, Math.max(8, Math.min(rw, rh) / 4.0), Math.max(8, Math.min(rw, rh) / 4.0));
-                break;
-            case FREEHAND:
-            default:
-                // fallback to a tiny line
-                s = new Line2D.Double(x1, y1, x2, y2);
-        }
-        return new ShapeRecord(t, s, c, sWidth, x1, y1, x2, y2);
+    private SceneShape createPreview(int x1, int y1, int x2, int y2) {
+        return SceneShape.of(kindOf(currentTool), drawColor, strokeWidth, x1, y1, x2, y2);
     }
 
     private Graphics2D getBufferGraphics() {
         ensureBuffer();
         Graphics2D g = buf.createGraphics();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(-bufArea.x, -bufArea.y);
         return g;
     }
 
-    private Point2D.Double computeArrowBase(double x1, double y1, double x2, double y2, float stroke) {
-        double dx = x2 - x1, dy = y2 - y1;
-        double len = Math.hypot(dx, dy);
-        if (len < 1e-6) return new Point2D.Double(x2, y2);
-        double ux = dx / len, uy = dy / len;
-        double headLen = Math.max(8, 6 + stroke * 2); // match drawArrowHead's headLen
-        double bx = x2 - ux * headLen;
-        double by = y2 - uy * headLen;
-        return new Point2D.Double(bx, by);
-    }
-
-    private void drawRecord(Graphics2D g, ShapeRecord r, boolean isPreview) {
-        Stroke prev = g.getStroke();
-        Color prevC = g.getColor();
-        g.setStroke(new BasicStroke(r.stroke, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-        g.setColor(r.color);
-
-        switch (r.tool) {
-            case FREEHAND:
-            case LINE:
-                g.draw(r.shape);
-                break;
-            case OVAL:
-            case RECTANGLE:
-            case ROUNDED_RECTANGLE:
-                g.draw(r.shape);
-                break;
-            case ARROW_FILLED:
-            case ARROW_DIAMOND:
-            case ARROW_OPEN: {
-                // compute base of arrow head (same logic for all kinds) and draw shaft only to that base
-                Point2D.Double baseAll = computeArrowBase(r.x1, r.y1, r.x2, r.y2, r.stroke);
-                Line2D shaftAll = new Line2D.Double(r.x1, r.y1, baseAll.x, baseAll.y);
-                g.draw(shaftAll);
-                // draw head using the same stroke so geometry matches
-                drawArrowHead(g, r.x1, r.y1, r.x2, r.y2, r.tool);
-                break;
-            }
-            case TEXT: {
-                // draw multi-line / wrapped text within the shape bounds
-                try {
-                    Rectangle2D bounds = r.shape.getBounds2D();
-                    if (r.text != null) {
-                        Font f = r.font != null ? r.font : g.getFont();
-                        g.setFont(f);
-                        drawTextLayout(g, r.text, f, bounds, r.color != null ? r.color : g.getColor());
-                    }
-                } catch (Exception ex) {
-                    // fallback: draw shape
-                    try { g.draw(r.shape); } catch (Exception ignore) {}
-                }
-                break;
-            }
-            default:
-                g.draw(r.shape);
-        }
-        g.setColor(prevC);
-        g.setStroke(prev);
-    }
-
     @Override
     protected void paintComponent(Graphics gg) {
+        long t0 = System.nanoTime();
         super.paintComponent(gg);
         ensureBuffer();
         Graphics2D g = (Graphics2D) gg.create();
-        g.drawImage(buf, 0, 0, this);
+        g.drawImage(buf, bufArea.x, bufArea.y, this);
         // draw preview on top
         if (preview != null) {
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             // semi-transparent preview
             Composite prevComp = g.getComposite();
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.85f));
-            drawRecord(g, preview, true);
+            renderer.draw(g, preview);
+            drawnShapes++;
             g.setComposite(prevComp);
         }
-        // draw selection handles
-        if (selectedIndex >= 0 && selectedIndex < shapes.size()) {
-            ShapeRecord sel = shapes.get(selectedIndex);
-            Rectangle2D b = getShapeBounds(sel);
-            if (b != null) {
-                g.setColor(Color.BLUE);
-                g.setStroke(new BasicStroke(1f));
-                g.draw(b);
-                // handles
-                double hx = b.getX(), hy = b.getY(), hw = b.getWidth(), hh = b.getHeight();
-                Rectangle2D[] handles = new Rectangle2D[] {
-                        new Rectangle2D.Double(hx - HANDLE_SIZE/2, hy - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE), // tl
-                        new Rectangle2D.Double(hx + hw - HANDLE_SIZE/2, hy - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE), // tr
-                        new Rectangle2D.Double(hx + hw - HANDLE_SIZE/2, hy + hh - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE), // br
-                        new Rectangle2D.Double(hx - HANDLE_SIZE/2, hy + hh - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE) // bl
-                };
-                g.setColor(Color.WHITE);
-                for (Rectangle2D h : handles) {
-                    g.fill(h);
-                    g.setColor(Color.BLUE);
-                    g.draw(h);
-                    g.setColor(Color.WHITE);
-                }
+        // draw selection handles: around the single selected shape, or around a whole multi-selection
+        g.setStroke(new BasicStroke(1f));
+        if (selection.size() > 1) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(new Color(0, 0, 255, 96));
+            Rectangle2D all = null;
+            for (String id : selection) {
+                SceneShape s = scene.find(id);
+                if (s == null) continue;
+                Rectangle2D b = s.getBounds();
+                all = union(all, b);
+                if (clip == null || b.intersects(clip)) g.draw(b);
             }
+            if (all != null) paintHandles(g, all);
+        } else if (selectedIndex >= 0 && selectedIndex < scene.size()) {
+            Rectangle2D b = scene.get(selectedIndex).getBounds();
+            if (b != null) paintHandles(g, b);
+        }
+        if (!snapGuides.isEmpty()) {
+            g.setColor(Color.MAGENTA);
+            for (SnapIndex.Guide guide : snapGuides) g.draw(guide.getLine());
+        }
+        if (rubberBand != null) {
+            g.setColor(new Color(0, 0, 255, 32));
+            g.fill(rubberBand);
+            g.setColor(Color.BLUE);
+            g.draw(rubberBand);
         }
+        // a repaint of just the overlay is not a frame of the drawing
+        Rectangle clip = g.getClipBounds();
+        if (overlayArea == null || clip == null || !overlayArea.contains(clip)) {
+            lastFrameNanos = renderNanos + System.nanoTime() - t0;
+            frameStats.record(lastFrameNanos, drawnShapes);
+            renderNanos = 0;
+            drawnShapes = 0;
+        }
+        if (perfOverlay) paintOverlay(g);
         g.dispose();
     }
 
-    private void drawArrowHead(Graphics2D g, double x1, double y1, double x2, double y2, Tool kind) {
-        // compute unit vector along line
-        double dx = x2 - x1, dy = y2 - y1;
-        double len = Math.hypot(dx, dy);
-        if (len < 1e-6) return;
-        double ux = dx / len, uy = dy / len;
-        double px = -uy, py = ux; // perp
-
-        double headLen = Math.max(8, 6 + strokeWidth * 2);
-        double headWidth = Math.max(6, 4 + strokeWidth * 1.5);
-
-        // base of head
-        double bx = x2 - ux * headLen;
-        double by = y2 - uy * headLen;
-
-        // two side points
-        double sx1 = bx + px * (headWidth / 2.0);
-        double sy1 = by + py * (headWidth / 2.0);
-        double sx2 = bx - px * (headWidth / 2.0);
-        double sy2 = by - py * (headWidth / 2.0);
-
-        Paint prev = g.getPaint();
-        switch (kind) {
-            case ARROW_FILLED: {
-                Path2D p = new Path2D.Double();
-                p.moveTo(x2, y2);
-                p.lineTo(sx1, sy1);
-                p.lineTo(sx2, sy2);
-                p.closePath();
-                g.fill(p);
-                break;
-            }
-            case ARROW_DIAMOND: {
-                // diamond center at bx - ux*(headLen/2)
-                double cx = bx - ux * (headLen / 2.0);
-                double cy = by - uy * (headLen / 2.0);
-                Path2D d = new Path2D.Double();
-                d.moveTo(x2, y2);
-                d.lineTo(sx1, sy1);
-                d.lineTo(cx, cy);
-                d.lineTo(sx2, sy2);
-                d.closePath();
-                g.fill(d);
-                break;
-            }
-            case ARROW_OPEN: {
-                // draw two lines forming open head
-                g.draw(new Line2D.Double(x2, y2, sx1, sy1));
-                g.draw(new Line2D.Double(x2, y2, sx2, sy2));
-                break;
-            }
-            default:
-                break;
-        }
+    // --- Performance overlay ----------------------------------------------------------
+
+    /**
+     * Time the last frame took, buffer redraws included, in nanoseconds.
+     */
+    @Override
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
     }
 
     /**
-     * Draw text with simple word-wrapping inside the given bounds using FontMetrics.
-     * This avoids dependencies on java.text.LineBreakMeasurer/TextLayout so it compiles
-     * cleanly in minimal module configurations.
+     * Paints served from the back buffer as it was, and paints that had to redraw it first.
      */
-    private void drawTextLayout(Graphics2D g, String text, Font font, Rectangle2D bounds, Color color) {
-        if (text == null || text.isEmpty() || bounds == null) return;
-        g.setFont(font != null ? font : g.getFont());
-        g.setColor(color != null ? color : g.getColor());
-        FontMetrics fm = g.getFontMetrics(g.getFont());
-        int wrapWidth = Math.max(4, (int) bounds.getWidth() - 8);
-        float x = (float) (bounds.getX() + 4f);
-        float y = (float) (bounds.getY() + 4f) + fm.getAscent();
-
-        String[] paragraphs = text.split("\r?\n");
-        for (int p = 0; p < paragraphs.length; p++) {
-            String paragraph = paragraphs[p].trim();
-            if (paragraph.isEmpty()) {
-                y += fm.getHeight();
-                if (y > bounds.getY() + bounds.getHeight()) break;
-                continue;
-            }
-            String[] words = paragraph.split("\\s+");
-            StringBuilder line = new StringBuilder();
-            for (int i = 0; i < words.length; i++) {
-                String word = words[i];
-                String test = line.length() == 0 ? word : line + " " + word;
-                int w = fm.stringWidth(test);
-                if (w > wrapWidth && line.length() > 0) {
-                    // draw current line
-                    g.drawString(line.toString(), x, y);
-                    y += fm.getHeight();
-                    if (y > bounds.getY() + bounds.getHeight()) return;
-                    line.setLength(0);
-                    line.append(word);
-                } else {
-                    if (line.length() > 0) line.append(' ');
-                    line.append(word);
-                }
-            }
-            if (line.length() > 0) {
-                g.drawString(line.toString(), x, y);
-                y += fm.getHeight();
-                if (y > bounds.getY() + bounds.getHeight()) return;
-            }
-            // add paragraph spacing
-            y += fm.getLeading();
+    @Override
+    public long getBufferHits() {
+        return bufferHits;
+    }
+
+    @Override
+    public long getBufferMisses() {
+        return bufferMisses;
+    }
+
+    /**
+     * Entities changed in the model that the canvas has not caught up with yet.
+     */
+    public int getPendingModelChanges() {
+        return modelListener instanceof ModelSync ? ((ModelSync) modelListener).backlog() : 0;
+    }
+
+    /**
+     * Show frame-time percentiles, shapes drawn per frame and the time the
+     * model spends dispatching events, in the corner of the visible area.
+     */
+    public void setPerformanceOverlay(boolean on) {
+        if (perfOverlay == on) return;
+        perfOverlay = on;
+        if (on) {
+            frameStats.clear();
+            sampleOverlay();
+            perfTimer = new javax.swing.Timer(OVERLAY_PERIOD_MS, e -> sampleOverlay());
+            perfTimer.start();
+        } else {
+            perfTimer.stop();
+            perfTimer = null;
+            overlayLines = new String[0];
+            if (overlayArea != null) repaint(overlayArea);
+            overlayArea = null;
+        }
+    }
+
+    public boolean isPerformanceOverlay() {
+        return perfOverlay;
+    }
+
+    // refresh the overlay text from the frame window and the model's dispatch counters
+    private void sampleOverlay() {
+        long now = System.nanoTime();
+        long dn = model == null ? 0 : model.getDispatchNanos();
+        long dc = model == null ? 0 : model.getDispatchCount();
+        double secs = sampledAt == 0 ? 0 : (now - sampledAt) / 1e9;
+        // a new model restarts its counters
+        if (dn < sampledDispatchNanos || dc < sampledDispatchCount) sampledDispatchNanos = sampledDispatchCount = 0;
+        double dispatchMs = secs > 0 ? (dn - sampledDispatchNanos) / 1e6 / secs : 0;
+        double events = secs > 0 ? (dc - sampledDispatchCount) / secs : 0;
+        sampledAt = now;
+        sampledDispatchNanos = dn;
+        sampledDispatchCount = dc;
+        overlayLines = new String[] {
+                String.format(Locale.ROOT, "frame ms  p50 %.1f  p95 %.1f  p99 %.1f  max %.1f",
+                        frameStats.percentile(50) / 1e6, frameStats.percentile(95) / 1e6,
+                        frameStats.percentile(99) / 1e6, frameStats.percentile(100) / 1e6),
+                String.format(Locale.ROOT, "shapes drawn  last %d  avg %.0f  of %d",
+                        frameStats.lastShapes(), frameStats.averageShapes(), scene.size()),
+                String.format(Locale.ROOT, "model dispatch  %.1f ms/s  %.0f events/s", dispatchMs, events)
+        };
+        Rectangle old = overlayArea;
+        Rectangle view = getVisibleRect();
+        overlayArea = new Rectangle(view.x + 8, view.y + 8, 330, overlayLines.length * 16 + 8);
+        if (old != null && !old.equals(overlayArea)) repaint(old);
+        repaint(overlayArea);
+    }
+
+    private void paintOverlay(Graphics2D g) {
+        if (overlayArea == null) return;
+        Rectangle view = getVisibleRect();
+        // the overlay stays in the corner of the view while scrolling
+        if (overlayArea.x != view.x + 8 || overlayArea.y != view.y + 8) overlayArea.setLocation(view.x + 8, view.y + 8);
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fill(overlayArea);
+        g.setColor(Color.WHITE);
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        for (int i = 0; i < overlayLines.length; i++) {
+            g.drawString(overlayLines[i], overlayArea.x + 6, overlayArea.y + 16 * (i + 1));
+        }
+    }
+
+    private void paintHandles(Graphics2D g, Rectangle2D b) {
+        g.setColor(Color.BLUE);
+        g.draw(b);
+        double hx = b.getX(), hy = b.getY(), hw = b.getWidth(), hh = b.getHeight();
+        Rectangle2D[] handles = new Rectangle2D[] {
+                new Rectangle2D.Double(hx - HANDLE_SIZE/2, hy - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE), // tl
+                new Rectangle2D.Double(hx + hw - HANDLE_SIZE/2, hy - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE), // tr
+                new Rectangle2D.Double(hx + hw - HANDLE_SIZE/2, hy + hh - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE), // br
+                new Rectangle2D.Double(hx - HANDLE_SIZE/2, hy + hh - HANDLE_SIZE/2, HANDLE_SIZE, HANDLE_SIZE) // bl
+        };
+        g.setColor(Color.WHITE);
+        for (Rectangle2D h : handles) {
+            g.fill(h);
+            g.setColor(Color.BLUE);
+            g.draw(h);
+            g.setColor(Color.WHITE);
         }
     }
 
     public void clear() {
-        shapes.clear();
+        if (model != null) {
+            // remove everything from the backing model in one batch (and one undo step)
+            UndoJournal.Transaction tx = undoJournal.begin("Clear");
+            for (ReMoDeLEntity e : model.getAll()) tx.remove(e.getId());
+            apply(tx);
+        }
+        scene = Scene.EMPTY;
         if (buf != null) {
             Graphics2D g = buf.createGraphics();
             g.setColor(Color.WHITE);
             g.fillRect(0, 0, buf.getWidth(), buf.getHeight());
             g.dispose();
         }
-        selectedIndex = -1;
+        clearSelection();
         repaint();
+        fireSceneChanged(null);
     }
 
     public void setDrawColor(Color c) {
@@ -948,6 +1082,7 @@ public class DrawingCanvas extends JComponent {
 
     public void setStrokeWidth(float w) {
         strokeWidth = Math.max(1f, w);
+        if (engine != null) engine.setStroke(strokeWidth);
     }
 
     public void setCurrentTool(Tool t) {
@@ -977,7 +1112,7 @@ public class DrawingCanvas extends JComponent {
 
      /**
 +     * Insert a default-sized shape of the given tool at the center of the canvas.
-+     * Uses the same ShapeRecord creation logic as dragging would.
++     * Uses the same shape creation logic as dragging would.
 +     */
     public void addDefaultShape(Tool t) {
 
@@ -987,12 +1122,9 @@ public class DrawingCanvas extends JComponent {
         int x = Math.max(10, (getWidth() - dw) / 2);
         int y = Math.max(10, (getHeight() - dh) / 2);
 
-        ShapeRecord r = createRecordFromTool(t, drawColor, strokeWidth, x, y, x + dw, y + dh);
-        if (r != null) {
-            shapes.add(r);
-            redrawBuffer();
-            repaint();
-        }
+        scene = scene.plus(SceneShape.of(kindOf(t), drawColor, strokeWidth, x, y, x + dw, y + dh));
+        redrawBuffer();
+        repaint();
     }
 
     /**
@@ -1007,8 +1139,7 @@ public class DrawingCanvas extends JComponent {
 
         // Create a text shape (using a rectangle as placeholder)
         Font f = new Font("SansSerif", Font.PLAIN, Math.max(12, dh / 2));
-        ShapeRecord r = ShapeRecord.textRecord(text, f, drawColor, strokeWidth, x, y, dw,  dh);
-        shapes.add(r);
+        scene = scene.plus(SceneShape.text(text, f, drawColor, strokeWidth, x, y, dw, dh, null));
         redrawBuffer();
         repaint();
     }
@@ -1033,25 +1164,9 @@ public class DrawingCanvas extends JComponent {
             ent.put("fontSize", f.getSize());
             ent.put("colorRGB", drawColor.getRGB());
             // add to model (will trigger listener to update canvas)
-            model.addEntity(ent);
-            // find resulting index and register undo
-            Integer idx = idToIndex.get(ent.getId());
-            if (idx == null) {
-                // fallback: try to locate the entity in shapes
-                for (int i = 0; i < shapes.size(); i++) {
-                    ShapeRecord rr = shapes.get(i);
-                    if (ent.getId().equals(rr.entityId)) { idx = i; break; }
-                }
-            }
-            if (idx != null) {
-                addUndoableEdit(new TextCreateEdit(idx, copyShapeRecord(shapes.get(idx)), ent.copy()));
-            }
+            apply(undoJournal.begin("Add Text").put(ent));
         } else {
-            ShapeRecord r = ShapeRecord.textRecord(text, f, drawColor, strokeWidth, x, y, w, h);
-            shapes.add(r);
-            // create undoable edit for text creation
-            int idx = shapes.size() - 1;
-            addUndoableEdit(new TextCreateEdit(idx, copyShapeRecord(r)));
+            scene = scene.plus(SceneShape.text(text, f, drawColor, strokeWidth, x, y, w, h, null));
             redrawBuffer();
             repaint();
         }
@@ -1061,21 +1176,20 @@ public class DrawingCanvas extends JComponent {
      * Start inline editing of a text shape at given index. Creates a JTextField overlay.
      */
     private void startEditingText(int index) {
-        if (index < 0 || index >= shapes.size()) return;
-        ShapeRecord sel = shapes.get(index);
-        if (sel.tool != Tool.TEXT) return;
+        if (index < 0 || index >= scene.size()) return;
+        SceneShape sel = scene.get(index);
+        if (sel.getKind() != ShapeKind.TEXT) return;
         selectedIndex = index;
 
-        Rectangle2D b = getShapeBounds(sel);
-        if (b == null) return;
+        Rectangle2D b = sel.getBounds();
 
-        final JTextArea ta = new JTextArea(sel.text != null ? sel.text : "");
+        final JTextArea ta = new JTextArea(sel.getText() != null ? sel.getText() : "");
         ta.setLineWrap(true);
         ta.setWrapStyleWord(true);
         ta.setOpaque(true);
         ta.setBackground(Color.WHITE);
-        ta.setForeground(sel.color != null ? sel.color : drawColor);
-        ta.setFont(sel.font != null ? sel.font : getFont());
+        ta.setForeground(sel.getColor() != null ? sel.getColor() : drawColor);
+        ta.setFont(sel.getFont() != null ? sel.getFont() : getFont());
         JScrollPane sp = new JScrollPane(ta);
         sp.setBounds((int) b.getX(), (int) b.getY(), Math.max(40, (int) b.getWidth()), Math.max(24, (int) b.getHeight()));
         this.add(sp);
@@ -1122,88 +1236,246 @@ public class DrawingCanvas extends JComponent {
      * Delete the currently selected shape, if any. 
     */
     public void deleteSelectedShape() {
-        if (selectedIndex >= 0 && selectedIndex < shapes.size()) {
-            ShapeRecord sel = shapes.get(selectedIndex);
-            if (sel != null && sel.entityId != null && model != null) {
-                model.removeEntity(sel.entityId);
+        if (selection.size() > 1) {
+            applyBulk(bulk.delete(selection));
+            clearSelection();
+            return;
+        }
+        if (selectedIndex >= 0 && selectedIndex < scene.size()) {
+            SceneShape sel = scene.get(selectedIndex);
+            if (sel.getEntityId() != null && model != null) {
+                apply(undoJournal.begin("Delete").remove(sel.getEntityId()));
             } else {
-                shapes.remove(selectedIndex);
+                scene = scene.minus(selectedIndex);
                 redrawBuffer();
                 repaint();
             }
-            selectedIndex = -1;
+            clearSelection();
+        }
+    }
+
+    // --- Multi-selection ------------------------------------------------------------
+
+    /**
+     * Ids of the selected model entities, in selection order.
+     */
+    public Set<String> getSelection() {
+        return Collections.unmodifiableSet(selection);
+    }
+
+    public void setSelection(Collection<String> ids) {
+        selection.clear();
+        selectedIndex = -1;
+        primaryId = null;
+        for (String id : ids) {
+            int i = scene.indexOf(id);
+            if (i < 0) continue;
+            selection.add(id);
+            selectedIndex = i;
+            primaryId = id;
         }
+        repaint();
+    }
+
+    public void selectAll() {
+        setSelection(new ArrayList<>(scene.entityIds()));
+    }
+
+    /**
+     * Region membership of the current model, or null without a model.
+     */
+    public RegionEngine getRegionEngine() {
+        return regionEngine;
+    }
+
+    /**
+     * Replace the selection with the entities inside the selected regions.
+     * Returns false, leaving the selection alone, if no region is selected.
+     */
+    public boolean selectInsideRegions() {
+        if (regionEngine == null) return false;
+        Set<String> ids = new LinkedHashSet<>();
+        boolean any = false;
+        for (String id : selection) {
+            if (regionEngine.getGeometry(id) == null) continue;
+            any = true;
+            ids.addAll(regionEngine.entitiesIn(id));
+        }
+        if (!any) return false;
+        setSelection(ids);
+        statusConsumer.accept(selection.isEmpty() ? "Ready" : selection.size() + " selected");
+        return true;
+    }
+
+    public void clearSelection() {
+        selection.clear();
+        selectedIndex = -1;
+        primaryId = null;
+        repaint();
+    }
+
+    // add every shape lying completely inside the band to the selection
+    private void selectInside(Rectangle band) {
+        for (int i : scene.inside(band)) {
+            String id = scene.get(i).getEntityId();
+            selection.add(id);
+            selectedIndex = i;
+            primaryId = id;
+        }
+    }
+
+    /**
+     * Set properties (colorRGB, fontName, fontSize, ...) on every selected entity in one step.
+     */
+    public void restyleSelection(Map<String, ?> style) {
+        if (bulk == null || selection.isEmpty()) return;
+        applyBulk(bulk.restyle(selection, style));
+    }
+
+    /**
+     * Translate the selection by (dx, dy) in one step.
+     */
+    public void moveSelection(double dx, double dy) {
+        if (bulk == null || selection.isEmpty()) return;
+        applyBulk(bulk.move(selection, dx, dy, null));
+    }
+
+    // --- Clipboard --------------------------------------------------------------------
+
+    public void copySelection() {
+        if (model == null || selection.isEmpty()) return;
+        clipboard.copy(model, selection);
+        statusConsumer.accept(clipboard.size() + " copied");
+    }
+
+    public void cutSelection() {
+        if (model == null || selection.isEmpty()) return;
+        clipboard.copy(model, selection);
+        applyBulk(bulk.delete(selection));
+        clearSelection();
+    }
+
+    /**
+     * Insert the clipboard content, offset from where it was copied, and select it.
+     */
+    public void paste() {
+        if (model == null || clipboard.isEmpty()) return;
+        selectPending(clipboard.paste(undoJournal, PASTE_OFFSET, PASTE_OFFSET));
+    }
+
+    public void duplicateSelection() {
+        if (model == null || selection.isEmpty()) return;
+        selectPending(Clipboard.duplicate(undoJournal, new ArrayList<>(selection), PASTE_OFFSET, PASTE_OFFSET));
+    }
+
+    public boolean canPaste() {
+        return !clipboard.isEmpty();
+    }
+
+    // select entities whose shapes appear with the next model sync
+    private void selectPending(List<String> ids) {
+        updateUndoRedoState();
+        if (ids.isEmpty()) return;
+        selection.clear();
+        selection.addAll(ids);
+        primaryId = ids.get(ids.size() - 1);
+        selectedIndex = -1;
+        statusConsumer.accept(ids.size() + " pasted");
+    }
+
+    // the model batch of a bulk operation reaches ModelSync as one event, which redraws the damaged area
+    private void applyBulk(BulkTransform.Result r) {
+        if (r.getEdit() != null) updateUndoRedoState();
     }
 
     /**
      * Update text/font/color/size for the selected record if it's a TEXT item.
      */
     public void updateSelectedText(String newText, Font newFont, Color newColor) {
-        if (selectedIndex >= 0 && selectedIndex < shapes.size()) {
-            ShapeRecord sel = shapes.get(selectedIndex);
-            if (sel.tool != Tool.TEXT) return;
+        if (selectedIndex >= 0 && selectedIndex < scene.size()) {
+            SceneShape sel = scene.get(selectedIndex);
+            if (sel.getKind() != ShapeKind.TEXT) return;
             // keep bounding rect; update text/font/color
-            ShapeRecord nr = new ShapeRecord(Tool.TEXT,
-               new Rectangle2D.Double(sel.x1, sel.y1, sel.x2 - sel.x1, sel.y2 - sel.y1),
-               newColor != null ? newColor : sel.color,
-               sel.stroke,
-               sel.x1, sel.y1, sel.x2, sel.y2,
-               newText != null ? newText : sel.text,
-               newFont != null ? newFont : sel.font);
-            // register undo: before -> after. If the shape is backed by a model entity, update the model
-            ShapeRecord before = copyShapeRecord(sel);
-            ShapeRecord after = copyShapeRecord(nr);
-            if (sel.entityId != null && model != null) {
-                // apply via model (listener will rebuild shapes)
-                model.updateEntity(entityFromShape(after));
+            SceneShape nr = sel.withText(newText != null ? newText : sel.getText(),
+                    newFont != null ? newFont : sel.getFont(),
+                    newColor != null ? newColor : sel.getColor());
+            if (sel.getEntityId() != null && model != null) {
+                // apply via model (listener will rebuild shapes); successive edits of one item are one undo step
+                apply(undoJournal.begin("Edit Text", "text:" + sel.getEntityId()).put(entityFromShape(nr)));
             } else {
-                shapes.set(selectedIndex, nr);
+                scene = scene.with(selectedIndex, nr);
                 redrawBuffer();
                 repaint();
             }
-            addUndoableEdit(new TextEdit(selectedIndex, before, after));
         }
     }
 
-     /**
-     * Register an UndoableEdit for the last operation.
-     * Call this from your controller/operations whenever an action should be undoable.
+    /**
+     * Register an UndoableEdit for the last operation. Model changes should
+     * rather go through getUndoJournal().begin(...), which records them as
+     * per-entity deltas.
      */
     public void addUndoableEdit(UndoableEdit edit) {
-        if (edit == null) return;
-        undoManager.addEdit(edit);
+        if (edit == null || undoJournal == null) return;
+        undoJournal.addEdit(edit);
         updateUndoRedoState();
     }
 
+    /**
+     * Undo history of the current model; null when the canvas has no model.
+     */
+    public UndoJournal getUndoJournal() {
+        return undoJournal;
+    }
+
+    /**
+     * Heap the undo history may use before the oldest steps are spilled to disk.
+     */
+    public void setUndoMemoryBudget(long bytes) {
+        undoMemoryBudget = bytes;
+        if (undoJournal != null) undoJournal.setMemoryBudget(bytes);
+    }
+
     public void undo() {
-        if (undoManager.canUndo()) {
-            undoManager.undo();
+        if (canUndo()) {
+            undoJournal.undo();
             updateUndoRedoState();
             repaint();
         }
     }
 
     public void redo() {
-        if (undoManager.canRedo()) {
-            undoManager.redo();
+        if (canRedo()) {
+            undoJournal.redo();
             updateUndoRedoState();
             repaint();
         }
     }
 
     public boolean canUndo() {
-        return undoManager.canUndo();
+        return undoJournal != null && undoJournal.canUndo();
     }
 
     public boolean canRedo() {
-        return undoManager.canRedo();
+        return undoJournal != null && undoJournal.canRedo();
+    }
+
+    // commit a model change as an undo step
+    private void apply(UndoJournal.Transaction tx) {
+        tx.commit();
+        updateUndoRedoState();
+    }
+
+    // one step of a move/resize drag; the steps of a gesture coalesce
+    private void applyDragStep(String name, ReMoDeLEntity e) {
+        apply(undoJournal.begin(name, name + "#" + dragGesture).put(e));
     }
 
     private void updateUndoRedoState() {
         // fire property changes so UI can enable/disable menu/buttons
-        boolean canU = undoManager.canUndo();
-        boolean canR = undoManager.canRedo();
+        boolean canU = canUndo();
+        boolean canR = canRedo();
         firePropertyChange("canUndo", !canU, canU);
         firePropertyChange("canRedo", !canR, canR);
     }
-}
\ No newline at end of file
+}
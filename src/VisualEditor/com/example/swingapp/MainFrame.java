@@ -1,11 +1,30 @@
 package com.example.swingapp;
 
+import com.example.swingapp.batch.BatchMain;
+import com.example.swingapp.io.Journal;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.monitor.EditorMonitor;
+import com.example.swingapp.perf.EdtWatchdog;
+import com.example.swingapp.undo.UndoJournal;
+
+import javax.management.JMException;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class MainFrame extends JFrame {
     private final DrawingCanvas canvas;
     private final ToolBarShell toolbar;
+    private Journal journal;
+    // logs the EDT's stack whenever it stops responding for longer than this
+    private static final long EDT_STALL_MILLIS = 500;
+    private final EdtWatchdog watchdog;
+    private EditorMonitor monitor;
 
     public MainFrame() {
         super("Visual Editor App");
@@ -14,20 +33,105 @@ public class MainFrame extends JFrame {
         setLocationRelativeTo(null);
 
         canvas = new DrawingCanvas();
+        // every document is backed by a model so it can be saved; the autosave
+        // journal restores whatever was being edited when the app last stopped
+        ReMoDeLModel model = new ReMoDeLModel();
+        try {
+            journal = Journal.open(autosaveDir(), model);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        canvas.setModel(model);
+        // paged documents only hold part of the file in the model; nothing to
+        // journal, and the autosave of the previous document is left as it was
+        canvas.addPropertyChangeListener("model", e -> {
+            if (journal != null && canvas.getPagedDocument() == null) journal.follow((ReMoDeLModel) e.getNewValue());
+        });
+        canvas.addPropertyChangeListener("pagedDocument", e -> {
+            if (journal != null && e.getNewValue() != null) journal.follow(null);
+        });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                shutdown();
+            }
+        });
         toolbar = new ToolBarShell(canvas);
+        watchdog = new EdtWatchdog(logDir(), EDT_STALL_MILLIS);
+        watchdog.start();
 
         setLayout(new BorderLayout(6, 6));
         add(toolbar.getToolBar(), BorderLayout.NORTH);
         setJMenuBar(toolbar.createMenuBar(this));
         add(new JScrollPane(canvas), BorderLayout.CENTER);
 
+        // overview of the whole document; click or drag to scroll there
+        MinimapPanel minimap = new MinimapPanel(canvas);
+        minimap.setBackground(new Color(0xE8E8E8));
+        minimap.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+        JPanel side = new JPanel(new BorderLayout());
+        side.add(minimap, BorderLayout.NORTH);
+        add(side, BorderLayout.EAST);
+
+        // model and rendering statistics for JMX clients such as JConsole
+        try {
+            monitor = EditorMonitor.register(canvas::getModel, canvas, minimap);
+            monitor.addBacklog("canvas", canvas::getPendingModelChanges);
+            monitor.addBacklog("journal", () -> journal == null ? 0 : journal.getBacklog());
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+
         // optional status bar
         JLabel status = new JLabel("Ready");
         canvas.addStatusConsumer(status::setText);
         add(status, BorderLayout.SOUTH);
     }
 
+    private static Path autosaveDir() {
+        return Paths.get(System.getProperty("user.home"), ".visualeditor", "autosave");
+    }
+
+    private static Path logDir() {
+        return Paths.get(System.getProperty("user.home"), ".visualeditor", "logs");
+    }
+
+    // EXIT_ON_CLOSE ends the VM right after windowClosing, so everything is released here
+    private void shutdown() {
+        closeJournal();
+        closeUndoHistory();
+        toolbar.stopRecording(null);
+        toolbar.leaveSession(null);
+        toolbar.stopServing();
+        watchdog.close();
+        if (monitor != null) monitor.close();
+    }
+
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        journal = null;
+    }
+
+    // deletes the undo history spilled to temp files
+    private void closeUndoHistory() {
+        UndoJournal undo = canvas.getUndoJournal();
+        if (undo != null) undo.close();
+    }
+
+    /**
+     * Starts the editor, or with --batch as the first argument runs
+     * BatchMain with the remaining ones and no UI.
+     */
     public static void main(String[] args) {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchMain.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             MainFrame frame = new MainFrame();
             frame.setVisible(true);
@@ -0,0 +1,241 @@
+// This class implements an overview of the whole canvas with click-and-drag navigation.
+package com.example.swingapp;
+
+import com.example.swingapp.monitor.TileCounters;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Overview of the whole canvas showing the visible part of it; clicking or
+ * dragging scrolls the canvas there.
+ *
+ * The picture comes from an image pyramid of fixed-size tiles: level k
+ * shows the canvas at scale 2^-k. Only the finest level in use is painted
+ * from the shapes; every coarser tile is four finer tiles scaled down. An
+ * edit drops the tiles it touches on every level, so the next paint
+ * re-renders just those finest tiles and recombines their parents rather
+ * than redrawing the whole scene.
+ */
+public class MinimapPanel extends JComponent implements TileCounters {
+    private static final int TILE = 256;
+    // levels painted from the shapes lie this many levels finer than the one shown
+    private static final int DETAIL_LEVELS = 2;
+    private static final int MAX_TILES = 192;
+
+    private final DrawingCanvas canvas;
+    // (level, column, row) -> tile, least recently used first
+    private final LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    private JViewport viewport;
+    private volatile long tileHits, tileMisses;
+
+    public MinimapPanel(DrawingCanvas canvas) {
+        if (canvas == null) throw new IllegalArgumentException("canvas is null");
+        this.canvas = canvas;
+        setPreferredSize(new Dimension(240, 180));
+        setOpaque(true);
+        canvas.addSceneListener(area -> {
+            invalidateTiles(area);
+            repaint();
+        });
+        canvas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                attachViewport();
+                repaint();
+            }
+        });
+        MouseAdapter ma = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                scrollTo(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                scrollTo(e.getX(), e.getY());
+            }
+        };
+        addMouseListener(ma);
+        addMouseMotionListener(ma);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        attachViewport();
+    }
+
+    /**
+     * Drop the cached tiles covering the area (null: all tiles).
+     */
+    public void invalidateTiles(Rectangle2D area) {
+        if (area == null) {
+            tiles.clear();
+            return;
+        }
+        Iterator<Long> it = tiles.keySet().iterator();
+        while (it.hasNext()) {
+            long key = it.next();
+            if (tileArea(level(key), column(key), row(key)).intersects(area)) it.remove();
+        }
+    }
+
+    /**
+     * Tile lookups served from the cache, and tiles that had to be built.
+     */
+    @Override
+    public long getTileHits() {
+        return tileHits;
+    }
+
+    @Override
+    public long getTileMisses() {
+        return tileMisses;
+    }
+
+    @Override
+    protected void paintComponent(Graphics gg) {
+        Graphics2D g = (Graphics2D) gg.create();
+        g.setColor(getBackground() != null ? getBackground() : Color.LIGHT_GRAY);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        double scale = scale();
+        if (scale <= 0) {
+            g.dispose();
+            return;
+        }
+        int level = displayLevel(scale);
+        double levelScale = Math.scalb(1.0, -level);
+        Rectangle doc = new Rectangle(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        AffineTransform at = g.getTransform();
+        g.scale(scale / levelScale, scale / levelScale);
+        int cols = (int) Math.ceil(doc.width * levelScale / TILE), rows = (int) Math.ceil(doc.height * levelScale / TILE);
+        for (int tx = 0; tx < cols; tx++) {
+            for (int ty = 0; ty < rows; ty++) g.drawImage(tile(level, tx, ty, level - DETAIL_LEVELS), tx * TILE, ty * TILE, null);
+        }
+        g.setTransform(at);
+
+        // the part of the canvas in view
+        Rectangle view = canvas.getVisibleRect();
+        Rectangle2D r = new Rectangle2D.Double(view.x * scale, view.y * scale, view.width * scale, view.height * scale);
+        g.setColor(new Color(0, 0, 255, 40));
+        g.fill(r);
+        g.setColor(Color.BLUE);
+        g.draw(r);
+        g.setColor(Color.GRAY);
+        g.drawRect(0, 0, (int) (doc.width * scale), (int) (doc.height * scale));
+        g.dispose();
+    }
+
+    // minimap pixels per canvas pixel, so that the whole canvas fits
+    private double scale() {
+        if (canvas.getWidth() <= 0 || canvas.getHeight() <= 0 || getWidth() <= 0 || getHeight() <= 0) return 0;
+        return Math.min((getWidth() - 1) / (double) canvas.getWidth(), (getHeight() - 1) / (double) canvas.getHeight());
+    }
+
+    // finest level not coarser than the display scale; at least DETAIL_LEVELS so the detail level is >= 0
+    private static int displayLevel(double scale) {
+        int level = (int) Math.floor(-Math.log(scale) / Math.log(2));
+        return Math.max(DETAIL_LEVELS, level);
+    }
+
+    /**
+     * The tile of a level, from the cache or built: painted from the shapes
+     * at the detail level, else composed from the four tiles beneath it.
+     */
+    private BufferedImage tile(int level, int tx, int ty, int detail) {
+        long key = key(level, tx, ty);
+        BufferedImage img = tiles.get(key);
+        if (img != null) {
+            tileHits++;
+            return img;
+        }
+        tileMisses++;
+        img = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, TILE, TILE);
+        if (level <= detail) {
+            paintShapes(g, level, tx, ty);
+        } else {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            int half = TILE / 2;
+            for (int i = 0; i < 4; i++) {
+                int cx = tx * 2 + (i & 1), cy = ty * 2 + (i >> 1);
+                Rectangle2D child = tileArea(level - 1, cx, cy);
+                if (child.getMinX() >= canvas.getWidth() || child.getMinY() >= canvas.getHeight()) continue;
+                g.drawImage(tile(level - 1, cx, cy, detail), (i & 1) * half, (i >> 1) * half, half, half, null);
+            }
+        }
+        g.dispose();
+        tiles.put(key, img);
+        return img;
+    }
+
+    private void paintShapes(Graphics2D g, int level, int tx, int ty) {
+        Rectangle2D area = tileArea(level, tx, ty);
+        double s = Math.scalb(1.0, -level);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(s, s);
+        g.translate(-area.getX(), -area.getY());
+        g.clip(area);
+        canvas.paintOverview(g, area);
+    }
+
+    // canvas area covered by a tile
+    private static Rectangle2D tileArea(int level, int tx, int ty) {
+        double size = Math.scalb((double) TILE, level);
+        return new Rectangle2D.Double(tx * size, ty * size, size, size);
+    }
+
+    private void scrollTo(int mx, int my) {
+        double scale = scale();
+        if (viewport == null || scale <= 0) return;
+        Dimension ext = viewport.getExtentSize();
+        int x = (int) Math.round(mx / scale - ext.width / 2.0);
+        int y = (int) Math.round(my / scale - ext.height / 2.0);
+        x = Math.max(0, Math.min(x, canvas.getWidth() - ext.width));
+        y = Math.max(0, Math.min(y, canvas.getHeight() - ext.height));
+        viewport.setViewPosition(new Point(x, y));
+    }
+
+    private void attachViewport() {
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, canvas);
+        if (vp == viewport) return;
+        viewport = vp;
+        if (vp != null) vp.addChangeListener(e -> repaint());
+    }
+
+    private static long key(int level, int tx, int ty) {
+        return ((long) level << 56) | ((long) (tx & 0xfffffff) << 28) | (ty & 0xfffffff);
+    }
+
+    private static int level(long key) {
+        return (int) (key >>> 56);
+    }
+
+    private static int column(long key) {
+        return (int) ((key >>> 28) & 0xfffffff);
+    }
+
+    private static int row(long key) {
+        return (int) (key & 0xfffffff);
+    }
+}
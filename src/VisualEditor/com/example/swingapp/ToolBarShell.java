@@ -2,7 +2,27 @@ package com.example.swingapp;
 
 import javax.swing.*;
 
+import com.example.swingapp.collab.CollabSession;
+import com.example.swingapp.collab.TcpRelay;
+import com.example.swingapp.collab.TcpTransport;
+import com.example.swingapp.diff.DocumentDiff;
+import com.example.swingapp.diff.EntityChange;
+import com.example.swingapp.diff.MergeConflict;
+import com.example.swingapp.diff.ThreeWayMerge;
+import com.example.swingapp.io.BlockInfo;
+import com.example.swingapp.io.DocumentReader;
+import com.example.swingapp.io.DocumentWriter;
+import com.example.swingapp.io.PagedDocument;
+import com.example.swingapp.io.json.JsonDocument;
+import com.example.swingapp.layout.ForceLayout;
+import com.example.swingapp.layout.LayoutJob;
 import com.example.swingapp.model.Concept;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.perf.TraceRecorder;
+import com.example.swingapp.search.SearchIndex;
+import com.example.swingapp.server.ModelServer;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
@@ -10,7 +30,16 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -23,6 +52,18 @@ public class ToolBarShell {
     private final DrawingCanvas canvas;
     private final Map<DrawingCanvas.Tool, JToggleButton> toolButtons = new HashMap<>();
     private final ButtonGroup toolGroup = new ButtonGroup();
+    private LayoutJob layoutJob;
+    // documents with more entities than this are browsed in paged mode
+    private static final long PAGED_THRESHOLD = 250_000;
+    private static final int GRID_SIZE = 10;
+    private static final int FIND_LIMIT = 50;
+    private JDialog findDialog;
+    private TraceRecorder traceRecorder;
+    private static final int DEFAULT_SESSION_PORT = 7420;
+    private CollabSession session;
+    private TcpRelay relay;
+    private ModelServer modelServer;
+    private JCheckBoxMenuItem serveItem;
 
     public ToolBarShell(DrawingCanvas canvas) {
         this.canvas = canvas;
@@ -39,6 +80,11 @@ public class ToolBarShell {
 
         toolPanel = new JPanel(new BorderLayout());
         toolPanel.add(rows, BorderLayout.NORTH);
+        // a session shares one model; a new document leaves it
+        canvas.addPropertyChangeListener("model", e -> {
+            leaveSession(null);
+            stopServing();
+        });
         
         init();
     }
@@ -53,7 +99,11 @@ public class ToolBarShell {
         JButton colorBtn = new JButton("Color");
         colorBtn.addActionListener(e -> {
             Color chosen = JColorChooser.showDialog(toolBar, "Choose drawing color", Color.BLACK);
-            if (chosen != null) canvas.setDrawColor(chosen);
+            if (chosen != null) {
+                canvas.setDrawColor(chosen);
+                // recolour whatever is selected, as one undo step
+                canvas.restyleSelection(Collections.singletonMap("colorRGB", chosen.getRGB()));
+            }
         });
         toolBar.add(colorBtn);
 
@@ -213,8 +263,8 @@ public class ToolBarShell {
         JMenu fileMenu = new JMenu("File");
         JMenuItem newItem = new JMenuItem("New");
         newItem.addActionListener(e -> {
-            // Clear the canvas for a new document
-            canvas.clear();
+            // Start a new document with an empty model
+            canvas.setModel(new ReMoDeLModel());
         });
         fileMenu.add(newItem);
 
@@ -223,7 +273,7 @@ public class ToolBarShell {
             JFileChooser chooser = new JFileChooser();
             int res = chooser.showOpenDialog(parentFrame);
             if (res == JFileChooser.APPROVE_OPTION) {
-                // TODO: load file into canvas / model
+                openDocument(parentFrame, chooser.getSelectedFile());
             }
         });
         fileMenu.add(openItem);
@@ -233,13 +283,87 @@ public class ToolBarShell {
             JFileChooser chooser = new JFileChooser();
             int res = chooser.showSaveDialog(parentFrame);
             if (res == JFileChooser.APPROVE_OPTION) {
-                // TODO: save model/canvas to disk
+                saveDocument(parentFrame, chooser.getSelectedFile());
             }
         });
         fileMenu.add(saveItem);
 
         fileMenu.addSeparator();
 
+        JMenuItem importItem = new JMenuItem("Import JSON...");
+        importItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            int res = chooser.showOpenDialog(parentFrame);
+            if (res == JFileChooser.APPROVE_OPTION) {
+                importJson(parentFrame, chooser.getSelectedFile());
+            }
+        });
+        fileMenu.add(importItem);
+
+        JMenuItem exportItem = new JMenuItem("Export JSON...");
+        exportItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            int res = chooser.showSaveDialog(parentFrame);
+            if (res == JFileChooser.APPROVE_OPTION) {
+                exportJson(parentFrame, chooser.getSelectedFile());
+            }
+        });
+        fileMenu.add(exportItem);
+
+        fileMenu.addSeparator();
+
+        JMenuItem compareItem = new JMenuItem("Compare With...");
+        compareItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Compare with");
+            if (chooser.showOpenDialog(parentFrame) == JFileChooser.APPROVE_OPTION) {
+                compareWith(parentFrame, chooser.getSelectedFile());
+            }
+        });
+        fileMenu.add(compareItem);
+
+        JMenuItem mergeItem = new JMenuItem("Merge...");
+        mergeItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Common base version");
+            if (chooser.showOpenDialog(parentFrame) != JFileChooser.APPROVE_OPTION) return;
+            File base = chooser.getSelectedFile();
+            chooser.setDialogTitle("Version to merge in");
+            if (chooser.showOpenDialog(parentFrame) != JFileChooser.APPROVE_OPTION) return;
+            mergeFrom(parentFrame, base, chooser.getSelectedFile());
+        });
+        fileMenu.add(mergeItem);
+
+        fileMenu.addSeparator();
+
+        JMenuItem hostItem = new JMenuItem("Host Session...");
+        hostItem.addActionListener(e -> {
+            String port = JOptionPane.showInputDialog(parentFrame, "Port:", DEFAULT_SESSION_PORT);
+            if (port != null) hostSession(parentFrame, port.trim());
+        });
+        fileMenu.add(hostItem);
+
+        JMenuItem joinItem = new JMenuItem("Join Session...");
+        joinItem.addActionListener(e -> {
+            String address = JOptionPane.showInputDialog(parentFrame, "Host:port", "localhost:" + DEFAULT_SESSION_PORT);
+            if (address != null) joinSession(parentFrame, address.trim());
+        });
+        fileMenu.add(joinItem);
+
+        JMenuItem leaveItem = new JMenuItem("Leave Session");
+        leaveItem.addActionListener(e -> leaveSession(parentFrame));
+        fileMenu.add(leaveItem);
+
+        // live read-only feed of the model for other processes, on this machine only
+        serveItem = new JCheckBoxMenuItem("Serve Model Updates...");
+        serveItem.addActionListener(e -> {
+            if (serveItem.isSelected()) startServing(parentFrame);
+            else stopServing();
+        });
+        fileMenu.add(serveItem);
+
+        fileMenu.addSeparator();
+
         JMenuItem exitItem = new JMenuItem("Close Window");
         exitItem.addActionListener(e -> {
             Window w = SwingUtilities.getWindowAncestor(toolPanel);
@@ -264,11 +388,95 @@ public class ToolBarShell {
         redoItem.setEnabled(canvas.canRedo());
         editMenu.add(redoItem);
 
+        editMenu.addSeparator();
+
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        JMenuItem cutItem = new JMenuItem("Cut");
+        cutItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_X, shortcut));
+        cutItem.addActionListener(e -> canvas.cutSelection());
+        editMenu.add(cutItem);
+
+        JMenuItem copyItem = new JMenuItem("Copy");
+        copyItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_C, shortcut));
+        copyItem.addActionListener(e -> canvas.copySelection());
+        editMenu.add(copyItem);
+
+        JMenuItem pasteItem = new JMenuItem("Paste");
+        pasteItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_V, shortcut));
+        pasteItem.addActionListener(e -> canvas.paste());
+        editMenu.add(pasteItem);
+
+        JMenuItem duplicateItem = new JMenuItem("Duplicate");
+        duplicateItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_D, shortcut));
+        duplicateItem.addActionListener(e -> canvas.duplicateSelection());
+        editMenu.add(duplicateItem);
+
+        JMenuItem selectAllItem = new JMenuItem("Select All");
+        selectAllItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_A, shortcut));
+        selectAllItem.addActionListener(e -> canvas.selectAll());
+        editMenu.add(selectAllItem);
+
+        JMenuItem selectInsideItem = new JMenuItem("Select Inside Region");
+        selectInsideItem.addActionListener(e -> canvas.selectInsideRegions());
+        editMenu.add(selectInsideItem);
+
+        JMenuItem findItem = new JMenuItem("Find...");
+        findItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, shortcut));
+        findItem.addActionListener(e -> showFindDialog(parentFrame));
+        editMenu.add(findItem);
+
+        editMenu.addSeparator();
+
+        // lay out model entities in the background; positions stream into the model
+        JMenuItem layoutItem = new JMenuItem("Auto Layout");
+        layoutItem.addActionListener(e -> {
+            if (canvas.getModel() == null) return;
+            if (layoutJob != null && !layoutJob.isDone()) layoutJob.cancel();
+            layoutJob = new ForceLayout(canvas.getModel()).start();
+        });
+        editMenu.add(layoutItem);
+
+        JMenuItem cancelLayoutItem = new JMenuItem("Cancel Layout");
+        cancelLayoutItem.addActionListener(e -> {
+            if (layoutJob != null) layoutJob.cancel();
+        });
+        editMenu.add(cancelLayoutItem);
+
         // --- View menu
         JMenu viewMenu = new JMenu("View");
         JCheckBoxMenuItem showTools = new JCheckBoxMenuItem("Show Tools", true);
         showTools.addActionListener(e -> toolPanel.setVisible(showTools.isSelected()));
         viewMenu.add(showTools);
+        viewMenu.addSeparator();
+        JCheckBoxMenuItem snapItem = new JCheckBoxMenuItem("Snapping", canvas.isSnapEnabled());
+        snapItem.addActionListener(e -> canvas.setSnapEnabled(snapItem.isSelected()));
+        viewMenu.add(snapItem);
+        JCheckBoxMenuItem gridItem = new JCheckBoxMenuItem("Snap to Grid", canvas.getGridSize() > 0);
+        gridItem.addActionListener(e -> canvas.setGridSize(gridItem.isSelected() ? GRID_SIZE : 0));
+        viewMenu.add(gridItem);
+        viewMenu.addSeparator();
+        JCheckBoxMenuItem perfItem = new JCheckBoxMenuItem("Performance Overlay", canvas.isPerformanceOverlay());
+        perfItem.addActionListener(e -> canvas.setPerformanceOverlay(perfItem.isSelected()));
+        viewMenu.add(perfItem);
+        JCheckBoxMenuItem traceItem = new JCheckBoxMenuItem("Record Interaction Trace...");
+        traceItem.addActionListener(e -> {
+            if (!traceItem.isSelected()) {
+                stopRecording(parentFrame);
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(parentFrame) != JFileChooser.APPROVE_OPTION) {
+                traceItem.setSelected(false);
+                return;
+            }
+            try {
+                traceRecorder = TraceRecorder.start(canvas, chooser.getSelectedFile().toPath());
+            } catch (IOException ex) {
+                traceItem.setSelected(false);
+                showError(parentFrame, "Record Trace", ex);
+            }
+        });
+        viewMenu.add(traceItem);
 
         // Add menus to bar
         menuBar.add(fileMenu);
@@ -290,6 +498,431 @@ public class ToolBarShell {
         return menuBar;
     }
     
+    // decode the document off the EDT into a fresh model, then swap it in
+    private void openDocument(JFrame parentFrame, File file) {
+        ProgressMonitor monitor = new ProgressMonitor(parentFrame, "Opening " + file.getName(), null, 0, 100);
+        SwingWorker<Object, Void> worker = new SwingWorker<Object, Void>() {
+            @Override
+            protected Object doInBackground() throws Exception {
+                ReMoDeLModel m = new ReMoDeLModel();
+                DocumentReader reader = DocumentReader.open(file.toPath());
+                // the reader is closed here on every path but a paged document taking it over
+                try {
+                    if (reader.getEntityCount() > PAGED_THRESHOLD) {
+                        // too big to hold at once: load around the viewport only
+                        PagedDocument paged = new PagedDocument(reader, m);
+                        reader = null;
+                        return paged;
+                    }
+                    reader.loadInto(m, this::setProgress);
+                    return m;
+                } finally {
+                    if (reader != null) reader.close();
+                }
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                PagedDocument paged = null;
+                try {
+                    Object result = get();
+                    if (result instanceof PagedDocument) {
+                        paged = (PagedDocument) result;
+                        paged.attach();
+                        canvas.setModel(paged.getModel(), paged);
+                        paged = null;
+                    } else {
+                        canvas.setModel((ReMoDeLModel) result);
+                    }
+                } catch (Exception ex) {
+                    // a paged document the canvas never took keeps its file open otherwise
+                    if (paged != null) {
+                        try {
+                            paged.close();
+                        } catch (IOException closeEx) {
+                            ex.addSuppressed(closeEx);
+                        }
+                    }
+                    showError(parentFrame, "Could not open " + file.getName(), ex);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) monitor.setProgress((Integer) evt.getNewValue());
+        });
+        worker.execute();
+    }
+
+    // take the model's snapshot on the EDT, encode and write it in the background
+    private void saveDocument(JFrame parentFrame, File file) {
+        ReMoDeLModel m = canvas.getModel();
+        if (m == null) return;
+        ModelSnapshot snapshot = m.snapshot();
+        // paged documents: blocks not in the model are streamed from the open file
+        PagedDocument paged = canvas.getPagedDocument();
+        BitSet resident = paged != null ? paged.residentBlocks() : null;
+        ProgressMonitor monitor = new ProgressMonitor(parentFrame, "Saving " + file.getName(), null, 0, 100);
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                DocumentWriter writer = new DocumentWriter();
+                Collection<ReMoDeLEntity> all = snapshot.getAll();
+                if (paged != null) {
+                    // file blocks are already in spatial order; only sort what is in memory
+                    List<ReMoDeLEntity> inMemory = new ArrayList<>(snapshot.getAll());
+                    DocumentWriter.sortSpatially(inMemory);
+                    writer.setSpatialOrder(false);
+                    all = paged.withNonResident(inMemory, resident);
+                }
+                writer.write(file.toPath(), all, this::setProgress);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    get();
+                } catch (Exception ex) {
+                    showError(parentFrame, "Could not save " + file.getName(), ex);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) monitor.setProgress((Integer) evt.getNewValue());
+        });
+        worker.execute();
+    }
+
+    // stream the JSON file into a fresh model in the background, batch by batch
+    private void importJson(JFrame parentFrame, File file) {
+        ProgressMonitor monitor = new ProgressMonitor(parentFrame, "Importing " + file.getName(), null, 0, 100);
+        SwingWorker<ReMoDeLModel, Void> worker = new SwingWorker<ReMoDeLModel, Void>() {
+            @Override
+            protected ReMoDeLModel doInBackground() throws Exception {
+                ReMoDeLModel m = new ReMoDeLModel();
+                new JsonDocument().read(file.toPath(), m, this::setProgress);
+                return m;
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    canvas.setModel(get());
+                } catch (Exception ex) {
+                    showError(parentFrame, "Could not import " + file.getName(), ex);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) monitor.setProgress((Integer) evt.getNewValue());
+        });
+        worker.execute();
+    }
+
+    private void exportJson(JFrame parentFrame, File file) {
+        ReMoDeLModel m = canvas.getModel();
+        if (m == null) return;
+        ModelSnapshot snapshot = m.snapshot();
+        PagedDocument paged = canvas.getPagedDocument();
+        BitSet resident = paged != null ? paged.residentBlocks() : null;
+        ProgressMonitor monitor = new ProgressMonitor(parentFrame, "Exporting " + file.getName(), null, 0, 100);
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                Collection<ReMoDeLEntity> all = paged != null ? paged.withNonResident(snapshot.getAll(), resident) : snapshot.getAll();
+                new JsonDocument().write(file.toPath(), all, this::setProgress);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    get();
+                } catch (Exception ex) {
+                    showError(parentFrame, "Could not export " + file.getName(), ex);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) monitor.setProgress((Integer) evt.getNewValue());
+        });
+        worker.execute();
+    }
+
+    // diff the file (as the older version) against the current document
+    private void compareWith(JFrame parentFrame, File file) {
+        ModelSnapshot current = snapshotForDiff(parentFrame);
+        if (current == null) return;
+        SwingWorker<DocumentDiff, Void> worker = new SwingWorker<DocumentDiff, Void>() {
+            @Override
+            protected DocumentDiff doInBackground() throws Exception {
+                return DocumentDiff.compare(loadEntities(file), current.getAll());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    DocumentDiff diff = get();
+                    StringBuilder sb = new StringBuilder(diff.toString());
+                    List<EntityChange> changes = diff.getChanges();
+                    for (int i = 0; i < Math.min(20, changes.size()); i++) sb.append('\n').append(changes.get(i));
+                    if (changes.size() > 20) sb.append("\n...");
+                    JOptionPane.showMessageDialog(parentFrame, sb.toString(), "Compared with " + file.getName(), JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    showError(parentFrame, "Could not compare with " + file.getName(), ex);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    // three-way merge of the current document (ours) with theirs, applied as one batch
+    private void mergeFrom(JFrame parentFrame, File base, File theirs) {
+        ModelSnapshot ours = snapshotForDiff(parentFrame);
+        if (ours == null) return;
+        ReMoDeLModel target = canvas.getModel();
+        SwingWorker<ThreeWayMerge, Void> worker = new SwingWorker<ThreeWayMerge, Void>() {
+            @Override
+            protected ThreeWayMerge doInBackground() throws Exception {
+                return ThreeWayMerge.merge(loadEntities(base), ours.getAll(), loadEntities(theirs));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    ThreeWayMerge merge = get();
+                    if (canvas.getModel() != target) return; // document was replaced meanwhile
+                    merge.applyTo(target);
+                    StringBuilder sb = new StringBuilder(merge.toString());
+                    List<MergeConflict> conflicts = merge.getConflicts();
+                    if (!conflicts.isEmpty()) sb.append("\nConflicts were resolved in favour of the open document:");
+                    for (int i = 0; i < Math.min(20, conflicts.size()); i++) sb.append('\n').append(conflicts.get(i));
+                    if (conflicts.size() > 20) sb.append("\n...");
+                    JOptionPane.showMessageDialog(parentFrame, sb.toString(), "Merged " + theirs.getName(),
+                            conflicts.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                } catch (Exception ex) {
+                    showError(parentFrame, "Could not merge " + theirs.getName(), ex);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private ModelSnapshot snapshotForDiff(JFrame parentFrame) {
+        ReMoDeLModel m = canvas.getModel();
+        if (m == null) return null;
+        if (canvas.getPagedDocument() != null) {
+            JOptionPane.showMessageDialog(parentFrame, "Not available while a document is paged from disk.", "Compare", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return m.snapshot();
+    }
+
+    // binary documents, or JSON by extension
+    private static List<ReMoDeLEntity> loadEntities(File file) throws IOException {
+        if (file.getName().toLowerCase().endsWith(".json")) {
+            ReMoDeLModel m = new ReMoDeLModel();
+            new JsonDocument().read(file.toPath(), m, null);
+            return m.getAll();
+        }
+        List<ReMoDeLEntity> out = new ArrayList<>();
+        try (DocumentReader reader = DocumentReader.open(file.toPath())) {
+            for (BlockInfo b : reader.getBlocks()) reader.readBlock(b, out::add);
+        }
+        return out;
+    }
+
+    // type-ahead search over labels and text; choosing a hit scrolls the canvas to it
+    private void showFindDialog(JFrame parentFrame) {
+        if (findDialog != null) {
+            findDialog.setVisible(true);
+            findDialog.toFront();
+            return;
+        }
+        JDialog dialog = new JDialog(parentFrame, "Find", false);
+        JTextField query = new JTextField(24);
+        DefaultListModel<SearchIndex.Hit> hits = new DefaultListModel<>();
+        JList<SearchIndex.Hit> list = new JList<>(hits);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean selected, boolean focus) {
+                SearchIndex.Hit hit = (SearchIndex.Hit) value;
+                ReMoDeLModel m = canvas.getModel();
+                ReMoDeLEntity e = m == null ? null : m.get(hit.getEntityId());
+                String text = e == null ? null : SearchIndex.textOf(e);
+                return super.getListCellRendererComponent(l, (text != null ? text : hit.getEntityId())
+                        + "  [" + hit.getField().name().toLowerCase() + "]", index, selected, focus);
+            }
+        });
+        Runnable update = () -> {
+            hits.clear();
+            SearchIndex index = canvas.getSearchIndex();
+            if (index == null) return;
+            for (SearchIndex.Hit h : index.search(query.getText(), FIND_LIMIT)) hits.addElement(h);
+            if (!hits.isEmpty()) list.setSelectedIndex(0);
+        };
+        Runnable go = () -> {
+            SearchIndex.Hit h = list.getSelectedValue();
+            if (h != null) canvas.centerOn(h.getEntityId());
+        };
+        query.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override public void insertUpdate(javax.swing.event.DocumentEvent e) { update.run(); }
+            @Override public void removeUpdate(javax.swing.event.DocumentEvent e) { update.run(); }
+            @Override public void changedUpdate(javax.swing.event.DocumentEvent e) { update.run(); }
+        });
+        query.addActionListener(e -> go.run());
+        // up/down in the query field walk the hits
+        query.addKeyListener(new java.awt.event.KeyAdapter() {
+            @Override
+            public void keyPressed(java.awt.event.KeyEvent e) {
+                int i = list.getSelectedIndex();
+                if (e.getKeyCode() == KeyEvent.VK_DOWN && i + 1 < hits.size()) list.setSelectedIndex(i + 1);
+                else if (e.getKeyCode() == KeyEvent.VK_UP && i > 0) list.setSelectedIndex(i - 1);
+                else return;
+                list.ensureIndexIsVisible(list.getSelectedIndex());
+                go.run();
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                go.run();
+            }
+        });
+        dialog.setLayout(new BorderLayout(4, 4));
+        dialog.add(query, BorderLayout.NORTH);
+        dialog.add(new JScrollPane(list), BorderLayout.CENTER);
+        dialog.setSize(360, 320);
+        dialog.setLocationRelativeTo(parentFrame);
+        findDialog = dialog;
+        dialog.setVisible(true);
+    }
+
+    private static void showError(JFrame parentFrame, String title, Exception ex) {
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        cause.printStackTrace();
+        JOptionPane.showMessageDialog(parentFrame, String.valueOf(cause.getMessage()), title, JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Finish the interaction trace being recorded, if any.
+     */
+    public void stopRecording(JFrame parentFrame) {
+        if (traceRecorder == null) return;
+        try {
+            traceRecorder.close();
+        } catch (IOException ex) {
+            showError(parentFrame, "Record Trace", ex);
+        }
+        traceRecorder = null;
+    }
+
+    // relay other editors connect to on this machine's loopback address, and join it
+    private void hostSession(JFrame parentFrame, String port) {
+        leaveSession(parentFrame);
+        try {
+            relay = TcpRelay.start(Integer.parseInt(port));
+        } catch (IOException | IllegalArgumentException ex) {
+            showError(parentFrame, "Host Session", ex);
+            return;
+        }
+        joinSession(parentFrame, "localhost:" + relay.getPort());
+    }
+
+    // connect off the EDT; the session writes remote changes on the EDT
+    private void joinSession(JFrame parentFrame, String address) {
+        ReMoDeLModel model = canvas.getModel();
+        if (model == null) {
+            JOptionPane.showMessageDialog(parentFrame, "Only model documents can be shared.", "Join Session", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        int colon = address.lastIndexOf(':');
+        String host = colon > 0 ? address.substring(0, colon) : address;
+        if (session != null) leaveSession(parentFrame);
+        SwingWorker<TcpTransport, Void> worker = new SwingWorker<TcpTransport, Void>() {
+            @Override
+            protected TcpTransport doInBackground() throws Exception {
+                int port = colon > 0 ? Integer.parseInt(address.substring(colon + 1)) : DEFAULT_SESSION_PORT;
+                return TcpTransport.connect(host, port);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    CollabSession s = new CollabSession(model, get());
+                    s.setApplyExecutor(SwingUtilities::invokeLater);
+                    s.attach();
+                    session = s;
+                } catch (Exception ex) {
+                    showError(parentFrame, "Join Session", ex);
+                    closeRelay();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Stop sharing the document, and stop the relay this editor hosts, if any.
+     */
+    public void leaveSession(JFrame parentFrame) {
+        try {
+            if (session != null) session.close();
+        } catch (IOException ex) {
+            if (parentFrame != null) showError(parentFrame, "Leave Session", ex);
+        } finally {
+            session = null;
+            closeRelay();
+        }
+    }
+
+    private void startServing(JFrame parentFrame) {
+        ReMoDeLModel model = canvas.getModel();
+        String port = model == null ? null : JOptionPane.showInputDialog(parentFrame, "Port:", 0);
+        if (port == null) {
+            serveItem.setSelected(false);
+            return;
+        }
+        try {
+            ModelServer server = new ModelServer(model);
+            server.setBindAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port.trim())));
+            server.start();
+            modelServer = server;
+            JOptionPane.showMessageDialog(parentFrame, "Serving model updates on port " + server.getPort() + ".",
+                    "Serve Model Updates", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException | IllegalArgumentException ex) {
+            serveItem.setSelected(false);
+            showError(parentFrame, "Serve Model Updates", ex);
+        }
+    }
+
+    /**
+     * Stop the model update server, if it runs.
+     */
+    public void stopServing() {
+        if (serveItem != null) serveItem.setSelected(false);
+        if (modelServer == null) return;
+        try {
+            modelServer.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        modelServer = null;
+    }
+
+    private void closeRelay() {
+        try {
+            if (relay != null) relay.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        relay = null;
+    }
+
     public JComponent getToolBar() {
         return toolPanel;
     }
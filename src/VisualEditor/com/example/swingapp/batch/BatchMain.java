@@ -0,0 +1,161 @@
+package com.example.swingapp.batch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command-line batch mode: processes documents without starting the UI,
+ * for headless servers and nightly jobs. Prints a line per document as it
+ * finishes and a summary; exits with 0 if every document went through,
+ * 1 if any failed and 2 on bad arguments.
+ */
+public final class BatchMain {
+    private static final String USAGE = String.join("\n",
+            "usage: BatchMain [options] <file-or-directory>...",
+            "  -o, --out DIR       write exports to DIR (default: next to each input)",
+            "      --png           export an image of the drawing",
+            "      --json          export JSON",
+            "      --doc           export a binary document (.rmdl)",
+            "      --layout        lay out the entities before exporting",
+            "      --iterations N  layout iterations (default 300)",
+            "      --scale S       image scale (default 1)",
+            "      --no-validate   skip validation",
+            "      --strict        fail documents with validation warnings too",
+            "  -j, --jobs N        documents processed at once (default: one per processor)",
+            "Directories are searched for .json and .rmdl files.");
+
+    private BatchMain() {
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run with the arguments; returns the exit status.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        BatchRunner runner = new BatchRunner();
+        Set<BatchRunner.Export> exports = EnumSet.noneOf(BatchRunner.Export.class);
+        List<Path> inputs = new ArrayList<>();
+        Path outDir = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                switch (a) {
+                    case "-o":
+                    case "--out":
+                        outDir = Paths.get(value(args, ++i, a));
+                        break;
+                    case "--png":
+                        exports.add(BatchRunner.Export.PNG);
+                        break;
+                    case "--json":
+                        exports.add(BatchRunner.Export.JSON);
+                        break;
+                    case "--doc":
+                        exports.add(BatchRunner.Export.DOCUMENT);
+                        break;
+                    case "--layout":
+                        runner.setLayout(true);
+                        break;
+                    case "--iterations":
+                        runner.setLayoutIterations(Integer.parseInt(value(args, ++i, a)));
+                        break;
+                    case "--scale":
+                        runner.setScale(Double.parseDouble(value(args, ++i, a)));
+                        break;
+                    case "--no-validate":
+                        runner.setValidate(false);
+                        break;
+                    case "--strict":
+                        runner.setStrict(true);
+                        break;
+                    case "-j":
+                    case "--jobs":
+                        runner.setParallelism(Integer.parseInt(value(args, ++i, a)));
+                        break;
+                    case "-h":
+                    case "--help":
+                        out.println(USAGE);
+                        return 0;
+                    default:
+                        if (a.startsWith("-")) throw new IllegalArgumentException("unknown option " + a);
+                        collect(Paths.get(a), inputs);
+                }
+            }
+            if (inputs.isEmpty()) throw new IllegalArgumentException("no documents given");
+            if (outDir != null) Files.createDirectories(outDir);
+            runner.setOutputDir(outDir);
+            runner.setExports(exports);
+            checkTargets(runner, inputs);
+        } catch (IllegalArgumentException | IOException ex) {
+            err.println(ex.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        // lines are printed whole, in the order documents finish
+        runner.setListener(r -> {
+            synchronized (out) {
+                out.println(r);
+            }
+        });
+        long t0 = System.nanoTime();
+        List<BatchRunner.Result> results = runner.run(inputs);
+        long failed = results.stream().filter(r -> !r.isOk()).count();
+        long entities = results.stream().mapToLong(BatchRunner.Result::getEntityCount).sum();
+        out.println(String.format(Locale.ROOT, "%d document(s), %d failed, %d entities, %.1f ms",
+                results.size(), failed, entities, (System.nanoTime() - t0) / 1e6));
+        return failed == 0 ? 0 : 1;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    private static void collect(Path p, List<Path> inputs) throws IOException {
+        if (!Files.exists(p)) throw new IllegalArgumentException("no such file: " + p);
+        if (!Files.isDirectory(p)) {
+            inputs.add(p);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(p)) {
+            inputs.addAll(files.filter(Files::isRegularFile).filter(BatchMain::isDocument).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    private static boolean isDocument(Path p) {
+        String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".rmdl");
+    }
+
+    // documents run in parallel: no two may write the same file, and none may write another's input
+    private static void checkTargets(BatchRunner runner, List<Path> inputs) {
+        Map<Path, Path> writers = new HashMap<>();
+        Set<Path> read = new HashSet<>();
+        for (Path p : inputs) read.add(p.toAbsolutePath().normalize());
+        for (Path p : inputs) {
+            for (Path t : runner.targets(p).values()) {
+                Path target = t.toAbsolutePath().normalize();
+                Path other = writers.putIfAbsent(target, p);
+                if (other != null) throw new IllegalArgumentException(other + " and " + p + " would both export to " + target);
+                if (read.contains(target)) throw new IllegalArgumentException(p + " would export over the input " + target);
+            }
+        }
+    }
+}
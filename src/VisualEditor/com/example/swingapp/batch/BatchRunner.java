@@ -0,0 +1,332 @@
+package com.example.swingapp.batch;
+
+import com.example.swingapp.io.DocumentReader;
+import com.example.swingapp.io.DocumentWriter;
+import com.example.swingapp.io.json.JsonDocument;
+import com.example.swingapp.layout.ForceLayout;
+import com.example.swingapp.layout.LayoutJob;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.render.Scene;
+import com.example.swingapp.render.SceneBuilder;
+import com.example.swingapp.render.SceneRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Loads, validates, lays out and exports documents without a UI.
+ *
+ * Each document goes through the stages on its own task in a fork-join
+ * pool, and the pool's parallelism bounds how many documents are being
+ * worked on, and held in memory, at once. Force layout splits its passes
+ * over the common pool as in the editor. A document that fails at any
+ * stage is reported and skipped; the others carry on.
+ */
+public class BatchRunner {
+    private static final String DOCUMENT_EXT = ".rmdl";
+    private static final int PNG_MARGIN = 20;
+    // exported images are scaled down to stay within these (64 MB per image)
+    private static final int MAX_IMAGE_SIDE = 8192;
+    private static final double MAX_IMAGE_PIXELS = 16 << 20;
+
+    public enum Stage { LOAD, VALIDATE, LAYOUT, EXPORT }
+
+    public enum Export { PNG, JSON, DOCUMENT }
+
+    private Path outputDir;
+    private Set<Export> exports = EnumSet.noneOf(Export.class);
+    private boolean validate = true;
+    private boolean strict;
+    private boolean layout;
+    private int layoutIterations = 300;
+    private double scale = 1.0;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Consumer<Result> listener = r -> {};
+
+    /**
+     * Where exports are written; null (the default) writes them next to their input.
+     */
+    public void setOutputDir(Path dir) {
+        this.outputDir = dir;
+    }
+
+    public void setExports(Set<Export> exports) {
+        this.exports = exports == null || exports.isEmpty() ? EnumSet.noneOf(Export.class) : EnumSet.copyOf(exports);
+    }
+
+    public void setValidate(boolean validate) {
+        this.validate = validate;
+    }
+
+    /**
+     * Fail documents with validation warnings too, not only errors.
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    public void setLayout(boolean layout) {
+        this.layout = layout;
+    }
+
+    public void setLayoutIterations(int iterations) {
+        if (iterations <= 0) throw new IllegalArgumentException("iterations must be positive");
+        this.layoutIterations = iterations;
+    }
+
+    /**
+     * Scale of exported images.
+     */
+    public void setScale(double scale) {
+        if (!(scale > 0)) throw new IllegalArgumentException("scale must be positive");
+        this.scale = scale;
+    }
+
+    /**
+     * Number of documents processed at once.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Told about each document as soon as it is done, on the worker thread.
+     */
+    public void setListener(Consumer<Result> listener) {
+        this.listener = listener == null ? r -> {} : listener;
+    }
+
+    /**
+     * Process the documents; returns their results in input order.
+     */
+    public List<Result> run(List<Path> inputs) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>(inputs.size());
+            for (Path p : inputs) tasks.add(pool.submit(() -> process(p)));
+            List<Result> out = new ArrayList<>(inputs.size());
+            for (ForkJoinTask<Result> t : tasks) out.add(t.join());
+            return out;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Process one document on the calling thread.
+     */
+    public Result process(Path input) {
+        Result r = new Result(input);
+        long t0 = System.nanoTime();
+        Stage stage = Stage.LOAD;
+        try {
+            ReMoDeLModel model = load(input);
+            r.entities = model.size();
+            stage = r.lap(Stage.LOAD, Stage.VALIDATE);
+            if (validate) {
+                for (DocumentValidator.Issue issue : new DocumentValidator().validate(model.snapshot())) {
+                    r.issues.add(issue);
+                    if (issue.getSeverity() == DocumentValidator.Severity.ERROR || strict) r.failedIssues++;
+                }
+                if (r.failedIssues > 0) throw new IOException(r.failedIssues + " validation problem(s), first: " + firstFailing(r));
+            }
+            stage = r.lap(Stage.VALIDATE, Stage.LAYOUT);
+            if (layout) layOut(model);
+            stage = r.lap(Stage.LAYOUT, Stage.EXPORT);
+            export(input, model.snapshot(), r);
+            r.lap(Stage.EXPORT, null);
+        } catch (Exception | OutOfMemoryError ex) {
+            r.failedStage = stage;
+            r.error = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+        }
+        r.totalNanos = System.nanoTime() - t0;
+        listener.accept(r);
+        return r;
+    }
+
+    private String firstFailing(Result r) {
+        for (DocumentValidator.Issue i : r.issues) {
+            if (i.getSeverity() == DocumentValidator.Severity.ERROR || strict) return i.toString();
+        }
+        return "";
+    }
+
+    private static ReMoDeLModel load(Path input) throws IOException {
+        ReMoDeLModel model = new ReMoDeLModel();
+        if (isJson(input)) {
+            new JsonDocument().read(input, model, null);
+        } else {
+            try (DocumentReader reader = DocumentReader.open(input)) {
+                reader.loadInto(model, null);
+            }
+        }
+        return model;
+    }
+
+    // positions are written on the layout thread; only the final ones
+    private void layOut(ReMoDeLModel model) throws Exception {
+        ForceLayout fl = new ForceLayout(model);
+        fl.setIterations(layoutIterations);
+        fl.setPublishEvery(0);
+        fl.setPublisher(Runnable::run);
+        LayoutJob job = fl.start();
+        job.await();
+        if (job.getFailure() != null) throw new IOException("layout failed: " + job.getFailure(), job.getFailure());
+    }
+
+    private void export(Path input, ModelSnapshot doc, Result r) throws IOException {
+        for (Map.Entry<Export, Path> en : targets(input).entrySet()) {
+            Path target = en.getValue();
+            switch (en.getKey()) {
+                case PNG:
+                    writePng(doc, target);
+                    break;
+                case JSON:
+                    new JsonDocument().write(target, doc.getAll(), null);
+                    break;
+                case DOCUMENT:
+                    new DocumentWriter().write(target, new ArrayList<>(doc.getAll()), null);
+                    break;
+            }
+            r.outputs.add(target);
+        }
+    }
+
+    /**
+     * The files the input's exports are written to, never the input itself.
+     */
+    Map<Export, Path> targets(Path input) {
+        Map<Export, Path> out = new EnumMap<>(Export.class);
+        Path dir = outputDir != null ? outputDir : input.toAbsolutePath().getParent();
+        String base = baseName(input);
+        for (Export x : exports) {
+            String ext = x == Export.PNG ? ".png" : x == Export.JSON ? ".json" : DOCUMENT_EXT;
+            Path p = dir.resolve(base + ext);
+            if (p.toAbsolutePath().equals(input.toAbsolutePath())) p = dir.resolve(base + ".out" + ext);
+            out.put(x, p);
+        }
+        return out;
+    }
+
+    private void writePng(ModelSnapshot doc, Path target) throws IOException {
+        Scene scene = SceneBuilder.build(doc.getAll(), 3f);
+        Rectangle2D b = scene.bounds(scene.entityIds());
+        Rectangle region = b == null ? new Rectangle(0, 0, 1, 1) : b.getBounds();
+        region.grow(PNG_MARGIN, PNG_MARGIN);
+        double s = Math.min(scale, Math.min((double) MAX_IMAGE_SIDE / Math.max(region.width, region.height),
+                Math.sqrt(MAX_IMAGE_PIXELS / ((double) region.width * region.height))));
+        BufferedImage img = new SceneRenderer().renderImage(scene, region, s);
+        if (!ImageIO.write(img, "png", target.toFile())) throw new IOException("no PNG writer");
+    }
+
+    static boolean isJson(Path p) {
+        return p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+    }
+
+    static String baseName(Path p) {
+        String name = p.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * What happened to one document.
+     */
+    public static final class Result {
+        private final Path input;
+        private final Map<Stage, Long> stageNanos = new EnumMap<>(Stage.class);
+        private final List<DocumentValidator.Issue> issues = new ArrayList<>();
+        private final List<Path> outputs = new ArrayList<>();
+        private int failedIssues;
+        private int entities;
+        private long totalNanos;
+        private Stage failedStage;
+        private String error;
+        private long lapStart = System.nanoTime();
+
+        Result(Path input) {
+            this.input = input;
+        }
+
+        private Stage lap(Stage done, Stage next) {
+            long now = System.nanoTime();
+            stageNanos.put(done, now - lapStart);
+            lapStart = now;
+            return next;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        public boolean isOk() {
+            return error == null;
+        }
+
+        /**
+         * The stage that failed, or null.
+         */
+        public Stage getFailedStage() {
+            return failedStage;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public int getEntityCount() {
+            return entities;
+        }
+
+        public List<DocumentValidator.Issue> getIssues() {
+            return issues;
+        }
+
+        public List<Path> getOutputs() {
+            return outputs;
+        }
+
+        /**
+         * Time spent in the stage, in nanoseconds; 0 if it did not run.
+         */
+        public long getNanos(Stage stage) {
+            return stageNanos.getOrDefault(stage, 0L);
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * One line: status, total and per-stage milliseconds, entity count, file.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(isOk() ? "OK  " : "FAIL").append(String.format(Locale.ROOT, " %9.1f ms", totalNanos / 1e6));
+            for (Stage s : Stage.values()) {
+                sb.append(String.format(Locale.ROOT, "  %s %7.1f", s.name().toLowerCase(Locale.ROOT), getNanos(s) / 1e6));
+            }
+            sb.append(String.format(Locale.ROOT, "  %8d entities  %s", entities, input));
+            if (!isOk()) sb.append("\n     ").append(failedStage.name().toLowerCase(Locale.ROOT)).append(": ").append(error);
+            return sb.toString();
+        }
+    }
+}
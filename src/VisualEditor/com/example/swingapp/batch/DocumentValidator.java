@@ -0,0 +1,92 @@
+package com.example.swingapp.batch;
+
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks a document for problems the editor would trip over or silently
+ * paper over: entities without an id, geometry that is not numeric,
+ * point lists of odd length, and connectives whose ends are missing.
+ */
+public class DocumentValidator {
+    private static final String[] BOX = { "x1", "y1", "x2", "y2" };
+
+    public enum Severity { WARNING, ERROR }
+
+    public static final class Issue {
+        private final Severity severity;
+        private final String entityId;
+        private final String message;
+
+        Issue(Severity severity, String entityId, String message) {
+            this.severity = severity;
+            this.entityId = entityId;
+            this.message = message;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        public String getEntityId() {
+            return entityId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return severity + " " + entityId + ": " + message;
+        }
+    }
+
+    /**
+     * The problems of the entities, in no particular order.
+     */
+    public List<Issue> validate(ModelSnapshot doc) {
+        if (doc == null) throw new IllegalArgumentException("doc is null");
+        List<Issue> out = new ArrayList<>();
+        for (ReMoDeLEntity e : doc) {
+            String id = e.getId();
+            if (id == null || id.isEmpty()) {
+                out.add(new Issue(Severity.ERROR, "?", "entity without an id"));
+                continue;
+            }
+            if (e.getType() == null) out.add(new Issue(Severity.WARNING, id, "no type"));
+            int boxKeys = 0;
+            for (String k : BOX) {
+                Object v = e.get(k);
+                if (v == null) continue;
+                boxKeys++;
+                if (!(v instanceof Number)) out.add(new Issue(Severity.ERROR, id, k + " is not a number: " + v));
+                else if (!Double.isFinite(((Number) v).doubleValue())) out.add(new Issue(Severity.ERROR, id, k + " is " + v));
+            }
+            if (boxKeys > 0 && boxKeys < BOX.length) out.add(new Issue(Severity.WARNING, id, "incomplete box"));
+            for (String k : new String[] { "points", "route" }) {
+                Object v = e.get(k);
+                if (v == null) continue;
+                if (!(v instanceof int[])) out.add(new Issue(Severity.ERROR, id, k + " is not a point list"));
+                else if (((int[]) v).length % 2 != 0) out.add(new Issue(Severity.ERROR, id, k + " has an odd number of coordinates"));
+            }
+            if (e instanceof Connective) connective((Connective) e, doc, out);
+        }
+        return out;
+    }
+
+    private static void connective(Connective c, ModelSnapshot doc, List<Issue> out) {
+        String from = c.getFromId(), to = c.getToId();
+        if (from == null || to == null) {
+            out.add(new Issue(Severity.WARNING, c.getId(), "connective with a loose end"));
+            return;
+        }
+        if (!doc.contains(from)) out.add(new Issue(Severity.ERROR, c.getId(), "connects from missing entity " + from));
+        if (!doc.contains(to)) out.add(new Issue(Severity.ERROR, c.getId(), "connects to missing entity " + to));
+        if (from.equals(to)) out.add(new Issue(Severity.WARNING, c.getId(), "connects " + from + " to itself"));
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.swingapp.collab;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares a model with other replicas over a transport.
+ *
+ * Local model events are turned into CRDT ops (see CrdtOp) for the
+ * properties they changed, found by comparing each entity with its version
+ * when it was last synced; the ops are applied to the state at once and
+ * sent in batches, at most 'flush delay' after the first op of a batch.
+ * Received ops are applied to the state on the transport thread and the
+ * entities they touched are written to the model on the apply executor.
+ * Replicas that have received the same ops have the same entities,
+ * whatever order the ops came in.
+ *
+ * The apply executor must run its tasks on the thread that edits the model
+ * (the EDT in the editor), so remote entities never overwrite a local edit
+ * the state has not seen yet; local edits made before the remote changes
+ * reach the model only send the properties they touched, so they do not
+ * undo those changes either. The default runs them on the transport
+ * thread, which suits models only edited through their session.
+ */
+public class CollabSession implements ModelListener, Closeable {
+    private static final long DEFAULT_FLUSH_DELAY_MS = 20;
+    private static final int MAX_BATCH = 10_000;
+
+    private final ReMoDeLModel model;
+    private final Transport transport;
+    private final String replicaId;
+    private final CrdtState state = new CrdtState();
+    private long clock;
+    private final List<CrdtOp> outbox = new ArrayList<>();
+    private boolean flushQueued;
+    // the model's entities as last synced with the state: local edits send only what they changed
+    private final Map<String, ReMoDeLEntity> synced = new HashMap<>();
+    // entities changed by received ops, not yet written to the model
+    private final Set<String> remoteIds = new LinkedHashSet<>();
+    private boolean applyQueued;
+    private volatile Thread applying;
+
+    private Executor applyExecutor = Runnable::run;
+    private long flushDelayMillis = DEFAULT_FLUSH_DELAY_MS;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "collab-flush");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong opsSent = new AtomicLong(), opsReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong(), messagesSent = new AtomicLong();
+    private volatile IOException failure;
+
+    public CollabSession(ReMoDeLModel model, Transport transport) {
+        this(model, transport, UUID.randomUUID().toString().substring(0, 8));
+    }
+
+    public CollabSession(ReMoDeLModel model, Transport transport, String replicaId) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        if (transport == null) throw new IllegalArgumentException("transport is null");
+        if (replicaId == null || replicaId.isEmpty()) throw new IllegalArgumentException("replicaId is empty");
+        this.model = model;
+        this.transport = transport;
+        this.replicaId = replicaId;
+    }
+
+    /**
+     * Where entities changed by other replicas are written to the model,
+     * e.g. EventQueue::invokeLater. Set before attach().
+     */
+    public void setApplyExecutor(Executor executor) {
+        if (executor == null) throw new IllegalArgumentException("executor is null");
+        this.applyExecutor = executor;
+    }
+
+    /**
+     * How long local ops wait for more ops to share a message with.
+     */
+    public void setFlushDelay(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("flush delay must not be negative");
+        this.flushDelayMillis = millis;
+    }
+
+    /**
+     * Share the model's current entities, follow the model, and ask the
+     * other replicas for theirs.
+     */
+    public void attach() throws IOException {
+        transport.setReceiver(this::receive);
+        synchronized (this) {
+            for (ReMoDeLEntity e : model.getAll()) local(e.getId());
+        }
+        model.addListener(this);
+        flush();
+        // everyone answers with their full state, this replica's included
+        send(OpCodec.encode(OpCodec.Kind.HELLO, replicaId, List.of()), 0);
+    }
+
+    public void detach() {
+        model.removeListener(this);
+        transport.setReceiver(null);
+    }
+
+    public String getReplicaId() {
+        return replicaId;
+    }
+
+    @Override
+    public void modelChanged(ModelEvent e) {
+        if (applying == Thread.currentThread()) return; // our own write of remote changes
+        boolean now;
+        synchronized (this) {
+            if (e.getType() == ModelEvent.Type.RESET) {
+                Set<String> ids = state.liveIds();
+                for (ReMoDeLEntity ent : model.getAll()) ids.add(ent.getId());
+                for (String id : ids) local(id);
+            } else {
+                for (String id : e.getEntityIds()) local(id);
+            }
+            if (outbox.isEmpty() || flushQueued) return;
+            flushQueued = true;
+            now = outbox.size() >= MAX_BATCH || flushDelayMillis == 0;
+        }
+        if (now) flusher.execute(this::flushQuietly);
+        else flusher.schedule(this::flushQuietly, flushDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // ops for the local change of the entity since it was last synced. The
+    // state may already hold received ops the model has not caught up with,
+    // so a known entity only sends the properties that changed; a new one,
+    // or one the other replicas removed meanwhile, sends all of them.
+    private void local(String id) {
+        ReMoDeLEntity e = model.get(id);
+        ReMoDeLEntity before = synced.get(id);
+        List<CrdtOp> ops = new ArrayList<>();
+        if (e == null) {
+            if (state.isLive(id)) ops.add(CrdtOp.remove(id, tick(), state.tags(id)));
+            synced.remove(id);
+        } else {
+            Stamp stamp = tick();
+            if (before != null && state.isLive(id)) {
+                ops.addAll(state.diff(id, before, e, stamp));
+            } else {
+                if (!state.isLive(id)) ops.add(CrdtOp.add(id, stamp));
+                ops.addAll(state.diff(id, e.getType(), e.getProperties(), stamp));
+            }
+            synced.put(id, e);
+        }
+        for (CrdtOp op : ops) state.apply(op);
+        outbox.addAll(ops);
+    }
+
+    private Stamp tick() {
+        clock = Math.max(clock, state.getMaxCounter()) + 1;
+        return new Stamp(clock, replicaId);
+    }
+
+    /**
+     * Send the ops waiting for their batch now.
+     */
+    public void flush() throws IOException {
+        List<CrdtOp> ops;
+        synchronized (this) {
+            flushQueued = false;
+            if (outbox.isEmpty()) return;
+            ops = new ArrayList<>(outbox);
+            outbox.clear();
+        }
+        send(OpCodec.encode(OpCodec.Kind.OPS, replicaId, ops), ops.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException ex) {
+            failure = ex;
+        }
+    }
+
+    private void send(byte[] message, int ops) throws IOException {
+        transport.send(message);
+        messagesSent.incrementAndGet();
+        bytesSent.addAndGet(message.length);
+        opsSent.addAndGet(ops);
+    }
+
+    private void receive(byte[] message) {
+        OpCodec.Message m;
+        try {
+            m = OpCodec.decode(message);
+        } catch (IOException ex) {
+            failure = ex;
+            return;
+        }
+        if (m.sender.equals(replicaId)) return;
+        if (m.kind == OpCodec.Kind.HELLO) {
+            List<CrdtOp> all;
+            synchronized (this) {
+                all = state.toOps();
+            }
+            try {
+                send(OpCodec.encode(OpCodec.Kind.OPS, replicaId, all), all.size());
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            return;
+        }
+        opsReceived.addAndGet(m.ops.size());
+        synchronized (this) {
+            for (CrdtOp op : m.ops) {
+                if (state.apply(op)) remoteIds.add(op.getEntityId());
+            }
+            clock = Math.max(clock, state.getMaxCounter());
+            if (remoteIds.isEmpty() || applyQueued) return;
+            applyQueued = true;
+        }
+        applyExecutor.execute(this::applyRemote);
+    }
+
+    // write the entities touched by received ops to the model, in one batch
+    private void applyRemote() {
+        List<String> ids;
+        List<ReMoDeLEntity> entities = new ArrayList<>();
+        synchronized (this) {
+            applyQueued = false;
+            ids = new ArrayList<>(remoteIds);
+            remoteIds.clear();
+            for (String id : ids) entities.add(state.materialize(id));
+        }
+        applying = Thread.currentThread();
+        boolean batch = ids.size() > 1;
+        if (batch) model.beginBatch();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                ReMoDeLEntity e = entities.get(i);
+                ReMoDeLEntity current = model.get(ids.get(i));
+                if (e == null) {
+                    if (current != null) model.removeEntity(ids.get(i));
+                } else if (current == null) {
+                    model.addEntity(e);
+                } else if (!sameContent(current, e)) {
+                    model.updateEntity(e);
+                }
+            }
+        } finally {
+            if (batch) model.endBatch();
+            applying = null;
+            synchronized (this) {
+                for (String id : ids) {
+                    ReMoDeLEntity now = model.get(id);
+                    if (now != null) synced.put(id, now); else synced.remove(id);
+                }
+            }
+        }
+    }
+
+    private static boolean sameContent(ReMoDeLEntity a, ReMoDeLEntity b) {
+        if (!Objects.equals(a.getType(), b.getType())) return false;
+        if (a.getProperties().size() != b.getProperties().size()) return false;
+        for (Map.Entry<String, Object> en : a.getProperties().entrySet()) {
+            if (!Objects.deepEquals(en.getValue(), b.get(en.getKey()))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ids of the entities this replica holds, for comparing replicas.
+     */
+    public synchronized Collection<String> getEntityIds() {
+        return new HashSet<>(state.liveIds());
+    }
+
+    public long getOpsSent() {
+        return opsSent.get();
+    }
+
+    public long getOpsReceived() {
+        return opsReceived.get();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * The last error sending or decoding a message, or null.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Send what is pending, stop following the model and close the transport.
+     */
+    @Override
+    public void close() throws IOException {
+        detach();
+        try {
+            flush();
+        } finally {
+            flusher.shutdownNow();
+            transport.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.swingapp.collab;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One replicated change to the model.
+ *
+ * ADD puts a new tag into the entity's OR-set entry, REMOVE drops the tags
+ * its sender had seen, and an entity exists while it has a tag left, so a
+ * remove never undoes an add it did not know about. SET writes a property's
+ * last-writer-wins register; a null value removes the property and the
+ * entity type lives in the TYPE_KEY register.
+ */
+public final class CrdtOp {
+    public enum Kind { ADD, REMOVE, SET }
+
+    /** Register holding the entity type. */
+    public static final String TYPE_KEY = "@type";
+
+    private final Kind kind;
+    private final String entityId;
+    private final Stamp stamp;
+    private final List<Stamp> removedTags;
+    private final String key;
+    private final Object value;
+
+    private CrdtOp(Kind kind, String entityId, Stamp stamp, List<Stamp> removedTags, String key, Object value) {
+        if (entityId == null) throw new IllegalArgumentException("entityId is null");
+        if (stamp == null) throw new IllegalArgumentException("stamp is null");
+        this.kind = kind;
+        this.entityId = entityId;
+        this.stamp = stamp;
+        this.removedTags = removedTags;
+        this.key = key;
+        this.value = value;
+    }
+
+    public static CrdtOp add(String entityId, Stamp tag) {
+        return new CrdtOp(Kind.ADD, entityId, tag, Collections.emptyList(), null, null);
+    }
+
+    public static CrdtOp remove(String entityId, Stamp stamp, Collection<Stamp> observedTags) {
+        return new CrdtOp(Kind.REMOVE, entityId, stamp, List.copyOf(observedTags), null, null);
+    }
+
+    public static CrdtOp set(String entityId, Stamp stamp, String key, Object value) {
+        if (key == null) throw new IllegalArgumentException("key is null");
+        return new CrdtOp(Kind.SET, entityId, stamp, Collections.emptyList(), key, value);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /** The op's timestamp; for ADD also the tag it adds. */
+    public Stamp getStamp() {
+        return stamp;
+    }
+
+    /** Tags a REMOVE drops. */
+    public List<Stamp> getRemovedTags() {
+        return removedTags;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case SET: return "SET " + entityId + "." + key + " @" + stamp;
+            case REMOVE: return "REMOVE " + entityId + " " + removedTags;
+            default: return "ADD " + entityId + " @" + stamp;
+        }
+    }
+}
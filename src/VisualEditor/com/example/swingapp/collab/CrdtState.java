@@ -0,0 +1,180 @@
+package com.example.swingapp.collab;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Replica state: an OR-set of entity ids and a last-writer-wins register
+ * per entity property. Applying the same ops in any order, any number of
+ * times, gives the same state, which is what makes replicas converge.
+ *
+ * Removed tags are kept as tombstones so an ADD arriving after the REMOVE
+ * that dropped it cannot bring the entity back. Not thread-safe; the
+ * session guards it.
+ */
+final class CrdtState {
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long maxCounter;
+
+    private static final class Entry {
+        final Set<Stamp> tags = new HashSet<>();
+        final Set<Stamp> removed = new HashSet<>();
+        final Map<String, Register> registers = new HashMap<>();
+    }
+
+    private static final class Register {
+        final Stamp stamp;
+        final Object value;
+
+        Register(Stamp stamp, Object value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Apply an op; true if the entity's visible state may have changed.
+     */
+    boolean apply(CrdtOp op) {
+        maxCounter = Math.max(maxCounter, op.getStamp().getCounter());
+        Entry en = entries.computeIfAbsent(op.getEntityId(), k -> new Entry());
+        switch (op.getKind()) {
+            case ADD: {
+                if (en.removed.contains(op.getStamp())) return false;
+                boolean wasLive = !en.tags.isEmpty();
+                return en.tags.add(op.getStamp()) && !wasLive;
+            }
+            case REMOVE: {
+                boolean wasLive = !en.tags.isEmpty();
+                for (Stamp t : op.getRemovedTags()) {
+                    maxCounter = Math.max(maxCounter, t.getCounter());
+                    en.removed.add(t);
+                    en.tags.remove(t);
+                }
+                return wasLive && en.tags.isEmpty();
+            }
+            default: {
+                Register r = en.registers.get(op.getKey());
+                if (r != null && r.stamp.compareTo(op.getStamp()) >= 0) return false;
+                en.registers.put(op.getKey(), new Register(op.getStamp(), op.getValue()));
+                return !en.tags.isEmpty() && (r == null || !Objects.deepEquals(r.value, op.getValue()));
+            }
+        }
+    }
+
+    /** Largest counter seen, for advancing the local clock. */
+    long getMaxCounter() {
+        return maxCounter;
+    }
+
+    boolean isLive(String id) {
+        Entry en = entries.get(id);
+        return en != null && !en.tags.isEmpty();
+    }
+
+    Set<Stamp> tags(String id) {
+        Entry en = entries.get(id);
+        return en == null ? Set.of() : new HashSet<>(en.tags);
+    }
+
+    Set<String> liveIds() {
+        Set<String> out = new HashSet<>();
+        for (Map.Entry<String, Entry> en : entries.entrySet()) if (!en.getValue().tags.isEmpty()) out.add(en.getKey());
+        return out;
+    }
+
+    /**
+     * The SETs that turn the registers of the entity into the given
+     * properties and type, all with the given stamp.
+     */
+    List<CrdtOp> diff(String id, String type, Map<String, Object> props, Stamp stamp) {
+        Entry en = entries.get(id);
+        Map<String, Register> regs = en == null ? Map.of() : en.registers;
+        List<CrdtOp> out = new ArrayList<>();
+        if (!Objects.equals(valueOf(regs.get(CrdtOp.TYPE_KEY)), type)) out.add(CrdtOp.set(id, stamp, CrdtOp.TYPE_KEY, type));
+        for (Map.Entry<String, Object> p : props.entrySet()) {
+            if (!Objects.deepEquals(valueOf(regs.get(p.getKey())), p.getValue())) out.add(CrdtOp.set(id, stamp, p.getKey(), p.getValue()));
+        }
+        for (Map.Entry<String, Register> r : regs.entrySet()) {
+            if (r.getValue().value != null && !r.getKey().equals(CrdtOp.TYPE_KEY) && !props.containsKey(r.getKey())) {
+                out.add(CrdtOp.set(id, stamp, r.getKey(), null));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The SETs for what changed between two versions of the entity, all
+     * with the given stamp. Properties the edit did not touch are left to
+     * whatever the registers hold, so a concurrent remote change to them
+     * is not written back over.
+     */
+    List<CrdtOp> diff(String id, ReMoDeLEntity before, ReMoDeLEntity after, Stamp stamp) {
+        Entry en = entries.get(id);
+        Map<String, Register> regs = en == null ? Map.of() : en.registers;
+        List<CrdtOp> out = new ArrayList<>();
+        String type = after.getType();
+        if (!Objects.equals(before.getType(), type) && !Objects.equals(valueOf(regs.get(CrdtOp.TYPE_KEY)), type)) {
+            out.add(CrdtOp.set(id, stamp, CrdtOp.TYPE_KEY, type));
+        }
+        Set<String> keys = new HashSet<>(before.getProperties().keySet());
+        keys.addAll(after.getProperties().keySet());
+        for (String k : keys) {
+            Object v = after.get(k);
+            if (Objects.deepEquals(before.get(k), v) || Objects.deepEquals(valueOf(regs.get(k)), v)) continue;
+            out.add(CrdtOp.set(id, stamp, k, v));
+        }
+        return out;
+    }
+
+    private static Object valueOf(Register r) {
+        return r == null ? null : r.value;
+    }
+
+    /**
+     * The entity as the registers describe it, or null if it is not live.
+     */
+    ReMoDeLEntity materialize(String id) {
+        Entry en = entries.get(id);
+        if (en == null || en.tags.isEmpty()) return null;
+        Object type = valueOf(en.registers.get(CrdtOp.TYPE_KEY));
+        ReMoDeLEntity e = ReMoDeLEntity.create(type instanceof String ? (String) type : null, id);
+        Map<String, Object> props = new HashMap<>();
+        for (Map.Entry<String, Register> r : en.registers.entrySet()) {
+            if (r.getValue().value != null && !r.getKey().equals(CrdtOp.TYPE_KEY)) props.put(r.getKey(), r.getValue().value);
+        }
+        e.setProperties(props);
+        return e;
+    }
+
+    /**
+     * The whole state as ops, for a replica that joins late or missed messages.
+     */
+    List<CrdtOp> toOps() {
+        List<CrdtOp> out = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            String id = e.getKey();
+            Entry en = e.getValue();
+            for (Stamp t : en.tags) out.add(CrdtOp.add(id, t));
+            if (!en.removed.isEmpty()) out.add(CrdtOp.remove(id, maxStamp(en.removed), en.removed));
+            for (Map.Entry<String, Register> r : en.registers.entrySet()) {
+                out.add(CrdtOp.set(id, r.getValue().stamp, r.getKey(), r.getValue().value));
+            }
+        }
+        return out;
+    }
+
+    private static Stamp maxStamp(Collection<Stamp> stamps) {
+        Stamp max = null;
+        for (Stamp s : stamps) if (max == null || s.compareTo(max) > 0) max = s;
+        return max;
+    }
+}
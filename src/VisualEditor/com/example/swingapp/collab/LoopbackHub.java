@@ -0,0 +1,80 @@
+package com.example.swingapp.collab;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport: every transport connected to a hub receives what
+ * the others send, on a delivery thread of its own. For running several
+ * replicas in one JVM, e.g. in tests.
+ */
+public class LoopbackHub {
+    private final List<Peer> peers = new CopyOnWriteArrayList<>();
+
+    public Transport connect() {
+        Peer p = new Peer();
+        peers.add(p);
+        return p;
+    }
+
+    /**
+     * Wait until every message sent so far has been delivered.
+     */
+    public void drain() throws InterruptedException {
+        for (Peer p : peers) {
+            try {
+                p.delivery.submit(() -> { }).get();
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex.getCause());
+            } catch (RejectedExecutionException ignored) {
+                // closed meanwhile
+            }
+        }
+    }
+
+    private final class Peer implements Transport {
+        private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "loopback-delivery");
+            t.setDaemon(true);
+            return t;
+        });
+        private volatile Consumer<byte[]> receiver = m -> { };
+
+        @Override
+        public void send(byte[] message) throws IOException {
+            if (delivery.isShutdown()) throw new IOException("transport closed");
+            byte[] copy = message.clone();
+            for (Peer p : peers) {
+                if (p == this) continue;
+                try {
+                    p.delivery.execute(() -> p.receiver.accept(copy));
+                } catch (RejectedExecutionException ignored) {
+                    // that peer closed meanwhile
+                }
+            }
+        }
+
+        @Override
+        public void setReceiver(Consumer<byte[]> receiver) {
+            this.receiver = receiver == null ? m -> { } : receiver;
+        }
+
+        @Override
+        public void close() {
+            peers.remove(this);
+            delivery.shutdown();
+            try {
+                delivery.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
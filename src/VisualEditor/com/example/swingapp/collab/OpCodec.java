@@ -0,0 +1,245 @@
+package com.example.swingapp.collab;
+
+import com.example.swingapp.io.EntityRecords;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Wire format of session messages.
+ *
+ * A message is a flag byte (deflated or not) and a body: version, kind,
+ * sender, the ops, then their property values in the document format's
+ * value encoding. Ids, keys and replica names go through a per-message
+ * string table, since a batch names the same entity and replica many
+ * times. Bodies over COMPRESS_THRESHOLD bytes are deflated.
+ */
+final class OpCodec {
+    static final int VERSION = 1;
+    static final int COMPRESS_THRESHOLD = 256;
+    private static final int RAW = 0, DEFLATED = 1;
+    // a message never inflates to more than this; guards against corrupt input
+    private static final int MAX_BODY = 256 << 20;
+
+    enum Kind { OPS, HELLO }
+
+    static final class Message {
+        final Kind kind;
+        final String sender;
+        final List<CrdtOp> ops;
+
+        Message(Kind kind, String sender, List<CrdtOp> ops) {
+            this.kind = kind;
+            this.sender = sender;
+            this.ops = ops;
+        }
+    }
+
+    private OpCodec() {
+    }
+
+    static byte[] encode(Kind kind, String sender, List<CrdtOp> ops) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + ops.size() * 24);
+            DataOutputStream out = new DataOutputStream(bytes);
+            Map<String, Integer> strings = new HashMap<>();
+            List<Object> values = new ArrayList<>();
+            out.writeByte(VERSION);
+            out.writeByte(kind.ordinal());
+            string(out, strings, sender);
+            out.writeInt(ops.size());
+            for (CrdtOp op : ops) {
+                out.writeByte(op.getKind().ordinal());
+                string(out, strings, op.getEntityId());
+                stamp(out, strings, op.getStamp());
+                switch (op.getKind()) {
+                    case REMOVE:
+                        out.writeInt(op.getRemovedTags().size());
+                        for (Stamp t : op.getRemovedTags()) stamp(out, strings, t);
+                        break;
+                    case SET:
+                        string(out, strings, op.getKey());
+                        values.add(op.getValue());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            byte[] v = EntityRecords.encodeValues(values);
+            out.writeInt(v.length);
+            out.write(v);
+            out.flush();
+            return frame(bytes.toByteArray());
+        } catch (IOException ex) {
+            // in-memory streams do not fail
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static Message decode(byte[] message) throws IOException {
+        if (message.length == 0) throw new IOException("empty message");
+        byte[] body = message[0] == DEFLATED ? inflate(message) : copyBody(message);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        List<String> strings = new ArrayList<>();
+        try {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("unsupported message version " + version);
+            int k = in.readUnsignedByte();
+            if (k >= Kind.values().length) throw new IOException("bad message kind " + k);
+            String sender = string(in, strings);
+            int n = in.readInt();
+            if (n < 0) throw new IOException("bad op count " + n);
+            List<Object[]> raw = new ArrayList<>();
+            int sets = 0;
+            for (int i = 0; i < n; i++) {
+                int ok = in.readUnsignedByte();
+                if (ok >= CrdtOp.Kind.values().length) throw new IOException("bad op kind " + ok);
+                CrdtOp.Kind kind = CrdtOp.Kind.values()[ok];
+                String id = string(in, strings);
+                Stamp stamp = stamp(in, strings);
+                List<Stamp> tags = null;
+                String key = null;
+                if (kind == CrdtOp.Kind.REMOVE) {
+                    int m = in.readInt();
+                    if (m < 0) throw new IOException("bad tag count " + m);
+                    tags = new ArrayList<>(Math.min(m, 1024));
+                    for (int j = 0; j < m; j++) tags.add(stamp(in, strings));
+                } else if (kind == CrdtOp.Kind.SET) {
+                    key = string(in, strings);
+                    sets++;
+                }
+                raw.add(new Object[] { kind, id, stamp, tags, key });
+            }
+            int vlen = in.readInt();
+            if (vlen < 0 || vlen > body.length) throw new IOException("bad values length " + vlen);
+            byte[] v = new byte[vlen];
+            in.readFully(v);
+            List<Object> values = EntityRecords.decodeValues(v);
+            if (values.size() != sets) throw new IOException("expected " + sets + " values, got " + values.size());
+            List<CrdtOp> ops = new ArrayList<>(n);
+            int vi = 0;
+            for (Object[] r : raw) {
+                CrdtOp.Kind kind = (CrdtOp.Kind) r[0];
+                String id = (String) r[1];
+                Stamp stamp = (Stamp) r[2];
+                if (kind == CrdtOp.Kind.ADD) ops.add(CrdtOp.add(id, stamp));
+                else if (kind == CrdtOp.Kind.REMOVE) ops.add(CrdtOp.remove(id, stamp, castTags(r[3])));
+                else ops.add(CrdtOp.set(id, stamp, (String) r[4], values.get(vi++)));
+            }
+            return new Message(Kind.values()[k], sender, ops);
+        } catch (EOFException ex) {
+            throw new IOException("truncated message", ex);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("bad op: " + ex.getMessage(), ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Stamp> castTags(Object o) {
+        return (List<Stamp>) o;
+    }
+
+    // index into the strings met so far, or 0 and the string itself
+    private static void string(DataOutputStream out, Map<String, Integer> strings, String s) throws IOException {
+        Integer i = strings.get(s);
+        if (i != null) {
+            out.writeInt(i);
+            return;
+        }
+        strings.put(s, strings.size() + 1);
+        out.writeInt(0);
+        out.writeUTF(s);
+    }
+
+    private static String string(DataInputStream in, List<String> strings) throws IOException {
+        int i = in.readInt();
+        if (i == 0) {
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+        if (i < 0 || i > strings.size()) throw new IOException("bad string index " + i);
+        return strings.get(i - 1);
+    }
+
+    private static void stamp(DataOutputStream out, Map<String, Integer> strings, Stamp s) throws IOException {
+        out.writeLong(s.getCounter());
+        string(out, strings, s.getReplica());
+    }
+
+    private static Stamp stamp(DataInputStream in, List<String> strings) throws IOException {
+        long c = in.readLong();
+        return new Stamp(c, string(in, strings));
+    }
+
+    private static byte[] frame(byte[] body) {
+        if (body.length <= COMPRESS_THRESHOLD) {
+            byte[] out = new byte[body.length + 1];
+            out[0] = RAW;
+            System.arraycopy(body, 0, out, 1, body.length);
+            return out;
+        }
+        Deflater d = new Deflater(Deflater.BEST_SPEED);
+        try {
+            d.setInput(body);
+            d.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2 + 16);
+            out.write(DEFLATED);
+            // the inflated length lets the reader size its buffer
+            out.write(body.length >>> 24);
+            out.write(body.length >>> 16);
+            out.write(body.length >>> 8);
+            out.write(body.length);
+            byte[] chunk = new byte[8192];
+            while (!d.finished()) {
+                int n = d.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            d.end();
+        }
+    }
+
+    private static byte[] copyBody(byte[] message) throws IOException {
+        if (message[0] != RAW) throw new IOException("bad message flags " + message[0]);
+        byte[] body = new byte[message.length - 1];
+        System.arraycopy(message, 1, body, 0, body.length);
+        return body;
+    }
+
+    private static byte[] inflate(byte[] message) throws IOException {
+        if (message.length < 5) throw new IOException("truncated message");
+        int len = ((message[1] & 0xFF) << 24) | ((message[2] & 0xFF) << 16) | ((message[3] & 0xFF) << 8) | (message[4] & 0xFF);
+        if (len < 0 || len > MAX_BODY) throw new IOException("bad message length " + len);
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(message, 5, message.length - 5);
+            byte[] body = new byte[len];
+            int n = 0;
+            while (n < len) {
+                int k = inf.inflate(body, n, len - n);
+                if (k == 0 && (inf.finished() || inf.needsInput() || inf.needsDictionary())) break;
+                n += k;
+            }
+            if (n != len) throw new IOException("truncated message");
+            return body;
+        } catch (DataFormatException ex) {
+            throw new IOException("corrupt message", ex);
+        } finally {
+            inf.end();
+        }
+    }
+}
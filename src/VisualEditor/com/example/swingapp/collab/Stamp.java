@@ -0,0 +1,51 @@
+package com.example.swingapp.collab;
+
+import java.util.Objects;
+
+/**
+ * Lamport timestamp of an operation: a counter, with the replica id
+ * breaking ties, so every operation has a distinct stamp and all replicas
+ * order stamps the same way.
+ */
+public final class Stamp implements Comparable<Stamp> {
+    private final long counter;
+    private final String replica;
+
+    public Stamp(long counter, String replica) {
+        if (replica == null) throw new IllegalArgumentException("replica is null");
+        this.counter = counter;
+        this.replica = replica;
+    }
+
+    public long getCounter() {
+        return counter;
+    }
+
+    public String getReplica() {
+        return replica;
+    }
+
+    @Override
+    public int compareTo(Stamp o) {
+        int c = Long.compare(counter, o.counter);
+        return c != 0 ? c : replica.compareTo(o.replica);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Stamp)) return false;
+        Stamp s = (Stamp) o;
+        return counter == s.counter && replica.equals(s.replica);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(counter, replica);
+    }
+
+    @Override
+    public String toString() {
+        return counter + "@" + replica;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.swingapp.collab;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hub of a TCP session: forwards every message a connected replica sends
+ * to all the other connected replicas, in arrival order. One thread
+ * accepts connections and one reads from each of them. Listens on the
+ * loopback interface unless given another address.
+ */
+public class TcpRelay implements Closeable {
+    /** Messages larger than this end the connection that sent them. */
+    static final int MAX_MESSAGE = 64 << 20;
+
+    private final ServerSocket server;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    private TcpRelay(ServerSocket server) {
+        this.server = server;
+    }
+
+    /**
+     * A relay on the loopback interface; port 0 picks a free port.
+     */
+    public static TcpRelay start(int port) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static TcpRelay start(InetSocketAddress address) throws IOException {
+        ServerSocket s = new ServerSocket();
+        s.setReuseAddress(true);
+        s.bind(address);
+        TcpRelay relay = new TcpRelay(s);
+        Thread t = new Thread(relay::acceptLoop, "collab-relay-accept");
+        t.setDaemon(true);
+        t.start();
+        return relay;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                Connection c = new Connection(s);
+                connections.add(c);
+                Thread t = new Thread(c::readLoop, "collab-relay-" + s.getPort());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException ex) {
+                if (!closed) ex.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Connection c : connections) c.close();
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void readLoop() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    byte[] m = readFrame(in);
+                    for (Connection c : connections) {
+                        if (c != this) c.write(m);
+                    }
+                }
+            } catch (EOFException | SocketException ex) {
+                // peer left
+            } catch (IOException ex) {
+                if (!closed) ex.printStackTrace();
+            } finally {
+                close();
+            }
+        }
+
+        synchronized void write(byte[] m) {
+            try {
+                writeFrame(out, m);
+            } catch (IOException ex) {
+                // a broken peer does not hold up the others
+                close();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > MAX_MESSAGE) throw new IOException("bad message length " + n);
+        byte[] m = new byte[n];
+        in.readFully(m);
+        return m;
+    }
+
+    static void writeFrame(DataOutputStream out, byte[] m) throws IOException {
+        out.writeInt(m.length);
+        out.write(m);
+        out.flush();
+    }
+}
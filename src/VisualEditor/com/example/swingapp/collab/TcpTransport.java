@@ -0,0 +1,79 @@
+package com.example.swingapp.collab;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.function.Consumer;
+
+/**
+ * Transport over a TCP connection to a TcpRelay. Messages are length
+ * prefixed; a daemon thread reads them and hands them to the receiver.
+ */
+public class TcpTransport implements Transport {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private volatile Consumer<byte[]> receiver = m -> { };
+    private volatile boolean closed;
+
+    private TcpTransport(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    public static TcpTransport connect(String host, int port) throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+            TcpTransport t = new TcpTransport(s);
+            Thread reader = new Thread(t::readLoop, "collab-tcp-" + port);
+            reader.setDaemon(true);
+            reader.start();
+            return t;
+        } catch (IOException ex) {
+            s.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public synchronized void send(byte[] message) throws IOException {
+        if (closed) throw new IOException("transport closed");
+        TcpRelay.writeFrame(out, message);
+    }
+
+    @Override
+    public void setReceiver(Consumer<byte[]> receiver) {
+        this.receiver = receiver == null ? m -> { } : receiver;
+    }
+
+    public boolean isConnected() {
+        return !closed && !socket.isClosed();
+    }
+
+    private void readLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) receiver.accept(TcpRelay.readFrame(in));
+        } catch (EOFException | SocketException ex) {
+            // relay or socket closed
+        } catch (IOException ex) {
+            if (!closed) ex.printStackTrace();
+        } finally {
+            closed = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+    }
+}
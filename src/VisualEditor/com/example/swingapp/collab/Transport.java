@@ -0,0 +1,26 @@
+package com.example.swingapp.collab;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries session messages between replicas. A message sent by one
+ * replica reaches every other replica connected to the same session, in
+ * the order it was sent; messages may be lost while a replica is
+ * disconnected, which the session repairs by exchanging full state when
+ * it (re)joins.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Send a message to all other replicas.
+     */
+    void send(byte[] message) throws IOException;
+
+    /**
+     * Where received messages go. Called on a thread of the transport, one
+     * message at a time.
+     */
+    void setReceiver(Consumer<byte[]> receiver);
+}
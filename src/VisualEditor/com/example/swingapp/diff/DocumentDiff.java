@@ -0,0 +1,134 @@
+package com.example.swingapp.diff;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Entity- and property-level differences between two documents.
+ *
+ * Both sides are hashed into Merkle trees of the same depth and walked
+ * top-down; only leaves whose hashes differ are compared entity by entity,
+ * so the cost of a diff follows the size of the change, not of the documents
+ * (beyond the parallel hashing pass).
+ */
+public final class DocumentDiff {
+    private final List<EntityChange> changes;
+    private final int leavesCompared;
+
+    private DocumentDiff(List<EntityChange> changes, int leavesCompared) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.leavesCompared = leavesCompared;
+    }
+
+    public static DocumentDiff compare(Collection<? extends ReMoDeLEntity> before, Collection<? extends ReMoDeLEntity> after) {
+        int depth = MerkleTree.depthFor(Math.max(before.size(), after.size()));
+        CompletableFuture<MerkleTree> a = CompletableFuture.supplyAsync(() -> MerkleTree.build(before, depth));
+        MerkleTree b = MerkleTree.build(after, depth);
+        return compare(a.join(), b);
+    }
+
+    public static DocumentDiff compare(MerkleTree before, MerkleTree after) {
+        if (before.depth != after.depth) throw new IllegalArgumentException("trees have different depths");
+        // collect differing leaves, skipping equal subtrees
+        List<Integer> leaves = new ArrayList<>();
+        int[] stack = new int[64 * MerkleTree.FANOUT];
+        int[] stackDepth = new int[stack.length];
+        int sp = 0;
+        stack[sp] = 0;
+        stackDepth[sp++] = 0;
+        while (sp > 0) {
+            int node = stack[--sp], d = stackDepth[sp];
+            if (before.levels[d][node] == after.levels[d][node]) continue;
+            if (d == before.depth) {
+                leaves.add(node);
+                continue;
+            }
+            for (int c = MerkleTree.FANOUT - 1; c >= 0; c--) {
+                stack[sp] = node * MerkleTree.FANOUT + c;
+                stackDepth[sp++] = d + 1;
+            }
+        }
+        List<EntityChange> changes = leaves.parallelStream()
+                .flatMap(l -> diffLeaf(before, after, l).stream())
+                .sorted(Comparator.comparing(EntityChange::getId))
+                .collect(Collectors.toList());
+        return new DocumentDiff(changes, leaves.size());
+    }
+
+    /**
+     * All changes, ordered by entity id.
+     */
+    public List<EntityChange> getChanges() {
+        return changes;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public int count(EntityChange.Kind kind) {
+        int n = 0;
+        for (EntityChange c : changes) if (c.getKind() == kind) n++;
+        return n;
+    }
+
+    /**
+     * Number of Merkle leaves that had to be compared entity by entity.
+     */
+    public int getLeavesCompared() {
+        return leavesCompared;
+    }
+
+    @Override
+    public String toString() {
+        return count(EntityChange.Kind.ADDED) + " added, " + count(EntityChange.Kind.REMOVED) + " removed, "
+                + count(EntityChange.Kind.CHANGED) + " changed";
+    }
+
+    private static List<EntityChange> diffLeaf(MerkleTree a, MerkleTree b, int leaf) {
+        Map<String, Integer> inA = new HashMap<>();
+        for (int i = a.leafStart[leaf]; i < a.leafStart[leaf + 1]; i++) inA.put(a.entities[i].getId(), i);
+        List<EntityChange> out = new ArrayList<>();
+        for (int j = b.leafStart[leaf]; j < b.leafStart[leaf + 1]; j++) {
+            ReMoDeLEntity eb = b.entities[j];
+            Integer i = inA.remove(eb.getId());
+            if (i == null) {
+                out.add(new EntityChange(EntityChange.Kind.ADDED, eb.getId(), null, eb, false, new HashSet<>(eb.getProperties().keySet())));
+            } else if (a.contentHashes[i] != b.contentHashes[j]) {
+                EntityChange c = changed(a.entities[i], eb);
+                if (c != null) out.add(c);
+            }
+        }
+        for (int i : inA.values()) {
+            ReMoDeLEntity ea = a.entities[i];
+            out.add(new EntityChange(EntityChange.Kind.REMOVED, ea.getId(), ea, null, false, new HashSet<>(ea.getProperties().keySet())));
+        }
+        return out;
+    }
+
+    // property-level comparison; null if the entities are equal after all (hash collision)
+    static EntityChange changed(ReMoDeLEntity before, ReMoDeLEntity after) {
+        Map<String, Object> pa = before.getProperties(), pb = after.getProperties();
+        Set<String> keys = new HashSet<>();
+        for (Map.Entry<String, Object> en : pa.entrySet()) {
+            String k = en.getKey();
+            if (!pb.containsKey(k) || !Hashing.valueEquals(en.getValue(), pb.get(k))) keys.add(k);
+        }
+        for (String k : pb.keySet()) if (!pa.containsKey(k)) keys.add(k);
+        boolean typeChanged = !Objects.equals(before.getType(), after.getType());
+        if (keys.isEmpty() && !typeChanged) return null;
+        return new EntityChange(EntityChange.Kind.CHANGED, after.getId(), before, after, typeChanged, keys);
+    }
+}
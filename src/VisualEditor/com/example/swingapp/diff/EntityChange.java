@@ -0,0 +1,61 @@
+package com.example.swingapp.diff;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * One entity that differs between two documents.
+ */
+public final class EntityChange {
+    public enum Kind { ADDED, REMOVED, CHANGED }
+
+    private final Kind kind;
+    private final String id;
+    private final ReMoDeLEntity before; // null when ADDED
+    private final ReMoDeLEntity after;  // null when REMOVED
+    private final boolean typeChanged;
+    private final Set<String> changedKeys;
+
+    EntityChange(Kind kind, String id, ReMoDeLEntity before, ReMoDeLEntity after, boolean typeChanged, Set<String> changedKeys) {
+        this.kind = kind;
+        this.id = id;
+        this.before = before;
+        this.after = after;
+        this.typeChanged = typeChanged;
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ReMoDeLEntity getBefore() {
+        return before;
+    }
+
+    public ReMoDeLEntity getAfter() {
+        return after;
+    }
+
+    public boolean isTypeChanged() {
+        return typeChanged;
+    }
+
+    /**
+     * Properties added, removed or modified; for ADDED/REMOVED all keys of the entity.
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + id + (kind == Kind.CHANGED ? " " + changedKeys : "");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.swingapp.diff;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 64-bit content hashing and the matching value equality for entity properties.
+ *
+ * Property maps are hashed order-independently (sum of per-entry hashes),
+ * integral numbers hash and compare by value whatever their boxed type, and
+ * int[] / Path2D values by content, so two copies of an entity loaded from
+ * different formats hash the same.
+ */
+final class Hashing {
+    private static final long NULL_HASH = 0x2545F4914F6CDD1DL;
+    private static final long INT_TAG = 0x9E3779B97F4A7C15L;
+    private static final long FLOAT_TAG = 0xC2B2AE3D27D4EB4FL;
+
+    private Hashing() {
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static long string(String s) {
+        if (s == null) return NULL_HASH;
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        return mix(h ^ s.length());
+    }
+
+    static long entity(ReMoDeLEntity e) {
+        long h = 0;
+        for (Map.Entry<String, Object> en : e.getProperties().entrySet()) {
+            h += mix(string(en.getKey()) * 31 + value(en.getValue()));
+        }
+        return mix(h ^ string(e.getType()) * 0x9E3779B97F4A7C15L);
+    }
+
+    static long value(Object v) {
+        if (v == null) return NULL_HASH;
+        if (isIntegral(v)) return mix(((Number) v).longValue() ^ INT_TAG);
+        if (v instanceof Double || v instanceof Float) {
+            double d = ((Number) v).doubleValue();
+            return mix(Double.doubleToLongBits(d == 0 ? 0 : d) ^ FLOAT_TAG);
+        }
+        if (v instanceof String) return string((String) v);
+        if (v instanceof Boolean) return (Boolean) v ? 0x1L : 0x2L;
+        if (v instanceof int[]) {
+            long h = 17;
+            for (int x : (int[]) v) h = mix(h * 31 + x);
+            return h;
+        }
+        if (v instanceof Path2D) {
+            long h = ((Path2D) v).getWindingRule();
+            double[] c = new double[6];
+            for (PathIterator it = ((Path2D) v).getPathIterator(null); !it.isDone(); it.next()) {
+                int t = it.currentSegment(c);
+                h = mix(h * 31 + t);
+                for (int i = 0; i < coordCount(t); i++) h = mix(h * 31 + Double.doubleToLongBits(c[i]));
+            }
+            return h;
+        }
+        if (v instanceof Map) {
+            long h = 0;
+            for (Map.Entry<?, ?> en : ((Map<?, ?>) v).entrySet()) h += mix(value(en.getKey()) * 31 + value(en.getValue()));
+            return mix(h);
+        }
+        if (v instanceof Collection) {
+            long h = 19;
+            for (Object x : (Collection<?>) v) h = mix(h * 31 + value(x));
+            return h;
+        }
+        return string(v.toString());
+    }
+
+    static boolean valueEquals(Object a, Object b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        if (isIntegral(a) && isIntegral(b)) return ((Number) a).longValue() == ((Number) b).longValue();
+        if ((a instanceof Double || a instanceof Float) && (b instanceof Double || b instanceof Float)) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue()) == 0;
+        }
+        if (a instanceof int[] && b instanceof int[]) return Arrays.equals((int[]) a, (int[]) b);
+        if (a instanceof Path2D && b instanceof Path2D) return value(a) == value(b);
+        return Objects.equals(a, b);
+    }
+
+    private static boolean isIntegral(Object v) {
+        return v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte;
+    }
+
+    private static int coordCount(int segType) {
+        return segType == PathIterator.SEG_CLOSE ? 0 : segType == PathIterator.SEG_QUADTO ? 4 : segType == PathIterator.SEG_CUBICTO ? 6 : 2;
+    }
+}
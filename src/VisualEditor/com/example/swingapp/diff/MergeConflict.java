@@ -0,0 +1,49 @@
+package com.example.swingapp.diff;
+
+/**
+ * A change both sides of a merge made differently. The merge keeps "ours".
+ */
+public final class MergeConflict {
+    /**
+     * Key used for a conflicting entity type (properties use their own key).
+     */
+    public static final String TYPE = "@type";
+
+    private final String id;
+    private final String key;   // null: the entity was removed on one side and changed on the other
+    private final Object base, ours, theirs;
+
+    MergeConflict(String id, String key, Object base, Object ours, Object theirs) {
+        this.id = id;
+        this.key = key;
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Object getBase() {
+        return base;
+    }
+
+    public Object getOurs() {
+        return ours;
+    }
+
+    public Object getTheirs() {
+        return theirs;
+    }
+
+    @Override
+    public String toString() {
+        if (key == null) return id + ": removed on one side, changed on the other";
+        return id + "." + key + ": base=" + base + " ours=" + ours + " theirs=" + theirs;
+    }
+}
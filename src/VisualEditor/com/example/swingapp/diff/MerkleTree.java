@@ -0,0 +1,115 @@
+package com.example.swingapp.diff;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Merkle tree over the content hashes of a set of entities.
+ *
+ * Entities are placed in 16^depth leaves by the top bits of the hash of
+ * their id, so the same entity lands in the same leaf in every copy of a
+ * document regardless of order. A leaf hash combines its (id, content)
+ * hashes order-independently and every inner node hashes its 16 children;
+ * two trees of equal depth can then be compared top-down, skipping every
+ * subtree whose hashes match. Hashing runs in parallel on the common pool.
+ */
+public final class MerkleTree {
+    static final int FANOUT_BITS = 4;
+    static final int FANOUT = 1 << FANOUT_BITS;
+    private static final int MAX_DEPTH = 5;
+    private static final int LEAF_TARGET = 32;
+
+    final int depth;
+    final long[][] levels;      // levels[d] holds the 16^d node hashes of depth d; levels[depth] = leaves
+    final int[] leafStart;      // entries of leaf l are [leafStart[l], leafStart[l + 1])
+    final long[] contentHashes; // per entry, grouped by leaf
+    final ReMoDeLEntity[] entities;
+
+    private MerkleTree(int depth, long[][] levels, int[] leafStart, long[] contentHashes, ReMoDeLEntity[] entities) {
+        this.depth = depth;
+        this.levels = levels;
+        this.leafStart = leafStart;
+        this.contentHashes = contentHashes;
+        this.entities = entities;
+    }
+
+    /**
+     * Depth that gives about LEAF_TARGET entities per leaf for a document of n entities.
+     * Trees that are compared must be built with the same depth.
+     */
+    public static int depthFor(long n) {
+        int d = 0;
+        long leaves = 1;
+        while (d < MAX_DEPTH && leaves * LEAF_TARGET < n) {
+            leaves *= FANOUT;
+            d++;
+        }
+        return d;
+    }
+
+    public static MerkleTree build(Collection<? extends ReMoDeLEntity> source, int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) throw new IllegalArgumentException("depth out of range: " + depth);
+        ReMoDeLEntity[] in = source.toArray(new ReMoDeLEntity[0]);
+        int n = in.length;
+        int leaves = 1 << (FANOUT_BITS * depth);
+        int shift = 64 - FANOUT_BITS * depth;
+
+        // hash in input order (memory order), then group the entries by leaf with a counting sort
+        long[] idIn = new long[n], contentIn = new long[n];
+        Arrays.parallelSetAll(idIn, i -> Hashing.string(in[i].getId()));
+        Arrays.parallelSetAll(contentIn, i -> Hashing.entity(in[i]));
+        int[] leafStart = new int[leaves + 1];
+        for (int i = 0; i < n; i++) leafStart[leafOf(idIn[i], shift) + 1]++;
+        for (int l = 0; l < leaves; l++) leafStart[l + 1] += leafStart[l];
+        int[] fill = Arrays.copyOf(leafStart, leaves);
+        ReMoDeLEntity[] entities = new ReMoDeLEntity[n];
+        long[] ids = new long[n], content = new long[n];
+        for (int i = 0; i < n; i++) {
+            int k = fill[leafOf(idIn[i], shift)]++;
+            entities[k] = in[i];
+            ids[k] = idIn[i];
+            content[k] = contentIn[i];
+        }
+
+        long[][] levels = new long[depth + 1][];
+        long[] leafHash = new long[leaves];
+        IntStream.range(0, leaves).parallel().forEach(l -> {
+            long h = 0;
+            for (int i = leafStart[l]; i < leafStart[l + 1]; i++) {
+                h += Hashing.mix(ids[i] + 0x9E3779B97F4A7C15L * content[i]);
+            }
+            leafHash[l] = Hashing.mix(h ^ (leafStart[l + 1] - leafStart[l]));
+        });
+        levels[depth] = leafHash;
+        for (int d = depth - 1; d >= 0; d--) {
+            long[] below = levels[d + 1];
+            long[] level = new long[below.length / FANOUT];
+            IntStream.range(0, level.length).parallel().forEach(p -> {
+                long h = 0;
+                for (int c = 0; c < FANOUT; c++) h = Hashing.mix(h * 31 + below[p * FANOUT + c]);
+                level[p] = h;
+            });
+            levels[d] = level;
+        }
+        return new MerkleTree(depth, levels, leafStart, content, entities);
+    }
+
+    private static int leafOf(long idHash, int shift) {
+        return shift == 64 ? 0 : (int) (idHash >>> shift);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getRootHash() {
+        return levels[0][0];
+    }
+
+    public int size() {
+        return entities.length;
+    }
+}
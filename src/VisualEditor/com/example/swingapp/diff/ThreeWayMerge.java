@@ -0,0 +1,154 @@
+package com.example.swingapp.diff;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Three-way merge of two edited copies ("ours", "theirs") of a common base.
+ *
+ * Both sides are diffed against the base through Merkle trees (the base is
+ * hashed once, the three trees are built in parallel). Changes only one side
+ * made are taken as they are; entities both sides changed are merged property
+ * by property, and whatever both changed differently is reported as a
+ * MergeConflict and resolved in favour of ours. The result is the set of
+ * updates that turns ours into the merged document, so it can be applied to
+ * a live model in one batch.
+ */
+public final class ThreeWayMerge {
+    private static final Object ABSENT = new Object();
+
+    private final List<ReMoDeLEntity> puts = new ArrayList<>();
+    private final List<String> removals = new ArrayList<>();
+    private final List<MergeConflict> conflicts = new ArrayList<>();
+
+    private ThreeWayMerge() {
+    }
+
+    public static ThreeWayMerge merge(Collection<? extends ReMoDeLEntity> base, Collection<? extends ReMoDeLEntity> ours,
+                                      Collection<? extends ReMoDeLEntity> theirs) {
+        int depth = MerkleTree.depthFor(Math.max(base.size(), Math.max(ours.size(), theirs.size())));
+        CompletableFuture<MerkleTree> tb = CompletableFuture.supplyAsync(() -> MerkleTree.build(base, depth));
+        CompletableFuture<MerkleTree> to = CompletableFuture.supplyAsync(() -> MerkleTree.build(ours, depth));
+        MerkleTree tt = MerkleTree.build(theirs, depth);
+        MerkleTree b = tb.join();
+        CompletableFuture<DocumentDiff> dOurs = CompletableFuture.supplyAsync(() -> DocumentDiff.compare(b, to.join()));
+        DocumentDiff dTheirs = DocumentDiff.compare(b, tt);
+
+        Map<String, EntityChange> oursById = new HashMap<>();
+        for (EntityChange c : dOurs.join().getChanges()) oursById.put(c.getId(), c);
+
+        ThreeWayMerge m = new ThreeWayMerge();
+        for (EntityChange t : dTheirs.getChanges()) {
+            EntityChange o = oursById.get(t.getId());
+            if (o == null) {
+                // only theirs touched it
+                if (t.getKind() == EntityChange.Kind.REMOVED) m.removals.add(t.getId());
+                else m.puts.add(t.getAfter().copy());
+            } else {
+                m.reconcile(o, t);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Entities to add or replace in ours.
+     */
+    public List<ReMoDeLEntity> getPuts() {
+        return Collections.unmodifiableList(puts);
+    }
+
+    /**
+     * Ids to remove from ours.
+     */
+    public List<String> getRemovals() {
+        return Collections.unmodifiableList(removals);
+    }
+
+    public List<MergeConflict> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Turn the model holding ours into the merged document, in one batch.
+     */
+    public void applyTo(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        model.beginBatch();
+        try {
+            for (String id : removals) model.removeEntity(id);
+            for (ReMoDeLEntity e : puts) {
+                if (model.get(e.getId()) == null) model.addEntity(e.copy());
+                else model.updateEntity(e.copy());
+            }
+        } finally {
+            model.endBatch();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return puts.size() + " updated, " + removals.size() + " removed, " + conflicts.size() + " conflicts";
+    }
+
+    private void reconcile(EntityChange o, EntityChange t) {
+        EntityChange.Kind ko = o.getKind(), kt = t.getKind();
+        if (ko == EntityChange.Kind.REMOVED && kt == EntityChange.Kind.REMOVED) return;
+        if (ko == EntityChange.Kind.REMOVED || kt == EntityChange.Kind.REMOVED) {
+            // removed on one side, edited on the other: keep ours
+            conflicts.add(new MergeConflict(o.getId(), null, o.getBefore(), o.getAfter(), t.getAfter()));
+            return;
+        }
+        // both added or both changed: merge property by property (an added entity has an empty base)
+        ReMoDeLEntity base = o.getBefore(), ours = o.getAfter(), theirs = t.getAfter();
+        ReMoDeLEntity merged = ours.copy();
+        boolean modified = false;
+
+        String bt = base == null ? null : base.getType();
+        if (!Objects.equals(ours.getType(), theirs.getType())) {
+            if (Objects.equals(ours.getType(), bt)) {
+                merged = ReMoDeLEntity.create(theirs.getType(), ours.getId());
+                merged.setType(theirs.getType());
+                merged.setProperties(new HashMap<>(ours.getProperties()));
+                modified = true;
+            } else if (!Objects.equals(theirs.getType(), bt)) {
+                conflicts.add(new MergeConflict(o.getId(), MergeConflict.TYPE, bt, ours.getType(), theirs.getType()));
+            }
+        }
+
+        Map<String, Object> pb = base == null ? Collections.emptyMap() : base.getProperties();
+        Map<String, Object> po = ours.getProperties(), pt = theirs.getProperties();
+        Set<String> keys = new LinkedHashSet<>(o.getChangedKeys());
+        keys.addAll(t.getChangedKeys());
+        for (String k : keys) {
+            Object vb = pb.containsKey(k) ? pb.get(k) : ABSENT;
+            Object vo = po.containsKey(k) ? po.get(k) : ABSENT;
+            Object vt = pt.containsKey(k) ? pt.get(k) : ABSENT;
+            if (same(vo, vt) || same(vt, vb)) continue;
+            if (same(vo, vb)) {
+                if (vt == ABSENT) merged.getProperties().remove(k);
+                else merged.getProperties().put(k, vt);
+                modified = true;
+            } else {
+                conflicts.add(new MergeConflict(o.getId(), k, vb == ABSENT ? null : vb, vo == ABSENT ? null : vo, vt == ABSENT ? null : vt));
+            }
+        }
+        if (modified) puts.add(merged);
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a == ABSENT || b == ABSENT) return a == b;
+        return Hashing.valueEquals(a, b);
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.swingapp.edit;
+
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.undo.ModelEdit;
+import com.example.swingapp.undo.UndoJournal;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Applies one operation (move, resize, restyle, delete) to a whole set of
+ * entities as a single undo step and a single model batch, and reports the
+ * area it touched.
+ *
+ * Geometry is transformed wherever an entity keeps it: the x1/y1/x2/y2 box,
+ * freehand "points", connective "route" and region "path". Connectives
+ * bound at both ends are left to the router, which re-routes them when
+ * their ends move.
+ */
+public final class BulkTransform {
+    private final UndoJournal journal;
+    private final ReMoDeLModel model;
+
+    public BulkTransform(UndoJournal journal) {
+        if (journal == null) throw new IllegalArgumentException("journal is null");
+        this.journal = journal;
+        this.model = journal.getModel();
+    }
+
+    /**
+     * Outcome of an operation: the undo step (null if nothing changed) and
+     * the union of the touched entities' extents before and after.
+     */
+    public static final class Result {
+        private final ModelEdit edit;
+        private final Rectangle2D damage;
+        private final int count;
+
+        Result(ModelEdit edit, Rectangle2D damage, int count) {
+            this.edit = edit;
+            this.damage = damage;
+            this.count = count;
+        }
+
+        public ModelEdit getEdit() {
+            return edit;
+        }
+
+        public Rectangle2D getDamage() {
+            return damage;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Translate the entities. Steps with the same coalesce key (one drag
+     * gesture) become one undo step.
+     */
+    public Result move(Collection<String> ids, double dx, double dy, Object coalesceKey) {
+        return transform(ids, AffineTransform.getTranslateInstance(dx, dy), "Move", coalesceKey);
+    }
+
+    /**
+     * Scale the entities so that the rectangle 'from' maps onto 'to'.
+     */
+    public Result resize(Collection<String> ids, Rectangle2D from, Rectangle2D to, Object coalesceKey) {
+        if (from.getWidth() <= 0 || from.getHeight() <= 0) return new Result(null, null, 0);
+        return transform(ids, scaling(from, to), "Resize", coalesceKey);
+    }
+
+    private static AffineTransform scaling(Rectangle2D from, Rectangle2D to) {
+        AffineTransform at = new AffineTransform();
+        at.translate(to.getX(), to.getY());
+        at.scale(to.getWidth() / from.getWidth(), to.getHeight() / from.getHeight());
+        at.translate(-from.getX(), -from.getY());
+        return at;
+    }
+
+    /**
+     * Scale the entities as they were in 'base' so that 'from' maps onto
+     * 'to'. The steps of a resize gesture all start from the snapshot taken
+     * at its press, so rounding does not build up from step to step and a
+     * selection squeezed to nothing can be pulled back out. Entities removed
+     * since are left out.
+     */
+    public Result resize(Collection<String> ids, ModelSnapshot base, Rectangle2D from, Rectangle2D to, Object coalesceKey) {
+        if (base == null) throw new IllegalArgumentException("base is null");
+        if (from.getWidth() <= 0 || from.getHeight() <= 0) return new Result(null, null, 0);
+        return transform(ids, base, scaling(from, to), "Resize", coalesceKey);
+    }
+
+    public Result transform(Collection<String> ids, AffineTransform at, String name, Object coalesceKey) {
+        return transform(ids, null, at, name, coalesceKey);
+    }
+
+    // base (may be null) holds the geometry to transform; the model's current one otherwise
+    private Result transform(Collection<String> ids, ModelSnapshot base, AffineTransform at, String name, Object coalesceKey) {
+        UndoJournal.Transaction tx = journal.begin(name, coalesceKey);
+        Rectangle2D damage = null;
+        int n = 0;
+        for (String id : ids) {
+            ReMoDeLEntity e = model.get(id);
+            if (e == null || isAnchored(e)) continue;
+            ReMoDeLEntity from = base != null ? base.get(id) : e;
+            if (from == null) continue;
+            ReMoDeLEntity c = from.copy();
+            if (!transformGeometry(c, at)) continue;
+            damage = union(damage, extent(e));
+            damage = union(damage, extent(c));
+            tx.put(c);
+            n++;
+        }
+        return new Result(tx.commit(), damage, n);
+    }
+
+    /**
+     * Set the given properties (colorRGB, fontName, fontSize, ...) on every entity.
+     */
+    public Result restyle(Collection<String> ids, Map<String, ?> style) {
+        UndoJournal.Transaction tx = journal.begin("Restyle");
+        Rectangle2D damage = null;
+        int n = 0;
+        for (String id : ids) {
+            ReMoDeLEntity e = model.get(id);
+            if (e == null) continue;
+            ReMoDeLEntity c = e.copy();
+            c.getProperties().putAll(style);
+            damage = union(damage, extent(c));
+            tx.put(c);
+            n++;
+        }
+        return new Result(tx.commit(), damage, n);
+    }
+
+    public Result delete(Collection<String> ids) {
+        UndoJournal.Transaction tx = journal.begin("Delete");
+        Rectangle2D damage = null;
+        int n = 0;
+        for (String id : ids) {
+            ReMoDeLEntity e = model.get(id);
+            if (e == null) continue;
+            damage = union(damage, extent(e));
+            tx.remove(id);
+            n++;
+        }
+        return new Result(tx.commit(), damage, n);
+    }
+
+    /**
+     * Union of the extents of the entities, or null if none has geometry.
+     */
+    public Rectangle2D boundsOf(Collection<String> ids) {
+        Rectangle2D r = null;
+        for (String id : ids) {
+            ReMoDeLEntity e = model.get(id);
+            if (e != null) r = union(r, extent(e));
+        }
+        return r;
+    }
+
+    /**
+     * Area an entity covers: its box, route, freehand points or region path.
+     */
+    public static Rectangle2D extent(ReMoDeLEntity e) {
+        Rectangle2D r = e.getBounds();
+        r = union(r, pointsBounds(e.get("route")));
+        r = union(r, pointsBounds(e.get("points")));
+        Object path = e.get("path");
+        if (path instanceof Shape) r = union(r, ((Shape) path).getBounds2D());
+        return r;
+    }
+
+    private static boolean transformGeometry(ReMoDeLEntity e, AffineTransform at) {
+        boolean changed = false;
+        Rectangle2D b = e.getBounds();
+        if (b != null) {
+            double[] p = { ((Number) e.get("x1")).doubleValue(), ((Number) e.get("y1")).doubleValue(),
+                    ((Number) e.get("x2")).doubleValue(), ((Number) e.get("y2")).doubleValue() };
+            at.transform(p, 0, p, 0, 2);
+            e.put("x1", (int) Math.round(p[0]));
+            e.put("y1", (int) Math.round(p[1]));
+            e.put("x2", (int) Math.round(p[2]));
+            e.put("y2", (int) Math.round(p[3]));
+            changed = true;
+        }
+        for (String key : new String[] { "route", "points" }) {
+            Object v = e.get(key);
+            if (v instanceof int[]) {
+                e.put(key, transformPoints((int[]) v, at));
+                changed = true;
+            }
+        }
+        Object path = e.get("path");
+        if (path instanceof Path2D) {
+            e.put("path", new Path2D.Double((Path2D) path, at));
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static int[] transformPoints(int[] pts, AffineTransform at) {
+        double[] d = new double[pts.length & ~1];
+        for (int i = 0; i < d.length; i++) d[i] = pts[i];
+        at.transform(d, 0, d, 0, d.length / 2);
+        int[] out = pts.clone();
+        for (int i = 0; i < d.length; i++) out[i] = (int) Math.round(d[i]);
+        return out;
+    }
+
+    private static boolean isAnchored(ReMoDeLEntity e) {
+        return e instanceof Connective && ((Connective) e).getFromId() != null && ((Connective) e).getToId() != null;
+    }
+
+    private static Rectangle2D pointsBounds(Object v) {
+        if (!(v instanceof int[]) || ((int[]) v).length < 2) return null;
+        int[] p = (int[]) v;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i + 1 < p.length; i += 2) {
+            minX = Math.min(minX, p[i]);
+            maxX = Math.max(maxX, p[i]);
+            minY = Math.min(minY, p[i + 1]);
+            maxY = Math.max(maxY, p[i + 1]);
+        }
+        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    private static Rectangle2D union(Rectangle2D a, Rectangle2D b) {
+        if (a == null) return b == null ? null : (Rectangle2D) b.clone();
+        if (b != null) a.add(b);
+        return a;
+    }
+}
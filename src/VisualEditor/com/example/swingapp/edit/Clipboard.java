@@ -0,0 +1,135 @@
+package com.example.swingapp.edit;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.undo.UndoJournal;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Copy, paste and duplicate of entity sets.
+ *
+ * Copies share their property values with the originals: strings, font
+ * names, colours, paths and point arrays are never mutated in place by the
+ * editor (an edit replaces the value), so only the property maps are new
+ * and a copy costs O(entities). Pasting assigns fresh ids, re-binds
+ * connectives whose ends were copied along, and offsets the geometry;
+ * geometry arrays are shared too when pasting in place. Every paste is one
+ * UndoJournal transaction.
+ */
+public final class Clipboard {
+    private static final String[] REFS = { "from", "to" };
+
+    private List<ReMoDeLEntity> content = Collections.emptyList();
+    private int pasteCount;
+
+    /**
+     * Take a snapshot of the given entities (missing ids are skipped).
+     */
+    public synchronized void copy(ReMoDeLModel model, Collection<String> ids) {
+        content = snapshot(model, ids);
+        pasteCount = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    public synchronized int size() {
+        return content.size();
+    }
+
+    /**
+     * Insert the clipboard content; each paste lands a further (dx, dy) from
+     * the copied position. Returns the ids of the new entities.
+     */
+    public List<String> paste(UndoJournal journal, double dx, double dy) {
+        List<ReMoDeLEntity> source;
+        int n;
+        synchronized (this) {
+            source = content;
+            n = ++pasteCount;
+        }
+        return insert(journal, source, "Paste", dx * n, dy * n);
+    }
+
+    /**
+     * Copy the entities and insert the copies (dx, dy) away, leaving the
+     * clipboard as it is. Returns the ids of the new entities.
+     */
+    public static List<String> duplicate(UndoJournal journal, Collection<String> ids, double dx, double dy) {
+        return insert(journal, snapshot(journal.getModel(), ids), "Duplicate", dx, dy);
+    }
+
+    private static List<ReMoDeLEntity> snapshot(ReMoDeLModel model, Collection<String> ids) {
+        List<ReMoDeLEntity> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ReMoDeLEntity e = model.get(id);
+            if (e != null) out.add(e.copy());
+        }
+        return out;
+    }
+
+    private static List<String> insert(UndoJournal journal, List<ReMoDeLEntity> source, String name, double dx, double dy) {
+        if (source.isEmpty()) return Collections.emptyList();
+        Map<String, String> newIds = new HashMap<>(source.size() * 2);
+        for (ReMoDeLEntity e : source) newIds.put(e.getId(), UUID.randomUUID().toString());
+        int ox = (int) Math.round(dx), oy = (int) Math.round(dy);
+        AffineTransform at = AffineTransform.getTranslateInstance(ox, oy);
+        boolean moved = ox != 0 || oy != 0;
+        UndoJournal.Transaction tx = journal.begin(name);
+        List<String> ids = new ArrayList<>(source.size());
+        for (ReMoDeLEntity e : source) {
+            String id = newIds.get(e.getId());
+            ReMoDeLEntity c = ReMoDeLEntity.create(e.getType(), id);
+            c.setType(e.getType());
+            c.setProperties(new HashMap<>(e.getProperties()));
+            rebind(c, newIds);
+            if (moved) offset(c, ox, oy, at);
+            tx.put(c);
+            ids.add(id);
+        }
+        tx.commit();
+        return ids;
+    }
+
+    // references to copied entities follow the copies; references leaving the set are dropped
+    private static void rebind(ReMoDeLEntity c, Map<String, String> newIds) {
+        for (String key : REFS) {
+            Object ref = c.get(key);
+            if (ref == null) continue;
+            String to = newIds.get(ref.toString());
+            if (to != null) c.put(key, to);
+            else c.getProperties().remove(key);
+        }
+    }
+
+    private static void offset(ReMoDeLEntity c, int dx, int dy, AffineTransform at) {
+        Map<String, Object> p = c.getProperties();
+        for (String key : new String[] { "x1", "x2" }) {
+            if (p.get(key) instanceof Integer) p.put(key, (Integer) p.get(key) + dx);
+        }
+        for (String key : new String[] { "y1", "y2" }) {
+            if (p.get(key) instanceof Integer) p.put(key, (Integer) p.get(key) + dy);
+        }
+        for (String key : new String[] { "route", "points" }) {
+            if (p.get(key) instanceof int[]) {
+                int[] pts = ((int[]) p.get(key)).clone();
+                for (int i = 0; i + 1 < pts.length; i += 2) {
+                    pts[i] += dx;
+                    pts[i + 1] += dy;
+                }
+                p.put(key, pts);
+            }
+        }
+        if (p.get("path") instanceof Path2D) p.put("path", new Path2D.Double((Path2D) p.get("path"), at));
+    }
+}
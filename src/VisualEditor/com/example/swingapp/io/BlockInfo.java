@@ -0,0 +1,39 @@
+package com.example.swingapp.io;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Footer index entry describing one entity block of a document file.
+ */
+public final class BlockInfo {
+    private final long offset;
+    private final int length;
+    private final int entityCount;
+    private final Rectangle2D bounds; // null if no entity in the block has a box
+
+    BlockInfo(long offset, int length, int entityCount, Rectangle2D bounds) {
+        this.offset = offset;
+        this.length = length;
+        this.entityCount = entityCount;
+        this.bounds = bounds;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Stored size of the block including its codec/length prefix.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public Rectangle2D getBounds() {
+        return bounds == null ? null : (Rectangle2D) bounds.clone();
+    }
+}
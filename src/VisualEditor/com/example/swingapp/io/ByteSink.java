@@ -0,0 +1,85 @@
+package com.example.swingapp.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with varint / zigzag helpers for the encoders.
+ */
+final class ByteSink {
+    private byte[] buf;
+    private int len;
+
+    ByteSink(int capacity) {
+        buf = new byte[Math.max(16, capacity)];
+    }
+
+    int size() {
+        return len;
+    }
+
+    byte[] array() {
+        return buf;
+    }
+
+    void reset() {
+        len = 0;
+    }
+
+    void write(int b) {
+        ensure(1);
+        buf[len++] = (byte) b;
+    }
+
+    void write(byte[] b, int off, int n) {
+        ensure(n);
+        System.arraycopy(b, off, buf, len, n);
+        len += n;
+    }
+
+    void varint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[len++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[len++] = (byte) v;
+    }
+
+    void zigzag(long v) {
+        varint((v << 1) ^ (v >> 63));
+    }
+
+    void i32(int v) {
+        ensure(4);
+        buf[len++] = (byte) (v >>> 24);
+        buf[len++] = (byte) (v >>> 16);
+        buf[len++] = (byte) (v >>> 8);
+        buf[len++] = (byte) v;
+    }
+
+    void i64(long v) {
+        i32((int) (v >>> 32));
+        i32((int) v);
+    }
+
+    void f64(double d) {
+        i64(Double.doubleToRawLongBits(d));
+    }
+
+    void utf8(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        varint(b.length);
+        write(b, 0, b.length);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.swingapp.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and decoding helpers for the binary ReMoDeL document format.
+ *
+ * <pre>
+ * header   "RMDL" u16 version u16 flags
+ * blocks   u8 codec, varint rawLength, varint storedLength, payload
+ *          payload = varint count, entity records
+ * footer   string dictionary, block index (offset, length, count, bounds)
+ * trailer  u64 footerOffset, u32 footerLength, u32 footerCrc32, u16 version, u16 flags, "LDMR"
+ * </pre>
+ *
+ * Entity records reference type names and property keys by dictionary index.
+ * Boxes (x1/y1/x2/y2) are stored as a zigzag delta from the previous record's
+ * corner plus width/height; int[] values and Path2D coordinates are delta-encoded too.
+ * All multi-byte fixed-width numbers are big-endian.
+ */
+public final class DocumentFormat {
+    public static final int VERSION = 1;
+    static final byte[] MAGIC = { 'R', 'M', 'D', 'L' };
+    static final byte[] TRAILER_MAGIC = { 'L', 'D', 'M', 'R' };
+    static final int HEADER_SIZE = 8;
+    static final int TRAILER_SIZE = 24;
+
+    static final int FLAG_COMPRESSED = 1;
+
+    static final int CODEC_RAW = 0;
+    static final int CODEC_DEFLATE = 1;
+
+    // entity record flags
+    static final int REC_UUID_ID = 1;
+    static final int REC_BOX = 2;
+
+    // value tags
+    static final int T_NULL = 0;
+    static final int T_INT = 1;
+    static final int T_LONG = 2;
+    static final int T_DOUBLE = 3;
+    static final int T_FLOAT = 4;
+    static final int T_TRUE = 5;
+    static final int T_FALSE = 6;
+    static final int T_STRING = 7;
+    static final int T_DICT_STRING = 8;
+    static final int T_INT_ARRAY = 9;
+    static final int T_PATH = 10;
+
+    // strings up to this length go through the dictionary
+    static final int DICT_MAX_LENGTH = 64;
+
+    private DocumentFormat() {
+    }
+
+    static long readVarint(ByteBuffer b) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if ((x & 0x80) == 0) return v;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    static int readVarint32(ByteBuffer b) throws IOException {
+        long v = readVarint(b);
+        if (v < 0 || v > Integer.MAX_VALUE) throw new IOException("varint out of range: " + v);
+        return (int) v;
+    }
+
+    static long readZigzag(ByteBuffer b) throws IOException {
+        long v = readVarint(b);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static String readUtf8(ByteBuffer b) throws IOException {
+        int n = readVarint32(b);
+        if (n > b.remaining()) throw new IOException("string length past end of block");
+        byte[] bytes = new byte[n];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.monitor.FileIoEvent;
+
+import java.awt.geom.Rectangle2D;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.example.swingapp.io.DocumentFormat.*;
+
+/**
+ * Reads a binary document through memory-mapped regions of its FileChannel.
+ *
+ * open() maps only the header and the footer (dictionary + block index);
+ * blocks are mapped and decoded on demand, so individual blocks can be
+ * read independently and from several threads.
+ */
+public class DocumentReader implements Closeable {
+    private final FileChannel channel;
+    private final int version;
+    private final int flags;
+    private final String[] dictionary;
+    private final List<BlockInfo> blocks;
+
+    private DocumentReader(FileChannel channel, int version, int flags, String[] dictionary, List<BlockInfo> blocks) {
+        this.channel = channel;
+        this.version = version;
+        this.flags = flags;
+        this.dictionary = dictionary;
+        this.blocks = blocks;
+    }
+
+    public static DocumentReader open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = ch.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) throw new IOException("not a ReMoDeL document (too short)");
+            MappedByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            byte[] magic = new byte[4];
+            head.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("not a ReMoDeL document (bad magic)");
+            int version = head.getShort() & 0xFFFF;
+            if (version > VERSION) throw new IOException("unsupported document version " + version);
+
+            MappedByteBuffer tail = ch.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = tail.getLong();
+            int footerLength = tail.getInt();
+            int footerCrc = tail.getInt();
+            tail.getShort(); // version (repeated)
+            int flags = tail.getShort() & 0xFFFF;
+            tail.get(magic);
+            if (!Arrays.equals(magic, TRAILER_MAGIC)) throw new IOException("truncated document (no trailer)");
+            if (footerOffset < HEADER_SIZE || footerLength < 0 || footerOffset + footerLength > size - TRAILER_SIZE) {
+                throw new IOException("corrupt footer location");
+            }
+
+            MappedByteBuffer footer = ch.map(FileChannel.MapMode.READ_ONLY, footerOffset, footerLength);
+            CRC32 crc = new CRC32();
+            crc.update(footer.duplicate());
+            if ((int) crc.getValue() != footerCrc) throw new IOException("footer checksum mismatch");
+            int dictSize = readVarint32(footer);
+            String[] dict = new String[dictSize];
+            for (int i = 0; i < dictSize; i++) dict[i] = readUtf8(footer).intern();
+            int blockCount = readVarint32(footer);
+            List<BlockInfo> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                long off = footer.getLong();
+                int len = readVarint32(footer);
+                int count = readVarint32(footer);
+                Rectangle2D bounds = null;
+                if (footer.get() != 0) {
+                    long x0 = readZigzag(footer), y0 = readZigzag(footer), x1 = readZigzag(footer), y1 = readZigzag(footer);
+                    bounds = new Rectangle2D.Double(x0, y0, x1 - x0, y1 - y0);
+                }
+                blocks.add(new BlockInfo(off, len, count, bounds));
+            }
+            return new DocumentReader(ch, version, flags, dict, Collections.unmodifiableList(blocks));
+        } catch (IOException | RuntimeException ex) {
+            ch.close();
+            if (ex instanceof IOException) throw (IOException) ex;
+            throw new IOException("corrupt document: " + ex, ex);
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isCompressed() {
+        return (flags & FLAG_COMPRESSED) != 0;
+    }
+
+    public List<BlockInfo> getBlocks() {
+        return blocks;
+    }
+
+    public long getEntityCount() {
+        long n = 0;
+        for (BlockInfo b : blocks) n += b.getEntityCount();
+        return n;
+    }
+
+    /**
+     * Map and decode a single block.
+     */
+    public List<ReMoDeLEntity> readBlock(BlockInfo block) throws IOException {
+        List<ReMoDeLEntity> out = new ArrayList<>(block.getEntityCount());
+        readBlock(block, out::add);
+        return out;
+    }
+
+    public void readBlock(BlockInfo block, Consumer<ReMoDeLEntity> sink) throws IOException {
+        FileIoEvent ev = new FileIoEvent();
+        ev.begin();
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, block.getOffset(), block.getLength());
+        try {
+            int codec = mapped.get();
+            int rawLength = readVarint32(mapped);
+            int storedLength = readVarint32(mapped);
+            if (storedLength != mapped.remaining()) throw new IOException("block length mismatch at " + block.getOffset());
+            ByteBuffer payload;
+            if (codec == CODEC_RAW) {
+                payload = mapped.slice();
+            } else if (codec == CODEC_DEFLATE) {
+                payload = ByteBuffer.allocate(rawLength);
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(mapped);
+                    while (payload.hasRemaining() && !inflater.finished()) {
+                        if (inflater.inflate(payload) == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    }
+                } catch (DataFormatException ex) {
+                    throw new IOException("corrupt block at " + block.getOffset(), ex);
+                } finally {
+                    inflater.end();
+                }
+                if (payload.hasRemaining()) throw new IOException("short block at " + block.getOffset());
+                payload.flip();
+            } else {
+                throw new IOException("unknown block codec " + codec);
+            }
+            EntityCodec dec = new EntityCodec(dictionary);
+            int count = readVarint32(payload);
+            for (int i = 0; i < count; i++) sink.accept(dec.read(payload));
+            if (ev.shouldCommit()) {
+                ev.operation = "read block";
+                ev.format = "document";
+                ev.bytes = block.getLength();
+                ev.entities = count;
+                ev.commit();
+            }
+        } catch (RuntimeException ex) {
+            // BufferUnderflowException and friends: surface as a corrupt file
+            throw new IOException("corrupt block at " + block.getOffset() + ": " + ex, ex);
+        }
+    }
+
+    /**
+     * Decode every block into the model, one model batch per block.
+     * progress (may be null) receives 0..100.
+     */
+    public void loadInto(ReMoDeLModel model, IntConsumer progress) throws IOException {
+        long total = Math.max(1, getEntityCount());
+        long done = 0;
+        for (BlockInfo b : blocks) {
+            List<ReMoDeLEntity> es = readBlock(b);
+            model.beginBatch();
+            try {
+                for (ReMoDeLEntity e : es) model.addEntity(e);
+            } finally {
+                model.endBatch();
+            }
+            done += es.size();
+            if (progress != null) progress.accept((int) (100 * done / total));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.monitor.FileIoEvent;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.example.swingapp.io.DocumentFormat.*;
+
+/**
+ * Writes entities to the binary document format (see DocumentFormat).
+ *
+ * Entities are encoded in blocks of blockSize records, each optionally
+ * deflated. The file is written to a sibling temp file, synced, and moved
+ * into place, so neither a failed save nor a crash clobbers the previous
+ * document. Safe to call off
+ * the EDT as long as the entities passed in are not mutated meanwhile.
+ *
+ * By default entities are written in Morton (Z-order) of their box centers,
+ * so each block covers a compact area and its bounds in the block index are
+ * tight enough for PagedDocument to load a viewport with few blocks.
+ */
+public class DocumentWriter {
+    private boolean compress = true;
+    private int blockSize = 4096;
+    private boolean spatialOrder = true;
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Write entities in the order given instead of sorting them spatially.
+     */
+    public void setSpatialOrder(boolean spatialOrder) {
+        this.spatialOrder = spatialOrder;
+    }
+
+    /**
+     * Sort entities by the Morton code of their box centers; entities
+     * without a box go last, in their original order.
+     */
+    public static void sortSpatially(List<ReMoDeLEntity> entities) {
+        int n = entities.size();
+        double[] cx = new double[n], cy = new double[n];
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Rectangle2D b = entities.get(i).getBounds();
+            if (b == null) {
+                cx[i] = Double.NaN;
+                continue;
+            }
+            cx[i] = b.getCenterX();
+            cy[i] = b.getCenterY();
+            x0 = Math.min(x0, cx[i]); y0 = Math.min(y0, cy[i]);
+            x1 = Math.max(x1, cx[i]); y1 = Math.max(y1, cy[i]);
+        }
+        double sx = x1 > x0 ? 65535 / (x1 - x0) : 0, sy = y1 > y0 ? 65535 / (y1 - y0) : 0;
+        // key = morton code in the high bits, original index in the low bits (stable)
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            long code = Double.isNaN(cx[i]) ? 0xFFFFFFFFL + 1 : morton((int) ((cx[i] - x0) * sx), (int) ((cy[i] - y0) * sy));
+            keys[i] = (code << 30) | i;
+        }
+        Arrays.sort(keys);
+        List<ReMoDeLEntity> sorted = new ArrayList<>(n);
+        for (long k : keys) sorted.add(entities.get((int) (k & 0x3FFFFFFF)));
+        for (int i = 0; i < n; i++) entities.set(i, sorted.get(i));
+    }
+
+    private static long morton(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static long spread(int v) {
+        long x = v & 0xFFFFL;
+        x = (x | (x << 8)) & 0x00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0FL;
+        x = (x | (x << 2)) & 0x33333333L;
+        x = (x | (x << 1)) & 0x55555555L;
+        return x;
+    }
+
+    /**
+     * Write the entities to target. progress (may be null) receives 0..100.
+     */
+    public void write(Path target, Collection<? extends ReMoDeLEntity> entities, IntConsumer progress) throws IOException {
+        FileIoEvent ev = new FileIoEvent();
+        ev.begin();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream os = new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16);
+            writeTo(os, entities, progress);
+            os.flush();
+            // on disk before it replaces anything, or a crash can leave a renamed empty file
+            ch.force(true);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+        if (ev.shouldCommit()) {
+            ev.operation = "write";
+            ev.format = "document";
+            ev.path = target.toString();
+            ev.bytes = Files.size(target);
+            ev.entities = entities.size();
+            ev.commit();
+        }
+    }
+
+    /**
+     * Make the directory's entries (files created, renamed or removed in it)
+     * durable. Platforms that cannot open a directory for syncing skip it.
+     */
+    static void syncDirectory(Path dir) throws IOException {
+        if (dir == null) return;
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException ex) {
+            return;
+        }
+        try (ch) {
+            ch.force(true);
+        }
+    }
+
+    private void writeTo(OutputStream os, Collection<? extends ReMoDeLEntity> entities, IntConsumer progress) throws IOException {
+        if (spatialOrder) {
+            List<ReMoDeLEntity> sorted = new ArrayList<>(entities);
+            sortSpatially(sorted);
+            entities = sorted;
+        }
+        int flags = compress ? FLAG_COMPRESSED : 0;
+        ByteSink head = new ByteSink(HEADER_SIZE);
+        head.write(MAGIC, 0, MAGIC.length);
+        head.write(VERSION >>> 8);
+        head.write(VERSION);
+        head.write(flags >>> 8);
+        head.write(flags);
+        head.writeTo(os);
+        long pos = head.size();
+
+        Map<String, Integer> dictionary = EntityCodec.newDictionary();
+        EntityCodec codec = new EntityCodec(dictionary);
+        ByteSink payload = new ByteSink(1 << 16);
+        ByteSink block = new ByteSink(1 << 16);
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        byte[] packed = new byte[0];
+        List<BlockInfo> index = new ArrayList<>();
+
+        int total = entities.size();
+        int done = 0;
+        int lastPercent = -1;
+        List<ReMoDeLEntity> pending = new ArrayList<>(blockSize);
+        try {
+            Iterator<? extends ReMoDeLEntity> it = entities.iterator();
+            while (it.hasNext() || !pending.isEmpty()) {
+                if (it.hasNext()) {
+                    pending.add(it.next());
+                    if (pending.size() < blockSize && it.hasNext()) continue;
+                }
+                // encode one block
+                codec.reset();
+                payload.reset();
+                payload.varint(pending.size());
+                double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+                for (ReMoDeLEntity e : pending) {
+                    codec.write(payload, e);
+                    Rectangle2D b = e.getBounds();
+                    if (b != null) {
+                        x0 = Math.min(x0, b.getMinX()); y0 = Math.min(y0, b.getMinY());
+                        x1 = Math.max(x1, b.getMaxX()); y1 = Math.max(y1, b.getMaxY());
+                    }
+                }
+                block.reset();
+                int codecId = CODEC_RAW;
+                byte[] stored = payload.array();
+                int storedLen = payload.size();
+                if (deflater != null) {
+                    deflater.reset();
+                    deflater.setInput(payload.array(), 0, payload.size());
+                    deflater.finish();
+                    if (packed.length < payload.size()) packed = new byte[payload.size()];
+                    int n = 0;
+                    while (!deflater.finished() && n < packed.length) n += deflater.deflate(packed, n, packed.length - n);
+                    // keep the raw bytes when compression does not pay off
+                    if (deflater.finished() && n < payload.size()) {
+                        codecId = CODEC_DEFLATE;
+                        stored = packed;
+                        storedLen = n;
+                    }
+                }
+                block.write(codecId);
+                block.varint(payload.size());
+                block.varint(storedLen);
+                block.writeTo(os);
+                os.write(stored, 0, storedLen);
+                int length = block.size() + storedLen;
+                Rectangle2D bounds = x0 <= x1 ? new Rectangle2D.Double(x0, y0, x1 - x0, y1 - y0) : null;
+                index.add(new BlockInfo(pos, length, pending.size(), bounds));
+                pos += length;
+
+                done += pending.size();
+                pending.clear();
+                if (progress != null && total > 0) {
+                    int percent = (int) (100L * done / total);
+                    if (percent != lastPercent) {
+                        progress.accept(percent);
+                        lastPercent = percent;
+                    }
+                }
+            }
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+
+        // footer: dictionary + block index
+        ByteSink footer = new ByteSink(1 << 12);
+        footer.varint(dictionary.size());
+        for (String s : dictionary.keySet()) footer.utf8(s);
+        footer.varint(index.size());
+        for (BlockInfo b : index) {
+            footer.i64(b.getOffset());
+            footer.varint(b.getLength());
+            footer.varint(b.getEntityCount());
+            Rectangle2D r = b.getBounds();
+            footer.write(r != null ? 1 : 0);
+            if (r != null) {
+                footer.zigzag((long) Math.floor(r.getMinX()));
+                footer.zigzag((long) Math.floor(r.getMinY()));
+                footer.zigzag((long) Math.ceil(r.getMaxX()));
+                footer.zigzag((long) Math.ceil(r.getMaxY()));
+            }
+        }
+        footer.writeTo(os);
+        CRC32 crc = new CRC32();
+        crc.update(footer.array(), 0, footer.size());
+
+        ByteSink trailer = new ByteSink(TRAILER_SIZE);
+        trailer.i64(pos);
+        trailer.i32(footer.size());
+        trailer.i32((int) crc.getValue());
+        trailer.write(VERSION >>> 8);
+        trailer.write(VERSION);
+        trailer.write(flags >>> 8);
+        trailer.write(flags);
+        trailer.write(TRAILER_MAGIC, 0, TRAILER_MAGIC.length);
+        trailer.writeTo(os);
+        if (progress != null) progress.accept(100);
+    }
+}
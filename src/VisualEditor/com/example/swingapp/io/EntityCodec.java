@@ -0,0 +1,319 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.swingapp.io.DocumentFormat.*;
+
+/**
+ * Encodes single entities into the compact record layout shared by the
+ * document blocks and the journal.
+ *
+ * Strings go through a dictionary when one is supplied, otherwise they are
+ * written inline; box coordinates are delta-encoded against the previous record
+ * of the same stream, so a codec instance must be used for one stream only
+ * and reset() at every block boundary.
+ */
+final class EntityCodec {
+    private static final String[] BOX_KEYS = { "x1", "y1", "x2", "y2" };
+
+    private final Map<String, Integer> dictIndex;   // write side, null = inline all strings
+    private final String[] dict;                    // read side
+    private long prevX, prevY;
+
+    /**
+     * Writer codec. Strings are appended to dictIndex as they are met.
+     */
+    EntityCodec(Map<String, Integer> dictIndex) {
+        this.dictIndex = dictIndex;
+        this.dict = null;
+    }
+
+    /**
+     * Reader codec over a loaded dictionary (may be null when everything is inline).
+     */
+    EntityCodec(String[] dict) {
+        this.dictIndex = null;
+        this.dict = dict;
+    }
+
+    static Map<String, Integer> newDictionary() {
+        return new LinkedHashMap<>();
+    }
+
+    void reset() {
+        prevX = 0;
+        prevY = 0;
+    }
+
+    void write(ByteSink out, ReMoDeLEntity e) {
+        Map<String, Object> props = e.getProperties();
+        boolean box = isInt(props.get("x1")) && isInt(props.get("y1")) && isInt(props.get("x2")) && isInt(props.get("y2"));
+        String id = e.getId();
+        UUID uuid = asUuid(id);
+        out.write((uuid != null ? REC_UUID_ID : 0) | (box ? REC_BOX : 0));
+        string(out, e.getType());
+        if (uuid != null) {
+            out.i64(uuid.getMostSignificantBits());
+            out.i64(uuid.getLeastSignificantBits());
+        } else {
+            out.utf8(id);
+        }
+        if (box) {
+            long x1 = ((Integer) props.get("x1")), y1 = ((Integer) props.get("y1"));
+            long x2 = ((Integer) props.get("x2")), y2 = ((Integer) props.get("y2"));
+            out.zigzag(x1 - prevX);
+            out.zigzag(y1 - prevY);
+            out.zigzag(x2 - x1);
+            out.zigzag(y2 - y1);
+            prevX = x1;
+            prevY = y1;
+        }
+        int n = props.size() - (box ? BOX_KEYS.length : 0);
+        out.varint(n);
+        for (Map.Entry<String, Object> en : props.entrySet()) {
+            String k = en.getKey();
+            if (box && isBoxKey(k)) continue;
+            string(out, k);
+            value(out, en.getValue());
+        }
+    }
+
+    ReMoDeLEntity read(ByteBuffer in) throws IOException {
+        int flags = in.get() & 0xFF;
+        String type = string(in);
+        String id;
+        if ((flags & REC_UUID_ID) != 0) {
+            id = new UUID(in.getLong(), in.getLong()).toString();
+        } else {
+            id = readUtf8(in);
+        }
+        ReMoDeLEntity e = ReMoDeLEntity.create(type, id);
+        int boxed = (flags & REC_BOX) != 0 ? BOX_KEYS.length : 0;
+        Map<String, Object> props = new HashMap<>();
+        if (boxed > 0) {
+            long x1 = prevX + readZigzag(in), y1 = prevY + readZigzag(in);
+            long x2 = x1 + readZigzag(in), y2 = y1 + readZigzag(in);
+            prevX = x1;
+            prevY = y1;
+            props.put("x1", (int) x1);
+            props.put("y1", (int) y1);
+            props.put("x2", (int) x2);
+            props.put("y2", (int) y2);
+        }
+        int n = readVarint32(in);
+        for (int i = 0; i < n; i++) {
+            String k = string(in);
+            props.put(k, value(in));
+        }
+        // keep the type the subclass constructor set unless the record says otherwise
+        if (type != null) e.setType(type);
+        e.setProperties(props);
+        return e;
+    }
+
+    // --- strings ----------------------------------------------------------------------
+
+    private void string(ByteSink out, String s) {
+        if (s == null) {
+            out.write(0);
+            return;
+        }
+        if (dictIndex != null && s.length() <= DICT_MAX_LENGTH) {
+            Integer idx = dictIndex.get(s);
+            if (idx == null) {
+                idx = dictIndex.size() + 1;
+                dictIndex.put(s, idx);
+            }
+            out.write(2);
+            out.varint(idx);
+            return;
+        }
+        out.write(1);
+        out.utf8(s);
+    }
+
+    private String string(ByteBuffer in) throws IOException {
+        int kind = in.get();
+        switch (kind) {
+            case 0: return null;
+            case 1: return readUtf8(in);
+            case 2: {
+                int idx = readVarint32(in);
+                if (dict == null || idx < 1 || idx > dict.length) throw new IOException("bad dictionary index " + idx);
+                return dict[idx - 1];
+            }
+            default: throw new IOException("bad string kind " + kind);
+        }
+    }
+
+    // --- values -----------------------------------------------------------------------
+
+    void value(ByteSink out, Object v) {
+        if (v == null) {
+            out.write(T_NULL);
+        } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            out.write(T_INT);
+            out.zigzag(((Number) v).intValue());
+        } else if (v instanceof Long) {
+            out.write(T_LONG);
+            out.zigzag((Long) v);
+        } else if (v instanceof Double) {
+            out.write(T_DOUBLE);
+            out.f64((Double) v);
+        } else if (v instanceof Float) {
+            out.write(T_FLOAT);
+            out.i32(Float.floatToRawIntBits((Float) v));
+        } else if (v instanceof Boolean) {
+            out.write((Boolean) v ? T_TRUE : T_FALSE);
+        } else if (v instanceof int[]) {
+            int[] a = (int[]) v;
+            out.write(T_INT_ARRAY);
+            out.varint(a.length);
+            long prev = 0;
+            for (int x : a) {
+                out.zigzag(x - prev);
+                prev = x;
+            }
+        } else if (v instanceof Path2D) {
+            out.write(T_PATH);
+            path(out, (Path2D) v);
+        } else {
+            // unknown value types are kept as their string form
+            String s = v.toString();
+            if (dictIndex != null && s.length() <= DICT_MAX_LENGTH) {
+                out.write(T_DICT_STRING);
+                string(out, s);
+            } else {
+                out.write(T_STRING);
+                out.utf8(s);
+            }
+        }
+    }
+
+    Object value(ByteBuffer in) throws IOException {
+        int tag = in.get();
+        switch (tag) {
+            case T_NULL: return null;
+            case T_INT: return (int) readZigzag(in);
+            case T_LONG: return readZigzag(in);
+            case T_DOUBLE: return in.getDouble();
+            case T_FLOAT: return in.getFloat();
+            case T_TRUE: return Boolean.TRUE;
+            case T_FALSE: return Boolean.FALSE;
+            case T_STRING: return readUtf8(in);
+            case T_DICT_STRING: return string(in);
+            case T_INT_ARRAY: {
+                int n = readVarint32(in);
+                int[] a = new int[n];
+                long prev = 0;
+                for (int i = 0; i < n; i++) {
+                    prev += readZigzag(in);
+                    a[i] = (int) prev;
+                }
+                return a;
+            }
+            case T_PATH: return path(in);
+            default: throw new IOException("unknown value tag " + tag);
+        }
+    }
+
+    // Path2D: winding rule, segment types, then coordinates either as
+    // delta-encoded integers (the common case) or raw doubles
+    private static void path(ByteSink out, Path2D p) {
+        ByteSink types = new ByteSink(32);
+        double[] coords = new double[64];
+        int nc = 0;
+        boolean integral = true;
+        double[] c = new double[6];
+        int segs = 0;
+        for (PathIterator it = p.getPathIterator(null); !it.isDone(); it.next()) {
+            int t = it.currentSegment(c);
+            types.write(t);
+            segs++;
+            int k = t == PathIterator.SEG_CLOSE ? 0 : t == PathIterator.SEG_QUADTO ? 4 : t == PathIterator.SEG_CUBICTO ? 6 : 2;
+            for (int i = 0; i < k; i++) {
+                if (nc == coords.length) coords = Arrays.copyOf(coords, nc * 2);
+                coords[nc++] = c[i];
+                if (integral && (c[i] != Math.rint(c[i]) || Math.abs(c[i]) > Integer.MAX_VALUE)) integral = false;
+            }
+        }
+        out.write(p.getWindingRule() | (integral ? 0x10 : 0));
+        out.varint(segs);
+        out.write(types.array(), 0, types.size());
+        long px = 0, py = 0;
+        for (int i = 0; i < nc; i += 2) {
+            if (integral) {
+                long x = (long) coords[i], y = (long) coords[i + 1];
+                out.zigzag(x - px);
+                out.zigzag(y - py);
+                px = x;
+                py = y;
+            } else {
+                out.f64(coords[i]);
+                out.f64(coords[i + 1]);
+            }
+        }
+    }
+
+    private static Path2D path(ByteBuffer in) throws IOException {
+        int head = in.get();
+        boolean integral = (head & 0x10) != 0;
+        Path2D.Double p = new Path2D.Double(head & 0x0F);
+        int segs = readVarint32(in);
+        byte[] types = new byte[segs];
+        in.get(types);
+        double[] c = new double[6];
+        long px = 0, py = 0;
+        for (byte t : types) {
+            int k = t == PathIterator.SEG_CLOSE ? 0 : t == PathIterator.SEG_QUADTO ? 4 : t == PathIterator.SEG_CUBICTO ? 6 : 2;
+            for (int i = 0; i < k; i += 2) {
+                if (integral) {
+                    px += readZigzag(in);
+                    py += readZigzag(in);
+                    c[i] = px;
+                    c[i + 1] = py;
+                } else {
+                    c[i] = in.getDouble();
+                    c[i + 1] = in.getDouble();
+                }
+            }
+            switch (t) {
+                case PathIterator.SEG_MOVETO: p.moveTo(c[0], c[1]); break;
+                case PathIterator.SEG_LINETO: p.lineTo(c[0], c[1]); break;
+                case PathIterator.SEG_QUADTO: p.quadTo(c[0], c[1], c[2], c[3]); break;
+                case PathIterator.SEG_CUBICTO: p.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]); break;
+                case PathIterator.SEG_CLOSE: p.closePath(); break;
+                default: throw new IOException("bad path segment " + t);
+            }
+        }
+        return p;
+    }
+
+    private static boolean isInt(Object o) {
+        return o instanceof Integer;
+    }
+
+    private static boolean isBoxKey(String k) {
+        return k.equals("x1") || k.equals("y1") || k.equals("x2") || k.equals("y2");
+    }
+
+    private static UUID asUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID u = UUID.fromString(id);
+            return u.toString().equals(id) ? u : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Self-contained encoding of a short list of entities in the record layout
+ * of the document format, for callers outside this package that need to
+ * park entities in bytes (the undo spill store). Null entries are allowed.
+ * Property values can be encoded on their own as well (collaboration ops).
+ */
+public final class EntityRecords {
+    private EntityRecords() {
+    }
+
+    public static byte[] encode(List<? extends ReMoDeLEntity> entities) {
+        ByteSink out = new ByteSink(64 * entities.size() + 16);
+        EntityCodec codec = new EntityCodec((Map<String, Integer>) null);
+        out.varint(entities.size());
+        for (ReMoDeLEntity e : entities) {
+            if (e == null) {
+                out.write(0);
+            } else {
+                out.write(1);
+                codec.write(out, e);
+            }
+        }
+        byte[] b = new byte[out.size()];
+        System.arraycopy(out.array(), 0, b, 0, b.length);
+        return b;
+    }
+
+    public static List<ReMoDeLEntity> decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        EntityCodec codec = new EntityCodec((String[]) null);
+        try {
+            int n = DocumentFormat.readVarint32(in);
+            List<ReMoDeLEntity> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) out.add(in.get() == 0 ? null : codec.read(in));
+            return out;
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("truncated entity records", ex);
+        }
+    }
+
+    /**
+     * Property values in the document format's value encoding; values of
+     * types the format does not know are kept as their string form.
+     */
+    public static byte[] encodeValues(List<?> values) {
+        ByteSink out = new ByteSink(8 * values.size() + 16);
+        EntityCodec codec = new EntityCodec((Map<String, Integer>) null);
+        out.varint(values.size());
+        for (Object v : values) codec.value(out, v);
+        byte[] b = new byte[out.size()];
+        System.arraycopy(out.array(), 0, b, 0, b.length);
+        return b;
+    }
+
+    public static List<Object> decodeValues(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        EntityCodec codec = new EntityCodec((String[]) null);
+        try {
+            int n = DocumentFormat.readVarint32(in);
+            List<Object> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) out.add(codec.value(in));
+            return out;
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("truncated values", ex);
+        }
+    }
+}
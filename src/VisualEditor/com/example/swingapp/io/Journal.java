@@ -0,0 +1,460 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.monitor.FileIoEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of model mutations with background group commit.
+ *
+ * Each add/update/remove event is encoded on the calling thread into a
+ * small CRC-framed record and queued; a writer thread drains the queue,
+ * appends everything it got in one write and fsyncs once per group.
+ *
+ * State on disk is a chain of generations in one directory:
+ * snapshot-N.rmdl (a DocumentWriter file, optional) followed by
+ * journal-N.log, journal-N+1.log, ... Recovery loads the newest snapshot
+ * and replays the journals after it. When a journal grows past the size
+ * threshold or the compaction interval elapses, the writer rolls over to
+ * a new journal and a compactor thread folds the previous snapshot and
+ * journal into the next snapshot, entirely off the editing thread.
+ */
+public class Journal implements ModelListener, Closeable {
+    private static final byte[] MAGIC = { 'R', 'M', 'J', 'L' };
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 8;
+    private static final int KIND_ADD = 1, KIND_UPDATE = 2, KIND_REMOVE = 3;
+    private static final Object CLOSE = new Object();
+
+    private final Path dir;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "journal-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Thread writer;
+    private final ByteSink encodeBuf = new ByteSink(256);
+    private final EntityCodec encoder = new EntityCodec((Map<String, Integer>) null);
+    private volatile ReMoDeLModel model;
+    private volatile IOException failure;
+    private long compactBytes = 32L << 20;
+    private long compactIntervalMillis = TimeUnit.MINUTES.toMillis(5);
+
+    // writer thread state
+    private long generation;
+    private FileChannel out;
+    private long journalSize;
+    private long lastCompaction = System.currentTimeMillis();
+
+    private static final class Rotate {
+        final ModelSnapshot snapshot; // null: roll over and compact in the background
+
+        Rotate(ModelSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    private Journal(Path dir, long generation, FileChannel out) throws IOException {
+        this.dir = dir;
+        this.generation = generation;
+        this.out = out;
+        this.journalSize = out.size();
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Recover the journaled document in dir into model (which should be empty),
+     * then start journaling model's mutations.
+     */
+    public static Journal open(Path dir, ReMoDeLModel model) throws IOException {
+        Files.createDirectories(dir);
+        TreeSet<Long> snapshots = generations(dir, "snapshot-", ".rmdl");
+        TreeSet<Long> journals = generations(dir, "journal-", ".log");
+        Map<String, ReMoDeLEntity> state = new LinkedHashMap<>();
+        long gen = 0;
+        if (!snapshots.isEmpty()) {
+            gen = snapshots.last();
+            loadSnapshot(dir, gen, state);
+        } else if (!journals.isEmpty()) {
+            gen = journals.first();
+        }
+        long last = gen;
+        long validLength = -1;
+        // replay the unbroken chain of journals starting at the snapshot generation
+        for (long g = gen; journals.contains(g); g++) {
+            validLength = replay(journal(dir, g), state);
+            last = g;
+        }
+        if (!state.isEmpty()) {
+            model.beginBatch();
+            try {
+                for (ReMoDeLEntity e : state.values()) model.addEntity(e);
+            } finally {
+                model.endBatch();
+            }
+        }
+        FileChannel ch = FileChannel.open(journal(dir, last), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (validLength < 0 || ch.size() < HEADER_SIZE) {
+            ch.truncate(0);
+            ch.write(header(last), 0);
+        } else {
+            // drop a torn tail left by a crash before appending
+            ch.truncate(validLength);
+        }
+        ch.position(ch.size());
+        Journal j = new Journal(dir, last, ch);
+        j.model = model;
+        j.writer.start();
+        model.addListener(j);
+        return j;
+    }
+
+    public void setCompactBytes(long bytes) {
+        this.compactBytes = Math.max(1, bytes);
+    }
+
+    public void setCompactIntervalMillis(long millis) {
+        this.compactIntervalMillis = Math.max(1, millis);
+    }
+
+    /**
+     * Records queued for the writer thread and not yet on disk.
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Last I/O error of the background threads, or null.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Journal a different model from now on, starting a new generation whose
+     * snapshot is the model's current content (used after New / Open).
+     */
+    public synchronized void follow(ReMoDeLModel m) {
+        if (m == model) return;
+        ReMoDeLModel old = model;
+        if (old != null) old.removeListener(this);
+        model = m;
+        if (m == null) return;
+        queue.add(new Rotate(m.snapshot()));
+        m.addListener(this);
+    }
+
+    /**
+     * Roll over to a new journal and compact the previous one in the background.
+     */
+    public void compact() {
+        queue.add(new Rotate(null));
+    }
+
+    /**
+     * Block until everything queued so far is written and synced.
+     */
+    public void flush() throws InterruptedException {
+        CountDownLatch l = new CountDownLatch(1);
+        queue.add(l);
+        l.await();
+    }
+
+    @Override
+    public synchronized void modelChanged(ModelEvent e) {
+        ReMoDeLModel m = model;
+        if (m == null) return;
+        if (e.getType() == ModelEvent.Type.RESET) {
+            queue.add(new Rotate(m.snapshot()));
+            return;
+        }
+        for (String id : new LinkedHashSet<>(e.getEntityIds())) {
+            ReMoDeLEntity ent = m.get(id);
+            encodeBuf.reset();
+            if (ent == null) {
+                encodeBuf.write(KIND_REMOVE);
+                encodeBuf.utf8(id);
+            } else {
+                encodeBuf.write(e.getType() == ModelEvent.Type.ENTITY_ADDED ? KIND_ADD : KIND_UPDATE);
+                encoder.reset();
+                encoder.write(encodeBuf, ent);
+            }
+            queue.add(frame(encodeBuf));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ReMoDeLModel m = model;
+        if (m != null) m.removeListener(this);
+        queue.add(CLOSE);
+        try {
+            writer.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // --- writer thread ----------------------------------------------------------------
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        ByteSink group = new ByteSink(1 << 16);
+        try {
+            while (true) {
+                Object first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (journalSize > HEADER_SIZE && System.currentTimeMillis() - lastCompaction > compactIntervalMillis) {
+                        rollOver(null);
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 8192);
+                for (Object o : batch) {
+                    if (o instanceof byte[]) {
+                        byte[] rec = (byte[]) o;
+                        group.write(rec, 0, rec.length);
+                        continue;
+                    }
+                    commit(group);
+                    if (o == CLOSE) {
+                        out.close();
+                        return;
+                    } else if (o instanceof Rotate) {
+                        rollOver(((Rotate) o).snapshot);
+                    } else if (o instanceof CountDownLatch) {
+                        ((CountDownLatch) o).countDown();
+                    }
+                }
+                commit(group);
+                batch.clear();
+                if (journalSize > compactBytes) rollOver(null);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            failure = ex;
+            ex.printStackTrace();
+        } finally {
+            // never leave flush() callers hanging
+            for (Object o : queue) if (o instanceof CountDownLatch) ((CountDownLatch) o).countDown();
+        }
+    }
+
+    // one write + one fsync for everything gathered since the last commit
+    private void commit(ByteSink group) throws IOException {
+        if (group.size() == 0) return;
+        FileIoEvent ev = new FileIoEvent();
+        ev.begin();
+        ByteBuffer b = ByteBuffer.wrap(group.array(), 0, group.size());
+        while (b.hasRemaining()) out.write(b);
+        out.force(false);
+        if (ev.shouldCommit()) {
+            ev.operation = "group commit";
+            ev.format = "journal";
+            ev.path = journal(dir, generation).toString();
+            ev.bytes = group.size();
+            ev.commit();
+        }
+        journalSize += group.size();
+        group.reset();
+    }
+
+    private void rollOver(ModelSnapshot snapshot) throws IOException {
+        long prev = generation;
+        long next = prev + 1;
+        if (snapshot != null) {
+            // new base document: its snapshot must exist before its journal does
+            new DocumentWriter().write(snapshot(dir, next), snapshot.getAll(), null);
+        }
+        out.force(true);
+        out.close();
+        out = FileChannel.open(journal(dir, next), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out.write(header(next));
+        out.force(true);
+        // older generations may only go once the new journal's entry is durable too
+        DocumentWriter.syncDirectory(dir);
+        generation = next;
+        journalSize = out.size();
+        lastCompaction = System.currentTimeMillis();
+        if (snapshot != null) {
+            compactor.execute(() -> deleteBefore(next));
+        } else {
+            compactor.execute(() -> compactInto(prev, next));
+        }
+    }
+
+    // --- compactor thread -------------------------------------------------------------
+
+    private void compactInto(long prev, long next) {
+        try {
+            TreeSet<Long> snapshots = generations(dir, "snapshot-", ".rmdl");
+            if (!snapshots.isEmpty() && snapshots.last() > next) return; // superseded by a newer base document
+            // rebuild prev's state the way recovery would: the newest snapshot
+            // up to prev, then every journal from there through prev
+            TreeSet<Long> journals = generations(dir, "journal-", ".log");
+            Long base = snapshots.floor(prev);
+            Long first = base != null ? base : journals.isEmpty() ? null : journals.first();
+            if (first == null) return;
+            Map<String, ReMoDeLEntity> state = new LinkedHashMap<>();
+            if (base != null) loadSnapshot(dir, base, state);
+            for (long g = first; g <= prev; g++) {
+                // a gap in the chain: leave the files for recovery rather than drop what is past it
+                if (!journals.contains(g)) return;
+                replay(journal(dir, g), state);
+            }
+            new DocumentWriter().write(snapshot(dir, next), state.values(), null);
+            deleteBefore(next);
+        } catch (IOException ex) {
+            failure = ex;
+            ex.printStackTrace();
+        }
+    }
+
+    private void deleteBefore(long gen) {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                String n = p.getFileName().toString();
+                Long g = generationOf(n, "snapshot-", ".rmdl");
+                if (g == null) g = generationOf(n, "journal-", ".log");
+                if (g != null && g < gen) Files.deleteIfExists(p);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // --- file helpers -----------------------------------------------------------------
+
+    private static TreeSet<Long> generations(Path dir, String prefix, String suffix) throws IOException {
+        TreeSet<Long> out = new TreeSet<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+            for (Path p : ds) {
+                Long g = generationOf(p.getFileName().toString(), prefix, suffix);
+                if (g != null) out.add(g);
+            }
+        }
+        return out;
+    }
+
+    private static void loadSnapshot(Path dir, long gen, Map<String, ReMoDeLEntity> state) throws IOException {
+        try (DocumentReader r = DocumentReader.open(snapshot(dir, gen))) {
+            for (BlockInfo b : r.getBlocks()) r.readBlock(b, e -> state.put(e.getId(), e));
+        }
+    }
+
+    /**
+     * Apply the journal's records to state; stops at the first torn or corrupt record.
+     * Returns the length of the valid prefix of the file.
+     */
+    private static long replay(Path file, Map<String, ReMoDeLEntity> state) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) return -1;
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] magic = new byte[4];
+            b.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("not a journal: " + file);
+            b.getShort();
+            b.getLong();
+            EntityCodec dec = new EntityCodec((String[]) null);
+            CRC32 crc = new CRC32();
+            long valid = b.position();
+            while (b.remaining() >= 8) {
+                int len = b.getInt();
+                int sum = b.getInt();
+                if (len <= 0 || len > b.remaining()) break;
+                ByteBuffer rec = b.slice();
+                rec.limit(len);
+                crc.reset();
+                crc.update(rec.duplicate());
+                if ((int) crc.getValue() != sum) break;
+                try {
+                    int kind = rec.get();
+                    if (kind == KIND_REMOVE) {
+                        state.remove(DocumentFormat.readUtf8(rec));
+                    } else {
+                        dec.reset();
+                        ReMoDeLEntity e = dec.read(rec);
+                        state.put(e.getId(), e);
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    break;
+                }
+                b.position(b.position() + len);
+                valid = b.position();
+            }
+            return valid;
+        }
+    }
+
+    private static byte[] frame(ByteSink payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payload.size());
+        ByteBuffer b = ByteBuffer.allocate(8 + payload.size());
+        b.putInt(payload.size());
+        b.putInt((int) crc.getValue());
+        b.put(payload.array(), 0, payload.size());
+        return b.array();
+    }
+
+    private static ByteBuffer header(long gen) {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE);
+        b.put(MAGIC);
+        b.putShort((short) VERSION);
+        b.putLong(gen);
+        b.flip();
+        return b;
+    }
+
+    private static Path snapshot(Path dir, long gen) {
+        return dir.resolve(String.format("snapshot-%06d.rmdl", gen));
+    }
+
+    private static Path journal(Path dir, long gen) {
+        return dir.resolve(String.format("journal-%06d.log", gen));
+    }
+
+    private static Long generationOf(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) return null;
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import javax.swing.SwingUtilities;
+import java.awt.geom.Rectangle2D;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Browses a document file through a model that only holds the entities
+ * around the viewport.
+ *
+ * The block index of the file (with per-block bounds) decides which blocks
+ * intersect the viewport plus a prefetch margin. A pager thread maps and
+ * decodes those blocks and publishes each one to the model as a batch;
+ * blocks far from the viewport are removed again once the estimated heap
+ * cost of the resident blocks exceeds the memory budget. Blocks whose
+ * entities were edited are pinned so no edit is lost, and entities that
+ * did not come from the file are never touched.
+ *
+ * Residency only changes inside tasks run by the publisher (the EDT by
+ * default), together with the matching model batch, so a snapshot of the
+ * model and of residentBlocks() taken on that thread is consistent.
+ */
+public class PagedDocument implements ModelListener, Closeable {
+    // rough heap cost of one resident entity including its canvas shape
+    private static final long ENTITY_BYTES = 640;
+
+    private final DocumentReader reader;
+    private final ReMoDeLModel model;
+    private final List<BlockInfo> blocks;
+    private final Rectangle2D[] bounds;
+    private final ExecutorService pager = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "document-pager");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicReference<Rectangle2D> viewport = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private Consumer<Runnable> publisher = SwingUtilities::invokeLater;
+    private volatile long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+    private volatile double prefetch = 0.5;
+    private volatile boolean applying;
+    private volatile boolean closed;
+
+    // guarded by this
+    private final String[][] residentIds;   // ids of resident blocks, null when not loaded
+    private final boolean[] pending;        // load or eviction posted but not applied yet
+    private final boolean[] dirty;          // pinned: an entity of the block was edited
+    private final Map<String, Integer> blockOf = new HashMap<>();
+
+    public PagedDocument(DocumentReader reader, ReMoDeLModel model) {
+        if (reader == null) throw new IllegalArgumentException("reader is null");
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.reader = reader;
+        this.model = model;
+        this.blocks = reader.getBlocks();
+        int n = blocks.size();
+        bounds = new Rectangle2D[n];
+        for (int i = 0; i < n; i++) bounds[i] = blocks.get(i).getBounds();
+        residentIds = new String[n][];
+        pending = new boolean[n];
+        dirty = new boolean[n];
+    }
+
+    public void attach() {
+        model.addListener(this);
+    }
+
+    public ReMoDeLModel getModel() {
+        return model;
+    }
+
+    /**
+     * Estimated heap the resident entities may take before distant blocks are evicted.
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = Math.max(0, bytes);
+    }
+
+    /**
+     * Margin loaded around the viewport, as a fraction of its width/height.
+     */
+    public void setPrefetch(double fraction) {
+        this.prefetch = Math.max(0, fraction);
+    }
+
+    /**
+     * How page-in/out tasks reach the model's thread (default: SwingUtilities::invokeLater).
+     */
+    public void setPublisher(Consumer<Runnable> publisher) {
+        this.publisher = publisher == null ? Runnable::run : publisher;
+    }
+
+    /**
+     * Union of the bounds of all blocks, or null if no entity has a box.
+     */
+    public Rectangle2D getExtent() {
+        Rectangle2D ext = null;
+        for (Rectangle2D b : bounds) {
+            if (b == null) continue;
+            if (ext == null) ext = (Rectangle2D) b.clone();
+            else ext.add(b);
+        }
+        return ext;
+    }
+
+    public long getEntityCount() {
+        return reader.getEntityCount();
+    }
+
+    public synchronized long getResidentCount() {
+        long n = 0;
+        for (String[] ids : residentIds) if (ids != null) n += ids.length;
+        return n;
+    }
+
+    /**
+     * Blocks currently present in the model. Call on the publisher's thread.
+     */
+    public synchronized BitSet residentBlocks() {
+        BitSet s = new BitSet(residentIds.length);
+        for (int i = 0; i < residentIds.length; i++) if (residentIds[i] != null) s.set(i);
+        return s;
+    }
+
+    /**
+     * Move the area of interest; paging happens asynchronously and only the
+     * latest viewport is acted on.
+     */
+    public void setViewport(Rectangle2D r) {
+        if (r == null || closed) return;
+        viewport.set((Rectangle2D) r.clone());
+        if (scheduled.compareAndSet(false, true)) pager.execute(this::page);
+    }
+
+    /**
+     * The whole document for saving: the given model snapshot followed by every
+     * block that was not resident when it was taken, streamed from the file.
+     * snapshot and resident must be captured together on the publisher's thread.
+     */
+    public Collection<ReMoDeLEntity> withNonResident(List<ReMoDeLEntity> snapshot, BitSet resident) {
+        long total = snapshot.size();
+        for (int i = 0; i < blocks.size(); i++) if (!resident.get(i)) total += blocks.get(i).getEntityCount();
+        final int size = (int) Math.min(Integer.MAX_VALUE, total);
+        return new AbstractCollection<ReMoDeLEntity>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<ReMoDeLEntity> iterator() {
+                return new Iterator<ReMoDeLEntity>() {
+                    private Iterator<ReMoDeLEntity> current = snapshot.iterator();
+                    private int nextBlock = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!current.hasNext()) {
+                            while (nextBlock < blocks.size() && resident.get(nextBlock)) nextBlock++;
+                            if (nextBlock >= blocks.size()) return false;
+                            try {
+                                current = reader.readBlock(blocks.get(nextBlock++)).iterator();
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public ReMoDeLEntity next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return current.next();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public void modelChanged(ModelEvent e) {
+        if (applying) return;
+        // user edits pin the block they belong to
+        synchronized (this) {
+            for (String id : e.getEntityIds()) {
+                Integer b = blockOf.get(id);
+                if (b != null) dirty[b] = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        model.removeListener(this);
+        pager.shutdownNow();
+        try {
+            pager.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        reader.close();
+    }
+
+    // --- pager thread -----------------------------------------------------------------
+
+    private void page() {
+        scheduled.set(false);
+        Rectangle2D v = viewport.get();
+        if (v == null || closed) return;
+        double mx = v.getWidth() * prefetch, my = v.getHeight() * prefetch;
+        Rectangle2D margin = new Rectangle2D.Double(v.getX() - mx, v.getY() - my, v.getWidth() + 2 * mx, v.getHeight() + 2 * my);
+        double cx = v.getCenterX(), cy = v.getCenterY();
+        int n = blocks.size();
+        boolean[] wanted = new boolean[n];
+        List<Integer> load = new ArrayList<>();
+        List<Integer> evictable = new ArrayList<>();
+        long cost = 0;
+        synchronized (this) {
+            for (int i = 0; i < n; i++) {
+                wanted[i] = bounds[i] == null || bounds[i].intersects(margin);
+                boolean present = residentIds[i] != null || pending[i];
+                if (present) cost += cost(i);
+                if (wanted[i] && !present) load.add(i);
+                if (!wanted[i] && residentIds[i] != null && !pending[i] && !dirty[i]) evictable.add(i);
+            }
+        }
+        Comparator<Integer> near = Comparator.comparingDouble(i -> distance(i, cx, cy));
+        load.sort(near);
+        long incoming = 0;
+        for (int i : load) incoming += cost(i);
+
+        // evict the farthest clean blocks first until the budget holds
+        evictable.sort(near.reversed());
+        long budget = memoryBudget;
+        for (int i : evictable) {
+            if (cost + incoming <= budget) break;
+            synchronized (this) {
+                pending[i] = true;
+            }
+            cost -= cost(i);
+            publisher.accept(() -> uninstall(i));
+        }
+
+        for (int i : load) {
+            if (closed || scheduled.get()) return; // a newer viewport is queued and decides again
+            // the prefetch margin is only filled while within budget; the viewport itself always is
+            boolean visible = bounds[i] == null || bounds[i].intersects(v);
+            if (!visible && cost + cost(i) > budget) continue;
+            List<ReMoDeLEntity> es;
+            try {
+                es = reader.readBlock(blocks.get(i));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                continue;
+            }
+            synchronized (this) {
+                pending[i] = true;
+            }
+            cost += cost(i);
+            publisher.accept(() -> install(i, es));
+        }
+    }
+
+    private long cost(int block) {
+        return blocks.get(block).getEntityCount() * ENTITY_BYTES;
+    }
+
+    private double distance(int block, double x, double y) {
+        Rectangle2D b = bounds[block];
+        if (b == null) return 0;
+        double dx = Math.max(0, Math.max(b.getMinX() - x, x - b.getMaxX()));
+        double dy = Math.max(0, Math.max(b.getMinY() - y, y - b.getMaxY()));
+        return dx * dx + dy * dy;
+    }
+
+    // --- publisher thread -------------------------------------------------------------
+
+    private void install(int block, List<ReMoDeLEntity> es) {
+        String[] ids = new String[es.size()];
+        synchronized (this) {
+            pending[block] = false;
+            if (closed || residentIds[block] != null) return;
+            for (int k = 0; k < ids.length; k++) {
+                ids[k] = es.get(k).getId();
+                blockOf.put(ids[k], block);
+            }
+            residentIds[block] = ids;
+        }
+        applying = true;
+        model.beginBatch();
+        try {
+            for (ReMoDeLEntity e : es) model.addEntity(e);
+        } finally {
+            model.endBatch();
+            applying = false;
+        }
+    }
+
+    private void uninstall(int block) {
+        String[] ids;
+        synchronized (this) {
+            pending[block] = false;
+            ids = residentIds[block];
+            // edited since the eviction was decided: keep it
+            if (closed || ids == null || dirty[block]) return;
+            residentIds[block] = null;
+            for (String id : ids) blockOf.remove(id);
+        }
+        applying = true;
+        model.beginBatch();
+        try {
+            for (String id : ids) model.removeEntity(id);
+        } finally {
+            model.endBatch();
+            applying = false;
+        }
+    }
+}
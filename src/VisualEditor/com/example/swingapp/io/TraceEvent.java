@@ -0,0 +1,133 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One record of an interaction trace: a tool selection, a mouse event on
+ * the canvas, a scroll of the view, a change to the model that did not
+ * come from the recorded input, a reset with the whole model, or the ids
+ * of entities the recorded input created.
+ */
+public final class TraceEvent {
+    public enum Kind { TOOL, MOUSE, VIEW, CHANGE, RESET, CREATED }
+
+    private final Kind kind;
+    private final long time;
+    private final String tool;
+    private final int[] mouse; // id, x, y, modifiersEx, button, clickCount
+    private final Rectangle view;
+    private final List<ReMoDeLEntity> entities;
+    private final List<String> removed;
+    private final List<String> created;
+    private final boolean batch;
+
+    private TraceEvent(Kind kind, long time, String tool, int[] mouse, Rectangle view,
+                       List<ReMoDeLEntity> entities, List<String> removed, List<String> created, boolean batch) {
+        this.kind = kind;
+        this.time = time;
+        this.tool = tool;
+        this.mouse = mouse;
+        this.view = view;
+        this.entities = entities;
+        this.removed = removed;
+        this.created = created;
+        this.batch = batch;
+    }
+
+    static TraceEvent tool(long time, String tool) {
+        return new TraceEvent(Kind.TOOL, time, tool, null, null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), false);
+    }
+
+    static TraceEvent mouse(long time, int id, int x, int y, int modifiersEx, int button, int clickCount) {
+        return new TraceEvent(Kind.MOUSE, time, null, new int[] { id, x, y, modifiersEx, button, clickCount }, null,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), false);
+    }
+
+    static TraceEvent view(long time, Rectangle view) {
+        return new TraceEvent(Kind.VIEW, time, null, null, view,
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), false);
+    }
+
+    static TraceEvent change(long time, List<ReMoDeLEntity> entities, List<String> removed, boolean batch) {
+        return new TraceEvent(Kind.CHANGE, time, null, null, null, entities, removed, Collections.emptyList(), batch);
+    }
+
+    static TraceEvent reset(long time, List<ReMoDeLEntity> entities) {
+        return new TraceEvent(Kind.RESET, time, null, null, null,
+                entities, Collections.emptyList(), Collections.emptyList(), false);
+    }
+
+    static TraceEvent created(long time, List<String> ids) {
+        return new TraceEvent(Kind.CREATED, time, null, null, null,
+                Collections.emptyList(), Collections.emptyList(), ids, false);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Nanoseconds since the recording started. */
+    public long getTime() {
+        return time;
+    }
+
+    /** TOOL: the name of the selected tool. */
+    public String getTool() {
+        return tool;
+    }
+
+    /** MOUSE: the AWT event id, e.g. MouseEvent.MOUSE_PRESSED. */
+    public int getMouseId() {
+        return mouse[0];
+    }
+
+    public int getX() {
+        return mouse[1];
+    }
+
+    public int getY() {
+        return mouse[2];
+    }
+
+    public int getModifiersEx() {
+        return mouse[3];
+    }
+
+    public int getButton() {
+        return mouse[4];
+    }
+
+    public int getClickCount() {
+        return mouse[5];
+    }
+
+    /** VIEW: the visible part of the canvas. */
+    public Rectangle getView() {
+        return view;
+    }
+
+    /** CHANGE: entities added or updated; RESET: every entity of the model. */
+    public List<ReMoDeLEntity> getEntities() {
+        return entities;
+    }
+
+    /** CHANGE: ids of removed entities. */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /** CREATED: ids of the entities the recorded input added, in the order it added them. */
+    public List<String> getCreated() {
+        return created;
+    }
+
+    /** CHANGE: whether the model reported the change as one batch. */
+    public boolean isBatch() {
+        return batch;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+import static com.example.swingapp.io.DocumentFormat.*;
+
+/**
+ * Reads an interaction trace written by TraceWriter.
+ *
+ * A trace cut short, e.g. because the editor was killed while recording,
+ * reads up to its last complete record.
+ */
+public class TraceReader {
+    private final ByteBuffer in;
+    private final int canvasWidth, canvasHeight;
+    private final String tool;
+    private final EntityCodec codec = new EntityCodec((String[]) null);
+    private long time;
+    private int prevX, prevY;
+
+    private TraceReader(ByteBuffer in) throws IOException {
+        this.in = in;
+        ByteBuffer h = record();
+        if (h == null) throw new IOException("trace has no header");
+        canvasWidth = readVarint32(h);
+        canvasHeight = readVarint32(h);
+        tool = readUtf8(h);
+    }
+
+    public static TraceReader open(Path file) throws IOException {
+        try (InputStream raw = Files.newInputStream(file)) {
+            byte[] magic = raw.readNBytes(4);
+            if (!Arrays.equals(magic, TraceWriter.MAGIC)) throw new IOException("not an interaction trace: " + file);
+            int version = (raw.read() << 8) | raw.read();
+            if (version < 0 || version > TraceWriter.VERSION) throw new IOException("unsupported trace version " + version);
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1 << 16];
+            try (InflaterInputStream z = new InflaterInputStream(raw)) {
+                for (int n; (n = z.read(chunk)) > 0; ) data.write(chunk, 0, n);
+            } catch (EOFException ex) {
+                // cut short: keep what inflated
+            }
+            return new TraceReader(ByteBuffer.wrap(data.toByteArray()));
+        }
+    }
+
+    public int getCanvasWidth() {
+        return canvasWidth;
+    }
+
+    public int getCanvasHeight() {
+        return canvasHeight;
+    }
+
+    /** The tool selected when recording started (empty if unknown). */
+    public String getTool() {
+        return tool;
+    }
+
+    /**
+     * The next record, or null at the end of the trace.
+     */
+    public TraceEvent next() throws IOException {
+        ByteBuffer r = record();
+        if (r == null) return null;
+        int k = r.get() & 0xFF;
+        if (k >= TraceEvent.Kind.values().length) throw new IOException("bad trace record kind " + k);
+        time += readVarint(r);
+        switch (TraceEvent.Kind.values()[k]) {
+            case TOOL:
+                return TraceEvent.tool(time, readUtf8(r));
+            case MOUSE: {
+                int id = readVarint32(r);
+                prevX += (int) readZigzag(r);
+                prevY += (int) readZigzag(r);
+                return TraceEvent.mouse(time, id, prevX, prevY, readVarint32(r), readVarint32(r), readVarint32(r));
+            }
+            case VIEW:
+                return TraceEvent.view(time, new Rectangle((int) readZigzag(r), (int) readZigzag(r), readVarint32(r), readVarint32(r)));
+            case CHANGE: {
+                boolean batch = r.get() != 0;
+                List<ReMoDeLEntity> entities = entities(r);
+                int n = readVarint32(r);
+                List<String> removed = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) removed.add(readUtf8(r));
+                return TraceEvent.change(time, entities, removed, batch);
+            }
+            case CREATED: {
+                int n = readVarint32(r);
+                List<String> ids = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) ids.add(readUtf8(r));
+                return TraceEvent.created(time, ids);
+            }
+            default:
+                return TraceEvent.reset(time, entities(r));
+        }
+    }
+
+    private List<ReMoDeLEntity> entities(ByteBuffer r) throws IOException {
+        int n = readVarint32(r);
+        if (n == 0) return Collections.emptyList();
+        List<ReMoDeLEntity> out = new ArrayList<>(n);
+        codec.reset();
+        for (int i = 0; i < n; i++) out.add(codec.read(r));
+        return out;
+    }
+
+    // the next complete length-prefixed record, or null
+    private ByteBuffer record() {
+        if (!in.hasRemaining()) return null;
+        int len;
+        try {
+            len = readVarint32(in);
+        } catch (IOException | RuntimeException ex) {
+            in.position(in.limit());
+            return null;
+        }
+        if (len > in.remaining()) {
+            in.position(in.limit());
+            return null;
+        }
+        ByteBuffer r = in.slice();
+        r.limit(len);
+        in.position(in.position() + len);
+        return r;
+    }
+}
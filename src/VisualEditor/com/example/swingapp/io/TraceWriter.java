@@ -0,0 +1,147 @@
+package com.example.swingapp.io;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an interaction trace: a header with the canvas size and the
+ * selected tool, then length-prefixed records, all deflated.
+ *
+ * Each record starts with its kind and the time since the previous record
+ * as a varint. Mouse coordinates are delta-encoded against the previous
+ * mouse record and entities use the document record layout, so a long
+ * drag costs a few bytes per event. Methods may be called from any
+ * thread; records are written in call order.
+ */
+public class TraceWriter implements Closeable {
+    static final byte[] MAGIC = { 'R', 'M', 'T', 'R' };
+    // 2: CREATED records
+    static final int VERSION = 2;
+
+    private final OutputStream out;
+    private final ByteSink rec = new ByteSink(256);
+    private final ByteSink frame = new ByteSink(256);
+    private final EntityCodec codec = new EntityCodec((Map<String, Integer>) null);
+    private final long start = System.nanoTime();
+    private long last;
+    private int prevX, prevY;
+
+    private TraceWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public static TraceWriter create(Path file, int canvasWidth, int canvasHeight, String tool) throws IOException {
+        OutputStream raw = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        raw.write(MAGIC);
+        raw.write(VERSION >>> 8);
+        raw.write(VERSION);
+        TraceWriter w = new TraceWriter(new DeflaterOutputStream(raw, new Deflater(Deflater.BEST_SPEED), 1 << 16, true));
+        ByteSink h = w.rec;
+        h.varint(canvasWidth);
+        h.varint(canvasHeight);
+        h.utf8(tool == null ? "" : tool);
+        w.emit();
+        return w;
+    }
+
+    public synchronized void tool(String tool) throws IOException {
+        begin(TraceEvent.Kind.TOOL);
+        rec.utf8(tool);
+        emit();
+    }
+
+    public synchronized void mouse(int id, int x, int y, int modifiersEx, int button, int clickCount) throws IOException {
+        begin(TraceEvent.Kind.MOUSE);
+        rec.varint(id);
+        rec.zigzag(x - prevX);
+        rec.zigzag(y - prevY);
+        rec.varint(modifiersEx);
+        rec.varint(button);
+        rec.varint(clickCount);
+        prevX = x;
+        prevY = y;
+        emit();
+    }
+
+    public synchronized void view(Rectangle r) throws IOException {
+        begin(TraceEvent.Kind.VIEW);
+        rec.zigzag(r.x);
+        rec.zigzag(r.y);
+        rec.varint(r.width);
+        rec.varint(r.height);
+        emit();
+    }
+
+    /**
+     * Entities added or updated and ids removed by one model event.
+     */
+    public synchronized void change(Collection<ReMoDeLEntity> entities, Collection<String> removed, boolean batch) throws IOException {
+        begin(TraceEvent.Kind.CHANGE);
+        rec.write(batch ? 1 : 0);
+        entities(entities);
+        rec.varint(removed.size());
+        for (String id : removed) rec.utf8(id);
+        emit();
+    }
+
+    /**
+     * Ids of entities a recorded input event added to the model. A replay
+     * creates them again under ids of its own.
+     */
+    public synchronized void created(Collection<String> ids) throws IOException {
+        begin(TraceEvent.Kind.CREATED);
+        rec.varint(ids.size());
+        for (String id : ids) rec.utf8(id);
+        emit();
+    }
+
+    /**
+     * The whole model, replacing whatever the trace held so far.
+     */
+    public synchronized void reset(Collection<ReMoDeLEntity> entities) throws IOException {
+        begin(TraceEvent.Kind.RESET);
+        entities(entities);
+        emit();
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void begin(TraceEvent.Kind kind) {
+        long now = System.nanoTime() - start;
+        rec.write(kind.ordinal());
+        rec.varint(Math.max(0, now - last));
+        last = Math.max(last, now);
+    }
+
+    private void entities(Collection<ReMoDeLEntity> entities) {
+        rec.varint(entities.size());
+        codec.reset();
+        for (ReMoDeLEntity e : entities) codec.write(rec, e);
+    }
+
+    private void emit() throws IOException {
+        frame.reset();
+        frame.varint(rec.size());
+        frame.write(rec.array(), 0, rec.size());
+        frame.writeTo(out);
+        rec.reset();
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.swingapp.io.json;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.monitor.FileIoEvent;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * JSON import/export of ReMoDeL entities:
+ *
+ * <pre>
+ * {"format": "remodel", "version": 1, "entities": [
+ *   {"id": "...", "type": "Concept", "properties": {"label": "A", "x1": 10, ...}},
+ *   ...
+ * ]}
+ * </pre>
+ *
+ * A bare array of entity objects is accepted as well. The type selects the
+ * entity class (Concept, Connective, Feature, Region). int[] properties are
+ * plain number arrays and Path2D properties are objects of the form
+ * {"$type": "path", "winding": 1, "segments": [type, coords..., ...]}.
+ *
+ * Both directions stream: export writes entity by entity, import pulls
+ * entities off a JsonReader and hands them to the model in batches of
+ * batchSize, so memory does not depend on the file size.
+ */
+public final class JsonDocument {
+    public static final String FORMAT = "remodel";
+    public static final int VERSION = 1;
+
+    private int batchSize = 4096;
+    private String indent;
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Pretty-print exported files (null: compact).
+     */
+    public void setIndent(String indent) {
+        this.indent = indent;
+    }
+
+    // --- export -----------------------------------------------------------------------
+
+    /**
+     * Write the entities to target through a sibling temp file. progress (may be null) receives 0..100.
+     */
+    public void write(Path target, Collection<? extends ReMoDeLEntity> entities, IntConsumer progress) throws IOException {
+        FileIoEvent ev = new FileIoEvent();
+        ev.begin();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp), StandardCharsets.UTF_8), 1 << 16)) {
+            write(w, entities, progress);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (ev.shouldCommit()) {
+            ev.operation = "write";
+            ev.format = "json";
+            ev.path = target.toString();
+            ev.bytes = Files.size(target);
+            ev.entities = entities.size();
+            ev.commit();
+        }
+    }
+
+    public void write(Writer out, Collection<? extends ReMoDeLEntity> entities, IntConsumer progress) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.setIndent(indent);
+        w.beginObject();
+        w.name("format").value(FORMAT);
+        w.name("version").value(VERSION);
+        w.name("entities").beginArray();
+        int total = entities.size(), done = 0, lastPercent = -1;
+        for (ReMoDeLEntity e : entities) {
+            w.beginObject();
+            w.name("id").value(e.getId());
+            w.name("type").value(e.getType());
+            w.name("properties").beginObject();
+            for (Map.Entry<String, Object> p : e.getProperties().entrySet()) {
+                w.name(p.getKey());
+                value(w, p.getValue());
+            }
+            w.endObject();
+            w.endObject();
+            done++;
+            if (progress != null && total > 0) {
+                int percent = (int) (100L * done / total);
+                if (percent != lastPercent) {
+                    progress.accept(percent);
+                    lastPercent = percent;
+                }
+            }
+        }
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+
+    private static void value(JsonWriter w, Object v) throws IOException {
+        if (v == null) {
+            w.nullValue();
+        } else if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+            w.value(((Number) v).longValue());
+        } else if (v instanceof Double || v instanceof Float) {
+            w.value(((Number) v).doubleValue());
+        } else if (v instanceof Boolean) {
+            w.value((Boolean) v);
+        } else if (v instanceof String) {
+            w.value((String) v);
+        } else if (v instanceof int[]) {
+            w.beginArray();
+            for (int x : (int[]) v) w.value(x);
+            w.endArray();
+        } else if (v instanceof Path2D) {
+            path(w, (Path2D) v);
+        } else if (v instanceof Map) {
+            w.beginObject();
+            for (Map.Entry<?, ?> en : ((Map<?, ?>) v).entrySet()) {
+                w.name(String.valueOf(en.getKey()));
+                value(w, en.getValue());
+            }
+            w.endObject();
+        } else if (v instanceof Collection) {
+            w.beginArray();
+            for (Object x : (Collection<?>) v) value(w, x);
+            w.endArray();
+        } else {
+            // unknown value types are kept as their string form
+            w.value(v.toString());
+        }
+    }
+
+    private static void path(JsonWriter w, Path2D p) throws IOException {
+        w.beginObject();
+        w.name("$type").value("path");
+        w.name("winding").value(p.getWindingRule());
+        w.name("segments").beginArray();
+        double[] c = new double[6];
+        for (PathIterator it = p.getPathIterator(null); !it.isDone(); it.next()) {
+            int t = it.currentSegment(c);
+            w.value(t);
+            for (int i = 0; i < coordCount(t); i++) {
+                if (c[i] == Math.rint(c[i]) && Math.abs(c[i]) < 1e15) w.value((long) c[i]);
+                else w.value(c[i]);
+            }
+        }
+        w.endArray();
+        w.endObject();
+    }
+
+    // --- import -----------------------------------------------------------------------
+
+    /**
+     * Stream the entities of a JSON file into model. progress (may be null) receives 0..100.
+     * Returns the number of entities read.
+     */
+    public long read(Path file, ReMoDeLModel model, IntConsumer progress) throws IOException {
+        FileIoEvent ev = new FileIoEvent();
+        ev.begin();
+        long size = Math.max(1, Files.size(file));
+        long count;
+        // JsonReader buffers on its own
+        try (Reader r = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            count = read(r, model, progress == null ? null : chars -> progress.accept((int) Math.min(100, 100 * chars / size)));
+        }
+        if (ev.shouldCommit()) {
+            ev.operation = "read";
+            ev.format = "json";
+            ev.path = file.toString();
+            ev.bytes = size;
+            ev.entities = count;
+            ev.commit();
+        }
+        return count;
+    }
+
+    /**
+     * Stream the entities read from in into model, one model batch per batchSize
+     * entities. progress (may be null) receives the number of chars consumed.
+     */
+    public long read(Reader in, ReMoDeLModel model, LongConsumer progress) throws IOException {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        JsonReader r = new JsonReader(in);
+        List<ReMoDeLEntity> batch = new ArrayList<>(batchSize);
+        long count = 0;
+        if (r.peek() == JsonReader.Token.BEGIN_ARRAY) {
+            count = readEntities(r, model, batch, progress);
+        } else {
+            r.beginObject();
+            while (r.hasNext()) {
+                String name = r.nextName();
+                if (name.equals("entities")) {
+                    count += readEntities(r, model, batch, progress);
+                } else if (name.equals("version")) {
+                    int v = r.nextInt();
+                    if (v > VERSION) throw new IOException("unsupported JSON document version " + v);
+                } else {
+                    r.skipValue();
+                }
+            }
+            r.endObject();
+        }
+        if (r.peek() != JsonReader.Token.END_DOCUMENT) throw new IOException("trailing data after JSON document");
+        return count;
+    }
+
+    private long readEntities(JsonReader r, ReMoDeLModel model, List<ReMoDeLEntity> batch, LongConsumer progress) throws IOException {
+        long count = 0;
+        r.beginArray();
+        while (r.hasNext()) {
+            batch.add(readEntity(r));
+            count++;
+            if (batch.size() >= batchSize) {
+                flush(model, batch);
+                if (progress != null) progress.accept(r.getOffset());
+            }
+        }
+        r.endArray();
+        flush(model, batch);
+        if (progress != null) progress.accept(r.getOffset());
+        return count;
+    }
+
+    private static void flush(ReMoDeLModel model, List<ReMoDeLEntity> batch) {
+        if (batch.isEmpty()) return;
+        model.beginBatch();
+        try {
+            for (ReMoDeLEntity e : batch) model.addEntity(e);
+        } finally {
+            model.endBatch();
+        }
+        batch.clear();
+    }
+
+    private static ReMoDeLEntity readEntity(JsonReader r) throws IOException {
+        String id = null, type = null;
+        Map<String, Object> props = new HashMap<>();
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            switch (name) {
+                case "id": id = r.peek() == JsonReader.Token.NULL ? nullValue(r) : r.nextString(); break;
+                case "type": type = r.peek() == JsonReader.Token.NULL ? nullValue(r) : r.nextString(); break;
+                case "properties":
+                    r.beginObject();
+                    while (r.hasNext()) {
+                        String k = r.nextName();
+                        props.put(k, value(r));
+                    }
+                    r.endObject();
+                    break;
+                default: r.skipValue();
+            }
+        }
+        r.endObject();
+        ReMoDeLEntity e = ReMoDeLEntity.create(type, id);
+        if (type != null) e.setType(type);
+        e.setProperties(props);
+        return e;
+    }
+
+    private static String nullValue(JsonReader r) throws IOException {
+        r.nextNull();
+        return null;
+    }
+
+    private static Object value(JsonReader r) throws IOException {
+        switch (r.peek()) {
+            case NULL: r.nextNull(); return null;
+            case BOOLEAN: return r.nextBoolean();
+            case NUMBER: return r.nextNumber();
+            case STRING: return r.nextString();
+            case BEGIN_ARRAY: return array(r);
+            case BEGIN_OBJECT: {
+                Map<String, Object> m = new LinkedHashMap<>();
+                r.beginObject();
+                while (r.hasNext()) {
+                    String k = r.nextName();
+                    m.put(k, value(r));
+                }
+                r.endObject();
+                return "path".equals(m.get("$type")) ? toPath(m) : m;
+            }
+            default: throw new IOException("unexpected " + r.peek() + " at offset " + r.getOffset());
+        }
+    }
+
+    // arrays of ints become int[] (routes, freehand points), anything else a List
+    private static Object array(JsonReader r) throws IOException {
+        int[] ints = new int[16];
+        int n = 0;
+        List<Object> list = null;
+        r.beginArray();
+        while (r.hasNext()) {
+            Object v = value(r);
+            if (list == null && v instanceof Integer) {
+                if (n == ints.length) ints = Arrays.copyOf(ints, n * 2);
+                ints[n++] = (Integer) v;
+                continue;
+            }
+            if (list == null) {
+                list = new ArrayList<>(n + 1);
+                for (int i = 0; i < n; i++) list.add(ints[i]);
+            }
+            list.add(v);
+        }
+        r.endArray();
+        return list != null ? list : Arrays.copyOf(ints, n);
+    }
+
+    private static Path2D toPath(Map<String, Object> m) throws IOException {
+        Object w = m.get("winding");
+        Path2D.Double p = new Path2D.Double(w instanceof Number ? ((Number) w).intValue() : Path2D.WIND_NON_ZERO);
+        Object segs = m.get("segments");
+        List<Number> s = new ArrayList<>();
+        if (segs instanceof int[]) {
+            for (int x : (int[]) segs) s.add(x);
+        } else if (segs instanceof List) {
+            for (Object o : (List<?>) segs) {
+                if (!(o instanceof Number)) throw new IOException("bad path segment value " + o);
+                s.add((Number) o);
+            }
+        }
+        double[] c = new double[6];
+        for (int i = 0; i < s.size(); ) {
+            int t = s.get(i++).intValue();
+            int k = coordCount(t);
+            if (t < 0 || t > PathIterator.SEG_CLOSE || i + k > s.size()) throw new IOException("bad path segment " + t);
+            for (int j = 0; j < k; j++) c[j] = s.get(i++).doubleValue();
+            switch (t) {
+                case PathIterator.SEG_MOVETO: p.moveTo(c[0], c[1]); break;
+                case PathIterator.SEG_LINETO: p.lineTo(c[0], c[1]); break;
+                case PathIterator.SEG_QUADTO: p.quadTo(c[0], c[1], c[2], c[3]); break;
+                case PathIterator.SEG_CUBICTO: p.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]); break;
+                default: p.closePath();
+            }
+        }
+        return p;
+    }
+
+    private static int coordCount(int segType) {
+        return segType == PathIterator.SEG_CLOSE ? 0 : segType == PathIterator.SEG_QUADTO ? 4 : segType == PathIterator.SEG_CUBICTO ? 6 : 2;
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.swingapp.io.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser for RFC 8259 JSON over a Reader.
+ *
+ * The caller walks the document token by token (peek(), beginObject(),
+ * nextName(), nextInt(), ...), so memory stays bounded by the nesting depth
+ * and the longest string, not by the size of the input. Input is read through
+ * one fixed char buffer; strings without escapes are cut straight out of it
+ * and object keys go through a small cache, since the same property names
+ * repeat for every entity.
+ */
+public final class JsonReader implements Closeable {
+    public enum Token { BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    private static final int EMPTY_DOCUMENT = 0, NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2, NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4, DANGLING_NAME = 5, NONEMPTY_OBJECT = 6;
+
+    private final Reader in;
+    private final char[] buf = new char[1 << 16];
+    private int pos, limit;
+    private long bufStart; // input offset of buf[0]
+
+    private int[] stack = new int[32];
+    private int depth;
+    private Token peeked;
+
+    private final StringBuilder sb = new StringBuilder();
+    private final String[] nameCache = new String[1024];
+
+    public JsonReader(Reader in) {
+        if (in == null) throw new IllegalArgumentException("reader is null");
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Number of chars consumed so far.
+     */
+    public long getOffset() {
+        return bufStart + pos;
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) return peeked;
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                pos--;
+                return peeked = peekValue();
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                if (c != ',') throw syntax("expected ',' or ']'");
+                return peeked = peekValue();
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') return peeked = Token.END_OBJECT;
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') throw syntax("expected ',' or '}'");
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') throw syntax("expected a name");
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') throw syntax("expected ':'");
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return peeked = peekValue();
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return peeked = peekValue();
+            default:
+                if (nextNonWhitespaceOrEof() == -1) return peeked = Token.END_DOCUMENT;
+                throw syntax("trailing data after the document");
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_ARRAY && t != Token.END_OBJECT && t != Token.END_DOCUMENT;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString(true);
+    }
+
+    /**
+     * A string value; numbers are returned in their literal form.
+     */
+    public String nextString() throws IOException {
+        Token t = peek();
+        if (t == Token.NUMBER) {
+            peeked = null;
+            return readNumberLiteral();
+        }
+        expect(Token.STRING);
+        return readString(false);
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        if (buf(0) == 't') {
+            literal("true");
+            return true;
+        }
+        literal("false");
+        return false;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        literal("null");
+    }
+
+    public long nextLong() throws IOException {
+        Number n = nextNumber();
+        if (n instanceof Double) {
+            double d = n.doubleValue();
+            if (d != (long) d) throw syntax("expected an integer but was " + d);
+            return (long) d;
+        }
+        return n.longValue();
+    }
+
+    public int nextInt() throws IOException {
+        long v = nextLong();
+        if (v != (int) v) throw syntax("integer out of range: " + v);
+        return (int) v;
+    }
+
+    public double nextDouble() throws IOException {
+        return nextNumber().doubleValue();
+    }
+
+    /**
+     * The next number as an Integer, Long or Double, whichever fits its literal.
+     */
+    public Number nextNumber() throws IOException {
+        expect(Token.NUMBER);
+        // fast path: plain integers are accumulated without building a string
+        ensure(1);
+        boolean negative = buf[pos] == '-';
+        int p = negative ? 1 : 0;
+        long v = 0;
+        int digits = 0;
+        while (true) {
+            if (pos + p >= limit && !fill(p + 1)) break;
+            char c = buf[pos + p];
+            if (c < '0' || c > '9') break;
+            if (digits >= 18) { v = -1; break; } // may overflow: take the slow path
+            v = v * 10 + (c - '0');
+            digits++;
+            p++;
+        }
+        if (v >= 0 && digits > 0) {
+            int end = pos + p;
+            char c = end < limit || fill(p + 1) ? buf[pos + p] : ' ';
+            if (c != '.' && c != 'e' && c != 'E') {
+                pos += p;
+                if (digits > 1 && buf[pos - digits] == '0') throw syntax("leading zero in number");
+                long r = negative ? -v : v;
+                if (r == (int) r) return (int) r;
+                return r;
+            }
+        }
+        String lit = readNumberLiteral();
+        try {
+            if (lit.indexOf('.') < 0 && lit.indexOf('e') < 0 && lit.indexOf('E') < 0) {
+                try {
+                    return Long.parseLong(lit);
+                } catch (NumberFormatException ex) {
+                    // integer beyond long: keep it as a double
+                }
+            }
+            return Double.parseDouble(lit);
+        } catch (NumberFormatException ex) {
+            throw syntax("malformed number " + lit);
+        }
+    }
+
+    /**
+     * Skip the next value, including everything nested in it.
+     */
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            Token t = peek();
+            switch (t) {
+                case BEGIN_ARRAY: beginArray(); level++; break;
+                case BEGIN_OBJECT: beginObject(); level++; break;
+                case END_ARRAY: endArray(); level--; break;
+                case END_OBJECT: endObject(); level--; break;
+                case NAME: nextName(); break;
+                case STRING: skipString(); break;
+                case NUMBER: peeked = null; skipNumber(); break;
+                case BOOLEAN: nextBoolean(); break;
+                case NULL: nextNull(); break;
+                default: throw syntax("unexpected end of document");
+            }
+        } while (level > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // --- scanning ---------------------------------------------------------------------
+
+    private Token peekValue() throws IOException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{': return Token.BEGIN_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+            case 'f':
+                pos--;
+                return Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntax("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void expect(Token t) throws IOException {
+        Token p = peek();
+        if (p != t) throw syntax("expected " + t + " but was " + p);
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] s = new int[depth * 2];
+            System.arraycopy(stack, 0, s, 0, depth);
+            stack = s;
+        }
+        stack[depth++] = scope;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = nextNonWhitespaceOrEof();
+        if (c == -1) throw syntax("unexpected end of input");
+        return c;
+    }
+
+    private int nextNonWhitespaceOrEof() throws IOException {
+        while (true) {
+            if (pos == limit && !fill(1)) return -1;
+            char c = buf[pos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+        }
+    }
+
+    private char buf(int ahead) throws IOException {
+        ensure(ahead + 1);
+        return buf[pos + ahead];
+    }
+
+    private void ensure(int n) throws IOException {
+        if (pos + n > limit && !fill(n)) throw syntax("unexpected end of input");
+    }
+
+    // make at least n chars available from pos; false at end of input
+    private boolean fill(int n) throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            bufStart += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < n) {
+            int r = in.read(buf, limit, buf.length - limit);
+            if (r < 0) return false;
+            limit += r;
+        }
+        return true;
+    }
+
+    private void literal(String word) throws IOException {
+        ensure(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            if (buf[pos + i] != word.charAt(i)) throw syntax("expected " + word);
+        }
+        pos += word.length();
+    }
+
+    private String readNumberLiteral() throws IOException {
+        sb.setLength(0);
+        while (true) {
+            if (pos == limit && !fill(1)) break;
+            char c = buf[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                sb.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (sb.length() == 0) throw syntax("expected a number");
+        return sb.toString();
+    }
+
+    private void skipNumber() throws IOException {
+        readNumberLiteral();
+    }
+
+    // the opening quote has been consumed
+    private String readString(boolean name) throws IOException {
+        // fast path: the whole string sits in the buffer without escapes
+        for (int i = pos; i < limit; i++) {
+            char c = buf[i];
+            if (c == '"') {
+                String s = name ? cachedName(buf, pos, i - pos) : new String(buf, pos, i - pos);
+                pos = i + 1;
+                return s;
+            }
+            if (c == '\\' || c < 0x20) break;
+        }
+        sb.setLength(0);
+        while (true) {
+            if (pos == limit && !fill(1)) throw syntax("unterminated string");
+            char c = buf[pos++];
+            if (c == '"') break;
+            if (c == '\\') {
+                sb.append(readEscape());
+            } else if (c < 0x20) {
+                throw syntax("control character in string");
+            } else {
+                sb.append(c);
+            }
+        }
+        if (name) {
+            String s = sb.toString();
+            return cachedName(s.toCharArray(), 0, s.length());
+        }
+        return sb.toString();
+    }
+
+    private void skipString() throws IOException {
+        expect(Token.STRING);
+        while (true) {
+            if (pos == limit && !fill(1)) throw syntax("unterminated string");
+            char c = buf[pos++];
+            if (c == '"') return;
+            if (c == '\\') readEscape();
+        }
+    }
+
+    private char readEscape() throws IOException {
+        ensure(1);
+        char c = buf[pos++];
+        switch (c) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u': {
+                ensure(4);
+                int v = 0;
+                for (int i = 0; i < 4; i++) {
+                    int d = Character.digit(buf[pos++], 16);
+                    if (d < 0) throw syntax("bad \\u escape");
+                    v = (v << 4) | d;
+                }
+                return (char) v;
+            }
+            default: throw syntax("bad escape \\" + c);
+        }
+    }
+
+    private String cachedName(char[] chars, int off, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + chars[off + i];
+        int slot = (h ^ (h >>> 16)) & (nameCache.length - 1);
+        String s = nameCache[slot];
+        if (s != null && s.length() == len) {
+            boolean same = true;
+            for (int i = 0; i < len && same; i++) same = s.charAt(i) == chars[off + i];
+            if (same) return s;
+        }
+        s = new String(chars, off, len);
+        nameCache[slot] = s;
+        return s;
+    }
+
+    private IOException syntax(String msg) {
+        return new IOException("malformed JSON: " + msg + " at offset " + getOffset());
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.swingapp.io.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming JSON writer; the counterpart of JsonReader.
+ *
+ * Values are written straight through to the underlying Writer (which
+ * should be buffered), so documents of any size can be produced with
+ * constant memory. Output is compact unless an indent is set.
+ */
+public final class JsonWriter implements Closeable, Flushable {
+    private static final int EMPTY_DOCUMENT = 0, NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2, NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4, DANGLING_NAME = 5, NONEMPTY_OBJECT = 6;
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) ESCAPES[i] = String.format("\\u%04x", i);
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+    }
+
+    private final Writer out;
+    private int[] stack = new int[32];
+    private int depth;
+    private String indent;
+
+    public JsonWriter(Writer out) {
+        if (out == null) throw new IllegalArgumentException("writer is null");
+        this.out = out;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Pretty-print with the given indent per level (null or empty: compact).
+     */
+    public void setIndent(String indent) {
+        this.indent = indent == null || indent.isEmpty() ? null : indent;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        out.write('[');
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        out.write('{');
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) throw new IllegalArgumentException("name is null");
+        int scope = stack[depth - 1];
+        if (scope == NONEMPTY_OBJECT) {
+            out.write(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("name outside an object");
+        }
+        newline();
+        stack[depth - 1] = DANGLING_NAME;
+        string(name);
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) throw new IllegalArgumentException("not a JSON number: " + value);
+        beforeValue();
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            // keep a fraction so it reads back as a double
+            out.write(Long.toString((long) value));
+            out.write(".0");
+        } else {
+            out.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+        if (depth > 1 || stack[0] != NONEMPTY_DOCUMENT) throw new IOException("incomplete JSON document");
+    }
+
+    private void beforeValue() throws IOException {
+        int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                newline();
+                return;
+            case NONEMPTY_ARRAY:
+                out.write(',');
+                newline();
+                return;
+            case DANGLING_NAME:
+                out.write(indent != null ? ": " : ":");
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return;
+            default:
+                throw new IllegalStateException(scope == NONEMPTY_DOCUMENT ? "JSON must have only one top-level value" : "value without a name");
+        }
+    }
+
+    private JsonWriter close(int empty, int nonempty, char bracket) throws IOException {
+        int scope = stack[depth - 1];
+        if (scope != empty && scope != nonempty) throw new IllegalStateException("nesting problem");
+        depth--;
+        if (scope == nonempty) newline();
+        out.write(bracket);
+        return this;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] s = new int[depth * 2];
+            System.arraycopy(stack, 0, s, 0, depth);
+            stack = s;
+        }
+        stack[depth++] = scope;
+    }
+
+    private void newline() throws IOException {
+        if (indent == null) return;
+        out.write('\n');
+        for (int i = 1; i < depth; i++) out.write(indent);
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        int last = 0, n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            String rep;
+            if (c < 128) {
+                rep = ESCAPES[c];
+                if (rep == null) continue;
+            } else if (c == '\u2028') {
+                rep = "\\u2028";
+            } else if (c == '\u2029') {
+                rep = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i) out.write(s, last, i - last);
+            out.write(rep);
+            last = i + 1;
+        }
+        if (last < n) out.write(s, last, n - last);
+        out.write('"');
+    }
+}
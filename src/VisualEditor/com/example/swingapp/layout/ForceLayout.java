@@ -0,0 +1,414 @@
+package com.example.swingapp.layout;
+
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.model.Region;
+import com.example.swingapp.render.ShapeKind;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Force-directed auto-layout (Fruchterman-Reingold with Barnes-Hut repulsion)
+ * over the entities of a ReMoDeLModel, using Connectives as springs.
+ *
+ * The model is snapshotted when a layout starts; force passes run on a
+ * background thread and are split across a ForkJoinPool. Intermediate
+ * positions are written back in batched model updates on the publisher
+ * executor (the EDT by default): placed entities are moved, box corners
+ * and freehand points alike, without being resized or flipped. Hand-drawn
+ * lines and arrows are not laid out.
+ */
+public class ForceLayout {
+    private static final int DEFAULT_W = 80, DEFAULT_H = 40;
+    // nodes per fork-join leaf task
+    private static final int CHUNK = 256;
+
+    private final ReMoDeLModel model;
+    private int iterations = 300;
+    private double idealEdgeLength = 150;
+    private double theta = 0.8;
+    private double gravity = 0.02;
+    private int publishEvery = 10;
+    private long seed = 42L;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private Executor publisher = SwingUtilities::invokeLater;
+
+    public ForceLayout(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    public void setIdealEdgeLength(double len) {
+        this.idealEdgeLength = Math.max(1, len);
+    }
+
+    /**
+     * Barnes-Hut opening angle; 0 is exact O(n^2), larger is faster and coarser.
+     */
+    public void setTheta(double theta) {
+        this.theta = Math.max(0, theta);
+    }
+
+    public void setGravity(double gravity) {
+        this.gravity = Math.max(0, gravity);
+    }
+
+    /**
+     * Publish intermediate positions every n iterations (0 = only the final result).
+     */
+    public void setPublishEvery(int n) {
+        this.publishEvery = Math.max(0, n);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool == null ? ForkJoinPool.commonPool() : pool;
+    }
+
+    /**
+     * Executor on which model updates are applied. Defaults to the Swing EDT.
+     */
+    public void setPublisher(Executor publisher) {
+        this.publisher = publisher == null ? SwingUtilities::invokeLater : publisher;
+    }
+
+    /**
+     * Lay out every node entity in the model.
+     */
+    public LayoutJob start() {
+        Graph g = snapshot();
+        Arrays.fill(g.movable, true);
+        g.scatterUnplaced(new Random(seed), idealEdgeLength);
+        return launch(g, idealEdgeLength * Math.sqrt(Math.max(1, g.n)) / 4.0);
+    }
+
+    /**
+     * Re-layout only the nodes within the given number of hops of nodeId
+     * (typically a node that was just added). All other nodes stay fixed
+     * but still repel the movable ones.
+     */
+    public LayoutJob startNeighborhood(String nodeId, int hops) {
+        Graph g = snapshot();
+        Integer start = g.index.get(nodeId);
+        if (start == null) throw new IllegalArgumentException("unknown node: " + nodeId);
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[] { start, 0 });
+        g.movable[start] = true;
+        while (!queue.isEmpty()) {
+            int[] cur = queue.poll();
+            if (cur[1] >= hops) continue;
+            for (int e = g.adjStart[cur[0]]; e < g.adjStart[cur[0] + 1]; e++) {
+                int nb = g.adj[e];
+                if (!g.movable[nb]) {
+                    g.movable[nb] = true;
+                    queue.add(new int[] { nb, cur[1] + 1 });
+                }
+            }
+        }
+        g.placeNearNeighbors(new Random(seed), idealEdgeLength);
+        return launch(g, idealEdgeLength);
+    }
+
+    private LayoutJob launch(Graph g, double startTemperature) {
+        LayoutJob job = new LayoutJob();
+        Thread t = new Thread(() -> {
+            try {
+                run(g, job, startTemperature);
+            } catch (Throwable ex) {
+                job.fail(ex);
+                ex.printStackTrace();
+            } finally {
+                job.finish();
+            }
+        }, "force-layout");
+        t.setDaemon(true);
+        t.start();
+        return job;
+    }
+
+    private void run(Graph g, LayoutJob job, double startTemperature) {
+        int n = g.n;
+        if (n == 0) return;
+        double k = idealEdgeLength;
+        double k2 = k * k;
+        double theta2 = theta * theta;
+        double[] dispX = new double[n];
+        double[] dispY = new double[n];
+        QuadTree tree = new QuadTree();
+        AtomicBoolean inFlight = new AtomicBoolean(false);
+
+        for (int it = 0; it < iterations && !job.isCancelled(); it++) {
+            tree.build(g.x, g.y, n);
+            pool.invoke(new ForceTask(g, tree, dispX, dispY, theta2, k2, k, 0, n));
+
+            // centroid of the whole drawing for the gravity term
+            double gx = 0, gy = 0;
+            for (int i = 0; i < n; i++) { gx += g.x[i]; gy += g.y[i]; }
+            gx /= n; gy /= n;
+
+            double temp = startTemperature * (1.0 - (double) it / iterations);
+            for (int i = 0; i < n; i++) {
+                if (!g.movable[i]) continue;
+                double dx = dispX[i] - gravity * (g.x[i] - gx);
+                double dy = dispY[i] - gravity * (g.y[i] - gy);
+                double len = Math.hypot(dx, dy);
+                if (len > 1e-9) {
+                    double step = Math.min(len, temp) / len;
+                    g.x[i] += dx * step;
+                    g.y[i] += dy * step;
+                }
+            }
+            job.setIteration(it + 1);
+
+            // stream progress, but never queue more than one batch at a time
+            if (publishEvery > 0 && (it + 1) % publishEvery == 0 && inFlight.compareAndSet(false, true)) {
+                Runnable apply = batchFor(g);
+                publisher.execute(() -> {
+                    try {
+                        apply.run();
+                    } finally {
+                        inFlight.set(false);
+                    }
+                });
+            }
+        }
+        // always publish the last computed positions, also after cancel
+        publisher.execute(batchFor(g));
+    }
+
+    /**
+     * Copy the current positions and return a task that writes them into the model as one batch.
+     */
+    private Runnable batchFor(Graph g) {
+        List<String> ids = new ArrayList<>();
+        List<Map<String, Object>> changes = new ArrayList<>();
+        for (int i = 0; i < g.n; i++) {
+            if (!g.movable[i]) continue;
+            ids.add(g.ids[i]);
+            changes.add(moved(g, i));
+        }
+        return () -> {
+            model.beginBatch();
+            try {
+                // only the geometry: edits made while laying out are kept (removed entities stay removed)
+                for (int i = 0; i < ids.size(); i++) model.patch(ids.get(i), changes.get(i));
+            } finally {
+                model.endBatch();
+            }
+        };
+    }
+
+    // placed nodes are shifted as they were, keeping their corners' order and
+    // their freehand points; unplaced ones get a default box
+    private static Map<String, Object> moved(Graph g, int i) {
+        Map<String, Object> m = new HashMap<>();
+        double[] b = g.box[i];
+        if (b == null) {
+            int x1 = (int) Math.round(g.x[i] - g.w[i] / 2.0);
+            int y1 = (int) Math.round(g.y[i] - g.h[i] / 2.0);
+            m.put("x1", x1);
+            m.put("y1", y1);
+            m.put("x2", x1 + g.w[i]);
+            m.put("y2", y1 + g.h[i]);
+            return m;
+        }
+        int dx = (int) Math.round(g.x[i] - g.x0[i]);
+        int dy = (int) Math.round(g.y[i] - g.y0[i]);
+        m.put("x1", (int) Math.round(b[0]) + dx);
+        m.put("y1", (int) Math.round(b[1]) + dy);
+        m.put("x2", (int) Math.round(b[2]) + dx);
+        m.put("y2", (int) Math.round(b[3]) + dy);
+        int[] pts = g.points[i];
+        if (pts != null) {
+            int[] p = pts.clone();
+            for (int j = 0; j + 1 < p.length; j += 2) {
+                p[j] += dx;
+                p[j + 1] += dy;
+            }
+            m.put("points", p);
+        }
+        return m;
+    }
+
+    private Graph snapshot() {
+        List<ReMoDeLEntity> all = model.getAll();
+        List<ReMoDeLEntity> nodes = new ArrayList<>();
+        List<Connective> edges = new ArrayList<>();
+        for (ReMoDeLEntity e : all) {
+            if (e instanceof Connective) edges.add((Connective) e);
+            else if (e instanceof Region) continue;
+            // hand-drawn lines and arrows point somewhere; they are not boxes to place
+            else if (isFreeConnector(e)) continue;
+            else nodes.add(e);
+        }
+        Graph g = new Graph(nodes.size());
+        for (int i = 0; i < g.n; i++) {
+            ReMoDeLEntity e = nodes.get(i);
+            g.ids[i] = e.getId();
+            g.index.put(e.getId(), i);
+            Object ox1 = e.get("x1"), oy1 = e.get("y1"), ox2 = e.get("x2"), oy2 = e.get("y2");
+            boolean placed = ox1 instanceof Number && oy1 instanceof Number;
+            double x1 = placed ? ((Number) ox1).doubleValue() : 0;
+            double y1 = placed ? ((Number) oy1).doubleValue() : 0;
+            g.w[i] = placed && ox2 instanceof Number ? Math.max(4, (int) Math.abs(((Number) ox2).doubleValue() - x1)) : DEFAULT_W;
+            g.h[i] = placed && oy2 instanceof Number ? Math.max(4, (int) Math.abs(((Number) oy2).doubleValue() - y1)) : DEFAULT_H;
+            g.placed[i] = placed;
+            if (placed) {
+                double x2 = ox2 instanceof Number ? ((Number) ox2).doubleValue() : x1 + g.w[i];
+                double y2 = oy2 instanceof Number ? ((Number) oy2).doubleValue() : y1 + g.h[i];
+                g.box[i] = new double[] { x1, y1, x2, y2 };
+                if (e.get("points") instanceof int[]) g.points[i] = (int[]) e.get("points");
+                g.x[i] = (Math.min(x1, x2) + Math.max(x1, x2)) / 2.0;
+                g.y[i] = (Math.min(y1, y2) + Math.max(y1, y2)) / 2.0;
+            } else {
+                g.x[i] = g.w[i] / 2.0;
+                g.y[i] = g.h[i] / 2.0;
+            }
+            g.x0[i] = g.x[i];
+            g.y0[i] = g.y[i];
+        }
+        // adjacency in CSR form so each worker only reads its own rows
+        int[] degree = new int[g.n + 1];
+        List<int[]> pairs = new ArrayList<>();
+        for (Connective c : edges) {
+            Integer a = g.index.get(c.getFromId()), b = g.index.get(c.getToId());
+            if (a == null || b == null || a.equals(b)) continue;
+            pairs.add(new int[] { a, b });
+            degree[a]++;
+            degree[b]++;
+        }
+        for (int i = 0; i < g.n; i++) g.adjStart[i + 1] = g.adjStart[i] + degree[i];
+        g.adj = new int[g.adjStart[g.n]];
+        int[] fill = Arrays.copyOf(g.adjStart, g.n);
+        for (int[] p : pairs) {
+            g.adj[fill[p[0]]++] = p[1];
+            g.adj[fill[p[1]]++] = p[0];
+        }
+        return g;
+    }
+
+    private static boolean isFreeConnector(ReMoDeLEntity e) {
+        ShapeKind kind = ShapeKind.parse(e.get("tool"));
+        return kind != null && kind.isConnector() && !"text".equalsIgnoreCase(e.getType());
+    }
+
+    /**
+     * Immutable-topology working copy of the node graph.
+     */
+    private static final class Graph {
+        final int n;
+        final String[] ids;
+        final Map<String, Integer> index = new HashMap<>();
+        final double[] x, y;
+        // where the nodes started, and the placed ones' box and freehand points then
+        final double[] x0, y0;
+        final double[][] box;
+        final int[][] points;
+        final int[] w, h;
+        final boolean[] placed, movable;
+        final int[] adjStart;
+        int[] adj = new int[0];
+
+        Graph(int n) {
+            this.n = n;
+            ids = new String[n];
+            x = new double[n]; y = new double[n];
+            x0 = new double[n]; y0 = new double[n];
+            box = new double[n][];
+            points = new int[n][];
+            w = new int[n]; h = new int[n];
+            placed = new boolean[n];
+            movable = new boolean[n];
+            adjStart = new int[n + 1];
+        }
+
+        void scatterUnplaced(Random rnd, double k) {
+            double side = k * Math.sqrt(Math.max(1, n));
+            for (int i = 0; i < n; i++) {
+                if (placed[i]) continue;
+                x[i] = rnd.nextDouble() * side;
+                y[i] = rnd.nextDouble() * side;
+            }
+        }
+
+        // unplaced movable nodes start at the centroid of their placed neighbours
+        void placeNearNeighbors(Random rnd, double k) {
+            for (int i = 0; i < n; i++) {
+                if (placed[i] || !movable[i]) continue;
+                double sx = 0, sy = 0;
+                int cnt = 0;
+                for (int e = adjStart[i]; e < adjStart[i + 1]; e++) {
+                    int nb = adj[e];
+                    if (placed[nb]) { sx += x[nb]; sy += y[nb]; cnt++; }
+                }
+                double cx = cnt > 0 ? sx / cnt : 0, cy = cnt > 0 ? sy / cnt : 0;
+                x[i] = cx + (rnd.nextDouble() - 0.5) * k;
+                y[i] = cy + (rnd.nextDouble() - 0.5) * k;
+            }
+        }
+    }
+
+    /**
+     * Computes the net displacement (repulsion + spring attraction) for a range of nodes.
+     */
+    private static final class ForceTask extends RecursiveAction {
+        private final Graph g;
+        private final QuadTree tree;
+        private final double[] dispX, dispY;
+        private final double theta2, k2, k;
+        private final int from, to;
+
+        ForceTask(Graph g, QuadTree tree, double[] dispX, double[] dispY, double theta2, double k2, double k, int from, int to) {
+            this.g = g; this.tree = tree;
+            this.dispX = dispX; this.dispY = dispY;
+            this.theta2 = theta2; this.k2 = k2; this.k = k;
+            this.from = from; this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ForceTask(g, tree, dispX, dispY, theta2, k2, k, from, mid),
+                        new ForceTask(g, tree, dispX, dispY, theta2, k2, k, mid, to));
+                return;
+            }
+            int[] stack = QuadTree.newStack();
+            double[] f = new double[2];
+            for (int i = from; i < to; i++) {
+                if (!g.movable[i]) continue;
+                f[0] = 0; f[1] = 0;
+                tree.repulse(i, theta2, k2, stack, f);
+                for (int e = g.adjStart[i]; e < g.adjStart[i + 1]; e++) {
+                    int j = g.adj[e];
+                    double dx = g.x[i] - g.x[j], dy = g.y[i] - g.y[j];
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    // attraction d^2 / k along the edge
+                    f[0] -= dx * d / k;
+                    f[1] -= dy * d / k;
+                }
+                dispX[i] = f[0];
+                dispY[i] = f[1];
+            }
+        }
+    }
+}
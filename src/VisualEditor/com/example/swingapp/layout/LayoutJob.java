@@ -0,0 +1,58 @@
+package com.example.swingapp.layout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle for a running layout. Cancelling stops the force passes at the next
+ * iteration boundary; positions already published to the model are kept.
+ */
+public class LayoutJob {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean cancelled = false;
+    private volatile int iteration = 0;
+    private volatile Throwable failure;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Wait for the layout thread to finish (completed, cancelled or failed).
+     */
+    public void await() throws InterruptedException {
+        done.await();
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    void setIteration(int i) {
+        iteration = i;
+    }
+
+    void fail(Throwable t) {
+        failure = t;
+    }
+
+    void finish() {
+        done.countDown();
+    }
+}
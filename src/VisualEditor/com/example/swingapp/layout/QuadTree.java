@@ -0,0 +1,175 @@
+package com.example.swingapp.layout;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed Barnes-Hut quadtree over node centers.
+ * Rebuilt once per layout iteration; read concurrently by the force workers.
+ */
+final class QuadTree {
+    // nodes closer than this depth limit are aggregated into a single leaf
+    private static final int MAX_DEPTH = 24;
+
+    private double[] cx = new double[64];
+    private double[] cy = new double[64];
+    private double[] mass = new double[64];
+    private double[] minX = new double[64];
+    private double[] minY = new double[64];
+    private double[] size = new double[64];
+    private int[] firstChild = new int[64];
+    private int[] body = new int[64];
+    private int count;
+
+    private double[] x, y;
+
+    /**
+     * Rebuild the tree for the first n bodies of the given coordinate arrays.
+     */
+    void build(double[] xs, double[] ys, int n) {
+        this.x = xs;
+        this.y = ys;
+        count = 0;
+        if (n == 0) return;
+        double lx = Double.POSITIVE_INFINITY, ly = Double.POSITIVE_INFINITY;
+        double hx = Double.NEGATIVE_INFINITY, hy = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            lx = Math.min(lx, xs[i]); hx = Math.max(hx, xs[i]);
+            ly = Math.min(ly, ys[i]); hy = Math.max(hy, ys[i]);
+        }
+        double s = Math.max(1.0, Math.max(hx - lx, hy - ly)) * 1.0001;
+        newNode(lx, ly, s);
+        for (int i = 0; i < n; i++) insert(i);
+    }
+
+    /**
+     * Depth-first traversal stack large enough for one query (reuse per worker).
+     */
+    static int[] newStack() {
+        return new int[3 * MAX_DEPTH + 8];
+    }
+
+    /**
+     * Accumulate the repulsive displacement acting on body i into out[0], out[1].
+     * Uses the Fruchterman-Reingold repulsion k^2 / d with the Barnes-Hut
+     * opening criterion (cell size / distance) < theta.
+     */
+    void repulse(int i, double theta2, double k2, int[] stack, double[] out) {
+        if (count == 0) return;
+        double px = x[i], py = y[i];
+        double fx = 0, fy = 0;
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int node = stack[--sp];
+            double m = mass[node];
+            if (m == 0) continue;
+            double dx = px - cx[node], dy = py - cy[node];
+            double d2 = dx * dx + dy * dy;
+            boolean leaf = firstChild[node] < 0;
+            if (leaf) {
+                if (body[node] == i) {
+                    // don't repel from ourselves, but keep any coincident bodies in the same cell
+                    m -= 1;
+                    if (m <= 0) continue;
+                }
+            } else if (size[node] * size[node] >= theta2 * d2) {
+                int c = firstChild[node];
+                stack[sp++] = c;
+                stack[sp++] = c + 1;
+                stack[sp++] = c + 2;
+                stack[sp++] = c + 3;
+                continue;
+            }
+            if (d2 < 1e-4) {
+                // coincident: push apart along a deterministic per-node direction
+                dx = ((i * 7919) % 13 - 6) * 0.01 + 0.005;
+                dy = ((i * 104729) % 11 - 5) * 0.01 + 0.005;
+                d2 = dx * dx + dy * dy;
+            }
+            double f = m * k2 / d2;
+            fx += dx * f;
+            fy += dy * f;
+        }
+        out[0] += fx;
+        out[1] += fy;
+    }
+
+    private void insert(int b) {
+        double px = x[b], py = y[b];
+        int node = 0;
+        int depth = 0;
+        while (true) {
+            double m = mass[node];
+            if (m == 0) {
+                body[node] = b;
+                mass[node] = 1;
+                cx[node] = px;
+                cy[node] = py;
+                return;
+            }
+            if (firstChild[node] < 0) {
+                if (depth >= MAX_DEPTH) {
+                    // (nearly) coincident bodies: aggregate into this leaf
+                    cx[node] = (cx[node] * m + px) / (m + 1);
+                    cy[node] = (cy[node] * m + py) / (m + 1);
+                    mass[node] = m + 1;
+                    return;
+                }
+                // split leaf and push the existing body one level down
+                int old = body[node];
+                body[node] = -1;
+                subdivide(node);
+                int c = firstChild[node] + quadrant(node, cx[node], cy[node]);
+                body[c] = old;
+                mass[c] = m;
+                cx[c] = cx[node];
+                cy[c] = cy[node];
+            }
+            cx[node] = (cx[node] * m + px) / (m + 1);
+            cy[node] = (cy[node] * m + py) / (m + 1);
+            mass[node] = m + 1;
+            node = firstChild[node] + quadrant(node, px, py);
+            depth++;
+        }
+    }
+
+    private int quadrant(int node, double px, double py) {
+        double half = size[node] / 2.0;
+        int q = 0;
+        if (px >= minX[node] + half) q |= 1;
+        if (py >= minY[node] + half) q |= 2;
+        return q;
+    }
+
+    private void subdivide(int node) {
+        double half = size[node] / 2.0;
+        double lx = minX[node], ly = minY[node];
+        int c = newNode(lx, ly, half);
+        newNode(lx + half, ly, half);
+        newNode(lx, ly + half, half);
+        newNode(lx + half, ly + half, half);
+        firstChild[node] = c;
+    }
+
+    private int newNode(double lx, double ly, double s) {
+        if (count == mass.length) grow();
+        int n = count++;
+        cx[n] = 0; cy[n] = 0; mass[n] = 0;
+        minX[n] = lx; minY[n] = ly; size[n] = s;
+        firstChild[n] = -1;
+        body[n] = -1;
+        return n;
+    }
+
+    private void grow() {
+        int cap = mass.length * 2;
+        cx = Arrays.copyOf(cx, cap);
+        cy = Arrays.copyOf(cy, cap);
+        mass = Arrays.copyOf(mass, cap);
+        minX = Arrays.copyOf(minX, cap);
+        minY = Arrays.copyOf(minY, cap);
+        size = Arrays.copyOf(size, cap);
+        firstChild = Arrays.copyOf(firstChild, cap);
+        body = Arrays.copyOf(body, cap);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.swingapp.model;
 
+import java.util.HashMap;
+
 /**
  * Represents a Concept in the ReMoDeL domain.
  */
@@ -22,4 +24,12 @@ public class Concept extends ReMoDeLEntity {
     public void setLabel(String label) {
         put("label", label);
     }
+
+    @Override
+    public Concept copy() {
+        Concept r = new Concept(getId());
+        r.setType(getType());
+        r.setProperties(new HashMap<>(getProperties()));
+        return r;
+    }
 }
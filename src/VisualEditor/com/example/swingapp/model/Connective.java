@@ -1,5 +1,7 @@
 package com.example.swingapp.model;
 
+import java.util.HashMap;
+
 /**
  * Represents a Connective linking two entities (e.g. concept->concept)
  */
@@ -31,4 +33,12 @@ public class Connective extends ReMoDeLEntity {
     public void setToId(String id) {
         put("to", id);
     }
+
+    @Override
+    public Connective copy() {
+        Connective r = new Connective(getId());
+        r.setType(getType());
+        r.setProperties(new HashMap<>(getProperties()));
+        return r;
+    }
 }
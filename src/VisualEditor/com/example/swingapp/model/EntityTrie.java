@@ -0,0 +1,216 @@
+package com.example.swingapp.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Persistent map from entity id to the stored entity and its version:
+ * a hash array mapped trie.
+ *
+ * Each node covers 5 bits of the id's hash and holds, in hash order, a
+ * key/value pair per occupied slot; a pair with a null key holds a child
+ * node instead. Adding or removing copies the nodes on the path to the id,
+ * at most seven small arrays, and shares everything else with the trie it
+ * came from, which stays unchanged. Ids whose 32 hash bits all collide end
+ * up in a node below the last level that is searched linearly.
+ */
+final class EntityTrie implements Iterable<ReMoDeLEntity> {
+    private static final Node EMPTY_NODE = new Node(0, new Object[0]);
+    static final EntityTrie EMPTY = new EntityTrie(EMPTY_NODE, 0);
+
+    private final Node root;
+    private final int size;
+
+    private EntityTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Versioned get(String id) {
+        if (id == null) return null;
+        return (Versioned) root.get(id, hash(id), 0);
+    }
+
+    /**
+     * This trie with the entity under the id, replacing any entity there.
+     */
+    EntityTrie plus(String id, Versioned e) {
+        boolean[] added = new boolean[1];
+        Node r = root.put(id, hash(id), e, 0, added);
+        return r == root ? this : new EntityTrie(r, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * This trie without the id.
+     */
+    EntityTrie minus(String id) {
+        if (id == null) return this;
+        Node r = root.remove(id, hash(id), 0);
+        return r == root ? this : new EntityTrie(r, size - 1);
+    }
+
+    @Override
+    public Iterator<ReMoDeLEntity> iterator() {
+        return new Walk(root);
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node {
+        // unused below the last level, where the pairs are not in hash order
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Object get(String key, int hash, int shift) {
+            if (shift >= 32) {
+                for (int i = 0; i < slots.length; i += 2) if (key.equals(slots[i])) return slots[i + 1];
+                return null;
+            }
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) return null;
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = slots[i];
+            if (k == null) return ((Node) slots[i + 1]).get(key, hash, shift + 5);
+            return key.equals(k) ? slots[i + 1] : null;
+        }
+
+        Node put(String key, int hash, Object value, int shift, boolean[] added) {
+            if (shift >= 32) {
+                for (int i = 0; i < slots.length; i += 2) {
+                    if (key.equals(slots[i])) return slots[i + 1] == value ? this : with(i + 1, value);
+                }
+                added[0] = true;
+                Object[] s = Arrays.copyOf(slots, slots.length + 2);
+                s[slots.length] = key;
+                s[slots.length + 1] = value;
+                return new Node(0, s);
+            }
+            int bit = 1 << ((hash >>> shift) & 31);
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] s = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, s, 0, i);
+                s[i] = key;
+                s[i + 1] = value;
+                System.arraycopy(slots, i, s, i + 2, slots.length - i);
+                return new Node(bitmap | bit, s);
+            }
+            Object k = slots[i];
+            if (k == null) {
+                Node child = (Node) slots[i + 1];
+                Node c = child.put(key, hash, value, shift + 5, added);
+                return c == child ? this : with(i + 1, c);
+            }
+            if (key.equals(k)) return slots[i + 1] == value ? this : with(i + 1, value);
+            // two ids in one slot: push both down a level
+            String other = (String) k;
+            Node c = EMPTY_NODE.put(other, EntityTrie.hash(other), slots[i + 1], shift + 5, new boolean[1])
+                    .put(key, hash, value, shift + 5, added);
+            Node n = with(i + 1, c);
+            n.slots[i] = null;
+            return n;
+        }
+
+        Node remove(String key, int hash, int shift) {
+            if (shift >= 32) {
+                for (int i = 0; i < slots.length; i += 2) {
+                    if (key.equals(slots[i])) return new Node(0, without(i));
+                }
+                return this;
+            }
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) return this;
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = slots[i];
+            if (k == null) {
+                Node child = (Node) slots[i + 1];
+                Node c = child.remove(key, hash, shift + 5);
+                if (c == child) return this;
+                if (c.slots.length == 0) return new Node(bitmap & ~bit, without(i));
+                // a child left with a single entity is folded into this node
+                if (c.slots.length == 2 && c.slots[0] != null) {
+                    Node n = with(i + 1, c.slots[1]);
+                    n.slots[i] = c.slots[0];
+                    return n;
+                }
+                return with(i + 1, c);
+            }
+            if (!key.equals(k)) return this;
+            return new Node(bitmap & ~bit, without(i));
+        }
+
+        private Node with(int i, Object v) {
+            Object[] s = slots.clone();
+            s[i] = v;
+            return new Node(bitmap, s);
+        }
+
+        private Object[] without(int i) {
+            Object[] s = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, s, 0, i);
+            System.arraycopy(slots, i + 2, s, i, slots.length - i - 2);
+            return s;
+        }
+    }
+
+    // depth-first over the nodes; at most eight levels deep
+    private static final class Walk implements Iterator<ReMoDeLEntity> {
+        private final Node[] nodes = new Node[9];
+        private final int[] pos = new int[9];
+        private int depth;
+        private ReMoDeLEntity next;
+
+        Walk(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node n = nodes[depth];
+                int i = pos[depth];
+                if (i >= n.slots.length) {
+                    depth--;
+                    continue;
+                }
+                pos[depth] = i + 2;
+                if (n.slots[i] == null) {
+                    depth++;
+                    nodes[depth] = (Node) n.slots[i + 1];
+                    pos[depth] = 0;
+                } else {
+                    next = ((Versioned) n.slots[i + 1]).entity;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ReMoDeLEntity next() {
+            if (next == null) throw new NoSuchElementException();
+            ReMoDeLEntity e = next;
+            advance();
+            return e;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.swingapp.model;
 
+import java.util.HashMap;
+
 /**
  * Represents a Feature attached to a Concept or other entity.
  */
@@ -21,4 +23,12 @@ public class Feature extends ReMoDeLEntity {
     public void setValue(Object v) {
         put("value", v);
     }
+
+    @Override
+    public Feature copy() {
+        Feature r = new Feature(getId());
+        r.setType(getType());
+        r.setProperties(new HashMap<>(getProperties()));
+        return r;
+    }
 }
@@ -0,0 +1,119 @@
+package com.example.swingapp.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A model's entities as they were at one moment.
+ *
+ * Snapshots never change: writes to the model make a new version that
+ * shares all untouched parts with the old one, and the entities in a model
+ * are frozen (see ReMoDeLEntity.isFrozen()), so any number of threads can
+ * read a snapshot for as long as they like while the model moves on.
+ * Taking one costs nothing and does not wait for writers.
+ */
+public final class ModelSnapshot implements Iterable<ReMoDeLEntity> {
+    static final ModelSnapshot EMPTY = new ModelSnapshot(EntityTrie.EMPTY, 0);
+
+    private final EntityTrie entities;
+    private final long version;
+    // built on first use; racing threads build equal lists
+    private volatile List<ReMoDeLEntity> all;
+
+    ModelSnapshot(EntityTrie entities, long version) {
+        this.entities = entities;
+        this.version = version;
+    }
+
+    /**
+     * The next version: this one with the entities stored, all stamped
+     * with the new version number.
+     */
+    ModelSnapshot plus(Collection<? extends ReMoDeLEntity> stored) {
+        long v = version + 1;
+        EntityTrie t = entities;
+        for (ReMoDeLEntity e : stored) t = t.plus(e.getId(), new Versioned(e, v));
+        return new ModelSnapshot(t, v);
+    }
+
+    /**
+     * The next version: this one without the entity.
+     */
+    ModelSnapshot minus(String id) {
+        return new ModelSnapshot(entities.minus(id), version + 1);
+    }
+
+    /**
+     * Grows by one with every write to the model; the entities a write
+     * stores carry its version as their stamp.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    public boolean isEmpty() {
+        return entities.size() == 0;
+    }
+
+    public ReMoDeLEntity get(String id) {
+        Versioned v = entities.get(id);
+        return v != null ? v.entity : null;
+    }
+
+    public boolean contains(String id) {
+        return entities.get(id) != null;
+    }
+
+    /**
+     * Version stamp of the entity: the model version that stored it, or -1
+     * if there is no such entity.
+     */
+    public long versionOf(String id) {
+        Versioned v = entities.get(id);
+        return v != null ? v.version : -1;
+    }
+
+    /**
+     * The entities in no particular order; iterating does not copy.
+     */
+    @Override
+    public Iterator<ReMoDeLEntity> iterator() {
+        return entities.iterator();
+    }
+
+    /**
+     * The entities as a read-only list, built once per snapshot.
+     */
+    public List<ReMoDeLEntity> getAll() {
+        List<ReMoDeLEntity> l = all;
+        if (l == null) {
+            List<ReMoDeLEntity> out = new ArrayList<>(entities.size());
+            for (ReMoDeLEntity e : entities) out.add(e);
+            all = l = Collections.unmodifiableList(out);
+        }
+        return l;
+    }
+
+    /**
+     * Number of entities of each type.
+     */
+    public Map<String, Integer> countByType() {
+        Map<String, Integer> out = new TreeMap<>();
+        for (ReMoDeLEntity e : entities) out.merge(String.valueOf(e.getType()), 1, Integer::sum);
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelSnapshot[version " + version + ", " + size() + " entities]";
+    }
+}
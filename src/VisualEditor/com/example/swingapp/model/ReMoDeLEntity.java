@@ -1,6 +1,8 @@
 package com.example.swingapp.model;
 
+import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -8,6 +10,11 @@ import java.util.UUID;
 
 /**
  * Base data-only entity for the ReMoDeL model.
+ *
+ * An entity is frozen when it is added to a model: from then on it may be
+ * shared with readers of model snapshots on any thread, so setters throw
+ * IllegalStateException and the properties map is read-only. Changes are
+ * made to a copy(), which is not frozen, and stored with updateEntity().
  */
 public class ReMoDeLEntity implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -15,6 +22,8 @@ public class ReMoDeLEntity implements Serializable {
     private String id;
     private String type;
     private Map<String, Object> properties = new HashMap<>();
+    // non-null once frozen: the read-only view of 'properties'
+    private transient Map<String, Object> frozen;
 
     public ReMoDeLEntity() {
         this.id = UUID.randomUUID().toString();
@@ -24,11 +33,26 @@ public class ReMoDeLEntity implements Serializable {
         this.id = id == null ? UUID.randomUUID().toString() : id;
     }
 
+    /**
+     * New entity of the class matching the type name (Concept, Connective,
+     * Feature, Region), or a plain ReMoDeLEntity for any other type.
+     */
+    public static ReMoDeLEntity create(String type, String id) {
+        if ("Concept".equals(type)) return new Concept(id);
+        if ("Connective".equals(type)) return new Connective(id);
+        if ("Feature".equals(type)) return new Feature(id);
+        if ("Region".equals(type)) return new Region(id);
+        ReMoDeLEntity e = new ReMoDeLEntity(id);
+        e.setType(type);
+        return e;
+    }
+
     public String getId() {
         return id;
     }
 
     public void setId(String id) {
+        checkMutable();
         this.id = id;
     }
 
@@ -37,14 +61,16 @@ public class ReMoDeLEntity implements Serializable {
     }
 
     public void setType(String type) {
+        checkMutable();
         this.type = type;
     }
 
     public Map<String, Object> getProperties() {
-        return properties;
+        return frozen != null ? frozen : properties;
     }
 
     public void setProperties(Map<String, Object> properties) {
+        checkMutable();
         this.properties = properties == null ? new HashMap<>() : properties;
     }
 
@@ -53,9 +79,36 @@ public class ReMoDeLEntity implements Serializable {
     }
 
     public void put(String key, Object value) {
+        checkMutable();
         properties.put(key, value);
     }
 
+    /**
+     * Whether the entity belongs to a model and can no longer be changed.
+     */
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    void freeze() {
+        if (frozen == null) frozen = Collections.unmodifiableMap(properties);
+    }
+
+    private void checkMutable() {
+        if (frozen != null) throw new IllegalStateException("entity " + id + " is in a model; change a copy()");
+    }
+
+    /**
+     * Normalized bounds from the x1/y1/x2/y2 properties, or null if any is missing.
+     */
+    public Rectangle2D getBounds() {
+        Object ox1 = get("x1"), oy1 = get("y1"), ox2 = get("x2"), oy2 = get("y2");
+        if (!(ox1 instanceof Number && oy1 instanceof Number && ox2 instanceof Number && oy2 instanceof Number)) return null;
+        double x1 = ((Number) ox1).doubleValue(), y1 = ((Number) oy1).doubleValue();
+        double x2 = ((Number) ox2).doubleValue(), y2 = ((Number) oy2).doubleValue();
+        return new Rectangle2D.Double(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -76,6 +129,7 @@ public class ReMoDeLEntity implements Serializable {
 
     /**
      * Shallow copy of this entity (properties map is cloned shallowly).
+     * Subclasses override this so the copy keeps its runtime type.
      */
     public ReMoDeLEntity copy() {
         ReMoDeLEntity r = new ReMoDeLEntity(this.id);
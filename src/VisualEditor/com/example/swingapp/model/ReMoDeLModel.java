@@ -1,23 +1,59 @@
 package com.example.swingapp.model;
 
+import com.example.swingapp.monitor.BatchCommitEvent;
+import com.example.swingapp.monitor.ListenerDispatchEvent;
+import com.example.swingapp.monitor.ModelCounters;
+import com.example.swingapp.monitor.ModelMutationEvent;
+
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 
 /**
  * In-memory manager for ReMoDeL entities.
  * Emits ModelEvent to registered listeners when mutations occur.
+ *
+ * The entities are kept as a series of immutable versions (see
+ * ModelSnapshot): a write swaps in the next version with a compare-and-set
+ * and never waits, and snapshot() hands out the current one. Entities are
+ * frozen when they enter the model; to change one, update it with a
+ * changed copy().
+ *
+ * Each stored entity carries a version stamp (versionOf()). Writers that
+ * may race each other, such as layout, import and sync threads, use the
+ * conditional updateEntity(e, version) or update()/patch(), which retry
+ * on a conflict, instead of overwriting with updateEntity(e).
  */
-public class ReMoDeLModel {
-    private final Map<String, ReMoDeLEntity> entities = new ConcurrentHashMap<>();
+public class ReMoDeLModel implements ModelCounters {
+    private final AtomicReference<ModelSnapshot> state = new AtomicReference<>(ModelSnapshot.EMPTY);
+    private static final long ANY_VERSION = -2;
+    private static final int STRIPES = 64;
+    private final ReentrantLock[] stripes = locks(STRIPES);
+    private final LongAdder conflicts = new LongAdder();
     private final List<ModelListener> listeners = new CopyOnWriteArrayList<>();
 
-    // batch mode
-    private final List<ModelEvent> pending = new ArrayList<>();
-    private boolean inBatch = false;
+    // batch mode, per thread: a writer's batch never holds another thread's events
+    private final ThreadLocal<Batch> batch = new ThreadLocal<>();
+
+    private static final class Batch {
+        int depth;
+        final List<ModelEvent> pending = new ArrayList<>();
+    }
+
+    // time spent in listeners, for the performance overlay
+    private final LongAdder dispatchNanos = new LongAdder();
+    private final LongAdder dispatchCount = new LongAdder();
+    private final LongAdder[] eventCounts = counters(ModelEvent.Type.values().length);
 
     public void addListener(ModelListener l) {
         if (l != null) listeners.add(l);
@@ -28,58 +64,344 @@ public class ReMoDeLModel {
     }
 
     public ReMoDeLEntity get(String id) {
-        return entities.get(id);
+        return state.get().get(id);
     }
 
+    /**
+     * The entities of the current version, read-only. Repeated calls
+     * without writes in between return the same list.
+     */
     public List<ReMoDeLEntity> getAll() {
-        return Collections.unmodifiableList(new ArrayList<>(entities.values()));
+        return state.get().getAll();
+    }
+
+    /**
+     * The current version of the model's entities, which stays as it is
+     * while the model changes.
+     */
+    public ModelSnapshot snapshot() {
+        return state.get();
+    }
+
+    /**
+     * Version stamp of the entity, or -1 if there is none; see updateEntity(e, version).
+     */
+    public long versionOf(String id) {
+        return state.get().versionOf(id);
     }
 
     public void addEntity(ReMoDeLEntity e) {
         if (e == null) return;
-        entities.put(e.getId(), e);
+        ModelMutationEvent ev = new ModelMutationEvent();
+        ev.begin();
+        store(e, ANY_VERSION);
         dispatch(new ModelEvent(ModelEvent.Type.ENTITY_ADDED, List.of(e.getId())));
+        commit(ev, "add", e);
     }
 
+    /**
+     * Store the entity, whatever happened to it since the caller read it;
+     * see updateEntity(e, version) and update() for writers that must not
+     * overwrite each other.
+     */
     public void updateEntity(ReMoDeLEntity e) {
         if (e == null) return;
-        entities.put(e.getId(), e);
+        ModelMutationEvent ev = new ModelMutationEvent();
+        ev.begin();
+        store(e, ANY_VERSION);
         dispatch(new ModelEvent(ModelEvent.Type.ENTITY_UPDATED, List.of(e.getId())));
+        commit(ev, "update", e);
+    }
+
+    /**
+     * Store the entity only if the one it replaces still has the expected
+     * version stamp (-1: only if there is none). Returns false, changing
+     * nothing, if another write got there first.
+     */
+    public boolean updateEntity(ReMoDeLEntity e, long expectedVersion) {
+        if (e == null) throw new IllegalArgumentException("entity is null");
+        if (expectedVersion < -1) throw new IllegalArgumentException("no entity has version " + expectedVersion);
+        ModelMutationEvent ev = new ModelMutationEvent();
+        ev.begin();
+        boolean added = expectedVersion == -1;
+        if (!store(e, expectedVersion)) {
+            conflicts.increment();
+            return false;
+        }
+        dispatch(new ModelEvent(added ? ModelEvent.Type.ENTITY_ADDED : ModelEvent.Type.ENTITY_UPDATED, List.of(e.getId())));
+        commit(ev, added ? "add" : "update", e);
+        return true;
+    }
+
+    /**
+     * Change an entity: 'change' gets a copy of the current entity and
+     * returns what to store (or null to leave the entity as it is). If
+     * another write changes the entity in the meantime, 'change' runs again
+     * on the new version, so it must not have side effects. Returns the
+     * entity now in the model, or null if there is no such entity.
+     */
+    public ReMoDeLEntity update(String id, UnaryOperator<ReMoDeLEntity> change) {
+        if (change == null) throw new IllegalArgumentException("change is null");
+        while (true) {
+            ModelSnapshot cur = state.get();
+            ReMoDeLEntity e = cur.get(id);
+            if (e == null) return null;
+            ReMoDeLEntity c = change.apply(e.copy());
+            if (c == null) return e;
+            if (!id.equals(c.getId())) throw new IllegalArgumentException("change must keep the id " + id);
+            if (updateEntity(c, cur.versionOf(id))) return c;
+        }
+    }
+
+    /**
+     * Set properties of an entity, keeping the rest; a null value removes
+     * the property. Concurrent changes to other properties are kept.
+     */
+    public ReMoDeLEntity patch(String id, Map<String, ?> changes) {
+        if (changes == null) throw new IllegalArgumentException("changes is null");
+        return update(id, c -> {
+            for (Map.Entry<String, ?> en : changes.entrySet()) {
+                if (en.getValue() == null) c.getProperties().remove(en.getKey());
+                else c.put(en.getKey(), en.getValue());
+            }
+            return c;
+        });
+    }
+
+    /**
+     * Change several entities as one: 'change' gets a copy of each existing
+     * entity and returns what to store, or null to leave it. The results are
+     * stored together, as one version and one BATCH event, and only if none
+     * of the entities changed while 'change' ran; otherwise it runs again.
+     *
+     * Compound changes lock the stripes of their ids, so two of them over
+     * the same entities take turns instead of undoing each other's work;
+     * single-entity writes take no locks. Returns the entities stored.
+     */
+    public Map<String, ReMoDeLEntity> updateAll(Collection<String> ids, UnaryOperator<ReMoDeLEntity> change) {
+        if (ids == null) throw new IllegalArgumentException("ids is null");
+        if (change == null) throw new IllegalArgumentException("change is null");
+        Set<String> unique = new LinkedHashSet<>(ids);
+        BitSet held = new BitSet(STRIPES);
+        for (String id : unique) held.set(stripe(id));
+        // always in ascending order, so compound changes cannot deadlock
+        for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) stripes[i].lock();
+        Map<String, ReMoDeLEntity> out = new LinkedHashMap<>();
+        try {
+            while (true) {
+                ModelSnapshot cur = state.get();
+                out.clear();
+                for (String id : unique) {
+                    ReMoDeLEntity e = cur.get(id);
+                    if (e == null) continue;
+                    ReMoDeLEntity c = change.apply(e.copy());
+                    if (c == null) continue;
+                    if (!id.equals(c.getId())) throw new IllegalArgumentException("change must keep the id " + id);
+                    c.freeze();
+                    out.put(id, c);
+                }
+                if (out.isEmpty() || commitAll(cur, unique, out.values())) break;
+                conflicts.increment();
+            }
+        } finally {
+            for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) stripes[i].unlock();
+        }
+        if (!out.isEmpty()) dispatch(new ModelEvent(ModelEvent.Type.BATCH, new ArrayList<>(out.keySet())));
+        return out;
+    }
+
+    // store on top of whatever else was written since 'read', unless it touched 'ids'
+    private boolean commitAll(ModelSnapshot read, Collection<String> ids, Collection<ReMoDeLEntity> stored) {
+        while (true) {
+            ModelSnapshot cur = state.get();
+            if (cur != read) {
+                for (String id : ids) if (cur.versionOf(id) != read.versionOf(id)) return false;
+            }
+            if (state.compareAndSet(cur, cur.plus(stored))) return true;
+        }
+    }
+
+    /**
+     * Writes that found their entity changed by another write and failed
+     * or ran their change again.
+     */
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    private static int stripe(String id) {
+        int h = id == null ? 0 : id.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    // writes retry only when the entity itself changed, not for unrelated writes
+    private boolean store(ReMoDeLEntity e, long expectedVersion) {
+        e.freeze();
+        String id = e.getId();
+        List<ReMoDeLEntity> one = List.of(e);
+        ModelSnapshot cur;
+        do {
+            cur = state.get();
+            if (expectedVersion != ANY_VERSION && cur.versionOf(id) != expectedVersion) return false;
+        } while (!state.compareAndSet(cur, cur.plus(one)));
+        return true;
+    }
+
+    /**
+     * Remove the entity only if it still has the expected version stamp;
+     * false, changing nothing, if it does not.
+     */
+    public boolean removeEntity(String id, long expectedVersion) {
+        if (expectedVersion < 0) throw new IllegalArgumentException("no entity has version " + expectedVersion);
+        if (remove(id, expectedVersion) != null) return true;
+        conflicts.increment();
+        return false;
     }
 
     public ReMoDeLEntity removeEntity(String id) {
-        ReMoDeLEntity old = entities.remove(id);
-        if (old != null) dispatch(new ModelEvent(ModelEvent.Type.ENTITY_REMOVED, List.of(id)));
+        return remove(id, ANY_VERSION);
+    }
+
+    private ReMoDeLEntity remove(String id, long expectedVersion) {
+        ModelMutationEvent ev = new ModelMutationEvent();
+        ev.begin();
+        ReMoDeLEntity old;
+        ModelSnapshot cur;
+        do {
+            cur = state.get();
+            old = cur.get(id);
+            if (old == null) break;
+            if (expectedVersion != ANY_VERSION && cur.versionOf(id) != expectedVersion) return null;
+        } while (!state.compareAndSet(cur, cur.minus(id)));
+        if (old != null) {
+            dispatch(new ModelEvent(ModelEvent.Type.ENTITY_REMOVED, List.of(id)));
+            commit(ev, "remove", old);
+        }
         return old;
     }
 
+    // fields are only filled in while a recording wants the event
+    private void commit(ModelMutationEvent ev, String operation, ReMoDeLEntity e) {
+        if (!ev.shouldCommit()) return;
+        ev.operation = operation;
+        ev.entityType = e.getType();
+        ev.entityId = e.getId();
+        ev.inBatch = batch.get() != null;
+        ev.commit();
+    }
+
+    /**
+     * Number of entities of each type.
+     */
+    @Override
+    public Map<String, Integer> countByType() {
+        return state.get().countByType();
+    }
+
+    @Override
+    public int size() {
+        return state.get().size();
+    }
+
+    /**
+     * Total time listeners have spent handling events, in nanoseconds.
+     */
+    @Override
+    public long getDispatchNanos() {
+        return dispatchNanos.sum();
+    }
+
+    /**
+     * Number of events dispatched to listeners.
+     */
+    @Override
+    public long getDispatchCount() {
+        return dispatchCount.sum();
+    }
+
+    /**
+     * Number of events of the given type dispatched to listeners.
+     */
+    public long getEventCount(ModelEvent.Type type) {
+        return eventCounts[type.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (ModelEvent.Type t : ModelEvent.Type.values()) out.put(t.name(), getEventCount(t));
+        return out;
+    }
+
+    private static ReentrantLock[] locks(int n) {
+        ReentrantLock[] a = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) a[i] = new ReentrantLock();
+        return a;
+    }
+
+    private static LongAdder[] counters(int n) {
+        LongAdder[] a = new LongAdder[n];
+        for (int i = 0; i < n; i++) a[i] = new LongAdder();
+        return a;
+    }
+
+    /**
+     * Hold back the events of this thread's writes until the matching
+     * endBatch(), which dispatches them as one BATCH event. Batches nest;
+     * writes on other threads are dispatched as usual meanwhile.
+     */
     public void beginBatch() {
-        inBatch = true;
-        pending.clear();
+        Batch b = batch.get();
+        if (b == null) batch.set(b = new Batch());
+        b.depth++;
     }
 
     public void endBatch() {
-        inBatch = false;
-        if (!pending.isEmpty()) {
+        Batch b = batch.get();
+        if (b == null || --b.depth > 0) return;
+        batch.remove();
+        if (!b.pending.isEmpty()) {
+            BatchCommitEvent ev = new BatchCommitEvent();
+            ev.begin();
             // collapse to a single BATCH event (listeners can refresh as they need)
             List<String> ids = new ArrayList<>();
-            for (ModelEvent me : pending) ids.addAll(me.getEntityIds());
+            for (ModelEvent me : b.pending) ids.addAll(me.getEntityIds());
             dispatch(new ModelEvent(ModelEvent.Type.BATCH, ids));
-            pending.clear();
+            if (ev.shouldCommit()) {
+                ev.mutations = b.pending.size();
+                ev.entities = ids.size();
+                ev.commit();
+            }
         }
     }
 
     private void dispatch(ModelEvent e) {
-        if (inBatch) {
-            pending.add(e);
+        Batch b = batch.get();
+        if (b != null) {
+            b.pending.add(e);
             return;
         }
+        long t0 = System.nanoTime();
+        // per-listener events only while a recording has them enabled
+        boolean traced = new ListenerDispatchEvent().isEnabled();
         for (ModelListener l : listeners) {
+            ListenerDispatchEvent ev = traced ? new ListenerDispatchEvent() : null;
+            if (ev != null) ev.begin();
             try {
                 l.modelChanged(e);
             } catch (Exception ex) {
+                if (ev != null) ev.failed = true;
                 ex.printStackTrace();
             }
+            if (ev != null && ev.shouldCommit()) {
+                ev.listener = l.getClass().getName();
+                ev.eventType = e.getType().name();
+                ev.entities = e.getEntityIds().size();
+                ev.commit();
+            }
         }
+        dispatchNanos.add(System.nanoTime() - t0);
+        dispatchCount.increment();
+        eventCounts[e.getType().ordinal()].increment();
     }
 }
@@ -1,6 +1,7 @@
 package com.example.swingapp.model;
 
 import java.awt.geom.Path2D;
+import java.util.HashMap;
 
 /**
  * Represents a Region (polygon or rectangle) in the model.
@@ -25,4 +26,12 @@ public class Region extends ReMoDeLEntity {
     public void setShapePath(Path2D p) {
         put("path", p);
     }
+
+    @Override
+    public Region copy() {
+        Region r = new Region(getId());
+        r.setType(getType());
+        r.setProperties(new HashMap<>(getProperties()));
+        return r;
+    }
 }
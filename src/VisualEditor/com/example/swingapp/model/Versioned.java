@@ -0,0 +1,15 @@
+package com.example.swingapp.model;
+
+/**
+ * An entity as stored in a model version, with the model version that
+ * stored it: the entity's version stamp.
+ */
+final class Versioned {
+    final ReMoDeLEntity entity;
+    final long version;
+
+    Versioned(ReMoDeLEntity entity, long version) {
+        this.entity = entity;
+        this.version = version;
+    }
+}
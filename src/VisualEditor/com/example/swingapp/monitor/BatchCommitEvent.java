@@ -0,0 +1,25 @@
+package com.example.swingapp.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A model batch (the model's transaction) delivered to listeners as one event.
+ */
+@Name("com.example.swingapp.BatchCommit")
+@Label("Transaction Commit")
+@Category({ "Visual Editor", "Model" })
+@StackTrace(false)
+public class BatchCommitEvent extends Event {
+    @Label("Mutations")
+    public int mutations;
+
+    @Label("Entities")
+    public int entities;
+
+    public BatchCommitEvent() {
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.swingapp.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The canvas redrawing its back buffer, whole or just a damaged area.
+ */
+@Name("com.example.swingapp.BufferRedraw")
+@Label("Buffer Redraw")
+@Category({ "Visual Editor", "Rendering" })
+@StackTrace(false)
+public class BufferRedrawEvent extends Event {
+    @Label("Full Redraw")
+    public boolean full;
+
+    @Label("Shapes Drawn")
+    public int shapes;
+
+    @Label("Area (pixels)")
+    public long pixels;
+
+    public BufferRedrawEvent() {
+    }
+}
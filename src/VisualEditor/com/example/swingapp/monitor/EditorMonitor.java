@@ -0,0 +1,188 @@
+package com.example.swingapp.monitor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registers the editor's MBeans with the platform MBean server:
+ * com.example.swingapp:type=Model and type=Rendering, with an editor=N key
+ * per window.
+ *
+ * Everything is computed when a JMX client reads an attribute, from
+ * counters the model and canvas keep anyway, so the MBeans cost nothing
+ * while nobody is looking.
+ */
+public class EditorMonitor implements Closeable {
+    public static final String DOMAIN = "com.example.swingapp";
+    private static final AtomicInteger EDITORS = new AtomicInteger();
+    // rates are averaged over at least this long
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final Supplier<? extends ModelCounters> model;
+    private final RenderCounters render;
+    private final TileCounters tiles;
+    private final Map<String, IntSupplier> backlogs = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final ObjectName modelName, renderName;
+
+    private EditorMonitor(Supplier<? extends ModelCounters> model, RenderCounters render, TileCounters tiles)
+            throws JMException {
+        this.model = model;
+        this.render = render;
+        this.tiles = tiles;
+        int n = EDITORS.incrementAndGet();
+        modelName = new ObjectName(DOMAIN + ":type=Model,editor=" + n);
+        renderName = new ObjectName(DOMAIN + ":type=Rendering,editor=" + n);
+    }
+
+    /**
+     * Register the MBeans of an editor window: model gives the model the
+     * window currently shows (or null), render its canvas; tiles may be null.
+     */
+    public static EditorMonitor register(Supplier<? extends ModelCounters> model, RenderCounters render,
+                                         TileCounters tiles) throws JMException {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        if (render == null) throw new IllegalArgumentException("render is null");
+        EditorMonitor m = new EditorMonitor(model, render, tiles);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(m.new ModelStats(), m.modelName);
+        server.registerMBean(m.new RenderStats(), m.renderName);
+        return m;
+    }
+
+    /**
+     * Report the backlog of an asynchronous listener, e.g. the canvas or the autosave journal.
+     */
+    public void addBacklog(String name, IntSupplier backlog) {
+        backlogs.put(name, backlog);
+    }
+
+    @Override
+    public void close() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : new ObjectName[] { modelName, renderName }) {
+            try {
+                if (server.isRegistered(name)) server.unregisterMBean(name);
+            } catch (JMException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private class ModelStats implements ModelStatsMXBean {
+        // last rate window; guarded by this
+        private ModelCounters sampled;
+        private long sampledAt, dispatchNanos;
+        private Map<String, Long> counts = Collections.emptyMap();
+        private Map<String, Double> rates = Collections.emptyMap();
+        private double dispatchMillis;
+
+        @Override
+        public int getEntityCount() {
+            ModelCounters m = model.get();
+            return m == null ? 0 : m.size();
+        }
+
+        @Override
+        public Map<String, Integer> getEntityCountsByType() {
+            ModelCounters m = model.get();
+            return m == null ? Collections.emptyMap() : m.countByType();
+        }
+
+        @Override
+        public long getEventCount() {
+            ModelCounters m = model.get();
+            return m == null ? 0 : m.getDispatchCount();
+        }
+
+        @Override
+        public synchronized Map<String, Double> getEventRates() {
+            sample();
+            return rates;
+        }
+
+        @Override
+        public synchronized double getDispatchMillisPerSecond() {
+            sample();
+            return dispatchMillis;
+        }
+
+        @Override
+        public Map<String, Integer> getListenerBacklog() {
+            Map<String, Integer> out = new LinkedHashMap<>();
+            synchronized (backlogs) {
+                for (Map.Entry<String, IntSupplier> en : backlogs.entrySet()) out.put(en.getKey(), en.getValue().getAsInt());
+            }
+            return out;
+        }
+
+        // new rates once the window has passed; a new model starts a new window
+        private void sample() {
+            ModelCounters m = model.get();
+            long now = System.nanoTime();
+            if (m != sampled) {
+                sampled = m;
+                sampledAt = now;
+                dispatchNanos = m == null ? 0 : m.getDispatchNanos();
+                counts = m == null ? Collections.emptyMap() : m.getEventCounts();
+                rates = Collections.emptyMap();
+                dispatchMillis = 0;
+                return;
+            }
+            if (m == null || now - sampledAt < RATE_WINDOW_NANOS) return;
+            double secs = (now - sampledAt) / 1e9;
+            Map<String, Double> r = new TreeMap<>();
+            Map<String, Long> current = m.getEventCounts();
+            for (Map.Entry<String, Long> en : current.entrySet()) {
+                r.put(en.getKey(), (en.getValue() - counts.getOrDefault(en.getKey(), 0L)) / secs);
+            }
+            counts = current;
+            long dn = m.getDispatchNanos();
+            dispatchMillis = (dn - dispatchNanos) / 1e6 / secs;
+            dispatchNanos = dn;
+            sampledAt = now;
+            rates = r;
+        }
+    }
+
+    private class RenderStats implements RenderStatsMXBean {
+        @Override
+        public double getLastRenderMillis() {
+            return render.getLastFrameNanos() / 1e6;
+        }
+
+        @Override
+        public double getBufferHitRate() {
+            return ratio(render.getBufferHits(), render.getBufferMisses());
+        }
+
+        @Override
+        public long getBufferRedraws() {
+            return render.getBufferMisses();
+        }
+
+        @Override
+        public double getTileCacheHitRate() {
+            return tiles == null ? 0 : ratio(tiles.getTileHits(), tiles.getTileMisses());
+        }
+
+        @Override
+        public long getTilesBuilt() {
+            return tiles == null ? 0 : tiles.getTileMisses();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.swingapp.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A document read or written, a block of it decoded, or a journal group commit.
+ */
+@Name("com.example.swingapp.FileIo")
+@Label("Document I/O")
+@Category({ "Visual Editor", "I/O" })
+public class FileIoEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Entities")
+    public long entities;
+
+    public FileIoEvent() {
+    }
+}
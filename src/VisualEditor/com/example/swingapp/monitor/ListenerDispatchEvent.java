@@ -0,0 +1,31 @@
+package com.example.swingapp.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One model listener handling one model event.
+ */
+@Name("com.example.swingapp.ListenerDispatch")
+@Label("Listener Dispatch")
+@Category({ "Visual Editor", "Model" })
+@StackTrace(false)
+public class ListenerDispatchEvent extends Event {
+    @Label("Listener")
+    public String listener;
+
+    @Label("Event Type")
+    public String eventType;
+
+    @Label("Entities")
+    public int entities;
+
+    @Label("Failed")
+    public boolean failed;
+
+    public ListenerDispatchEvent() {
+    }
+}
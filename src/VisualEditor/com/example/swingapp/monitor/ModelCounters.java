@@ -0,0 +1,30 @@
+package com.example.swingapp.monitor;
+
+import java.util.Map;
+
+/**
+ * Counters of a model that the Model MBean reports; kept by the model anyway.
+ */
+public interface ModelCounters {
+    int size();
+
+    /**
+     * Number of entities of each type.
+     */
+    Map<String, Integer> countByType();
+
+    /**
+     * Number of events dispatched to listeners.
+     */
+    long getDispatchCount();
+
+    /**
+     * Total time listeners have spent handling events, in nanoseconds.
+     */
+    long getDispatchNanos();
+
+    /**
+     * Number of events dispatched to listeners, by event type name.
+     */
+    Map<String, Long> getEventCounts();
+}
@@ -0,0 +1,34 @@
+package com.example.swingapp.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An entity added, updated or removed, including listener dispatch unless
+ * the model is in a batch.
+ */
+@Name("com.example.swingapp.ModelMutation")
+@Label("Model Mutation")
+@Category({ "Visual Editor", "Model" })
+@StackTrace(false)
+public class ModelMutationEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Entity Type")
+    public String entityType;
+
+    @Label("Entity Id")
+    public String entityId;
+
+    @Label("In Batch")
+    @Description("Listeners are told when the batch commits")
+    public boolean inBatch;
+
+    public ModelMutationEvent() {
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.swingapp.monitor;
+
+import java.util.Map;
+
+/**
+ * The editor's current model, as seen by JMX clients.
+ */
+public interface ModelStatsMXBean {
+    int getEntityCount();
+
+    Map<String, Integer> getEntityCountsByType();
+
+    /** Events dispatched to listeners since the model was created. */
+    long getEventCount();
+
+    /** Events per second by event type, over the time since the previous reading (at least a second). */
+    Map<String, Double> getEventRates();
+
+    /** Milliseconds per second that listeners spent handling events, over the same window. */
+    double getDispatchMillisPerSecond();
+
+    /** Changes waiting for a listener that handles them asynchronously, by listener. */
+    Map<String, Integer> getListenerBacklog();
+}
@@ -0,0 +1,21 @@
+package com.example.swingapp.monitor;
+
+/**
+ * Counters of a canvas that the Rendering MBean reports.
+ */
+public interface RenderCounters {
+    /**
+     * Time the last frame took to paint, in nanoseconds.
+     */
+    long getLastFrameNanos();
+
+    /**
+     * Frames painted from the back buffer as it was.
+     */
+    long getBufferHits();
+
+    /**
+     * Frames that had to redraw the back buffer first.
+     */
+    long getBufferMisses();
+}
@@ -0,0 +1,19 @@
+package com.example.swingapp.monitor;
+
+/**
+ * Rendering of the editor's canvas and minimap, as seen by JMX clients.
+ */
+public interface RenderStatsMXBean {
+    /** Duration of the last canvas frame, buffer redraws included. */
+    double getLastRenderMillis();
+
+    /** Share of canvas paints served from the back buffer without redrawing it. */
+    double getBufferHitRate();
+
+    long getBufferRedraws();
+
+    /** Share of minimap tile lookups served from the tile cache. */
+    double getTileCacheHitRate();
+
+    long getTilesBuilt();
+}
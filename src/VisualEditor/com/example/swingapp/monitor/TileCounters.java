@@ -0,0 +1,10 @@
+package com.example.swingapp.monitor;
+
+/**
+ * Counters of a tile cache (the minimap's) that the Rendering MBean reports.
+ */
+public interface TileCounters {
+    long getTileHits();
+
+    long getTileMisses();
+}
@@ -0,0 +1,144 @@
+package com.example.swingapp.perf;
+
+import java.awt.EventQueue;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detects stalls of the event dispatch thread.
+ *
+ * A daemon thread posts a no-op to the event queue and waits for it to
+ * run. If it has not run within the threshold, the EDT is blocked: its
+ * stack is captured there and then and appended to a rolling log
+ * (edt-stalls.log, rolled over to .1 .. .N when it grows past the size
+ * limit), followed by how long the stall lasted once the EDT is back.
+ */
+public class EdtWatchdog implements Closeable {
+    private static final String LOG = "edt-stalls.log";
+
+    private final Path logDir;
+    private final long thresholdNanos;
+    private long maxLogBytes = 1L << 20;
+    private int backups = 3;
+    private final AtomicInteger stalls = new AtomicInteger();
+    private volatile Thread edt;
+    private volatile long pendingSince; // 0: no ping outstanding
+    private volatile boolean running;
+    private Thread thread;
+
+    public EdtWatchdog(Path logDir, long thresholdMillis) {
+        if (logDir == null) throw new IllegalArgumentException("logDir is null");
+        if (thresholdMillis <= 0) throw new IllegalArgumentException("threshold must be positive");
+        this.logDir = logDir;
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+    }
+
+    /**
+     * Size at which the log is rolled over, and how many old logs are kept.
+     */
+    public void setLogLimits(long maxBytes, int backups) {
+        if (maxBytes <= 0 || backups < 0) throw new IllegalArgumentException("bad log limits");
+        this.maxLogBytes = maxBytes;
+        this.backups = backups;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::watch, "edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (thread != null) thread.interrupt();
+        thread = null;
+    }
+
+    /**
+     * Stalls detected since start().
+     */
+    public int getStallCount() {
+        return stalls.get();
+    }
+
+    public Path getLogFile() {
+        return logDir.resolve(LOG);
+    }
+
+    private void watch() {
+        long poll = Math.max(1, thresholdNanos / 4 / 1_000_000L);
+        long stalledAt = 0;
+        while (running) {
+            long since = pendingSince;
+            long now = System.nanoTime();
+            if (since == 0) {
+                if (stalledAt != 0) {
+                    log("EDT recovered after " + (now - stalledAt + thresholdNanos) / 1_000_000L + " ms\n\n");
+                    stalledAt = 0;
+                }
+                pendingSince = now;
+                EventQueue.invokeLater(() -> {
+                    edt = Thread.currentThread();
+                    pendingSince = 0;
+                });
+            } else if (stalledAt == 0 && now - since > thresholdNanos) {
+                stalledAt = now;
+                stalls.incrementAndGet();
+                log(report(now - since));
+            }
+            try {
+                Thread.sleep(poll);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private String report(long blockedNanos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(Instant.now()).append(" EDT blocked for ").append(blockedNanos / 1_000_000L).append(" ms\n");
+        Thread t = edt;
+        if (t == null) {
+            sb.append("  (EDT not seen yet)\n");
+        } else {
+            sb.append('"').append(t.getName()).append("\" ").append(t.getState()).append('\n');
+            for (StackTraceElement el : t.getStackTrace()) sb.append("    at ").append(el).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private synchronized void log(String text) {
+        try {
+            Files.createDirectories(logDir);
+            Path file = logDir.resolve(LOG);
+            if (Files.exists(file) && Files.size(file) >= maxLogBytes) roll(file);
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // edt-stalls.log -> .1 -> .2 ... ; the oldest is dropped
+    private void roll(Path file) throws IOException {
+        if (backups == 0) {
+            Files.delete(file);
+            return;
+        }
+        Files.deleteIfExists(logDir.resolve(LOG + "." + backups));
+        for (int i = backups - 1; i >= 1; i--) {
+            Path from = logDir.resolve(LOG + "." + i);
+            if (Files.exists(from)) Files.move(from, logDir.resolve(LOG + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(file, logDir.resolve(LOG + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
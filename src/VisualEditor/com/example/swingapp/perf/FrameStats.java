@@ -0,0 +1,56 @@
+package com.example.swingapp.perf;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of the last frames: how long each took and how many
+ * shapes it drew. Confined to the EDT like the canvas that fills it.
+ */
+public class FrameStats {
+    private final long[] nanos;
+    private final int[] shapes;
+    private int count, next;
+
+    public FrameStats(int window) {
+        if (window <= 0) throw new IllegalArgumentException("window must be positive");
+        nanos = new long[window];
+        shapes = new int[window];
+    }
+
+    public void record(long frameNanos, int shapesDrawn) {
+        nanos[next] = frameNanos;
+        shapes[next] = shapesDrawn;
+        next = (next + 1) % nanos.length;
+        if (count < nanos.length) count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Frame time at the given percentile (0..100) of the window, in nanoseconds.
+     */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        int i = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, i))];
+    }
+
+    public int lastShapes() {
+        return count == 0 ? 0 : shapes[(next - 1 + shapes.length) % shapes.length];
+    }
+
+    public double averageShapes() {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += shapes[i];
+        return (double) sum / count;
+    }
+
+    public void clear() {
+        count = next = 0;
+    }
+}
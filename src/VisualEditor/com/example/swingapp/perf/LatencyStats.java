@@ -0,0 +1,45 @@
+package com.example.swingapp.perf;
+
+import java.util.Arrays;
+
+/**
+ * All latency samples of one kind, for percentiles over a whole run.
+ */
+public class LatencyStats {
+    private long[] samples = new long[64];
+    private int count;
+    private long total;
+    private boolean sorted = true;
+
+    public void add(long nanos) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = nanos;
+        total += nanos;
+        sorted = false;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Sample at the given percentile (0..100), in nanoseconds; 0 without samples.
+     */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+        int i = (int) Math.ceil(p / 100.0 * count) - 1;
+        return samples[Math.max(0, Math.min(count - 1, i))];
+    }
+
+    public long max() {
+        return percentile(100);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.swingapp.perf;
+
+import com.example.swingapp.DrawingCanvas;
+import com.example.swingapp.io.TraceWriter;
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.beans.PropertyChangeListener;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Records a canvas session into a trace file for TraceReplayer: the model
+ * as it was at the start, tool selections, the mouse events the canvas
+ * receives, scrolling, and model changes that the mouse did not cause
+ * (keyboard edits, menu commands, loads, background jobs). Changes made
+ * while the canvas handles a mouse event are left out, since replaying the
+ * event makes them again; only the ids of entities it created are kept, so
+ * the replay can map later changes onto the entities it creates instead.
+ *
+ * Create and close on the event dispatch thread. A write error stops the
+ * recording; see getFailure().
+ */
+public class TraceRecorder implements Closeable {
+    private final DrawingCanvas canvas;
+    private final TraceWriter out;
+    private volatile IOException failure;
+    private boolean closed;
+    private ReMoDeLModel model;
+    private ModelSnapshot seen; // the model as of the last event, to tell created entities
+    private JViewport viewport;
+    private Rectangle lastView;
+
+    private final MouseAdapter mouse = new MouseAdapter() {
+        @Override
+        public void mousePressed(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            record(e);
+        }
+    };
+    private final PropertyChangeListener toolListener = e -> write(w -> w.tool(((DrawingCanvas.Tool) e.getNewValue()).name()));
+    private final PropertyChangeListener modelSwap = e -> follow((ReMoDeLModel) e.getNewValue());
+    private final ChangeListener viewListener = e -> recordView();
+    private final ModelListener changes = this::modelChanged;
+
+    private TraceRecorder(DrawingCanvas canvas, TraceWriter out) {
+        this.canvas = canvas;
+        this.out = out;
+    }
+
+    /**
+     * Start recording the canvas into file.
+     */
+    public static TraceRecorder start(DrawingCanvas canvas, Path file) throws IOException {
+        if (canvas == null) throw new IllegalArgumentException("canvas is null");
+        DrawingCanvas.Tool tool = canvas.getCurrentTool();
+        TraceWriter w = TraceWriter.create(file, canvas.getWidth(), canvas.getHeight(), tool == null ? null : tool.name());
+        TraceRecorder r = new TraceRecorder(canvas, w);
+        r.follow(canvas.getModel());
+        r.viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, canvas);
+        if (r.viewport != null) {
+            r.recordView();
+            r.viewport.addChangeListener(r.viewListener);
+        }
+        canvas.addMouseListener(r.mouse);
+        canvas.addMouseMotionListener(r.mouse);
+        canvas.addPropertyChangeListener("currentTool", r.toolListener);
+        canvas.addPropertyChangeListener("model", r.modelSwap);
+        return r;
+    }
+
+    /**
+     * The error that stopped the recording, or null.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        detach();
+        out.close();
+        if (failure != null) throw failure;
+    }
+
+    private void detach() {
+        canvas.removeMouseListener(mouse);
+        canvas.removeMouseMotionListener(mouse);
+        canvas.removePropertyChangeListener("currentTool", toolListener);
+        canvas.removePropertyChangeListener("model", modelSwap);
+        if (viewport != null) viewport.removeChangeListener(viewListener);
+        if (model != null) model.removeListener(changes);
+        model = null;
+    }
+
+    // a new model replaces the traced one as a whole
+    private void follow(ReMoDeLModel m) {
+        if (model != null) model.removeListener(changes);
+        model = m;
+        synchronized (this) {
+            seen = m == null ? null : m.snapshot();
+        }
+        List<ReMoDeLEntity> all = m == null ? Collections.emptyList() : m.getAll();
+        write(w -> w.reset(all));
+        if (m != null) m.addListener(changes);
+    }
+
+    private void modelChanged(ModelEvent e) {
+        ReMoDeLModel m = model;
+        if (m == null) return;
+        ModelSnapshot before, after;
+        synchronized (this) {
+            before = seen;
+            after = seen = m.snapshot();
+        }
+        if (causedByInput()) {
+            List<String> created = created(e, before, after);
+            if (!created.isEmpty()) write(w -> w.created(created));
+            return;
+        }
+        if (e.getType() == ModelEvent.Type.RESET) {
+            List<ReMoDeLEntity> all = m.getAll();
+            write(w -> w.reset(all));
+            return;
+        }
+        List<ReMoDeLEntity> put = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(e.getEntityIds())) {
+            ReMoDeLEntity ent = m.get(id);
+            if (ent == null) removed.add(id);
+            else put.add(ent);
+        }
+        write(w -> w.change(put, removed, e.getType() == ModelEvent.Type.BATCH));
+    }
+
+    /**
+     * Ids of the event that name entities present after it but not before,
+     * in event order.
+     */
+    static List<String> created(ModelEvent e, ModelSnapshot before, ModelSnapshot after) {
+        List<String> out = new ArrayList<>();
+        if (e.getType() == ModelEvent.Type.RESET || before == null || after == null) return out;
+        for (String id : new LinkedHashSet<>(e.getEntityIds())) {
+            if (!before.contains(id) && after.contains(id)) out.add(id);
+        }
+        return out;
+    }
+
+    // true while the canvas is handling a mouse event, whose effects the replay reproduces
+    private boolean causedByInput() {
+        if (!EventQueue.isDispatchThread()) return false;
+        AWTEvent cur = EventQueue.getCurrentEvent();
+        return cur instanceof MouseEvent && cur.getSource() == canvas;
+    }
+
+    private void record(MouseEvent e) {
+        write(w -> w.mouse(e.getID(), e.getX(), e.getY(), e.getModifiersEx(), e.getButton(), e.getClickCount()));
+    }
+
+    private void recordView() {
+        Rectangle r = viewport.getViewRect();
+        if (r.equals(lastView)) return;
+        lastView = r;
+        write(w -> w.view(r));
+    }
+
+    private interface Write {
+        void to(TraceWriter w) throws IOException;
+    }
+
+    private void write(Write op) {
+        if (failure != null || closed) return;
+        try {
+            op.to(out);
+        } catch (IOException ex) {
+            failure = ex;
+            ex.printStackTrace();
+            // stop listening; close() reports the failure
+            SwingUtilities.invokeLater(this::detach);
+        }
+    }
+}
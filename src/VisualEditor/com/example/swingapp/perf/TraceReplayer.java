@@ -0,0 +1,327 @@
+package com.example.swingapp.perf;
+
+import com.example.swingapp.DrawingCanvas;
+import com.example.swingapp.io.TraceEvent;
+import com.example.swingapp.io.TraceReader;
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import javax.swing.JViewport;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Replays a trace recorded by TraceRecorder against a fresh DrawingCanvas
+ * and model, as fast as possible, and measures each phase:
+ *
+ * INPUT  - the canvas handling a mouse event
+ * CHANGE - the model applying a recorded change, listeners included
+ * SYNC   - the canvas catching up with the model on the next EDT turn
+ * PAINT  - painting the recorded view after each input or change
+ * TOOL   - selecting a tool
+ * RESET  - loading a model snapshot
+ *
+ * Runs headless (java.awt.headless=true); the canvas lives in a viewport
+ * sized like the recorded one but is never shown.
+ *
+ * Entities the replayed input creates get fresh ids. They are paired, in
+ * order, with the ids the trace recorded for them, and recorded changes
+ * are translated through that map.
+ */
+public class TraceReplayer {
+    public enum Phase { INPUT, CHANGE, SYNC, PAINT, TOOL, RESET }
+
+    private final Path trace;
+    private boolean paint = true;
+
+    // EDT state of a run
+    private DrawingCanvas canvas;
+    private JViewport viewport;
+    private BufferedImage frame;
+    private long lastEnd;
+    private volatile ReMoDeLModel result;
+    private ReMoDeLModel model;     // the canvas model, followed for entities the input creates
+    private ModelSnapshot seen;
+    private boolean inInput;
+    private final ArrayDeque<String> recordedIds = new ArrayDeque<>(), replayedIds = new ArrayDeque<>();
+    private final Map<String, String> ids = new HashMap<>(); // recorded id -> replayed id
+    private final ModelListener created = this::modelChanged;
+
+    public TraceReplayer(Path trace) {
+        if (trace == null) throw new IllegalArgumentException("trace is null");
+        this.trace = trace;
+    }
+
+    /**
+     * Paint the view after every input event and change (default on).
+     */
+    public void setPaint(boolean on) {
+        paint = on;
+    }
+
+    /**
+     * Replay the whole trace. Call from any thread but the EDT.
+     */
+    public Report run() throws IOException, InterruptedException {
+        if (EventQueue.isDispatchThread()) throw new IllegalStateException("run() blocks on the EDT");
+        TraceReader in = TraceReader.open(trace);
+        Report report = new Report();
+        onEdt(() -> setUp(in));
+        long start = System.nanoTime();
+        for (TraceEvent ev; (ev = in.next()) != null; ) {
+            TraceEvent e = ev;
+            report.events++;
+            report.recordedNanos = e.getTime();
+            switch (e.getKind()) {
+                case TOOL:
+                    onEdt(() -> timed(report, Phase.TOOL, () -> canvas.setCurrentTool(DrawingCanvas.Tool.valueOf(e.getTool()))));
+                    break;
+                case VIEW:
+                    onEdt(() -> setView(e.getView()));
+                    break;
+                case MOUSE:
+                    onEdt(() -> timed(report, Phase.INPUT, () -> input(e)));
+                    onEdt(() -> settle(report));
+                    break;
+                case CREATED:
+                    onEdt(() -> {
+                        recordedIds.addAll(e.getCreated());
+                        pair();
+                    });
+                    break;
+                case CHANGE:
+                    onEdt(() -> timed(report, Phase.CHANGE, () -> apply(e)));
+                    onEdt(() -> settle(report));
+                    break;
+                case RESET:
+                    onEdt(() -> timed(report, Phase.RESET, () -> load(e)));
+                    onEdt(() -> settle(report));
+                    break;
+            }
+        }
+        report.replayNanos = System.nanoTime() - start;
+        onEdt(() -> {
+            result = canvas.getModel();
+            follow(null);
+            canvas.setModel(null);
+        });
+        return report;
+    }
+
+    /**
+     * The model as the last run() left it, or null before the first run.
+     */
+    public ReMoDeLModel getModel() {
+        return result;
+    }
+
+    private void setUp(TraceReader in) {
+        canvas = new DrawingCanvas();
+        canvas.setModel(new ReMoDeLModel());
+        follow(canvas.getModel());
+        canvas.setSize(Math.max(1, in.getCanvasWidth()), Math.max(1, in.getCanvasHeight()));
+        if (!in.getTool().isEmpty()) canvas.setCurrentTool(DrawingCanvas.Tool.valueOf(in.getTool()));
+        viewport = new JViewport();
+        viewport.setView(canvas);
+        setView(new Rectangle(0, 0, canvas.getWidth(), canvas.getHeight()));
+    }
+
+    private void setView(Rectangle r) {
+        viewport.setSize(Math.max(1, r.width), Math.max(1, r.height));
+        viewport.setViewPosition(r.getLocation());
+        if (frame == null || frame.getWidth() != viewport.getWidth() || frame.getHeight() != viewport.getHeight()) {
+            frame = new BufferedImage(viewport.getWidth(), viewport.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+
+    private MouseEvent toMouseEvent(TraceEvent e) {
+        return new MouseEvent(canvas, e.getMouseId(), System.currentTimeMillis(), e.getModifiersEx(),
+                e.getX(), e.getY(), e.getClickCount(), false, e.getButton());
+    }
+
+    private void input(TraceEvent e) {
+        inInput = true;
+        try {
+            canvas.dispatchEvent(toMouseEvent(e));
+        } finally {
+            inInput = false;
+        }
+    }
+
+    private void apply(TraceEvent e) {
+        ReMoDeLModel m = canvas.getModel();
+        if (e.isBatch()) m.beginBatch();
+        for (ReMoDeLEntity x : e.getEntities()) {
+            x = translate(x);
+            if (m.get(x.getId()) == null) m.addEntity(x);
+            else m.updateEntity(x);
+        }
+        for (String id : e.getRemoved()) m.removeEntity(ids.getOrDefault(id, id));
+        if (e.isBatch()) m.endBatch();
+    }
+
+    // the recorded entity under the ids the replay gave the entities it names
+    private ReMoDeLEntity translate(ReMoDeLEntity x) {
+        String id = ids.get(x.getId());
+        if (id != null) {
+            ReMoDeLEntity y = ReMoDeLEntity.create(x.getType(), id);
+            y.setProperties(new HashMap<>(x.getProperties()));
+            x = y;
+        }
+        if (x instanceof Connective) {
+            Connective c = (Connective) x;
+            if (ids.containsKey(c.getFromId())) c.setFromId(ids.get(c.getFromId()));
+            if (ids.containsKey(c.getToId())) c.setToId(ids.get(c.getToId()));
+        }
+        return x;
+    }
+
+    private void load(TraceEvent e) {
+        ReMoDeLModel m = new ReMoDeLModel();
+        for (ReMoDeLEntity x : e.getEntities()) m.addEntity(x);
+        canvas.setModel(m);
+        // the trace names every entity by its recorded id again
+        ids.clear();
+        recordedIds.clear();
+        replayedIds.clear();
+        follow(m);
+    }
+
+    private void follow(ReMoDeLModel m) {
+        if (model != null) model.removeListener(created);
+        model = m;
+        seen = m == null ? null : m.snapshot();
+        if (m != null) m.addListener(created);
+    }
+
+    // runs on the EDT: the replay only changes the model from there
+    private void modelChanged(ModelEvent e) {
+        ModelSnapshot before = seen;
+        seen = model.snapshot();
+        if (!inInput) return;
+        replayedIds.addAll(TraceRecorder.created(e, before, seen));
+        pair();
+    }
+
+    private void pair() {
+        while (!recordedIds.isEmpty() && !replayedIds.isEmpty()) ids.put(recordedIds.poll(), replayedIds.poll());
+    }
+
+    // runs on the EDT turn after a timed step: whatever the canvas queued in between is SYNC
+    private void settle(Report report) {
+        long now = System.nanoTime();
+        report.phase(Phase.SYNC).add(now - lastEnd);
+        if (!paint) return;
+        Rectangle view = viewport.getViewRect();
+        Graphics2D g = frame.createGraphics();
+        try {
+            g.translate(-view.x, -view.y);
+            g.setClip(view);
+            long t0 = System.nanoTime();
+            canvas.paint(g);
+            report.phase(Phase.PAINT).add(System.nanoTime() - t0);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private void timed(Report report, Phase phase, Runnable step) {
+        long t0 = System.nanoTime();
+        step.run();
+        lastEnd = System.nanoTime();
+        report.phase(phase).add(lastEnd - t0);
+    }
+
+    private static void onEdt(Runnable r) throws InterruptedException {
+        try {
+            EventQueue.invokeAndWait(r);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Latency distributions of one replay.
+     */
+    public static final class Report {
+        private final Map<Phase, LatencyStats> phases = new EnumMap<>(Phase.class);
+        private int events;
+        private long recordedNanos, replayNanos;
+
+        private LatencyStats phase(Phase p) {
+            return phases.computeIfAbsent(p, k -> new LatencyStats());
+        }
+
+        /** Samples of a phase; empty if the trace never reached it. */
+        public LatencyStats get(Phase p) {
+            LatencyStats s = phases.get(p);
+            return s != null ? s : new LatencyStats();
+        }
+
+        public int getEvents() {
+            return events;
+        }
+
+        /** Length of the recorded session. */
+        public long getRecordedNanos() {
+            return recordedNanos;
+        }
+
+        /** Time the replay took. */
+        public long getReplayNanos() {
+            return replayNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "%d events, recorded %.1f s, replayed in %.1f s%n",
+                    events, recordedNanos / 1e9, replayNanos / 1e9));
+            sb.append(String.format(Locale.ROOT, "%-7s %8s %9s %9s %9s %9s %10s%n",
+                    "phase", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "total ms"));
+            for (Map.Entry<Phase, LatencyStats> en : phases.entrySet()) {
+                LatencyStats s = en.getValue();
+                sb.append(String.format(Locale.ROOT, "%-7s %8d %9.3f %9.3f %9.3f %9.3f %10.1f%n",
+                        en.getKey(), s.getCount(), s.percentile(50) / 1e6, s.percentile(90) / 1e6,
+                        s.percentile(99) / 1e6, s.max() / 1e6, s.getTotal() / 1e6));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Usage: TraceReplayer trace-file [--no-paint]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: TraceReplayer <trace-file> [--no-paint]");
+            System.exit(2);
+        }
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+        TraceReplayer r = new TraceReplayer(Paths.get(args[0]));
+        for (int i = 1; i < args.length; i++) {
+            if ("--no-paint".equals(args[i])) r.setPaint(false);
+        }
+        System.out.print(r.run());
+        System.exit(0);
+    }
+}
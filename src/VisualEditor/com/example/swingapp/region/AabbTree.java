@@ -0,0 +1,257 @@
+package com.example.swingapp.region;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Dynamic bounding-volume hierarchy (axis-aligned boxes) keyed by id.
+ * Leaves are inserted next to the sibling that needs the least enlargement
+ * and ancestors are refitted on the way up; removal splices the leaf out.
+ * Not thread-safe.
+ */
+final class AabbTree {
+    private static final int NIL = -1;
+
+    private double[] minX = new double[16], minY = new double[16], maxX = new double[16], maxY = new double[16];
+    private int[] parent = new int[16], left = new int[16], right = new int[16];
+    private String[] ids = new String[16];
+    private int nodeCount = 0;
+    private int freeList = NIL;
+    private int root = NIL;
+    private final Map<String, Integer> leaves = new HashMap<>();
+
+    int size() {
+        return leaves.size();
+    }
+
+    boolean contains(String id) {
+        return leaves.containsKey(id);
+    }
+
+    void clear() {
+        nodeCount = 0;
+        freeList = NIL;
+        root = NIL;
+        leaves.clear();
+    }
+
+    /**
+     * Insert or move id to the given box.
+     */
+    void put(String id, Rectangle2D r) {
+        remove(id);
+        int leaf = alloc();
+        minX[leaf] = r.getMinX(); minY[leaf] = r.getMinY();
+        maxX[leaf] = r.getMaxX(); maxY[leaf] = r.getMaxY();
+        ids[leaf] = id;
+        leaves.put(id, leaf);
+        insertLeaf(leaf);
+    }
+
+    /**
+     * Replace the contents with a balanced tree built top-down by median splits.
+     * Much better shaped than repeated put() for bulk loads.
+     */
+    void build(Map<String, Rectangle2D> boxes) {
+        clear();
+        if (boxes.isEmpty()) return;
+        int[] idx = new int[boxes.size()];
+        int i = 0;
+        for (Map.Entry<String, Rectangle2D> en : boxes.entrySet()) {
+            int leaf = alloc();
+            Rectangle2D r = en.getValue();
+            minX[leaf] = r.getMinX(); minY[leaf] = r.getMinY();
+            maxX[leaf] = r.getMaxX(); maxY[leaf] = r.getMaxY();
+            ids[leaf] = en.getKey();
+            leaves.put(en.getKey(), leaf);
+            idx[i++] = leaf;
+        }
+        root = buildRange(idx, 0, idx.length);
+        parent[root] = NIL;
+    }
+
+    private int buildRange(int[] idx, int from, int to) {
+        if (to - from == 1) return idx[from];
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            int n = idx[i];
+            double cx = (minX[n] + maxX[n]) / 2, cy = (minY[n] + maxY[n]) / 2;
+            x0 = Math.min(x0, cx); x1 = Math.max(x1, cx);
+            y0 = Math.min(y0, cy); y1 = Math.max(y1, cy);
+        }
+        // split along the longer axis of the centers
+        boolean byX = x1 - x0 >= y1 - y0;
+        List<Integer> part = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) part.add(idx[i]);
+        part.sort((a, b) -> byX
+                ? Double.compare(minX[a] + maxX[a], minX[b] + maxX[b])
+                : Double.compare(minY[a] + maxY[a], minY[b] + maxY[b]));
+        for (int i = from; i < to; i++) idx[i] = part.get(i - from);
+        int mid = (from + to) >>> 1;
+        int l = buildRange(idx, from, mid);
+        int r = buildRange(idx, mid, to);
+        int n = alloc();
+        left[n] = l;
+        right[n] = r;
+        parent[l] = n;
+        parent[r] = n;
+        minX[n] = Math.min(minX[l], minX[r]);
+        minY[n] = Math.min(minY[l], minY[r]);
+        maxX[n] = Math.max(maxX[l], maxX[r]);
+        maxY[n] = Math.max(maxY[l], maxY[r]);
+        return n;
+    }
+
+    void remove(String id) {
+        Integer leaf = leaves.remove(id);
+        if (leaf == null) return;
+        removeLeaf(leaf);
+        release(leaf);
+    }
+
+    /**
+     * Visit the ids of all boxes containing the point.
+     */
+    void queryPoint(double x, double y, Consumer<String> out) {
+        query(x, y, x, y, out);
+    }
+
+    /**
+     * Visit the ids of all boxes intersecting the area (touching counts).
+     */
+    void query(Rectangle2D area, Consumer<String> out) {
+        query(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), out);
+    }
+
+    private void query(double qx0, double qy0, double qx1, double qy1, Consumer<String> out) {
+        if (root == NIL) return;
+        int[] stack = new int[64];
+        int sp = 0;
+        stack[sp++] = root;
+        while (sp > 0) {
+            int n = stack[--sp];
+            if (maxX[n] < qx0 || minX[n] > qx1 || maxY[n] < qy0 || minY[n] > qy1) continue;
+            if (left[n] == NIL) {
+                out.accept(ids[n]);
+                continue;
+            }
+            if (sp + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[sp++] = left[n];
+            stack[sp++] = right[n];
+        }
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NIL) {
+            root = leaf;
+            parent[leaf] = NIL;
+            return;
+        }
+        // descend towards the child whose box grows the least
+        int n = root;
+        while (left[n] != NIL) {
+            int l = left[n], r = right[n];
+            double costL = unionArea(l, leaf) - area(l);
+            double costR = unionArea(r, leaf) - area(r);
+            n = costL <= costR ? l : r;
+        }
+        int sibling = n;
+        int oldParent = parent[sibling];
+        int np = alloc();
+        parent[np] = oldParent;
+        ids[np] = null;
+        left[np] = sibling;
+        right[np] = leaf;
+        parent[sibling] = np;
+        parent[leaf] = np;
+        if (oldParent == NIL) {
+            root = np;
+        } else if (left[oldParent] == sibling) {
+            left[oldParent] = np;
+        } else {
+            right[oldParent] = np;
+        }
+        refit(np);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NIL;
+            return;
+        }
+        int p = parent[leaf];
+        int gp = parent[p];
+        int sibling = left[p] == leaf ? right[p] : left[p];
+        if (gp == NIL) {
+            root = sibling;
+            parent[sibling] = NIL;
+        } else {
+            if (left[gp] == p) left[gp] = sibling; else right[gp] = sibling;
+            parent[sibling] = gp;
+            refit(gp);
+        }
+        release(p);
+    }
+
+    private void refit(int n) {
+        while (n != NIL) {
+            int l = left[n], r = right[n];
+            minX[n] = Math.min(minX[l], minX[r]);
+            minY[n] = Math.min(minY[l], minY[r]);
+            maxX[n] = Math.max(maxX[l], maxX[r]);
+            maxY[n] = Math.max(maxY[l], maxY[r]);
+            n = parent[n];
+        }
+    }
+
+    private double area(int n) {
+        return (maxX[n] - minX[n]) * (maxY[n] - minY[n]);
+    }
+
+    private double unionArea(int a, int b) {
+        double w = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+        double h = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+        return w * h;
+    }
+
+    private int alloc() {
+        int n;
+        if (freeList != NIL) {
+            n = freeList;
+            freeList = parent[n];
+        } else {
+            if (nodeCount == parent.length) grow();
+            n = nodeCount++;
+        }
+        parent[n] = NIL;
+        left[n] = NIL;
+        right[n] = NIL;
+        return n;
+    }
+
+    private void release(int n) {
+        ids[n] = null;
+        left[n] = NIL;
+        right[n] = NIL;
+        parent[n] = freeList;
+        freeList = n;
+    }
+
+    private void grow() {
+        int cap = parent.length * 2;
+        minX = Arrays.copyOf(minX, cap);
+        minY = Arrays.copyOf(minY, cap);
+        maxX = Arrays.copyOf(maxX, cap);
+        maxY = Arrays.copyOf(maxY, cap);
+        parent = Arrays.copyOf(parent, cap);
+        left = Arrays.copyOf(left, cap);
+        right = Arrays.copyOf(right, cap);
+        ids = Arrays.copyOf(ids, cap);
+    }
+}
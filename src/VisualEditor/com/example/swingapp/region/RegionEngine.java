@@ -0,0 +1,239 @@
+package com.example.swingapp.region;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.model.Region;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers "which regions contain this point / entity" and "which entities
+ * lie inside region R" for a ReMoDeLModel.
+ *
+ * Each Region's outline is flattened once into a RegionGeometry. Regions
+ * and entity centers live in two AABB trees; queries only run the exact
+ * polygon test on the tree candidates. Membership (an entity belongs to
+ * a region when its center is inside the outline) is kept in both
+ * directions and patched incrementally from model events.
+ */
+public class RegionEngine implements ModelListener {
+    private final ReMoDeLModel model;
+    private final Map<String, RegionGeometry> geometry = new HashMap<>();
+    private final Map<String, Point2D> centers = new HashMap<>();
+    private final AabbTree regionTree = new AabbTree();
+    private final AabbTree entityTree = new AabbTree();
+    private final Map<String, Set<String>> members = new HashMap<>();   // region -> entities
+    private final Map<String, Set<String>> memberOf = new HashMap<>();  // entity -> regions
+
+    public RegionEngine(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    /**
+     * Index the current model and start following its events.
+     */
+    public void attach() {
+        rebuild();
+        model.addListener(this);
+    }
+
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    public synchronized void rebuild() {
+        geometry.clear();
+        centers.clear();
+        members.clear();
+        memberOf.clear();
+        Map<String, Rectangle2D> regionBoxes = new HashMap<>();
+        Map<String, Rectangle2D> entityBoxes = new HashMap<>();
+        for (ReMoDeLEntity e : model.getAll()) {
+            if (isRegion(e)) {
+                RegionGeometry g = geometryOf(e);
+                if (g == null) continue;
+                geometry.put(e.getId(), g);
+                regionBoxes.put(e.getId(), g.getBounds());
+            } else {
+                Point2D c = centerOf(e);
+                if (c == null) continue;
+                centers.put(e.getId(), c);
+                entityBoxes.put(e.getId(), new Rectangle2D.Double(c.getX(), c.getY(), 0, 0));
+            }
+        }
+        regionTree.build(regionBoxes);
+        entityTree.build(entityBoxes);
+        for (Map.Entry<String, Point2D> en : centers.entrySet()) {
+            for (String r : regionsAtInternal(en.getValue().getX(), en.getValue().getY())) link(r, en.getKey());
+        }
+    }
+
+    @Override
+    public synchronized void modelChanged(ModelEvent e) {
+        if (e.getType() == ModelEvent.Type.RESET) {
+            rebuild();
+            return;
+        }
+        for (String id : e.getEntityIds()) {
+            ReMoDeLEntity ent = model.get(id);
+            if (ent == null) {
+                if (geometry.containsKey(id)) removeRegion(id); else removeEntity(id);
+            } else if (isRegion(ent)) {
+                updateRegion(ent);
+            } else {
+                updateEntity(ent);
+            }
+        }
+    }
+
+    /**
+     * Regions whose outline contains the point.
+     */
+    public synchronized List<String> regionsAt(double x, double y) {
+        return regionsAtInternal(x, y);
+    }
+
+    /**
+     * Regions the entity currently belongs to (by its center).
+     */
+    public synchronized Set<String> regionsContaining(String entityId) {
+        Set<String> s = memberOf.get(entityId);
+        return s == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(s));
+    }
+
+    /**
+     * Entities whose center lies inside the region.
+     */
+    public synchronized Set<String> entitiesIn(String regionId) {
+        Set<String> s = members.get(regionId);
+        return s == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(s));
+    }
+
+    /**
+     * Regions whose bounds intersect the area (no exact test; for culling).
+     */
+    public synchronized List<String> regionsIntersecting(Rectangle2D area) {
+        List<String> out = new ArrayList<>();
+        regionTree.query(area, out::add);
+        return out;
+    }
+
+    public synchronized RegionGeometry getGeometry(String regionId) {
+        return geometry.get(regionId);
+    }
+
+    private List<String> regionsAtInternal(double x, double y) {
+        List<String> out = new ArrayList<>();
+        regionTree.queryPoint(x, y, id -> {
+            if (geometry.get(id).contains(x, y)) out.add(id);
+        });
+        return out;
+    }
+
+    private void updateEntity(ReMoDeLEntity ent) {
+        String id = ent.getId();
+        Point2D c = centerOf(ent);
+        Point2D old = centers.get(id);
+        if (c == null) {
+            removeEntity(id);
+            return;
+        }
+        if (c.equals(old)) return;
+        centers.put(id, c);
+        entityTree.put(id, new Rectangle2D.Double(c.getX(), c.getY(), 0, 0));
+        Set<String> now = new HashSet<>(regionsAtInternal(c.getX(), c.getY()));
+        Set<String> before = memberOf.getOrDefault(id, Collections.emptySet());
+        for (String r : new ArrayList<>(before)) if (!now.contains(r)) unlink(r, id);
+        for (String r : now) link(r, id);
+    }
+
+    private void removeEntity(String id) {
+        if (centers.remove(id) == null) return;
+        entityTree.remove(id);
+        Set<String> before = memberOf.remove(id);
+        if (before == null) return;
+        for (String r : before) {
+            Set<String> m = members.get(r);
+            if (m != null) m.remove(id);
+        }
+    }
+
+    private void updateRegion(ReMoDeLEntity ent) {
+        String id = ent.getId();
+        RegionGeometry g = geometryOf(ent);
+        if (g == null) {
+            removeRegion(id);
+            return;
+        }
+        geometry.put(id, g);
+        regionTree.put(id, g.getBounds());
+        // only entities inside the new bounds can be members
+        Set<String> now = new HashSet<>();
+        entityTree.query(g.getBounds(), eid -> {
+            Point2D c = centers.get(eid);
+            if (g.contains(c.getX(), c.getY())) now.add(eid);
+        });
+        Set<String> before = members.getOrDefault(id, Collections.emptySet());
+        for (String eid : new ArrayList<>(before)) if (!now.contains(eid)) unlink(id, eid);
+        for (String eid : now) link(id, eid);
+    }
+
+    private void removeRegion(String id) {
+        geometry.remove(id);
+        regionTree.remove(id);
+        Set<String> before = members.remove(id);
+        if (before == null) return;
+        for (String eid : before) {
+            Set<String> s = memberOf.get(eid);
+            if (s != null) {
+                s.remove(id);
+                if (s.isEmpty()) memberOf.remove(eid);
+            }
+        }
+    }
+
+    private void link(String regionId, String entityId) {
+        members.computeIfAbsent(regionId, k -> new HashSet<>()).add(entityId);
+        memberOf.computeIfAbsent(entityId, k -> new HashSet<>()).add(regionId);
+    }
+
+    private void unlink(String regionId, String entityId) {
+        Set<String> m = members.get(regionId);
+        if (m != null) m.remove(entityId);
+        Set<String> s = memberOf.get(entityId);
+        if (s != null) {
+            s.remove(regionId);
+            if (s.isEmpty()) memberOf.remove(entityId);
+        }
+    }
+
+    private static boolean isRegion(ReMoDeLEntity e) {
+        return e instanceof Region || "Region".equals(e.getType());
+    }
+
+    // a region's outline is its "path", falling back to its x1/y1/x2/y2 box
+    private static RegionGeometry geometryOf(ReMoDeLEntity e) {
+        Object p = e.get("path");
+        if (p instanceof Path2D) return RegionGeometry.of((Path2D) p);
+        Rectangle2D b = e.getBounds();
+        return b == null ? null : RegionGeometry.of(b);
+    }
+
+    private static Point2D centerOf(ReMoDeLEntity e) {
+        if ("Connective".equals(e.getType())) return null;
+        Rectangle2D b = e.getBounds();
+        return b == null ? null : new Point2D.Double(b.getCenterX(), b.getCenterY());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.swingapp.region;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flattened, immutable copy of a region outline: one closed polygon per
+ * sub-path, its bounds and the winding rule. Point tests run directly on
+ * the cached vertex arrays instead of re-iterating the Path2D.
+ */
+public final class RegionGeometry {
+    private static final double FLATNESS = 0.5;
+
+    private final double[][] polygons; // x0, y0, x1, y1, ... per closed ring
+    private final Rectangle2D bounds;
+    private final boolean evenOdd;
+
+    private RegionGeometry(double[][] polygons, Rectangle2D bounds, boolean evenOdd) {
+        this.polygons = polygons;
+        this.bounds = bounds;
+        this.evenOdd = evenOdd;
+    }
+
+    public static RegionGeometry of(Path2D path) {
+        List<double[]> rings = new ArrayList<>();
+        double[] cur = new double[16];
+        int n = 0;
+        double[] c = new double[6];
+        for (PathIterator it = path.getPathIterator(null, FLATNESS); !it.isDone(); it.next()) {
+            int seg = it.currentSegment(c);
+            // a move or close ends the ring so far; a move also starts the next one
+            if (seg == PathIterator.SEG_MOVETO || seg == PathIterator.SEG_CLOSE) {
+                if (n >= 6) rings.add(Arrays.copyOf(cur, n));
+                n = 0;
+            }
+            if (seg == PathIterator.SEG_MOVETO || seg == PathIterator.SEG_LINETO) {
+                if (n + 2 > cur.length) cur = Arrays.copyOf(cur, cur.length * 2);
+                cur[n++] = c[0];
+                cur[n++] = c[1];
+            }
+        }
+        if (n >= 6) rings.add(Arrays.copyOf(cur, n));
+        Rectangle2D b = path.getBounds2D();
+        return new RegionGeometry(rings.toArray(new double[0][]), b, path.getWindingRule() == Path2D.WIND_EVEN_ODD);
+    }
+
+    public static RegionGeometry of(Rectangle2D r) {
+        double[] ring = { r.getMinX(), r.getMinY(), r.getMaxX(), r.getMinY(), r.getMaxX(), r.getMaxY(), r.getMinX(), r.getMaxY() };
+        return new RegionGeometry(new double[][] { ring }, (Rectangle2D) r.clone(), false);
+    }
+
+    public Rectangle2D getBounds() {
+        return (Rectangle2D) bounds.clone();
+    }
+
+    public int vertexCount() {
+        int n = 0;
+        for (double[] p : polygons) n += p.length / 2;
+        return n;
+    }
+
+    /**
+     * Exact point-in-polygon test honouring the path's winding rule.
+     */
+    public boolean contains(double x, double y) {
+        if (!bounds.contains(x, y)) return false;
+        int winding = 0;
+        int crossings = 0;
+        for (double[] p : polygons) {
+            int n = p.length;
+            double x0 = p[n - 2], y0 = p[n - 1];
+            for (int i = 0; i < n; i += 2) {
+                double x1 = p[i], y1 = p[i + 1];
+                if ((y0 <= y) != (y1 <= y)) {
+                    double xi = x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+                    if (x < xi) {
+                        crossings++;
+                        winding += y1 > y0 ? 1 : -1;
+                    }
+                }
+                x0 = x1;
+                y0 = y1;
+            }
+        }
+        return evenOdd ? (crossings & 1) != 0 : winding != 0;
+    }
+}
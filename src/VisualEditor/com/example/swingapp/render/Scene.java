@@ -0,0 +1,254 @@
+package com.example.swingapp.render;
+
+import java.awt.geom.Rectangle2D;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, versioned list of shapes in paint order, bottom-most first.
+ *
+ * A scene never changes once built, so any thread may render or hit-test
+ * it while the editor goes on to the next version. Shapes are kept in
+ * fixed-size chunks: replacing shapes copies the chunk table and the
+ * chunks touched and shares the rest, and keeps every shape's index, so
+ * the entity id -> index map is shared as well. Adding or removing shapes
+ * moves indexes and builds a new map.
+ */
+public final class Scene {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    public static final Scene EMPTY = new Scene(new SceneShape[0][], 0, Collections.emptyMap());
+
+    // all chunks are full but the last, which is exactly as long as it needs to be
+    private final SceneShape[][] chunks;
+    private final int size;
+    private final Map<String, Integer> index;
+    private final long version;
+
+    private Scene(SceneShape[][] chunks, int size, Map<String, Integer> index) {
+        this.chunks = chunks;
+        this.size = size;
+        this.index = index;
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * A scene of the shapes, in the given order; null elements are skipped.
+     */
+    public static Scene of(Collection<SceneShape> shapes) {
+        if (shapes == null) throw new IllegalArgumentException("shapes is null");
+        List<SceneShape> list = new ArrayList<>(shapes.size());
+        for (SceneShape s : shapes) if (s != null) list.add(s);
+        int n = list.size();
+        SceneShape[][] chunks = new SceneShape[(n + CHUNK - 1) >> CHUNK_BITS][];
+        Map<String, Integer> index = new HashMap<>();
+        for (int c = 0; c < chunks.length; c++) {
+            int from = c << CHUNK_BITS;
+            chunks[c] = list.subList(from, Math.min(n, from + CHUNK)).toArray(new SceneShape[0]);
+        }
+        for (int i = 0; i < n; i++) {
+            String id = list.get(i).getEntityId();
+            if (id != null) index.put(id, i);
+        }
+        return new Scene(chunks, n, Collections.unmodifiableMap(index));
+    }
+
+    /**
+     * Increases with every scene built, across all scenes of the process.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public SceneShape get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        return chunks[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+    }
+
+    /**
+     * Index of the shape showing the entity, or -1.
+     */
+    public int indexOf(String entityId) {
+        Integer i = entityId == null ? null : index.get(entityId);
+        return i != null ? i : -1;
+    }
+
+    /**
+     * The shape showing the entity, or null.
+     */
+    public SceneShape find(String entityId) {
+        int i = indexOf(entityId);
+        return i >= 0 ? get(i) : null;
+    }
+
+    /**
+     * Ids of the entities the scene shows.
+     */
+    public Set<String> entityIds() {
+        return index.keySet();
+    }
+
+    /**
+     * Whether both scenes hold the same entities at the same indexes, as a
+     * scene and the ones derived from it by with() do.
+     */
+    public boolean sameLayout(Scene other) {
+        return other != null && other.index == index && other.size == size;
+    }
+
+    /**
+     * The shapes as a read-only list.
+     */
+    public List<SceneShape> asList() {
+        return new AbstractList<SceneShape>() {
+            @Override
+            public SceneShape get(int i) {
+                return Scene.this.get(i);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * This scene with the shape at index i replaced.
+     */
+    public Scene with(int i, SceneShape s) {
+        return with(Collections.singletonMap(i, s));
+    }
+
+    /**
+     * This scene with the shapes at the given indexes replaced. Shapes that
+     * keep their entity id keep the index map; others rebuild it.
+     */
+    public Scene with(Map<Integer, SceneShape> replacements) {
+        if (replacements.isEmpty()) return this;
+        SceneShape[][] next = chunks.clone();
+        boolean sameIds = true;
+        for (Map.Entry<Integer, SceneShape> en : replacements.entrySet()) {
+            int i = en.getKey();
+            SceneShape s = en.getValue();
+            if (s == null) throw new IllegalArgumentException("shape is null");
+            SceneShape old = get(i);
+            int c = i >>> CHUNK_BITS;
+            if (next[c] == chunks[c]) next[c] = chunks[c].clone();
+            next[c][i & (CHUNK - 1)] = s;
+            if (!Objects.equals(old.getEntityId(), s.getEntityId())) sameIds = false;
+        }
+        Scene out = new Scene(next, size, index);
+        return sameIds ? out : of(out.asList());
+    }
+
+    /**
+     * This scene with the shape added on top.
+     */
+    public Scene plus(SceneShape s) {
+        if (s == null) throw new IllegalArgumentException("shape is null");
+        SceneShape[][] next;
+        if ((size & (CHUNK - 1)) == 0) {
+            next = Arrays.copyOf(chunks, chunks.length + 1);
+            next[chunks.length] = new SceneShape[] { s };
+        } else {
+            next = chunks.clone();
+            SceneShape[] last = chunks[chunks.length - 1];
+            next[chunks.length - 1] = Arrays.copyOf(last, last.length + 1);
+            next[chunks.length - 1][last.length] = s;
+        }
+        Map<String, Integer> nextIndex = index;
+        if (s.getEntityId() != null) {
+            Map<String, Integer> m = new HashMap<>(index);
+            m.put(s.getEntityId(), size);
+            nextIndex = Collections.unmodifiableMap(m);
+        }
+        return new Scene(next, size + 1, nextIndex);
+    }
+
+    /**
+     * This scene without the shape at index i.
+     */
+    public Scene minus(int i) {
+        get(i);
+        List<SceneShape> rest = new ArrayList<>(asList());
+        rest.remove(i);
+        return of(rest);
+    }
+
+    /**
+     * Index of the top-most shape under the point, or -1.
+     */
+    public int hitTest(double x, double y) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (get(i).hits(x, y)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Id of the top-most entity whose box contains the point and that a
+     * connector can attach to (not a line, arrow or freehand stroke), or null.
+     */
+    public String anchorAt(double x, double y) {
+        for (int i = size - 1; i >= 0; i--) {
+            SceneShape s = get(i);
+            if (s.getEntityId() == null || s.getKind().isConnector() || s.getKind() == ShapeKind.FREEHAND) continue;
+            if (s.intersects(x, y, 0, 0, 0) && s.getShape().getBounds2D().contains(x, y)) return s.getEntityId();
+        }
+        return null;
+    }
+
+    /**
+     * Area covered by the shapes of the given entities, or null if the scene
+     * shows none of them.
+     */
+    public Rectangle2D bounds(Collection<String> entityIds) {
+        Rectangle2D r = null;
+        for (String id : entityIds) {
+            int i = indexOf(id);
+            if (i < 0) continue;
+            Rectangle2D b = get(i).getBounds();
+            if (r == null) r = b;
+            else r.add(b);
+        }
+        return r;
+    }
+
+    /**
+     * Indexes of the entity shapes lying completely inside the area, bottom-most first.
+     */
+    public List<Integer> inside(Rectangle2D area) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            SceneShape s = get(i);
+            if (s.getEntityId() != null && s.intersects(area.getX(), area.getY(), area.getWidth(), area.getHeight(), 0)
+                    && area.contains(s.getBounds())) out.add(i);
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return "Scene[version " + version + ", " + size + " shapes]";
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.swingapp.render;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.routing.ConnectiveRouter;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts between model entities and scene shapes.
+ *
+ * Text entities ("text" type) keep their box, text, font and colour.
+ * Other entities draw the shape their "tool" property names inside their
+ * x1/y1/x2/y2 box, freehand strokes their "points" and routed connectives
+ * their route; anything else shows as a rectangle.
+ */
+public final class SceneBuilder {
+
+    private SceneBuilder() {
+    }
+
+    /**
+     * The scene showing the entities, in their order.
+     */
+    public static Scene build(Collection<? extends ReMoDeLEntity> entities, float stroke) {
+        List<SceneShape> shapes = new ArrayList<>(entities.size());
+        for (ReMoDeLEntity e : entities) shapes.add(fromEntity(e, stroke));
+        return Scene.of(shapes);
+    }
+
+    /**
+     * The scene after the entities with the given ids changed in the model.
+     * Updated entities are replaced in place; if any of them was added or
+     * removed the scene is rebuilt from the whole model.
+     */
+    public static Scene update(Scene scene, ReMoDeLModel model, Collection<String> ids, float stroke) {
+        Map<Integer, SceneShape> updated = new HashMap<>();
+        for (String id : ids) {
+            ReMoDeLEntity e = model.get(id);
+            int i = scene.indexOf(id);
+            if (e == null || i < 0) return build(model.getAll(), stroke);
+            updated.put(i, fromEntity(e, stroke));
+        }
+        return scene.with(updated);
+    }
+
+    /**
+     * The shape of an entity, drawn with the given stroke width; null for null.
+     */
+    public static SceneShape fromEntity(ReMoDeLEntity e, float stroke) {
+        if (e == null) return null;
+        String type = e.getType();
+        if ("text".equalsIgnoreCase(type)) {
+            int x1 = intOf(e, "x1", 0);
+            int y1 = intOf(e, "y1", 0);
+            int x2 = intOf(e, "x2", x1 + 80);
+            int y2 = intOf(e, "y2", y1 + 30);
+            String txt = e.get("text") instanceof String ? (String) e.get("text") : "";
+            String fontName = e.get("fontName") instanceof String ? (String) e.get("fontName") : "SansSerif";
+            int fontStyle = intOf(e, "fontStyle", Font.PLAIN);
+            int fontSize = intOf(e, "fontSize", Math.max(12, (y2 - y1) / 2));
+            Color c = new Color(intOf(e, "colorRGB", Color.BLACK.getRGB()), true);
+            int w = Math.max(4, x2 - x1);
+            int h = Math.max(4, y2 - y1);
+            return SceneShape.text(txt, new Font(fontName, fontStyle, fontSize), c, stroke, x1, y1, w, h, e.getId());
+        }
+        Color c = e.get("colorRGB") instanceof Number ? new Color(((Number) e.get("colorRGB")).intValue(), true) : Color.BLACK;
+        ShapeKind kind = ShapeKind.parse(e.get("tool"));
+        // routed connective: polyline, arrow head (if any) drawn on the last segment
+        Object route = e.get(ConnectiveRouter.ROUTE);
+        if (route instanceof int[] && ((int[]) route).length >= 4) {
+            int[] pts = (int[]) route;
+            int n = pts.length;
+            return new SceneShape(kind != null ? kind : ShapeKind.LINE, polyline(pts), c, stroke,
+                    pts[n - 4], pts[n - 3], pts[n - 2], pts[n - 1], null, null, e.getId());
+        }
+        // other types: read the box and draw the recorded tool (rectangle placeholder by default)
+        int x1 = intOf(e, "x1", 10);
+        int y1 = intOf(e, "y1", 10);
+        int x2 = intOf(e, "x2", x1 + 80);
+        int y2 = intOf(e, "y2", y1 + 40);
+        Object points = e.get("points");
+        if (kind == ShapeKind.FREEHAND && points instanceof int[] && ((int[]) points).length >= 2) {
+            return new SceneShape(ShapeKind.FREEHAND, polyline((int[]) points), c, stroke, x1, y1, x2, y2, null, null, e.getId());
+        }
+        if (kind != null && kind != ShapeKind.FREEHAND && kind != ShapeKind.TEXT) {
+            return SceneShape.of(kind, c, stroke, x1, y1, x2, y2).withEntityId(e.getId());
+        }
+        return SceneShape.of(ShapeKind.RECTANGLE, c, stroke, x1, y1, x2, y2).withEntityId(e.getId());
+    }
+
+    /**
+     * The entity for a shape: a copy of 'existing' (may be null) with the
+     * shape's geometry, so type-specific properties survive edits. New
+     * entities get the shape's kind and colour as well.
+     */
+    public static ReMoDeLEntity toEntity(SceneShape s, ReMoDeLEntity existing) {
+        if (s == null) return null;
+        ReMoDeLEntity ent = existing != null ? existing.copy() : new ReMoDeLEntity(s.getEntityId());
+        if (s.getKind() == ShapeKind.TEXT) {
+            ent.setType("text");
+            putBox(ent, s);
+            ent.put("text", s.getText() != null ? s.getText() : "");
+            if (s.getFont() != null) {
+                ent.put("fontName", s.getFont().getName());
+                ent.put("fontStyle", s.getFont().getStyle());
+                ent.put("fontSize", s.getFont().getSize());
+            }
+            if (s.getColor() != null) ent.put("colorRGB", s.getColor().getRGB());
+            return ent;
+        }
+        if (existing == null) {
+            ent.setType("shape");
+            ent.put("tool", s.getKind().name());
+            if (s.getColor() != null) ent.put("colorRGB", s.getColor().getRGB());
+        }
+        if (s.getKind() == ShapeKind.FREEHAND) {
+            // freehand strokes keep their vertices; the box is the stroke's bounds
+            Rectangle2D fb = s.getShape().getBounds2D();
+            ent.put("points", flattenPoints(s.getShape()));
+            ent.put("x1", (int) Math.floor(fb.getMinX()));
+            ent.put("y1", (int) Math.floor(fb.getMinY()));
+            ent.put("x2", (int) Math.ceil(fb.getMaxX()));
+            ent.put("y2", (int) Math.ceil(fb.getMaxY()));
+            return ent;
+        }
+        putBox(ent, s);
+        return ent;
+    }
+
+    private static void putBox(ReMoDeLEntity ent, SceneShape s) {
+        ent.put("x1", (int) Math.round(s.getX1()));
+        ent.put("y1", (int) Math.round(s.getY1()));
+        ent.put("x2", (int) Math.round(s.getX2()));
+        ent.put("y2", (int) Math.round(s.getY2()));
+    }
+
+    private static int intOf(ReMoDeLEntity e, String key, int dflt) {
+        Object v = e.get(key);
+        return v instanceof Number ? ((Number) v).intValue() : dflt;
+    }
+
+    private static Path2D polyline(int[] pts) {
+        Path2D path = new Path2D.Double();
+        path.moveTo(pts[0], pts[1]);
+        for (int i = 2; i + 1 < pts.length; i += 2) path.lineTo(pts[i], pts[i + 1]);
+        return path;
+    }
+
+    // polyline vertices of a (freehand) shape as {x0, y0, x1, y1, ...}
+    private static int[] flattenPoints(Shape s) {
+        int[] out = new int[16];
+        int n = 0;
+        double[] c = new double[6];
+        for (PathIterator it = s.getPathIterator(null, 1.0); !it.isDone(); it.next()) {
+            if (it.currentSegment(c) == PathIterator.SEG_CLOSE) continue;
+            if (n + 2 > out.length) out = Arrays.copyOf(out, out.length * 2);
+            out[n++] = (int) Math.round(c[0]);
+            out[n++] = (int) Math.round(c[1]);
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
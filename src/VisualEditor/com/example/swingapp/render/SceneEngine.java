@@ -0,0 +1,117 @@
+package com.example.swingapp.render;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the scene of a model up to date and renders it, from any thread.
+ *
+ * Model events only note which entities changed; the next snapshot()
+ * applies them, so a burst of changes costs one scene update, made by
+ * whichever thread wants to look at the scene next. A snapshot never
+ * changes afterwards, so the caller can render or hit-test it without
+ * holding any lock while the model moves on.
+ */
+public class SceneEngine implements ModelListener {
+    private final ReMoDeLModel model;
+    private final SceneRenderer renderer = new SceneRenderer();
+    private Scene scene = Scene.EMPTY;
+    private final Set<String> pendingIds = new HashSet<>();
+    private boolean pendingReset = true;
+    private float stroke = 3f;
+
+    public SceneEngine(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    /**
+     * Build the scene of the current model and start following it.
+     */
+    public void attach() {
+        rebuild();
+        model.addListener(this);
+    }
+
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    public synchronized void rebuild() {
+        pendingIds.clear();
+        pendingReset = false;
+        scene = SceneBuilder.build(model.getAll(), stroke);
+    }
+
+    public ReMoDeLModel getModel() {
+        return model;
+    }
+
+    public SceneRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Stroke width of shapes built from now on.
+     */
+    public synchronized void setStroke(float width) {
+        if (width <= 0) throw new IllegalArgumentException("stroke width must be positive");
+        stroke = width;
+    }
+
+    public synchronized float getStroke() {
+        return stroke;
+    }
+
+    @Override
+    public synchronized void modelChanged(ModelEvent e) {
+        if (e.getType() == ModelEvent.Type.RESET) {
+            pendingReset = true;
+            pendingIds.clear();
+        } else if (!pendingReset) {
+            pendingIds.addAll(e.getEntityIds());
+        }
+    }
+
+    /**
+     * The scene as of the model events received so far.
+     */
+    public synchronized Scene snapshot() {
+        if (pendingReset) {
+            rebuild();
+        } else if (!pendingIds.isEmpty()) {
+            scene = SceneBuilder.update(scene, model, pendingIds, stroke);
+            pendingIds.clear();
+        }
+        return scene;
+    }
+
+    /**
+     * Entities changed in the model that the scene has not caught up with yet.
+     */
+    public synchronized int getBacklog() {
+        return pendingIds.size() + (pendingReset ? 1 : 0);
+    }
+
+    /**
+     * Draw the current scene's shapes intersecting the region; returns the number drawn.
+     */
+    public int render(Graphics2D g, Rectangle2D region) {
+        return renderer.render(g, snapshot(), region);
+    }
+
+    /**
+     * The region of the current scene as an image; see SceneRenderer.renderImage().
+     */
+    public BufferedImage renderImage(Rectangle region, double scale) {
+        return renderer.renderImage(snapshot(), region, scale);
+    }
+}
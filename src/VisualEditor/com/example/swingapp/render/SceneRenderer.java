@@ -0,0 +1,249 @@
+package com.example.swingapp.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws scenes into any Graphics2D: a screen, a back buffer, an export
+ * image. The renderer keeps no state, so one instance may be used by
+ * several threads at once, each with its own Graphics2D; nothing here
+ * needs a display, so it works with java.awt.headless=true.
+ */
+public class SceneRenderer {
+
+    /**
+     * How far a shape's stroke and arrow head reach beyond its geometry.
+     */
+    public static double reach(SceneShape s) {
+        return 2 * s.getStroke() + 16;
+    }
+
+    /**
+     * Draw the shapes of the scene that intersect the region, bottom-most
+     * first; a null region draws them all. Returns the number drawn.
+     */
+    public int render(Graphics2D g, Scene scene, Rectangle2D region) {
+        int drawn = 0;
+        for (int i = 0, n = scene.size(); i < n; i++) {
+            SceneShape s = scene.get(i);
+            if (region != null && !s.intersects(region.getX(), region.getY(), region.getWidth(), region.getHeight(), reach(s))) continue;
+            draw(g, s);
+            drawn++;
+        }
+        return drawn;
+    }
+
+    /**
+     * Draw the shapes intersecting the region for an overview at a small
+     * scale: text boxes are tinted blocks instead of laid-out text.
+     */
+    public int renderOverview(Graphics2D g, Scene scene, Rectangle2D region) {
+        int drawn = 0;
+        for (int i = 0, n = scene.size(); i < n; i++) {
+            SceneShape s = scene.get(i);
+            if (region != null && !s.intersects(region.getX(), region.getY(), region.getWidth(), region.getHeight(), reach(s))) continue;
+            if (s.getKind() == ShapeKind.TEXT) {
+                Color c = s.getColor() != null ? s.getColor() : Color.BLACK;
+                g.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 96));
+                g.fill(s.getShape());
+            } else {
+                draw(g, s);
+            }
+            drawn++;
+        }
+        return drawn;
+    }
+
+    /**
+     * The region of the scene as an image, white behind the shapes, scaled
+     * by the given factor.
+     */
+    public BufferedImage renderImage(Scene scene, Rectangle region, double scale) {
+        if (region == null || region.isEmpty()) throw new IllegalArgumentException("region is empty");
+        if (scale <= 0) throw new IllegalArgumentException("scale must be positive");
+        int w = Math.max(1, (int) Math.ceil(region.width * scale)), h = Math.max(1, (int) Math.ceil(region.height * scale));
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.scale(scale, scale);
+            g.translate(-region.x, -region.y);
+            g.clip(region);
+            render(g, scene, region);
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    /**
+     * Draw one shape with its own stroke and colour; the graphics' stroke
+     * and colour are restored afterwards.
+     */
+    public void draw(Graphics2D g, SceneShape s) {
+        Stroke prev = g.getStroke();
+        Color prevC = g.getColor();
+        g.setStroke(new BasicStroke(s.getStroke(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        if (s.getColor() != null) g.setColor(s.getColor());
+
+        switch (s.getKind()) {
+            case ARROW_FILLED:
+            case ARROW_DIAMOND:
+            case ARROW_OPEN: {
+                // routed connectors: draw the polyline, x1/y1-x2/y2 hold its last segment
+                if (!(s.getShape() instanceof Line2D)) g.draw(s.getShape());
+                // draw the shaft only to the base of the head so the head's point stays sharp
+                Point2D.Double base = arrowBase(s.getX1(), s.getY1(), s.getX2(), s.getY2(), s.getStroke());
+                g.draw(new Line2D.Double(s.getX1(), s.getY1(), base.x, base.y));
+                drawArrowHead(g, s.getX1(), s.getY1(), s.getX2(), s.getY2(), s.getStroke(), s.getKind());
+                break;
+            }
+            case TEXT: {
+                // draw multi-line / wrapped text within the shape bounds
+                try {
+                    if (s.getText() != null) {
+                        Font f = s.getFont() != null ? s.getFont() : g.getFont();
+                        drawText(g, s.getText(), f, s.getShape().getBounds2D(), s.getColor() != null ? s.getColor() : g.getColor());
+                    }
+                } catch (RuntimeException ex) {
+                    // fallback: draw shape
+                    g.draw(s.getShape());
+                }
+                break;
+            }
+            default:
+                g.draw(s.getShape());
+        }
+        g.setColor(prevC);
+        g.setStroke(prev);
+    }
+
+    private static Point2D.Double arrowBase(double x1, double y1, double x2, double y2, float stroke) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double len = Math.hypot(dx, dy);
+        if (len < 1e-6) return new Point2D.Double(x2, y2);
+        double headLen = headLength(stroke);
+        return new Point2D.Double(x2 - dx / len * headLen, y2 - dy / len * headLen);
+    }
+
+    private static double headLength(float stroke) {
+        return Math.max(8, 6 + stroke * 2);
+    }
+
+    private static void drawArrowHead(Graphics2D g, double x1, double y1, double x2, double y2, float stroke, ShapeKind kind) {
+        // compute unit vector along line
+        double dx = x2 - x1, dy = y2 - y1;
+        double len = Math.hypot(dx, dy);
+        if (len < 1e-6) return;
+        double ux = dx / len, uy = dy / len;
+        double px = -uy, py = ux; // perp
+
+        double headLen = headLength(stroke);
+        double headWidth = Math.max(6, 4 + stroke * 1.5);
+
+        // base of head
+        double bx = x2 - ux * headLen;
+        double by = y2 - uy * headLen;
+
+        // two side points
+        double sx1 = bx + px * (headWidth / 2.0);
+        double sy1 = by + py * (headWidth / 2.0);
+        double sx2 = bx - px * (headWidth / 2.0);
+        double sy2 = by - py * (headWidth / 2.0);
+
+        switch (kind) {
+            case ARROW_FILLED: {
+                Path2D p = new Path2D.Double();
+                p.moveTo(x2, y2);
+                p.lineTo(sx1, sy1);
+                p.lineTo(sx2, sy2);
+                p.closePath();
+                g.fill(p);
+                break;
+            }
+            case ARROW_DIAMOND: {
+                // diamond center at bx - ux*(headLen/2)
+                double cx = bx - ux * (headLen / 2.0);
+                double cy = by - uy * (headLen / 2.0);
+                Path2D d = new Path2D.Double();
+                d.moveTo(x2, y2);
+                d.lineTo(sx1, sy1);
+                d.lineTo(cx, cy);
+                d.lineTo(sx2, sy2);
+                d.closePath();
+                g.fill(d);
+                break;
+            }
+            case ARROW_OPEN: {
+                // draw two lines forming open head
+                g.draw(new Line2D.Double(x2, y2, sx1, sy1));
+                g.draw(new Line2D.Double(x2, y2, sx2, sy2));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Draw text with simple word-wrapping inside the given bounds using FontMetrics.
+     */
+    public void drawText(Graphics2D g, String text, Font font, Rectangle2D bounds, Color color) {
+        if (text == null || text.isEmpty() || bounds == null) return;
+        g.setFont(font != null ? font : g.getFont());
+        g.setColor(color != null ? color : g.getColor());
+        FontMetrics fm = g.getFontMetrics(g.getFont());
+        int wrapWidth = Math.max(4, (int) bounds.getWidth() - 8);
+        float x = (float) (bounds.getX() + 4f);
+        float y = (float) (bounds.getY() + 4f) + fm.getAscent();
+
+        String[] paragraphs = text.split("\r?\n");
+        for (int p = 0; p < paragraphs.length; p++) {
+            String paragraph = paragraphs[p].trim();
+            if (paragraph.isEmpty()) {
+                y += fm.getHeight();
+                if (y > bounds.getY() + bounds.getHeight()) break;
+                continue;
+            }
+            String[] words = paragraph.split("\\s+");
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < words.length; i++) {
+                String word = words[i];
+                String test = line.length() == 0 ? word : line + " " + word;
+                int w = fm.stringWidth(test);
+                if (w > wrapWidth && line.length() > 0) {
+                    // draw current line
+                    g.drawString(line.toString(), x, y);
+                    y += fm.getHeight();
+                    if (y > bounds.getY() + bounds.getHeight()) return;
+                    line.setLength(0);
+                    line.append(word);
+                } else {
+                    if (line.length() > 0) line.append(' ');
+                    line.append(word);
+                }
+            }
+            if (line.length() > 0) {
+                g.drawString(line.toString(), x, y);
+                y += fm.getHeight();
+                if (y > bounds.getY() + bounds.getHeight()) return;
+            }
+            // add paragraph spacing
+            y += fm.getLeading();
+        }
+    }
+}
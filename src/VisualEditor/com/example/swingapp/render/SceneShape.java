@@ -0,0 +1,185 @@
+package com.example.swingapp.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+
+/**
+ * One drawable shape of a scene: its geometry, style and, for model-backed
+ * shapes, the id of the entity it shows.
+ *
+ * Immutable as long as nobody modifies the Shape handed to the
+ * constructor or returned by getShape(); the scene shares instances
+ * between versions and threads.
+ */
+public final class SceneShape {
+    private final ShapeKind kind;
+    private final Shape shape;  // primary geometry (Line2D, Path2D, Rect/Ellipse)
+    private final Color color;
+    private final float stroke;
+    // the drawn box or line; for routed connectives the last segment
+    private final double x1, y1, x2, y2;
+    private final String text;
+    private final Font font;
+    private final String entityId;
+    private final Rectangle2D bounds;
+
+    public SceneShape(ShapeKind kind, Shape shape, Color color, float stroke,
+                      double x1, double y1, double x2, double y2, String text, Font font, String entityId) {
+        if (kind == null) throw new IllegalArgumentException("kind is null");
+        if (shape == null) throw new IllegalArgumentException("shape is null");
+        this.kind = kind;
+        this.shape = shape;
+        this.color = color;
+        this.stroke = stroke;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.text = text;
+        this.font = font;
+        this.entityId = entityId;
+        this.bounds = shape.getBounds2D();
+    }
+
+    /**
+     * A shape of the given kind spanning (x1, y1)-(x2, y2): the box of ovals
+     * and rectangles, the ends of lines and arrows.
+     */
+    public static SceneShape of(ShapeKind kind, Color color, float stroke, double x1, double y1, double x2, double y2) {
+        double rx = Math.min(x1, x2), ry = Math.min(y1, y2);
+        double rw = Math.abs(x2 - x1), rh = Math.abs(y2 - y1);
+        Shape s;
+        switch (kind) {
+            case OVAL:
+                s = new Ellipse2D.Double(rx, ry, rw, rh);
+                break;
+            case RECTANGLE:
+                s = new Rectangle2D.Double(rx, ry, rw, rh);
+                break;
+            case ROUNDED_RECTANGLE: {
+                double arc = Math.max(8, Math.min(rw, rh) / 4.0);
+                s = new RoundRectangle2D.Double(rx, ry, rw, rh, arc, arc);
+                break;
+            }
+            case TEXT:
+                return text("", null, color, stroke, rx, ry, rw, rh, null);
+            default:
+                // lines, arrows; a freehand stroke without points is a tiny line
+                s = new Line2D.Double(x1, y1, x2, y2);
+        }
+        return new SceneShape(kind, s, color, stroke, x1, y1, x2, y2, null, null, null);
+    }
+
+    public static SceneShape text(String text, Font font, Color color, float stroke,
+                                  double x, double y, double w, double h, String entityId) {
+        return new SceneShape(ShapeKind.TEXT, new Rectangle2D.Double(x, y, w, h), color, stroke,
+                x, y, x + w, y + h, text, font, entityId);
+    }
+
+    public ShapeKind getKind() {
+        return kind;
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public float getStroke() {
+        return stroke;
+    }
+
+    public double getX1() {
+        return x1;
+    }
+
+    public double getY1() {
+        return y1;
+    }
+
+    public double getX2() {
+        return x2;
+    }
+
+    public double getY2() {
+        return y2;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    /** The entity the shape shows, or null for a shape of its own. */
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public Rectangle2D getBounds() {
+        return (Rectangle2D) bounds.clone();
+    }
+
+    /**
+     * Whether the shape, grown by margin on every side, meets the rectangle.
+     */
+    public boolean intersects(double x, double y, double w, double h, double margin) {
+        return bounds.getMaxX() + margin >= x && bounds.getMinX() - margin <= x + w
+                && bounds.getMaxY() + margin >= y && bounds.getMinY() - margin <= y + h;
+    }
+
+    /**
+     * Whether the point is on the outline (with a few pixels of slack) or inside.
+     */
+    public boolean hits(double x, double y) {
+        if (!intersects(x, y, 0, 0, Math.max(6f, stroke + 6f))) return false;
+        Point2D p = new Point2D.Double(x, y);
+        Shape pick = new BasicStroke(Math.max(6f, stroke + 6f)).createStrokedShape(shape);
+        if (pick.contains(p)) return true;
+        // for filled shapes also test interior
+        try {
+            return shape.contains(p);
+        } catch (RuntimeException ignored) {
+            return false;
+        }
+    }
+
+    public SceneShape withEntityId(String id) {
+        return new SceneShape(kind, shape, color, stroke, x1, y1, x2, y2, text, font, id);
+    }
+
+    public SceneShape withText(String text, Font font, Color color) {
+        return new SceneShape(kind, shape, color, stroke, x1, y1, x2, y2, text, font, entityId);
+    }
+
+    public SceneShape translated(double dx, double dy) {
+        Shape moved = kind == ShapeKind.TEXT
+                ? new Rectangle2D.Double(Math.min(x1, x2) + dx, Math.min(y1, y2) + dy, Math.abs(x2 - x1), Math.abs(y2 - y1))
+                : AffineTransform.getTranslateInstance(dx, dy).createTransformedShape(shape);
+        return new SceneShape(kind, moved, color, stroke, x1 + dx, y1 + dy, x2 + dx, y2 + dy, text, font, entityId);
+    }
+
+    /**
+     * The same shape spanning a new box; text keeps its text and font.
+     */
+    public SceneShape resized(double nx1, double ny1, double nx2, double ny2) {
+        if (kind == ShapeKind.TEXT) {
+            Shape rect = new Rectangle2D.Double(Math.min(nx1, nx2), Math.min(ny1, ny2), Math.abs(nx2 - nx1), Math.abs(ny2 - ny1));
+            return new SceneShape(kind, rect, color, stroke, nx1, ny1, nx2, ny2, text, font, entityId);
+        }
+        return of(kind, color, stroke, nx1, ny1, nx2, ny2).withEntityId(entityId);
+    }
+}
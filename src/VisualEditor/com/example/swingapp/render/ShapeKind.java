@@ -0,0 +1,33 @@
+package com.example.swingapp.render;
+
+/**
+ * What a scene shape is drawn as. The names match the drawing tools of the
+ * canvas and the "tool" property of shape entities.
+ */
+public enum ShapeKind {
+    FREEHAND, LINE,
+    ARROW_FILLED, ARROW_DIAMOND, ARROW_OPEN,
+    OVAL, RECTANGLE, ROUNDED_RECTANGLE,
+    TEXT;
+
+    public boolean isArrow() {
+        return this == ARROW_FILLED || this == ARROW_DIAMOND || this == ARROW_OPEN;
+    }
+
+    /** Lines and arrows, which can connect two entities. */
+    public boolean isConnector() {
+        return this == LINE || isArrow();
+    }
+
+    /**
+     * The kind named by a "tool" property value, or null if it names none.
+     */
+    public static ShapeKind parse(Object name) {
+        if (name == null) return null;
+        try {
+            return valueOf(name.toString());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.swingapp.routing;
+
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+import com.example.swingapp.model.Region;
+
+import javax.swing.SwingUtilities;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps Connective geometry attached to its from/to entities.
+ *
+ * Listens to the model, maintains a spatial index of the node bounds and a
+ * dependency map (endpoint entity -> connectives, route corridor -> connectives).
+ * When an entity moves only the connectives anchored to it, or whose
+ * corridor it enters or leaves, are re-routed. Routes are written back as
+ * x1/y1/x2/y2 (anchor points) plus an int[] "route" polyline in one batch.
+ *
+ * Events only update the indexes and collect the connectives to re-route;
+ * the routing and the write-back run later on the executor (the EDT by
+ * default), once the event that caused them has reached every listener,
+ * and the changes of one burst of events, such as the steps of a drag,
+ * are routed together.
+ */
+public class ConnectiveRouter implements ModelListener {
+    public static final String ROUTE = "route";
+    private static final double CELL = 256;
+
+    private final ReMoDeLModel model;
+    private final OrthogonalRouter router = new OrthogonalRouter();
+    private final SpatialGrid nodes = new SpatialGrid(CELL);
+    private final SpatialGrid corridors = new SpatialGrid(CELL);
+    private final Map<String, Set<String>> endpointDeps = new HashMap<>();
+    private final Map<String, String[]> ends = new HashMap<>();
+    // connectives waiting for the scheduled reroute
+    private final Set<String> pending = new LinkedHashSet<>();
+    private Executor executor = SwingUtilities::invokeLater;
+    private boolean scheduled = false;
+    private boolean attached = false;
+    // set while we write routes back so our own events are ignored
+    private boolean applying = false;
+
+    public ConnectiveRouter(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    public OrthogonalRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * Executor on which connectives are re-routed after model changes.
+     * Defaults to the Swing EDT.
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor == null ? SwingUtilities::invokeLater : executor;
+    }
+
+    /**
+     * Index the current model, route every connective and start listening.
+     */
+    public void attach() {
+        synchronized (this) {
+            attached = true;
+        }
+        rebuild();
+        model.addListener(this);
+    }
+
+    public void detach() {
+        model.removeListener(this);
+        synchronized (this) {
+            attached = false;
+            pending.clear();
+        }
+    }
+
+    /**
+     * Re-index the model and route every connective now.
+     */
+    public synchronized void rebuild() {
+        pending.clear();
+        reroute(index());
+    }
+
+    /**
+     * Re-route the connectives waiting for it now, on the calling thread.
+     */
+    public synchronized void flush() {
+        scheduled = false;
+        if (!attached || pending.isEmpty()) return;
+        List<String> ids = new ArrayList<>(pending);
+        pending.clear();
+        reroute(ids);
+    }
+
+    // connectives are registered and nodes indexed; returns the connectives
+    private List<String> index() {
+        nodes.clear();
+        corridors.clear();
+        endpointDeps.clear();
+        ends.clear();
+        List<String> conns = new ArrayList<>();
+        for (ReMoDeLEntity e : model.getAll()) {
+            if (isConnective(e)) {
+                register(e);
+                conns.add(e.getId());
+            } else {
+                Rectangle2D b = obstacleBounds(e);
+                if (b != null) nodes.put(e.getId(), b);
+            }
+        }
+        return conns;
+    }
+
+    @Override
+    public synchronized void modelChanged(ModelEvent e) {
+        if (applying) return;
+        if (e.getType() == ModelEvent.Type.RESET) {
+            pending.clear();
+            pending.addAll(index());
+            schedule();
+            return;
+        }
+        for (String id : e.getEntityIds()) {
+            ReMoDeLEntity ent = model.get(id);
+            if (ent == null) {
+                removed(id, pending);
+                continue;
+            }
+            if (isConnective(ent)) {
+                register(ent);
+                pending.add(id);
+                continue;
+            }
+            Rectangle2D before = nodes.get(id);
+            Rectangle2D after = obstacleBounds(ent);
+            if (before == null ? after == null : before.equals(after)) continue;
+            if (after != null) nodes.put(id, after); else nodes.remove(id);
+            Set<String> deps = endpointDeps.get(id);
+            if (deps != null) pending.addAll(deps);
+            // routes passing next to the old or new bounds may now be blocked or shortenable
+            if (before != null) pending.addAll(corridors.query(OrthogonalRouter.grow(before, router.getMargin())));
+            if (after != null) pending.addAll(corridors.query(OrthogonalRouter.grow(after, router.getMargin())));
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled || pending.isEmpty()) return;
+        scheduled = true;
+        executor.execute(this::flush);
+    }
+
+    private void removed(String id, Set<String> dirty) {
+        if (ends.containsKey(id)) {
+            unregister(id);
+            dirty.remove(id);
+            return;
+        }
+        Rectangle2D before = nodes.get(id);
+        if (before == null) return;
+        nodes.remove(id);
+        // connectives left dangling keep their last route, but detours around the removed node can shorten
+        dirty.addAll(corridors.query(OrthogonalRouter.grow(before, router.getMargin())));
+    }
+
+    private void register(ReMoDeLEntity conn) {
+        String id = conn.getId();
+        String[] old = ends.get(id);
+        String from = str(conn.get("from")), to = str(conn.get("to"));
+        if (old != null) {
+            if (old[0] != null) deps(old[0]).remove(id);
+            if (old[1] != null) deps(old[1]).remove(id);
+        }
+        ends.put(id, new String[] { from, to });
+        if (from != null) deps(from).add(id);
+        if (to != null) deps(to).add(id);
+    }
+
+    private void unregister(String connId) {
+        String[] old = ends.remove(connId);
+        corridors.remove(connId);
+        if (old == null) return;
+        for (String n : old) {
+            if (n == null) continue;
+            Set<String> s = endpointDeps.get(n);
+            if (s != null) {
+                s.remove(connId);
+                if (s.isEmpty()) endpointDeps.remove(n);
+            }
+        }
+    }
+
+    private Set<String> deps(String nodeId) {
+        return endpointDeps.computeIfAbsent(nodeId, k -> new HashSet<>());
+    }
+
+    private void reroute(Iterable<String> connIds) {
+        Map<ReMoDeLEntity, int[]> routes = new HashMap<>();
+        for (String id : connIds) {
+            String[] fe = ends.get(id);
+            ReMoDeLEntity conn = model.get(id);
+            if (fe == null || conn == null || fe[0] == null || fe[1] == null) continue;
+            Rectangle2D src = nodes.get(fe[0]), dst = nodes.get(fe[1]);
+            if (src == null || dst == null) continue;
+            int[] pts = router.route(src, dst, nodes);
+            routes.put(conn, pts);
+            corridors.put(id, segmentRects(pts));
+        }
+        if (routes.isEmpty()) return;
+        applying = true;
+        model.beginBatch();
+        try {
+            for (Map.Entry<ReMoDeLEntity, int[]> en : routes.entrySet()) {
+                int[] pts = en.getValue();
+                // the route only, so edits to the connective since it was read are kept
+                model.patch(en.getKey().getId(), Map.of("x1", pts[0], "y1", pts[1],
+                        "x2", pts[pts.length - 2], "y2", pts[pts.length - 1], ROUTE, pts));
+            }
+        } finally {
+            model.endBatch();
+            applying = false;
+        }
+    }
+
+    private List<Rectangle2D> segmentRects(int[] pts) {
+        List<Rectangle2D> out = new ArrayList<>();
+        for (int i = 0; i + 3 < pts.length; i += 2) {
+            int x0 = pts[i], y0 = pts[i + 1], x1 = pts[i + 2], y1 = pts[i + 3];
+            out.add(new Rectangle2D.Double(Math.min(x0, x1), Math.min(y0, y1), Math.abs(x1 - x0), Math.abs(y1 - y0)));
+        }
+        return out;
+    }
+
+    static boolean isConnective(ReMoDeLEntity e) {
+        return e instanceof Connective || "Connective".equals(e.getType());
+    }
+
+    /**
+     * Bounds of an entity that routes must avoid, or null (connectives,
+     * regions, free-standing lines and entities without geometry).
+     */
+    static Rectangle2D obstacleBounds(ReMoDeLEntity e) {
+        if (isConnective(e) || e instanceof Region || "Region".equals(e.getType())) return null;
+        Object tool = e.get("tool");
+        if (tool != null) {
+            String t = tool.toString();
+            if (t.equals("LINE") || t.equals("FREEHAND") || t.startsWith("ARROW_")) return null;
+        }
+        return e.getBounds();
+    }
+
+    private static String str(Object o) {
+        return o == null ? null : o.toString();
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.swingapp.routing;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Computes orthogonal connector routes between two rectangles that avoid
+ * the obstacles registered in a SpatialGrid.
+ *
+ * Cheap candidate routes (Z and L shapes) are tried first; only when those
+ * are blocked does it run A* over a sparse grid built from the edges of the
+ * nearby obstacles, penalising bends.
+ */
+public class OrthogonalRouter {
+    private static final int RIGHT = 0, DOWN = 1, LEFT = 2, UP = 3;
+    private static final int[] DX = { 1, 0, -1, 0 };
+    private static final int[] DY = { 0, 1, 0, -1 };
+
+    private double margin = 12;
+    private double bendPenalty = 30;
+    private double searchPadding = 240;
+    // above this many nearby obstacles, or search states reached, we fall back to the direct Z route
+    private int maxObstacles = 600;
+    private int maxStates = 200_000;
+
+    public void setMargin(double margin) {
+        this.margin = Math.max(1, margin);
+    }
+
+    public double getMargin() {
+        return margin;
+    }
+
+    public void setBendPenalty(double bendPenalty) {
+        this.bendPenalty = Math.max(0, bendPenalty);
+    }
+
+    public void setSearchPadding(double searchPadding) {
+        this.searchPadding = Math.max(0, searchPadding);
+    }
+
+    public void setMaxObstacles(int maxObstacles) {
+        this.maxObstacles = Math.max(0, maxObstacles);
+    }
+
+    /**
+     * Search states (grid node and direction) a route may reach before it
+     * gives up; bounds the memory of one search at about 16 bytes each.
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = Math.max(1, maxStates);
+    }
+
+    /**
+     * Route from src to dst. Returns flattened points {x0, y0, x1, y1, ...}
+     * starting on the boundary of src and ending on the boundary of dst.
+     */
+    public int[] route(Rectangle2D src, Rectangle2D dst, SpatialGrid obstacles) {
+        // pick the pair of facing sides
+        double dx = dst.getCenterX() - src.getCenterX();
+        double dy = dst.getCenterY() - src.getCenterY();
+        int outDir, inDir;
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            outDir = dx >= 0 ? RIGHT : LEFT;
+        } else {
+            outDir = dy >= 0 ? DOWN : UP;
+        }
+        inDir = outDir; // direction of travel when entering dst
+        Point2D a = anchor(src, outDir);
+        Point2D b = anchor(dst, (inDir + 2) % 4);
+        Point2D s = new Point2D.Double(a.getX() + DX[outDir] * margin, a.getY() + DY[outDir] * margin);
+        Point2D t = new Point2D.Double(b.getX() - DX[inDir] * margin, b.getY() - DY[inDir] * margin);
+
+        List<Point2D> mid = null;
+        if (obstacles != null) {
+            for (List<Point2D> cand : candidates(s, t, outDir)) {
+                if (clear(cand, obstacles)) { mid = cand; break; }
+            }
+            if (mid == null) mid = search(s, t, outDir, inDir, obstacles);
+        }
+        if (mid == null) mid = candidates(s, t, outDir).get(0);
+
+        List<Point2D> pts = new ArrayList<>();
+        pts.add(a);
+        pts.addAll(mid);
+        pts.add(b);
+        return simplify(pts);
+    }
+
+    private static Point2D anchor(Rectangle2D r, int side) {
+        switch (side) {
+            case RIGHT: return new Point2D.Double(r.getMaxX(), r.getCenterY());
+            case LEFT: return new Point2D.Double(r.getMinX(), r.getCenterY());
+            case DOWN: return new Point2D.Double(r.getCenterX(), r.getMaxY());
+            default: return new Point2D.Double(r.getCenterX(), r.getMinY());
+        }
+    }
+
+    private static List<List<Point2D>> candidates(Point2D s, Point2D t, int outDir) {
+        List<List<Point2D>> out = new ArrayList<>();
+        boolean horizontal = outDir == RIGHT || outDir == LEFT;
+        if (horizontal) {
+            double mx = (s.getX() + t.getX()) / 2.0;
+            out.add(List.of(s, new Point2D.Double(mx, s.getY()), new Point2D.Double(mx, t.getY()), t));
+        } else {
+            double my = (s.getY() + t.getY()) / 2.0;
+            out.add(List.of(s, new Point2D.Double(s.getX(), my), new Point2D.Double(t.getX(), my), t));
+        }
+        out.add(List.of(s, new Point2D.Double(t.getX(), s.getY()), t));
+        out.add(List.of(s, new Point2D.Double(s.getX(), t.getY()), t));
+        return out;
+    }
+
+    private boolean clear(List<Point2D> pts, SpatialGrid obstacles) {
+        double inset = margin - 0.5;
+        for (int i = 0; i + 1 < pts.size(); i++) {
+            Point2D p = pts.get(i), q = pts.get(i + 1);
+            Rectangle2D seg = new Rectangle2D.Double(Math.min(p.getX(), q.getX()), Math.min(p.getY(), q.getY()),
+                    Math.abs(q.getX() - p.getX()), Math.abs(q.getY() - p.getY()));
+            for (String id : obstacles.query(grow(seg, margin))) {
+                Rectangle2D r = grow(obstacles.get(id), inset);
+                if (r.intersectsLine(p.getX(), p.getY(), q.getX(), q.getY())) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A* over the sparse orthogonal visibility grid around s and t. Returns null if unreachable.
+     */
+    private List<Point2D> search(Point2D s, Point2D t, int outDir, int inDir, SpatialGrid obstacles) {
+        Rectangle2D box = new Rectangle2D.Double(Math.min(s.getX(), t.getX()), Math.min(s.getY(), t.getY()),
+                Math.abs(t.getX() - s.getX()), Math.abs(t.getY() - s.getY()));
+        box = grow(box, searchPadding);
+        List<Rectangle2D> obs = new ArrayList<>();
+        for (String id : obstacles.query(box)) obs.add(grow(obstacles.get(id), margin - 0.5));
+        if (obs.size() > maxObstacles) return null;
+
+        TreeSet<Double> xset = new TreeSet<>(), yset = new TreeSet<>();
+        xset.add(s.getX()); xset.add(t.getX()); xset.add(box.getMinX()); xset.add(box.getMaxX());
+        yset.add(s.getY()); yset.add(t.getY()); yset.add(box.getMinY()); yset.add(box.getMaxY());
+        for (Rectangle2D r : obs) {
+            // inflated borders become routing channels; centers guarantee every obstacle covers a grid node
+            xset.add(r.getMinX() - 0.5); xset.add(r.getMaxX() + 0.5); xset.add(r.getCenterX());
+            yset.add(r.getMinY() - 0.5); yset.add(r.getMaxY() + 0.5); yset.add(r.getCenterY());
+        }
+        double[] xs = xset.stream().mapToDouble(Double::doubleValue).toArray();
+        double[] ys = yset.stream().mapToDouble(Double::doubleValue).toArray();
+        int nx = xs.length, ny = ys.length;
+        int si = Arrays.binarySearch(xs, s.getX()), sj = Arrays.binarySearch(ys, s.getY());
+        int ti = Arrays.binarySearch(xs, t.getX()), tj = Arrays.binarySearch(ys, t.getY());
+        int startNode = sj * nx + si;
+        int goalNode = tj * nx + ti;
+
+        // the grid is only ever touched where the search goes: nodes are tested
+        // against the obstacles when first reached, and only reached states are kept
+        SpatialGrid near = new SpatialGrid(Math.max(64, 8 * margin));
+        for (int k = 0; k < obs.size(); k++) near.put(Integer.toString(k), obs.get(k));
+        Map<Integer, Boolean> blocked = new HashMap<>();
+        StateTable states = new StateTable(1024);
+        PriorityQueue<double[]> open = new PriorityQueue<>((p, q) -> Double.compare(p[0], q[0]));
+        int start = startNode * 4 + outDir;
+        states.put(start, 0, -1);
+        open.add(new double[] { heuristic(s.getX(), s.getY(), t), start });
+        int goal = -1;
+        while (!open.isEmpty()) {
+            double[] top = open.poll();
+            int st = (int) top[1];
+            int node = st / 4, dir = st % 4;
+            double c = states.cost(st);
+            if (top[0] > c + heuristic(xs[node % nx], ys[node / nx], t) + 1e-9) continue; // stale
+            if (node == goalNode && dir == inDir) { goal = st; break; }
+            if (states.size() > maxStates) return null;
+            int i = node % nx, j = node / nx;
+            for (int d = 0; d < 4; d++) {
+                if (d == (dir + 2) % 4) continue; // no reversing
+                int ni = i + DX[d], nj = j + DY[d];
+                if (ni < 0 || nj < 0 || ni >= nx || nj >= ny) continue;
+                int nn = nj * nx + ni;
+                if (nn != startNode && nn != goalNode
+                        && blocked.computeIfAbsent(nn, k -> inside(near, xs[k % nx], ys[k / nx]))) continue;
+                double step = Math.abs(xs[ni] - xs[i]) + Math.abs(ys[nj] - ys[j]);
+                double nc = c + step + (d != dir ? bendPenalty : 0);
+                if (nn == goalNode && d != inDir) nc += bendPenalty;
+                int ns = nn * 4 + (nn == goalNode ? inDir : d);
+                if (nc < states.cost(ns)) {
+                    states.put(ns, nc, st);
+                    open.add(new double[] { nc + heuristic(xs[ni], ys[nj], t), ns });
+                }
+            }
+        }
+        if (goal < 0) return null;
+        List<Point2D> path = new ArrayList<>();
+        for (int st = goal; st >= 0; st = states.prev(st)) {
+            int node = st / 4;
+            path.add(0, new Point2D.Double(xs[node % nx], ys[node / nx]));
+        }
+        return path;
+    }
+
+    private static double heuristic(double x, double y, Point2D t) {
+        return Math.abs(x - t.getX()) + Math.abs(y - t.getY());
+    }
+
+    private static boolean inside(SpatialGrid near, double x, double y) {
+        for (String k : near.query(new Rectangle2D.Double(x, y, 0, 0))) {
+            if (near.get(k).contains(x, y)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cost and predecessor of the search states reached so far: an
+     * open-addressing table keyed by state number, sized by what the
+     * search visits rather than by the whole grid.
+     */
+    private static final class StateTable {
+        private int[] keys;
+        private double[] cost;
+        private int[] prev;
+        private int size;
+
+        StateTable(int capacity) {
+            allocate(Integer.highestOneBit(Math.max(16, capacity) - 1) << 1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        double cost(int key) {
+            int h = slot(key);
+            return keys[h] == key ? cost[h] : Double.POSITIVE_INFINITY;
+        }
+
+        int prev(int key) {
+            int h = slot(key);
+            return keys[h] == key ? prev[h] : -1;
+        }
+
+        void put(int key, double c, int p) {
+            if (2 * (size + 1) > keys.length) rehash();
+            int h = slot(key);
+            if (keys[h] != key) {
+                keys[h] = key;
+                size++;
+            }
+            cost[h] = c;
+            prev[h] = p;
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int h = (key * 0x9E3779B9) >>> 7 & mask;
+            while (keys[h] != -1 && keys[h] != key) h = (h + 1) & mask;
+            return h;
+        }
+
+        private void allocate(int n) {
+            keys = new int[n];
+            Arrays.fill(keys, -1);
+            cost = new double[n];
+            prev = new int[n];
+            size = 0;
+        }
+
+        private void rehash() {
+            int[] k = keys, p = prev;
+            double[] c = cost;
+            allocate(k.length * 2);
+            for (int i = 0; i < k.length; i++) if (k[i] != -1) put(k[i], c[i], p[i]);
+        }
+    }
+
+    static Rectangle2D grow(Rectangle2D r, double m) {
+        return new Rectangle2D.Double(r.getX() - m, r.getY() - m, r.getWidth() + 2 * m, r.getHeight() + 2 * m);
+    }
+
+    // round to ints and drop duplicate / collinear points
+    private static int[] simplify(List<Point2D> pts) {
+        List<int[]> out = new ArrayList<>();
+        for (Point2D p : pts) {
+            int[] q = { (int) Math.round(p.getX()), (int) Math.round(p.getY()) };
+            int n = out.size();
+            if (n > 0 && out.get(n - 1)[0] == q[0] && out.get(n - 1)[1] == q[1]) continue;
+            if (n > 1) {
+                int[] a = out.get(n - 2), b = out.get(n - 1);
+                boolean collinear = (a[0] == b[0] && b[0] == q[0]) || (a[1] == b[1] && b[1] == q[1]);
+                if (collinear) out.remove(n - 1);
+            }
+            out.add(q);
+        }
+        int[] flat = new int[out.size() * 2];
+        for (int i = 0; i < out.size(); i++) {
+            flat[2 * i] = out.get(i)[0];
+            flat[2 * i + 1] = out.get(i)[1];
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.swingapp.routing;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform-grid spatial hash of rectangles keyed by id.
+ * An id may own several rectangles (e.g. the segments of a route).
+ * Not thread-safe; callers confine it to one thread.
+ */
+public class SpatialGrid {
+    private final double cellSize;
+    private final Map<Long, Set<String>> cells = new HashMap<>();
+    private final Map<String, List<Rectangle2D>> rects = new HashMap<>();
+
+    public SpatialGrid(double cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("cellSize must be > 0");
+        this.cellSize = cellSize;
+    }
+
+    public void put(String id, Rectangle2D r) {
+        put(id, Collections.singletonList(r));
+    }
+
+    /**
+     * Replace all rectangles registered for id.
+     */
+    public void put(String id, List<Rectangle2D> rs) {
+        remove(id);
+        if (rs == null || rs.isEmpty()) return;
+        List<Rectangle2D> copy = new ArrayList<>(rs.size());
+        for (Rectangle2D r : rs) {
+            Rectangle2D c = (Rectangle2D) r.clone();
+            copy.add(c);
+            forEachCell(c, key -> cells.computeIfAbsent(key, k -> new HashSet<>()).add(id));
+        }
+        rects.put(id, copy);
+    }
+
+    public void remove(String id) {
+        List<Rectangle2D> old = rects.remove(id);
+        if (old == null) return;
+        for (Rectangle2D r : old) {
+            forEachCell(r, key -> {
+                Set<String> s = cells.get(key);
+                if (s != null) {
+                    s.remove(id);
+                    if (s.isEmpty()) cells.remove(key);
+                }
+            });
+        }
+    }
+
+    public boolean contains(String id) {
+        return rects.containsKey(id);
+    }
+
+    /**
+     * First rectangle registered for id, or null.
+     */
+    public Rectangle2D get(String id) {
+        List<Rectangle2D> rs = rects.get(id);
+        return rs == null || rs.isEmpty() ? null : rs.get(0);
+    }
+
+    public int size() {
+        return rects.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        rects.clear();
+    }
+
+    /**
+     * Ids owning at least one rectangle that intersects area (touching edges count).
+     */
+    public Set<String> query(Rectangle2D area) {
+        Set<String> out = new LinkedHashSet<>();
+        Set<String> seen = new HashSet<>();
+        forEachCell(area, key -> {
+            Set<String> s = cells.get(key);
+            if (s == null) return;
+            for (String id : s) {
+                if (!seen.add(id)) continue;
+                for (Rectangle2D r : rects.get(id)) {
+                    if (touches(r, area)) { out.add(id); break; }
+                }
+            }
+        });
+        return out;
+    }
+
+    static boolean touches(Rectangle2D a, Rectangle2D b) {
+        return a.getMinX() <= b.getMaxX() && b.getMinX() <= a.getMaxX()
+                && a.getMinY() <= b.getMaxY() && b.getMinY() <= a.getMaxY();
+    }
+
+    private interface CellVisitor {
+        void visit(long key);
+    }
+
+    private void forEachCell(Rectangle2D r, CellVisitor v) {
+        int cx0 = (int) Math.floor(r.getMinX() / cellSize), cx1 = (int) Math.floor(r.getMaxX() / cellSize);
+        int cy0 = (int) Math.floor(r.getMinY() / cellSize), cy1 = (int) Math.floor(r.getMaxY() / cellSize);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                v.visit(((long) cx << 32) ^ (cy & 0xffffffffL));
+            }
+        }
+    }
+}
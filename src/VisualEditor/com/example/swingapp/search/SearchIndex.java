@@ -0,0 +1,379 @@
+package com.example.swingapp.search;
+
+import com.example.swingapp.model.Concept;
+import com.example.swingapp.model.Feature;
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Full-text index over Concept labels, text shapes and string Feature values.
+ *
+ * Each indexed entity is a numbered document. The term dictionary is
+ * sorted, so the terms starting with a prefix are one contiguous range,
+ * and that is how queries do type-ahead. Each term maps to the postings of
+ * the documents containing it. Changing or removing an entity retires its
+ * document number and, for a change, adds a new one. Postings of retired
+ * documents are skipped by queries and purged when retired documents
+ * outnumber live ones, so model events cost time proportional to the
+ * entities they name.
+ *
+ * A query matches documents containing every query word, as a whole word
+ * or as a prefix of one. The candidates come from the rarest word's
+ * postings and are checked against the other words in their own term
+ * lists. Ranking favours labels over text over features, and whole words
+ * over prefixes. Postings are kept per field, so a query visits the label
+ * postings first and stops before a field that cannot beat the hits it has.
+ */
+public class SearchIndex implements ModelListener {
+    public enum Field { LABEL, TEXT, FEATURE }
+
+    private static final double[] FIELD_WEIGHT = { 3, 2, 1 };
+    /** Dictionary terms a prefix expands to at most. */
+    private static final int MAX_EXPANSION = 1024;
+    /** Candidates a query scores at most before ranking what it has. */
+    private static final int MAX_CANDIDATES = 20_000;
+
+    private final ReMoDeLModel model;
+    private final TreeMap<String, Postings> dict = new TreeMap<>();
+    private final ArrayList<Doc> docs = new ArrayList<>(); // null once retired
+    private final Map<String, Integer> live = new HashMap<>();
+    private int retired;
+
+    public SearchIndex(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    /**
+     * Index the current model and start following it.
+     */
+    public void attach() {
+        rebuild();
+        model.addListener(this);
+    }
+
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    public synchronized void rebuild() {
+        dict.clear();
+        docs.clear();
+        live.clear();
+        retired = 0;
+        for (ReMoDeLEntity e : model.getAll()) index(e);
+    }
+
+    /**
+     * Number of entities with searchable text.
+     */
+    public synchronized int size() {
+        return live.size();
+    }
+
+    @Override
+    public synchronized void modelChanged(ModelEvent e) {
+        if (e.getType() == ModelEvent.Type.RESET) {
+            rebuild();
+            return;
+        }
+        for (String id : e.getEntityIds()) {
+            retire(id);
+            ReMoDeLEntity ent = model.get(id);
+            if (ent != null) index(ent);
+        }
+        if (retired > 4096 && retired > live.size()) compact();
+    }
+
+    /**
+     * The best 'limit' matches for the query, best first. The last word may
+     * be incomplete; every word matches whole words or their prefixes.
+     */
+    public synchronized List<Hit> search(String query, int limit) {
+        String[] words = tokenize(query);
+        if (words.length == 0 || limit <= 0) return Collections.emptyList();
+        // drive the search from the word with the fewest postings
+        int driver = 0;
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < words.length; i++) {
+            long n = postingCount(words[i]);
+            if (n < fewest) {
+                fewest = n;
+                driver = i;
+            }
+        }
+        if (fewest == 0) return Collections.emptyList();
+
+        // best match quality each word can reach, to bound the score of a field
+        double reach = 0;
+        for (String w : words) reach += bestMatch(w);
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.score, b.score));
+        BitSet seen = new BitSet(docs.size());
+        int scored = 0;
+        Collection<Postings> driving = expand(words[driver]).values();
+        for (Field f : Field.values()) {
+            double bound = FIELD_WEIGHT[f.ordinal()] * reach + words.length;
+            if (top.size() == limit && bound <= top.peek().score) break;
+            for (Postings p : driving) {
+                int[] ds = p.docs[f.ordinal()];
+                for (int i = 0; i < p.size[f.ordinal()] && scored < MAX_CANDIDATES; i++) {
+                    int d = ds[i];
+                    Doc doc = docs.get(d);
+                    if (doc == null || seen.get(d)) continue;
+                    seen.set(d);
+                    scored++;
+                    double score = score(doc, words);
+                    if (score <= 0) continue;
+                    top.add(new Hit(doc.id, score, doc.field));
+                    if (top.size() > limit) top.poll();
+                    if (top.size() == limit && top.peek().score >= bound) return sorted(top);
+                }
+            }
+        }
+        return sorted(top);
+    }
+
+    private static List<Hit> sorted(PriorityQueue<Hit> top) {
+        List<Hit> out = new ArrayList<>(top);
+        out.sort((a, b) -> Double.compare(b.score, a.score));
+        return out;
+    }
+
+    /**
+     * Dictionary terms starting with the prefix, for completion, in order.
+     */
+    public synchronized List<String> complete(String prefix, int limit) {
+        String[] words = tokenize(prefix);
+        if (words.length == 0) return Collections.emptyList();
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, Postings> en : expand(words[words.length - 1]).entrySet()) {
+            if (out.size() >= limit) break;
+            if (en.getValue().liveHint > 0) out.add(en.getKey());
+        }
+        return out;
+    }
+
+    /**
+     * A matching entity and its relevance; higher is better.
+     */
+    public static final class Hit {
+        private final String entityId;
+        private final double score;
+        private final Field field;
+
+        Hit(String entityId, double score, Field field) {
+            this.entityId = entityId;
+            this.score = score;
+            this.field = field;
+        }
+
+        public String getEntityId() {
+            return entityId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        /** The field the entity was indexed under. */
+        public Field getField() {
+            return field;
+        }
+
+        @Override
+        public String toString() {
+            return entityId + " (" + field + ", " + String.format(Locale.ROOT, "%.2f", score) + ")";
+        }
+    }
+
+    /**
+     * Text of an entity that the index covers, or null.
+     */
+    public static String textOf(ReMoDeLEntity e) {
+        Field f = fieldOf(e);
+        if (f == null) return null;
+        switch (f) {
+            case LABEL:
+                return ((Concept) e).getLabel();
+            case FEATURE:
+                return (String) ((Feature) e).getValue();
+            default:
+                Object t = e.get("text");
+                return t instanceof String ? (String) t : null;
+        }
+    }
+
+    private static Field fieldOf(ReMoDeLEntity e) {
+        if (e instanceof Concept) return ((Concept) e).getLabel() != null ? Field.LABEL : null;
+        if (e instanceof Feature) return ((Feature) e).getValue() instanceof String ? Field.FEATURE : null;
+        if ("text".equalsIgnoreCase(e.getType()) && e.get("text") instanceof String) return Field.TEXT;
+        return null;
+    }
+
+    /**
+     * Lower-case words of letters and digits.
+     */
+    static String[] tokenize(String s) {
+        if (s == null) return new String[0];
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                out.add(s.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return out.toArray(new String[0]);
+    }
+
+    private void index(ReMoDeLEntity e) {
+        String text = textOf(e);
+        if (text == null) return;
+        String[] words = tokenize(text);
+        if (words.length == 0) return;
+        // unique terms, sharing the dictionary's string instances
+        LinkedHashMap<String, Postings> terms = new LinkedHashMap<>();
+        for (String w : words) {
+            if (terms.containsKey(w)) continue;
+            Map.Entry<String, Postings> en = dict.ceilingEntry(w);
+            if (en == null || !en.getKey().equals(w)) {
+                Postings p = new Postings();
+                dict.put(w, p);
+                terms.put(w, p);
+            } else {
+                terms.put(en.getKey(), en.getValue());
+            }
+        }
+        int d = docs.size();
+        String[] keys = terms.keySet().toArray(new String[0]);
+        Field field = fieldOf(e);
+        docs.add(new Doc(e.getId(), keys, field));
+        for (Postings p : terms.values()) p.add(d, field);
+        live.put(e.getId(), d);
+    }
+
+    private void retire(String id) {
+        Integer d = live.remove(id);
+        if (d == null) return;
+        Doc doc = docs.set(d, null);
+        for (String t : doc.terms) {
+            Postings p = dict.get(t);
+            if (p != null) p.liveHint--;
+        }
+        retired++;
+    }
+
+    // renumber the live documents and drop the postings of retired ones
+    private void compact() {
+        List<Doc> keep = new ArrayList<>(live.size());
+        for (Doc doc : docs) if (doc != null) keep.add(doc);
+        dict.clear();
+        docs.clear();
+        live.clear();
+        retired = 0;
+        for (Doc doc : keep) {
+            int d = docs.size();
+            docs.add(doc);
+            live.put(doc.id, d);
+            for (String t : doc.terms) dict.computeIfAbsent(t, k -> new Postings()).add(d, doc.field);
+        }
+    }
+
+    private SortedMap<String, Postings> expand(String prefix) {
+        SortedMap<String, Postings> range = dict.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() <= MAX_EXPANSION) return range;
+        // very short prefixes: only the first MAX_EXPANSION completions in dictionary order
+        TreeMap<String, Postings> some = new TreeMap<>();
+        for (Map.Entry<String, Postings> en : range.entrySet()) {
+            if (some.size() >= MAX_EXPANSION) break;
+            some.put(en.getKey(), en.getValue());
+        }
+        return some;
+    }
+
+    private long postingCount(String prefix) {
+        long n = 0;
+        for (Postings p : expand(prefix).values()) n += p.liveHint;
+        return n;
+    }
+
+    // 1 if the word is a term, else the best prefix match any term gives it
+    private double bestMatch(String w) {
+        double best = 0;
+        for (String t : expand(w).keySet()) {
+            if (t.equals(w)) return 1;
+            best = Math.max(best, match(w, t));
+        }
+        return best;
+    }
+
+    private static double match(String w, String t) {
+        if (t.equals(w)) return 1;
+        return t.startsWith(w) ? 0.5 + 0.5 * w.length() / t.length() : 0;
+    }
+
+    // 0 unless every word matches a term of the document
+    private static double score(Doc doc, String[] words) {
+        double s = 0;
+        for (String w : words) {
+            double best = 0;
+            for (String t : doc.terms) {
+                if (t.equals(w)) {
+                    best = 1;
+                    break;
+                }
+                best = Math.max(best, match(w, t));
+            }
+            if (best == 0) return 0;
+            s += best;
+        }
+        // a query covering more of the text ranks higher
+        return FIELD_WEIGHT[doc.field.ordinal()] * s + (double) words.length / doc.terms.length;
+    }
+
+    private static final class Doc {
+        final String id;
+        final String[] terms;
+        final Field field;
+
+        Doc(String id, String[] terms, Field field) {
+            this.id = id;
+            this.terms = terms;
+            this.field = field;
+        }
+    }
+
+    // growable int lists of document numbers, one per field; liveHint counts the ones not retired
+    private static final class Postings {
+        final int[][] docs = new int[Field.values().length][];
+        final int[] size = new int[docs.length];
+        int liveHint;
+
+        void add(int d, Field field) {
+            int f = field.ordinal();
+            if (docs[f] == null) docs[f] = new int[2];
+            else if (size[f] == docs[f].length) docs[f] = Arrays.copyOf(docs[f], size[f] * 2);
+            docs[f][size[f]++] = d;
+            liveHint++;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.swingapp.server;
+
+import com.example.swingapp.io.EntityRecords;
+import com.example.swingapp.model.ReMoDeLEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One message from the model server: a snapshot of all entities, or a
+ * delta with the entities added or updated (whole, so applying a delta
+ * twice does no harm) and the ids of the entities removed since the
+ * previous frame.
+ *
+ * On the wire: int length of the rest, byte kind, long sequence number,
+ * int removed count, the removed ids (modified UTF-8), int length and the
+ * entities in the record layout of EntityRecords.
+ */
+final class DeltaFrame {
+    static final byte SNAPSHOT = 1;
+    static final byte DELTA = 2;
+    static final int MAX_FRAME = 256 << 20;
+
+    final byte kind;
+    final long sequence;
+    final List<String> removed;
+    final List<ReMoDeLEntity> entities;
+
+    private DeltaFrame(byte kind, long sequence, List<String> removed, List<ReMoDeLEntity> entities) {
+        this.kind = kind;
+        this.sequence = sequence;
+        this.removed = removed;
+        this.entities = entities;
+    }
+
+    /**
+     * The whole frame, length prefix included, ready to be written.
+     */
+    static ByteBuffer encode(byte kind, long sequence, List<String> removed, List<? extends ReMoDeLEntity> entities) {
+        byte[] records = EntityRecords.encode(entities);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.length + 16 * removed.size() + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0); // length, filled in below
+            out.writeByte(kind);
+            out.writeLong(sequence);
+            out.writeInt(removed.size());
+            for (String id : removed) out.writeUTF(id);
+            out.writeInt(records.length);
+            out.write(records);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); // in-memory stream
+        }
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        frame.putInt(0, frame.capacity() - 4);
+        return frame.asReadOnlyBuffer();
+    }
+
+    /**
+     * A frame from its bytes, without the length prefix.
+     */
+    static DeltaFrame decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte kind = in.readByte();
+        if (kind != SNAPSHOT && kind != DELTA) throw new IOException("unknown frame kind " + kind);
+        long sequence = in.readLong();
+        int n = in.readInt();
+        if (n < 0 || n > body.length) throw new IOException("bad removed count " + n);
+        List<String> removed = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) removed.add(in.readUTF());
+        int len = in.readInt();
+        if (len < 0 || len > in.available()) throw new IOException("bad records length " + len);
+        byte[] records = new byte[len];
+        in.readFully(records);
+        return new DeltaFrame(kind, sequence, removed, EntityRecords.decode(records));
+    }
+}
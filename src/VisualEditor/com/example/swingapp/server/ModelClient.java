@@ -0,0 +1,158 @@
+package com.example.swingapp.server;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reads the stream of a ModelServer into a local copy of its model.
+ *
+ * Listeners of getModel() see each frame as one BATCH event, on the
+ * client's reader thread; apart from that the copy is an ordinary model
+ * and can be read from any thread. Changes made to the copy are not sent
+ * back. When the server drops the client (too far behind, or shut down)
+ * the copy keeps its last state and the close handler is told why.
+ */
+public class ModelClient implements Closeable {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final ReMoDeLModel model = new ReMoDeLModel();
+    private final CountDownLatch snapshot = new CountDownLatch(1);
+    private volatile long sequence;
+    private volatile long framesReceived;
+    private volatile boolean closed;
+    private volatile Consumer<IOException> closeHandler;
+
+    private ModelClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+    }
+
+    /**
+     * Connect to a server and start reading its stream.
+     */
+    public static ModelClient connect(String host, int port) throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+            ModelClient c = new ModelClient(s);
+            Thread t = new Thread(c::read, "model-client-" + port);
+            t.setDaemon(true);
+            t.start();
+            return c;
+        } catch (IOException ex) {
+            s.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * The local copy of the server's model.
+     */
+    public ReMoDeLModel getModel() {
+        return model;
+    }
+
+    /**
+     * Called once, on the reader thread, when the stream ends: with the
+     * error, or null after close().
+     */
+    public void setCloseHandler(Consumer<IOException> handler) {
+        this.closeHandler = handler;
+    }
+
+    /**
+     * Wait until the first snapshot has been applied; false on timeout.
+     */
+    public boolean awaitSnapshot(long timeout, TimeUnit unit) throws InterruptedException {
+        return snapshot.await(timeout, unit);
+    }
+
+    /**
+     * Sequence number of the last frame applied.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public boolean isConnected() {
+        return !closed && !socket.isClosed();
+    }
+
+    private void read() {
+        IOException failure = null;
+        try {
+            while (!closed) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException ex) {
+                    throw new IOException("server closed the connection");
+                }
+                if (len <= 0 || len > DeltaFrame.MAX_FRAME) throw new IOException("bad frame length " + len);
+                byte[] body = new byte[len];
+                in.readFully(body);
+                apply(DeltaFrame.decode(body));
+            }
+        } catch (IOException ex) {
+            if (!closed) failure = ex;
+        } finally {
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // closing anyway
+            }
+            Consumer<IOException> h = closeHandler;
+            if (h != null) h.accept(failure);
+        }
+    }
+
+    private void apply(DeltaFrame f) {
+        model.beginBatch();
+        try {
+            if (f.kind == DeltaFrame.SNAPSHOT) {
+                // a snapshot replaces everything: drop what it no longer has
+                Set<String> keep = new HashSet<>();
+                for (ReMoDeLEntity e : f.entities) if (e != null) keep.add(e.getId());
+                for (ReMoDeLEntity e : model.getAll()) if (!keep.contains(e.getId())) model.removeEntity(e.getId());
+            }
+            for (String id : f.removed) model.removeEntity(id);
+            for (ReMoDeLEntity e : f.entities) {
+                if (e == null) continue;
+                if (model.get(e.getId()) == null) model.addEntity(e);
+                else model.updateEntity(e);
+            }
+        } finally {
+            model.endBatch();
+        }
+        sequence = f.sequence;
+        framesReceived++;
+        if (f.kind == DeltaFrame.SNAPSHOT) snapshot.countDown();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.swingapp.server;
+
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ModelSnapshot;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a model to other processes over TCP.
+ *
+ * A client gets a snapshot of all entities when it connects, then a delta
+ * frame (see DeltaFrame) for every batch of model changes: events only
+ * note the ids that changed, and the server's thread encodes the entities
+ * as they are then at most once per flush interval, so a burst of edits
+ * costs one frame. A frame is encoded once and shared by all clients.
+ *
+ * One thread serves every client with non-blocking I/O. What a client has
+ * not read yet waits in its queue; a client whose queue grows past the
+ * limit is too far behind to catch up and is disconnected. It can connect
+ * again for a fresh snapshot. Clients send nothing; the server only reads
+ * to notice when they go away.
+ *
+ * The server binds the loopback address unless told otherwise.
+ */
+public class ModelServer implements ModelListener, Closeable {
+    private static final long DEFAULT_FLUSH_MS = 20;
+    private static final long DEFAULT_MAX_QUEUED = 16L << 20;
+
+    private final ReMoDeLModel model;
+    private InetSocketAddress bindAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    private long flushNanos = DEFAULT_FLUSH_MS * 1_000_000L;
+    private long maxQueuedBytes = DEFAULT_MAX_QUEUED;
+
+    // changed since the last frame; guarded by 'this'
+    private final Set<String> pendingIds = new LinkedHashSet<>();
+    private boolean pendingReset;
+    private long pendingSince;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+    private final List<Client> clients = new ArrayList<>();
+    private long sequence;
+    private final AtomicLong framesSent = new AtomicLong(), bytesSent = new AtomicLong();
+    private final AtomicLong laggards = new AtomicLong();
+    private volatile int clientCount;
+
+    public ModelServer(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    /**
+     * Address to listen on; port 0 picks a free port. Set before start().
+     */
+    public void setBindAddress(InetSocketAddress address) {
+        if (address == null) throw new IllegalArgumentException("address is null");
+        this.bindAddress = address;
+    }
+
+    /**
+     * How long changes are collected before they are sent as one delta.
+     */
+    public void setFlushInterval(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("flush interval must not be negative");
+        this.flushNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Bytes a client may leave unread before it is disconnected.
+     */
+    public void setMaxQueuedBytes(long bytes) {
+        if (bytes <= 0) throw new IllegalArgumentException("max queued bytes must be positive");
+        this.maxQueuedBytes = bytes;
+    }
+
+    /**
+     * Start listening and following the model.
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(bindAddress);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            server.close();
+            selector.close();
+            throw ex;
+        }
+        running = true;
+        model.addListener(this);
+        thread = new Thread(this::serve, "model-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Clients disconnected for falling too far behind.
+     */
+    public long getLaggardCount() {
+        return laggards.get();
+    }
+
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public void modelChanged(ModelEvent e) {
+        boolean wake;
+        synchronized (this) {
+            wake = pendingSince == 0;
+            if (wake) pendingSince = System.nanoTime();
+            if (e.getType() == ModelEvent.Type.RESET) {
+                pendingReset = true;
+                pendingIds.clear();
+            } else if (!pendingReset) {
+                pendingIds.addAll(e.getEntityIds());
+            }
+        }
+        // the server thread sleeps until there is something to send
+        if (wake && running) selector.wakeup();
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                long wait = 0;
+                synchronized (this) {
+                    if (pendingSince != 0) wait = Math.max(1, (pendingSince + flushNanos - System.nanoTime()) / 1_000_000L);
+                }
+                selector.select(wait);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else ready((Client) key.attachment(), key);
+                }
+                flushIfDue();
+            }
+        } catch (IOException ex) {
+            if (running) ex.printStackTrace();
+        } finally {
+            for (Client c : new ArrayList<>(clients)) drop(c);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true);
+        Client c = new Client(ch);
+        c.key = ch.register(selector, SelectionKey.OP_READ, c);
+        // bring everyone else up to date first, so nothing the snapshot
+        // leaves out is lost; deltas after it repeat what it already has
+        flush();
+        clients.add(c);
+        clientCount = clients.size();
+        send(c, DeltaFrame.encode(DeltaFrame.SNAPSHOT, ++sequence, List.of(), model.getAll()));
+    }
+
+    private void ready(Client c, SelectionKey key) {
+        try {
+            if (key.isReadable()) {
+                c.discard.clear();
+                if (c.channel.read(c.discard) < 0) {
+                    drop(c);
+                    return;
+                }
+            }
+            if (key.isWritable()) write(c);
+        } catch (IOException ex) {
+            drop(c);
+        }
+    }
+
+    private void flushIfDue() {
+        synchronized (this) {
+            if (pendingSince == 0 || System.nanoTime() - pendingSince < flushNanos) return;
+        }
+        flush();
+    }
+
+    // one frame with everything that changed, to every client
+    private void flush() {
+        List<String> ids;
+        boolean reset;
+        synchronized (this) {
+            if (pendingSince == 0) return;
+            ids = new ArrayList<>(pendingIds);
+            reset = pendingReset;
+            pendingIds.clear();
+            pendingReset = false;
+            pendingSince = 0;
+        }
+        if (clients.isEmpty()) return;
+        ByteBuffer frame;
+        if (reset) {
+            frame = DeltaFrame.encode(DeltaFrame.SNAPSHOT, ++sequence, List.of(), model.getAll());
+        } else {
+            // one version of the model for the whole frame
+            ModelSnapshot snap = model.snapshot();
+            List<ReMoDeLEntity> changed = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (String id : ids) {
+                ReMoDeLEntity e = snap.get(id);
+                if (e != null) changed.add(e);
+                else removed.add(id);
+            }
+            frame = DeltaFrame.encode(DeltaFrame.DELTA, ++sequence, removed, changed);
+        }
+        for (Client c : new ArrayList<>(clients)) send(c, frame);
+    }
+
+    // a client that has read everything always gets the frame, however large
+    private void send(Client c, ByteBuffer frame) {
+        if (c.queued > 0 && c.queued + frame.remaining() > maxQueuedBytes) {
+            laggards.incrementAndGet();
+            drop(c);
+            return;
+        }
+        c.queue.add(frame.duplicate());
+        c.queued += frame.remaining();
+        framesSent.incrementAndGet();
+        try {
+            write(c);
+        } catch (IOException ex) {
+            drop(c);
+        }
+    }
+
+    // write as much as the socket takes; wait for OP_WRITE for the rest
+    private void write(Client c) throws IOException {
+        while (!c.queue.isEmpty()) {
+            ByteBuffer b = c.queue.peek();
+            int n = c.channel.write(b);
+            c.queued -= n;
+            bytesSent.addAndGet(n);
+            if (b.hasRemaining()) break;
+            c.queue.poll();
+        }
+        int ops = c.queue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (c.key.interestOps() != ops) c.key.interestOps(ops);
+    }
+
+    private void drop(Client c) {
+        if (clients.remove(c)) clientCount = clients.size();
+        c.queue.clear();
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ex) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * Stop following the model and disconnect all clients.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread t;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            model.removeListener(this);
+            t = thread;
+        }
+        selector.wakeup();
+        try {
+            t.join(2000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+        selector.close();
+    }
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        final ByteBuffer discard = ByteBuffer.allocate(256);
+        long queued;
+        SelectionKey key;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.swingapp.snap;
+
+import com.example.swingapp.edit.BulkTransform;
+import com.example.swingapp.model.Connective;
+import com.example.swingapp.model.ModelEvent;
+import com.example.swingapp.model.ModelListener;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Snap targets of a model's shapes: grid lines, other shapes' edges and
+ * centres, and equal spacing between neighbours.
+ *
+ * The bounds of every shape (connectives excluded) are kept in sorted
+ * coordinate indexes, one per axis for edges and one for centres, so a
+ * query only visits the coordinates within the tolerance, and the
+ * neighbour scan for spacing walks outward from the moving box. The
+ * indexes follow the model through its events, touching only the entities
+ * an event names.
+ */
+public class SnapIndex implements ModelListener {
+    /** Maximum entries the spacing search inspects on each side before giving up. */
+    private static final int NEIGHBOUR_SCAN = 64;
+
+    private final ReMoDeLModel model;
+    private final Map<String, Rectangle2D> bounds = new HashMap<>();
+    private final Axis x = new Axis(), y = new Axis();
+    private double tolerance = 6;
+    private int gridSize = 0;
+
+    public SnapIndex(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+    }
+
+    /**
+     * Index the current model and start following it.
+     */
+    public void attach() {
+        rebuild();
+        model.addListener(this);
+    }
+
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    /**
+     * Distance in pixels within which a box snaps (default 6).
+     */
+    public synchronized void setTolerance(double px) {
+        if (px < 0) throw new IllegalArgumentException("tolerance must not be negative");
+        tolerance = px;
+    }
+
+    public synchronized double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Grid spacing in pixels; 0 (the default) turns grid snapping off.
+     */
+    public synchronized void setGridSize(int px) {
+        if (px < 0) throw new IllegalArgumentException("grid size must not be negative");
+        gridSize = px;
+    }
+
+    public synchronized int getGridSize() {
+        return gridSize;
+    }
+
+    public synchronized int size() {
+        return bounds.size();
+    }
+
+    public synchronized void rebuild() {
+        bounds.clear();
+        x.clear();
+        y.clear();
+        for (ReMoDeLEntity e : model.getAll()) update(e.getId(), e);
+    }
+
+    @Override
+    public synchronized void modelChanged(ModelEvent e) {
+        if (e.getType() == ModelEvent.Type.RESET) {
+            rebuild();
+            return;
+        }
+        for (String id : e.getEntityIds()) update(id, model.get(id));
+    }
+
+    /**
+     * Snap a box being moved. Shapes in 'exclude' (the ones being dragged)
+     * are not snapped to. Each axis snaps independently: to the nearest
+     * edge or centre within the tolerance, else to equal spacing, else to
+     * the grid.
+     */
+    public synchronized Snap snap(Rectangle2D box, Collection<String> exclude) {
+        Set<String> ex = exclude == null ? Collections.emptySet() : asSet(exclude);
+        List<Guide> guides = new ArrayList<>();
+        double dx = snapAxis(box, ex, true, guides);
+        double dy = snapAxis(box, ex, false, guides);
+        return new Snap(dx, dy, guides);
+    }
+
+    /**
+     * Snap a single point (a corner being placed) to edges, centres or the grid.
+     */
+    public synchronized Snap snap(Point2D p, Collection<String> exclude) {
+        return snap(new Rectangle2D.Double(p.getX(), p.getY(), 0, 0), exclude);
+    }
+
+    /**
+     * Offset that snaps a box, and the guide lines explaining it.
+     */
+    public static final class Snap {
+        private final double dx, dy;
+        private final List<Guide> guides;
+
+        Snap(double dx, double dy, List<Guide> guides) {
+            this.dx = dx;
+            this.dy = dy;
+            this.guides = Collections.unmodifiableList(guides);
+        }
+
+        public double getDx() {
+            return dx;
+        }
+
+        public double getDy() {
+            return dy;
+        }
+
+        public List<Guide> getGuides() {
+            return guides;
+        }
+    }
+
+    public static final class Guide {
+        public enum Kind { GRID, EDGE, CENTER, SPACING }
+
+        private final Kind kind;
+        private final Line2D line;
+
+        Guide(Kind kind, Line2D line) {
+            this.kind = kind;
+            this.line = line;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Line2D getLine() {
+            return line;
+        }
+    }
+
+    private void update(String id, ReMoDeLEntity e) {
+        Rectangle2D old = bounds.remove(id);
+        if (old != null) {
+            x.remove(id, old.getMinX(), old.getMaxX(), old.getCenterX());
+            y.remove(id, old.getMinY(), old.getMaxY(), old.getCenterY());
+        }
+        if (e == null || e instanceof Connective) return;
+        Rectangle2D b = BulkTransform.extent(e);
+        if (b == null) return;
+        bounds.put(id, b);
+        x.add(id, b.getMinX(), b.getMaxX(), b.getCenterX());
+        y.add(id, b.getMinY(), b.getMaxY(), b.getCenterY());
+    }
+
+    private double snapAxis(Rectangle2D box, Set<String> ex, boolean horizontal, List<Guide> guides) {
+        Axis a = horizontal ? x : y;
+        double min = horizontal ? box.getMinX() : box.getMinY();
+        double max = horizontal ? box.getMaxX() : box.getMaxY();
+        double mid = (min + max) / 2;
+
+        // edges to edges and centre to centres
+        Match best = null;
+        best = closer(best, a.nearest(a.edges, min, tolerance, ex), min);
+        best = closer(best, a.nearest(a.edges, max, tolerance, ex), max);
+        best = closer(best, a.nearest(a.centers, mid, tolerance, ex), mid);
+        if (best != null) {
+            double d = best.value - best.from;
+            Rectangle2D other = bounds.get(best.id);
+            Guide.Kind kind = best.from == mid && max > min ? Guide.Kind.CENTER : Guide.Kind.EDGE;
+            guides.add(new Guide(kind, alignLine(best.value, horizontal, box, other)));
+            return d;
+        }
+
+        double spacing = snapSpacing(box, ex, horizontal, guides);
+        if (!Double.isNaN(spacing)) return spacing;
+
+        if (gridSize > 0) {
+            double g = Math.round(min / gridSize) * (double) gridSize;
+            if (Math.abs(g - min) <= tolerance) {
+                double lo = horizontal ? box.getMinY() : box.getMinX();
+                double hi = horizontal ? box.getMaxY() : box.getMaxX();
+                guides.add(new Guide(Guide.Kind.GRID, line(horizontal, g, lo, hi)));
+                return g - min;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Equal spacing along one axis: between the nearest neighbours on both
+     * sides, or repeating a neighbour's own gap to its next neighbour.
+     * Returns NaN if nothing is within the tolerance.
+     */
+    private double snapSpacing(Rectangle2D box, Set<String> ex, boolean horizontal, List<Guide> guides) {
+        double min = horizontal ? box.getMinX() : box.getMinY();
+        double max = horizontal ? box.getMaxX() : box.getMaxY();
+        double across = horizontal ? box.getCenterY() : box.getCenterX();
+        Rectangle2D before = neighbour(box, min, ex, horizontal, false);
+        Rectangle2D after = neighbour(box, max, ex, horizontal, true);
+        double best = Double.NaN;
+        double[] gaps = null; // from, to of the two equal gaps after the snap
+
+        if (before != null && after != null) {
+            double gap = (lo(after, horizontal) - hi(before, horizontal) - (max - min)) / 2;
+            double d = hi(before, horizontal) + gap - min;
+            if (gap >= 0 && Math.abs(d) <= tolerance) {
+                best = d;
+                gaps = new double[] { hi(before, horizontal), min + d, max + d, lo(after, horizontal) };
+            }
+        }
+        if (before != null) {
+            Rectangle2D far = neighbour(before, lo(before, horizontal), ex, horizontal, false);
+            if (far != null) {
+                double gap = lo(before, horizontal) - hi(far, horizontal);
+                double d = hi(before, horizontal) + gap - min;
+                if (gap >= 0 && Math.abs(d) <= tolerance && (Double.isNaN(best) || Math.abs(d) < Math.abs(best))) {
+                    best = d;
+                    gaps = new double[] { hi(far, horizontal), lo(before, horizontal), hi(before, horizontal), min + d };
+                }
+            }
+        }
+        if (after != null) {
+            Rectangle2D far = neighbour(after, hi(after, horizontal), ex, horizontal, true);
+            if (far != null) {
+                double gap = lo(far, horizontal) - hi(after, horizontal);
+                double d = lo(after, horizontal) - gap - max;
+                if (gap >= 0 && Math.abs(d) <= tolerance && (Double.isNaN(best) || Math.abs(d) < Math.abs(best))) {
+                    best = d;
+                    gaps = new double[] { max + d, lo(after, horizontal), hi(after, horizontal), lo(far, horizontal) };
+                }
+            }
+        }
+        if (gaps != null) {
+            guides.add(new Guide(Guide.Kind.SPACING, line(!horizontal, across, gaps[0], gaps[1])));
+            guides.add(new Guide(Guide.Kind.SPACING, line(!horizontal, across, gaps[2], gaps[3])));
+        }
+        return best;
+    }
+
+    // nearest shape entirely before (or after) 'edge' along the axis that overlaps the box across it
+    private Rectangle2D neighbour(Rectangle2D box, double edge, Set<String> ex, boolean horizontal, boolean forward) {
+        Axis a = horizontal ? x : y;
+        NavigableMap<Double, Object> side = forward ? a.edges.tailMap(edge, true) : a.edges.headMap(edge, true).descendingMap();
+        int seen = 0;
+        for (Map.Entry<Double, Object> en : side.entrySet()) {
+            for (String id : ids(en.getValue())) {
+                if (++seen > NEIGHBOUR_SCAN) return null;
+                if (ex.contains(id)) continue;
+                Rectangle2D b = bounds.get(id);
+                // the scan meets both edges of a shape; only one lying wholly on that side counts
+                if (forward ? lo(b, horizontal) < edge : hi(b, horizontal) > edge) continue;
+                if (b == box || b.equals(box)) continue;
+                boolean across = horizontal ? b.getMinY() <= box.getMaxY() && box.getMinY() <= b.getMaxY()
+                        : b.getMinX() <= box.getMaxX() && box.getMinX() <= b.getMaxX();
+                if (across) return b;
+            }
+        }
+        return null;
+    }
+
+    private static Line2D alignLine(double at, boolean horizontal, Rectangle2D box, Rectangle2D other) {
+        double lo = horizontal ? box.getMinY() : box.getMinX();
+        double hi = horizontal ? box.getMaxY() : box.getMaxX();
+        if (other != null) {
+            lo = Math.min(lo, horizontal ? other.getMinY() : other.getMinX());
+            hi = Math.max(hi, horizontal ? other.getMaxY() : other.getMaxX());
+        }
+        return line(horizontal, at, lo, hi);
+    }
+
+    // a vertical line at x = at (horizontal axis) or a horizontal one at y = at, from..to along the other axis
+    private static Line2D line(boolean horizontal, double at, double from, double to) {
+        return horizontal ? new Line2D.Double(at, from, at, to) : new Line2D.Double(from, at, to, at);
+    }
+
+    private static double lo(Rectangle2D r, boolean horizontal) {
+        return horizontal ? r.getMinX() : r.getMinY();
+    }
+
+    private static double hi(Rectangle2D r, boolean horizontal) {
+        return horizontal ? r.getMaxX() : r.getMaxY();
+    }
+
+    private static Match closer(Match best, Match m, double from) {
+        if (m == null) return best;
+        m.from = from;
+        if (best == null || Math.abs(m.value - from) < Math.abs(best.value - best.from)) return m;
+        return best;
+    }
+
+    private static Set<String> asSet(Collection<String> c) {
+        return c instanceof Set ? (Set<String>) c : new LinkedHashSet<>(c);
+    }
+
+    private static final class Match {
+        final double value;
+        final String id;
+        double from;
+
+        Match(double value, String id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
+
+    // an index entry holds one id as a String, several as a List
+    @SuppressWarnings("unchecked")
+    private static List<String> ids(Object entry) {
+        return entry instanceof String ? Collections.singletonList((String) entry) : (List<String>) entry;
+    }
+
+    /**
+     * Sorted coordinates of one axis: the min and max edges together, and the
+     * centres. Most coordinates belong to one shape, so an entry is the id
+     * itself until a second shape shares it.
+     */
+    private static final class Axis {
+        final TreeMap<Double, Object> edges = new TreeMap<>();
+        final TreeMap<Double, Object> centers = new TreeMap<>();
+
+        void add(String id, double min, double max, double center) {
+            put(edges, min, id);
+            if (max != min) put(edges, max, id);
+            put(centers, center, id);
+        }
+
+        void remove(String id, double min, double max, double center) {
+            take(edges, min, id);
+            if (max != min) take(edges, max, id);
+            take(centers, center, id);
+        }
+
+        void clear() {
+            edges.clear();
+            centers.clear();
+        }
+
+        // closest coordinate to v within tol that belongs to a shape outside 'ex'
+        Match nearest(TreeMap<Double, Object> index, double v, double tol, Set<String> ex) {
+            Match best = null;
+            for (Map.Entry<Double, Object> en : index.subMap(v - tol, true, v + tol, true).entrySet()) {
+                if (best != null && Math.abs(en.getKey() - v) >= Math.abs(best.value - v)) continue;
+                for (String id : ids(en.getValue())) {
+                    if (!ex.contains(id)) {
+                        best = new Match(en.getKey(), id);
+                        break;
+                    }
+                }
+            }
+            return best;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void put(TreeMap<Double, Object> index, double v, String id) {
+            Object cur = index.get(v);
+            if (cur == null) {
+                index.put(v, id);
+            } else if (cur instanceof String) {
+                List<String> l = new ArrayList<>(2);
+                l.add((String) cur);
+                l.add(id);
+                index.put(v, l);
+            } else {
+                ((List<String>) cur).add(id);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void take(TreeMap<Double, Object> index, double v, String id) {
+            Object cur = index.get(v);
+            if (cur == null) return;
+            if (cur instanceof String) {
+                if (cur.equals(id)) index.remove(v);
+                return;
+            }
+            List<String> l = (List<String>) cur;
+            l.remove(id);
+            if (l.size() == 1) index.put(v, l.get(0));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.swingapp.undo;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The change one undo step made to one entity.
+ *
+ * Property edits are kept as a patch of the keys that changed (old and new
+ * values); additions, removals and type changes keep whole entities, with
+ * null standing for "absent". Values are shared, not copied: the model
+ * replaces property values rather than mutating them.
+ */
+final class EntityDelta {
+    private static final Object ABSENT = new Object();
+
+    final String id;
+    // whole-entity form
+    private ReMoDeLEntity before, after;
+    // patch form (keys != null)
+    private List<String> keys;
+    private List<Object> oldValues, newValues;
+    private long bytes = -1;
+
+    private EntityDelta(String id) {
+        this.id = id;
+    }
+
+    static EntityDelta added(ReMoDeLEntity after) {
+        EntityDelta d = new EntityDelta(after.getId());
+        d.after = after;
+        return d;
+    }
+
+    static EntityDelta removed(ReMoDeLEntity before) {
+        EntityDelta d = new EntityDelta(before.getId());
+        d.before = before;
+        return d;
+    }
+
+    /**
+     * Delta between two states of an entity; null when nothing changed.
+     */
+    static EntityDelta changed(ReMoDeLEntity before, ReMoDeLEntity after) {
+        EntityDelta d = new EntityDelta(after.getId());
+        if (!Objects.equals(before.getType(), after.getType())) {
+            d.before = before;
+            d.after = after;
+            return d;
+        }
+        Map<String, Object> pb = before.getProperties(), pa = after.getProperties();
+        d.keys = new ArrayList<>(4);
+        d.oldValues = new ArrayList<>(4);
+        d.newValues = new ArrayList<>(4);
+        for (Map.Entry<String, Object> en : pa.entrySet()) {
+            Object old = pb.containsKey(en.getKey()) ? pb.get(en.getKey()) : ABSENT;
+            if (!same(old, en.getValue())) d.patch(en.getKey(), old, en.getValue());
+        }
+        for (Map.Entry<String, Object> en : pb.entrySet()) {
+            if (!pa.containsKey(en.getKey())) d.patch(en.getKey(), en.getValue(), ABSENT);
+        }
+        return d.keys.isEmpty() ? null : d;
+    }
+
+    /**
+     * Fold a later delta of the same entity into this one, keeping the
+     * earliest before and the latest after. Returns false when the two
+     * cancel out (added, then removed).
+     */
+    boolean absorb(EntityDelta later) {
+        bytes = -1;
+        if (keys != null && later.keys != null) {
+            for (int i = 0; i < later.keys.size(); i++) {
+                int j = keys.indexOf(later.keys.get(i));
+                if (j < 0) patch(later.keys.get(i), later.oldValues.get(i), later.newValues.get(i));
+                else newValues.set(j, later.newValues.get(i));
+            }
+            return true;
+        }
+        if (keys != null) {
+            // patch, then replaced or removed: rebuild the original entity
+            ReMoDeLEntity orig = later.before.copy();
+            applyPatch(orig, oldValues);
+            before = orig;
+            keys = null;
+            oldValues = newValues = null;
+        }
+        if (later.keys != null) {
+            if (after == null) return before != null; // re-added behind the journal's back
+            after = after.copy();
+            applyPatch(after, later.newValues, later.keys);
+        } else {
+            after = later.after;
+        }
+        return before != null || after != null;
+    }
+
+    /**
+     * Spill form: a patch is two partial entities holding the old and the
+     * new values of the changed keys (a key missing from one side was
+     * absent there); the whole-entity form is before and after.
+     */
+    boolean isPatch() {
+        return keys != null;
+    }
+
+    void halves(List<ReMoDeLEntity> out) {
+        if (keys == null) {
+            out.add(before);
+            out.add(after);
+            return;
+        }
+        ReMoDeLEntity o = new ReMoDeLEntity(id), n = new ReMoDeLEntity(id);
+        for (int i = 0; i < keys.size(); i++) {
+            if (oldValues.get(i) != ABSENT) o.getProperties().put(keys.get(i), oldValues.get(i));
+            if (newValues.get(i) != ABSENT) n.getProperties().put(keys.get(i), newValues.get(i));
+        }
+        out.add(o);
+        out.add(n);
+    }
+
+    static EntityDelta fromHalves(boolean patch, ReMoDeLEntity first, ReMoDeLEntity second) {
+        EntityDelta d = new EntityDelta(first != null ? first.getId() : second.getId());
+        if (!patch) {
+            d.before = first;
+            d.after = second;
+            return d;
+        }
+        Map<String, Object> po = first.getProperties(), pn = second.getProperties();
+        d.keys = new ArrayList<>(po.size() + 1);
+        d.oldValues = new ArrayList<>(po.size() + 1);
+        d.newValues = new ArrayList<>(po.size() + 1);
+        for (Map.Entry<String, Object> en : po.entrySet()) {
+            String k = en.getKey();
+            d.patch(k, en.getValue(), pn.containsKey(k) ? pn.get(k) : ABSENT);
+        }
+        for (Map.Entry<String, Object> en : pn.entrySet()) {
+            if (!po.containsKey(en.getKey())) d.patch(en.getKey(), ABSENT, en.getValue());
+        }
+        return d;
+    }
+
+    void undo(ReMoDeLModel model) {
+        if (keys != null) patchModel(model, oldValues);
+        else put(model, before);
+    }
+
+    void redo(ReMoDeLModel model) {
+        if (keys != null) patchModel(model, newValues);
+        else put(model, after);
+    }
+
+    /**
+     * Rough heap footprint, used for the undo memory budget.
+     */
+    long bytes() {
+        if (bytes < 0) {
+            long n = 64 + 2L * id.length();
+            if (keys != null) {
+                for (int i = 0; i < keys.size(); i++) {
+                    n += 48 + sizeOf(oldValues.get(i)) + sizeOf(newValues.get(i));
+                }
+            } else {
+                n += sizeOf(before) + sizeOf(after);
+            }
+            bytes = n;
+        }
+        return bytes;
+    }
+
+    private void patch(String key, Object old, Object now) {
+        keys.add(key);
+        oldValues.add(old);
+        newValues.add(now);
+    }
+
+    private void patchModel(ReMoDeLModel model, List<Object> values) {
+        ReMoDeLEntity cur = model.get(id);
+        if (cur == null) return; // removed behind the journal's back
+        ReMoDeLEntity e = cur.copy();
+        applyPatch(e, values);
+        model.updateEntity(e);
+    }
+
+    private void applyPatch(ReMoDeLEntity e, List<Object> values) {
+        applyPatch(e, values, keys);
+    }
+
+    private static void applyPatch(ReMoDeLEntity e, List<Object> values, List<String> keys) {
+        for (int i = 0; i < keys.size(); i++) {
+            Object v = values.get(i);
+            if (v == ABSENT) e.getProperties().remove(keys.get(i));
+            else e.getProperties().put(keys.get(i), v);
+        }
+    }
+
+    private void put(ReMoDeLModel model, ReMoDeLEntity state) {
+        if (state == null) {
+            model.removeEntity(id);
+        } else if (model.get(id) == null) {
+            model.addEntity(state.copy());
+        } else {
+            model.updateEntity(state.copy());
+        }
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a == ABSENT || b == ABSENT) return a == b;
+        return Objects.deepEquals(a, b);
+    }
+
+    private static long sizeOf(ReMoDeLEntity e) {
+        if (e == null) return 0;
+        long n = 64;
+        for (Map.Entry<String, Object> en : e.getProperties().entrySet()) {
+            n += 48 + sizeOf(en.getValue());
+        }
+        return n;
+    }
+
+    private static long sizeOf(Object v) {
+        if (v == null || v == ABSENT) return 0;
+        if (v instanceof String) return 40 + 2L * ((String) v).length();
+        if (v instanceof int[]) return 16 + 4L * ((int[]) v).length;
+        if (v instanceof double[]) return 16 + 8L * ((double[]) v).length;
+        if (v instanceof Shape) return 256;
+        if (v instanceof Object[]) return 16 + 24L * ((Object[]) v).length;
+        return 16;
+    }
+
+    @Override
+    public String toString() {
+        if (keys != null) return id + " " + keys;
+        return id + (before == null ? " added" : after == null ? " removed" : " replaced");
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.swingapp.undo;
+
+import com.example.swingapp.io.EntityRecords;
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One undo step: the deltas it made to the model, keyed by entity id.
+ *
+ * Undo and redo apply all deltas inside a single model batch, so reverting
+ * a bulk operation produces one BATCH event however many entities it
+ * touched. Steps created with the same coalesce key merge while they follow
+ * each other within the journal's coalesce window (consecutive drag steps,
+ * keystrokes into one text item).
+ *
+ * An old step can be spilled to the journal's SpillStore; its deltas are
+ * then read back only when the user undoes that far.
+ */
+public final class ModelEdit extends AbstractUndoableEdit {
+    private final ReMoDeLModel model;
+    private final String name;
+    private final Object coalesceKey;
+    private final long coalesceMillis;
+    private Map<String, EntityDelta> deltas; // null while spilled
+    private int entityCount;
+    private SpillStore store;
+    private long spillAddress = -1;          // valid copy on disk, if >= 0
+    private long lastChange;
+    private boolean sealed;
+    private long bytes = -1;
+
+    ModelEdit(ReMoDeLModel model, String name, Object coalesceKey, long coalesceMillis, Map<String, EntityDelta> deltas) {
+        this.model = model;
+        this.name = name;
+        this.coalesceKey = coalesceKey;
+        this.coalesceMillis = coalesceMillis;
+        this.deltas = deltas;
+        this.entityCount = deltas.size();
+        this.lastChange = System.currentTimeMillis();
+    }
+
+    @Override
+    public void undo() throws CannotUndoException {
+        Map<String, EntityDelta> ds;
+        try {
+            ds = load();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            throw new CannotUndoException();
+        }
+        super.undo();
+        sealed = true;
+        model.beginBatch();
+        try {
+            for (EntityDelta d : ds.values()) d.undo(model);
+        } finally {
+            model.endBatch();
+        }
+    }
+
+    @Override
+    public void redo() throws CannotRedoException {
+        Map<String, EntityDelta> ds;
+        try {
+            ds = load();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            throw new CannotRedoException();
+        }
+        super.redo();
+        model.beginBatch();
+        try {
+            for (EntityDelta d : ds.values()) d.redo(model);
+        } finally {
+            model.endBatch();
+        }
+    }
+
+    /**
+     * Swallow a following step with the same coalesce key.
+     */
+    @Override
+    public boolean addEdit(UndoableEdit anEdit) {
+        if (!(anEdit instanceof ModelEdit) || sealed || coalesceKey == null || !canUndo()) return false;
+        ModelEdit next = (ModelEdit) anEdit;
+        if (next.model != model || !coalesceKey.equals(next.coalesceKey)) return false;
+        if (next.lastChange - lastChange > coalesceMillis || deltas == null) return false;
+        for (EntityDelta d : next.deltas.values()) {
+            EntityDelta mine = deltas.get(d.id);
+            if (mine == null) deltas.put(d.id, d);
+            else if (!mine.absorb(d)) deltas.remove(d.id);
+        }
+        lastChange = next.lastChange;
+        entityCount = deltas.size();
+        spillAddress = -1;
+        bytes = -1;
+        return true;
+    }
+
+    /**
+     * Stop coalescing: the next step starts a new edit even with the same key.
+     */
+    public void seal() {
+        sealed = true;
+    }
+
+    @Override
+    public String getPresentationName() {
+        return name;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * Whether the deltas are in memory (false while spilled to disk).
+     */
+    public boolean isResident() {
+        return deltas != null;
+    }
+
+    /**
+     * Estimated heap held by this step.
+     */
+    public long getBytes() {
+        if (deltas == null) return 96;
+        if (bytes < 0) {
+            long n = 96;
+            for (EntityDelta d : deltas.values()) n += 32 + d.bytes();
+            bytes = n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Store the deltas in the spill store and drop them from memory. A step
+     * that was read back and has not changed since is not written again.
+     */
+    void spill(SpillStore to) throws IOException {
+        if (deltas == null) return;
+        if (spillAddress < 0 || store != to) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buf);
+            List<ReMoDeLEntity> halves = new ArrayList<>(2 * deltas.size());
+            out.writeInt(deltas.size());
+            for (EntityDelta d : deltas.values()) {
+                out.writeBoolean(d.isPatch());
+                d.halves(halves);
+            }
+            byte[] records = EntityRecords.encode(halves);
+            out.writeInt(records.length);
+            out.write(records);
+            out.flush();
+            spillAddress = to.append(buf.toByteArray());
+            store = to;
+        }
+        deltas = null;
+    }
+
+    /**
+     * Disk address of the spilled copy, or -1.
+     */
+    long getSpillAddress() {
+        return store == null ? -1 : spillAddress;
+    }
+
+    private Map<String, EntityDelta> load() throws IOException {
+        if (deltas != null) return deltas;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(store.read(spillAddress)));
+        int n = in.readInt();
+        boolean[] patch = new boolean[n];
+        for (int i = 0; i < n; i++) patch[i] = in.readBoolean();
+        byte[] records = new byte[in.readInt()];
+        in.readFully(records);
+        List<ReMoDeLEntity> halves = EntityRecords.decode(records);
+        if (halves.size() != 2 * n) throw new IOException("undo record holds " + halves.size() + " entities, expected " + 2 * n);
+        Map<String, EntityDelta> ds = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            EntityDelta d = EntityDelta.fromHalves(patch[i], halves.get(2 * i), halves.get(2 * i + 1));
+            ds.put(d.id, d);
+        }
+        deltas = ds;
+        bytes = -1;
+        return ds;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + entityCount + " entities" + (deltas == null ? ", on disk)" : ")");
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.swingapp.undo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only temp storage for undo steps that were pushed out of memory.
+ *
+ * Records ([u32 length][u32 crc][payload]) are appended to numbered segment
+ * files in a private temp directory; a record is addressed by
+ * (segment << 40 | offset). Steps are spilled oldest first, so dropping the
+ * oldest history frees whole segments, which are deleted without ever
+ * rewriting live data. close() deletes the directory.
+ */
+final class SpillStore implements Closeable {
+    private static final int HEADER = 8;
+    private static final int OFFSET_BITS = 40;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+    private final TreeMap<Integer, Long> sizes = new TreeMap<>();
+    private int current = -1;
+    private long currentSize;
+    private long diskBytes;
+    private boolean closed;
+
+    SpillStore(Path parent, long segmentBytes) throws IOException {
+        this.dir = parent == null ? Files.createTempDirectory("visualeditor-undo")
+                : Files.createTempDirectory(parent, "visualeditor-undo");
+        this.segmentBytes = segmentBytes;
+    }
+
+    synchronized long append(byte[] data) throws IOException {
+        if (closed) throw new IOException("spill store closed");
+        if (current < 0 || currentSize >= segmentBytes) {
+            current++;
+            segments.put(current, FileChannel.open(segmentPath(current),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            currentSize = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer b = ByteBuffer.allocate(HEADER + data.length);
+        b.putInt(data.length).putInt((int) crc.getValue()).put(data).flip();
+        FileChannel ch = segments.get(current);
+        long pos = currentSize;
+        while (b.hasRemaining()) ch.write(b, pos + b.position());
+        currentSize += HEADER + data.length;
+        diskBytes += HEADER + data.length;
+        sizes.put(current, currentSize);
+        return ((long) current << OFFSET_BITS) | pos;
+    }
+
+    synchronized byte[] read(long address) throws IOException {
+        FileChannel ch = segments.get(segmentOf(address));
+        if (ch == null) throw new IOException("undo segment " + segmentOf(address) + " was released");
+        long pos = address & ((1L << OFFSET_BITS) - 1);
+        ByteBuffer head = ByteBuffer.allocate(HEADER);
+        readFully(ch, head, pos);
+        int len = head.getInt(0), sum = head.getInt(4);
+        if (len < 0 || pos + HEADER + len > ch.size()) throw new IOException("bad undo record at " + address);
+        ByteBuffer body = ByteBuffer.allocate(len);
+        readFully(ch, body, pos + HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        if ((int) crc.getValue() != sum) throw new IOException("undo record checksum mismatch at " + address);
+        return body.array();
+    }
+
+    static int segmentOf(long address) {
+        return (int) (address >>> OFFSET_BITS);
+    }
+
+    /**
+     * Delete every segment older than the given one.
+     */
+    synchronized void releaseBefore(int segment) {
+        Iterator<Map.Entry<Integer, FileChannel>> it = segments.headMap(segment).entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, FileChannel> en = it.next();
+            if (en.getKey() == current) break;
+            diskBytes -= sizes.remove(en.getKey());
+            try {
+                en.getValue().close();
+                Files.deleteIfExists(segmentPath(en.getKey()));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            it.remove();
+        }
+    }
+
+    synchronized long diskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Bytes that releaseBefore(segment) would leave on disk.
+     */
+    synchronized long diskBytesFrom(int segment) {
+        long n = 0;
+        for (long size : sizes.tailMap(segment).values()) n += size;
+        return n;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (Map.Entry<Integer, FileChannel> en : segments.entrySet()) {
+            try {
+                en.getValue().close();
+                Files.deleteIfExists(segmentPath(en.getKey()));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        segments.clear();
+        sizes.clear();
+        diskBytes = 0;
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private Path segmentPath(int n) {
+        return dir.resolve(String.format("undo-%06d.seg", n));
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) throw new IOException("unexpected end of undo segment");
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.swingapp.undo;
+
+import com.example.swingapp.model.ReMoDeLEntity;
+import com.example.swingapp.model.ReMoDeLModel;
+
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Undo history of a model, recorded as per-entity deltas.
+ *
+ * Changes go through a Transaction, which applies them to the model in one
+ * batch and records what they changed by entity id, so history stays valid
+ * however the canvas orders its shapes. Steps sharing a coalesce key merge
+ * (see ModelEdit). Other UndoableEdits can still be added; they count
+ * towards the budget at a nominal size.
+ *
+ * History is tiered: once the steps in memory exceed the memory budget the
+ * oldest are spilled to an append-only temp store and read back lazily
+ * when undone. The store is bounded by a disk quota, beyond which the
+ * oldest steps are dropped for good, and is deleted by close(). With a
+ * disk quota of 0 the oldest steps are dropped as soon as the memory
+ * budget is exceeded.
+ */
+public class UndoJournal extends UndoManager implements Closeable {
+    private static final long OTHER_EDIT_BYTES = 256;
+
+    private final ReMoDeLModel model;
+    private long memoryBudget = 64L << 20;
+    private long diskQuota = 512L << 20;
+    private Path spillDirectory;
+    private SpillStore store;
+    private long coalesceMillis = 1500;
+
+    public UndoJournal(ReMoDeLModel model) {
+        if (model == null) throw new IllegalArgumentException("model is null");
+        this.model = model;
+        // the memory budget is the limit, not the number of steps
+        setLimit(Integer.MAX_VALUE);
+    }
+
+    public ReMoDeLModel getModel() {
+        return model;
+    }
+
+    /**
+     * Heap the history may hold before the oldest steps are spilled to disk
+     * (default 64 MB). The most recent step always stays in memory and does
+     * not count against the budget.
+     */
+    public synchronized void setMemoryBudget(long bytes) {
+        if (bytes <= 0) throw new IllegalArgumentException("budget must be positive");
+        memoryBudget = bytes;
+        trimToBudget();
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Disk the spilled history may use before the oldest steps are dropped
+     * (default 512 MB); 0 keeps all history in memory.
+     */
+    public synchronized void setDiskQuota(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("quota must not be negative");
+        diskQuota = bytes;
+        trimToBudget();
+    }
+
+    public synchronized long getDiskQuota() {
+        return diskQuota;
+    }
+
+    /**
+     * Where the spill store is created (default: the system temp directory).
+     * Takes effect when the store is first needed.
+     */
+    public synchronized void setSpillDirectory(Path dir) {
+        spillDirectory = dir;
+    }
+
+    /**
+     * Bytes the spilled history currently occupies on disk.
+     */
+    public synchronized long getDiskBytes() {
+        return store == null ? 0 : store.diskBytes();
+    }
+
+    /**
+     * Longest pause between two steps with the same coalesce key that still
+     * merges them (default 1.5 s).
+     */
+    public void setCoalesceMillis(long millis) {
+        coalesceMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Estimated heap held by the history (spilled steps count a few bytes).
+     */
+    public synchronized long getBytes() {
+        long n = 0;
+        for (UndoableEdit e : edits) n += bytesOf(e);
+        return n;
+    }
+
+    public synchronized int getStepCount() {
+        return edits.size();
+    }
+
+    /**
+     * Start a step that is never merged with others.
+     */
+    public Transaction begin(String name) {
+        return new Transaction(name, null);
+    }
+
+    /**
+     * Start a step that merges into the previous one if that has the same key.
+     */
+    public Transaction begin(String name, Object coalesceKey) {
+        return new Transaction(name, coalesceKey);
+    }
+
+    /**
+     * End coalescing: the next step starts a new edit even with the same key.
+     */
+    public synchronized void seal() {
+        UndoableEdit top = editToBeUndone();
+        if (top instanceof ModelEdit) ((ModelEdit) top).seal();
+    }
+
+    @Override
+    public synchronized boolean addEdit(UndoableEdit anEdit) {
+        boolean added = super.addEdit(anEdit);
+        if (added) trimToBudget();
+        return added;
+    }
+
+    // steps read back from disk by undo/redo go back out once the user moves on
+    @Override
+    public synchronized void undo() {
+        super.undo();
+        trimToBudget();
+    }
+
+    @Override
+    public synchronized void redo() {
+        super.redo();
+        trimToBudget();
+    }
+
+    /**
+     * Drop the history and delete the spill store.
+     */
+    @Override
+    public synchronized void close() {
+        discardAllEdits();
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    private void trimToBudget() {
+        UndoableEdit next = editToBeUndone(), redo = editToBeRedone();
+        int newest = edits.indexOf(next);
+        // the two steps next to the undo position stay in memory whatever their
+        // size, so only the others count against the budget
+        long spillable = 0;
+        for (UndoableEdit e : edits) if (e != next && e != redo) spillable += bytesOf(e);
+        for (int i = 0; i < edits.size() && spillable > memoryBudget && diskQuota > 0; i++) {
+            UndoableEdit e = edits.get(i);
+            if (e == next || e == redo || !(e instanceof ModelEdit) || !((ModelEdit) e).isResident()) continue;
+            long before = bytesOf(e);
+            try {
+                ((ModelEdit) e).spill(spillStore());
+            } catch (IOException ex) {
+                // no usable temp storage: keep history in memory only
+                ex.printStackTrace();
+                diskQuota = 0;
+                break;
+            }
+            spillable -= before - bytesOf(e);
+        }
+        // without a disk tier the oldest steps make room instead
+        int drop = 0;
+        while (diskQuota == 0 && spillable > memoryBudget && drop < newest) {
+            spillable -= bytesOf(edits.get(drop));
+            drop++;
+        }
+        if (store != null) {
+            // keep the store within the quota; dropped steps free whole segments
+            while (drop < newest && store.diskBytesFrom(oldestSegment(drop)) > diskQuota) drop++;
+        }
+        if (drop > 0) trimEdits(0, drop - 1);
+        if (store != null) store.releaseBefore(oldestSegment(0));
+    }
+
+    private SpillStore spillStore() throws IOException {
+        if (store == null) store = new SpillStore(spillDirectory, Math.max(1L << 20, diskQuota / 16));
+        return store;
+    }
+
+    // segment of the oldest spilled step from index 'from' on
+    private int oldestSegment(int from) {
+        int seg = Integer.MAX_VALUE;
+        for (int i = from; i < edits.size(); i++) {
+            UndoableEdit e = edits.get(i);
+            if (e instanceof ModelEdit && ((ModelEdit) e).getSpillAddress() >= 0) {
+                seg = Math.min(seg, SpillStore.segmentOf(((ModelEdit) e).getSpillAddress()));
+            }
+        }
+        return seg;
+    }
+
+    private static long bytesOf(UndoableEdit e) {
+        return e instanceof ModelEdit ? ((ModelEdit) e).getBytes() : OTHER_EDIT_BYTES;
+    }
+
+    /**
+     * A set of changes to apply and record as one step. Nothing touches the
+     * model until commit().
+     */
+    public final class Transaction {
+        private final String name;
+        private final Object coalesceKey;
+        private final List<Object> ops = new ArrayList<>(); // ReMoDeLEntity to put, String id to remove
+
+        private Transaction(String name, Object coalesceKey) {
+            this.name = name;
+            this.coalesceKey = coalesceKey;
+        }
+
+        /**
+         * Add an entity, or replace the one with its id. The entity must not
+         * be the instance the model already holds: pass a copy.
+         */
+        public Transaction put(ReMoDeLEntity e) {
+            if (e == null) throw new IllegalArgumentException("entity is null");
+            ops.add(e);
+            return this;
+        }
+
+        public Transaction remove(String id) {
+            if (id != null) ops.add(id);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return ops.isEmpty();
+        }
+
+        /**
+         * Apply the changes in one model batch and record them. Returns the
+         * recorded step (possibly merged into the previous one), or null if
+         * nothing changed.
+         */
+        public ModelEdit commit() {
+            if (ops.isEmpty()) return null;
+            Map<String, EntityDelta> deltas = new LinkedHashMap<>();
+            model.beginBatch();
+            try {
+                for (Object op : ops) {
+                    EntityDelta d;
+                    if (op instanceof String) {
+                        ReMoDeLEntity old = model.removeEntity((String) op);
+                        d = old == null ? null : EntityDelta.removed(old);
+                    } else {
+                        ReMoDeLEntity e = (ReMoDeLEntity) op;
+                        ReMoDeLEntity old = model.get(e.getId());
+                        if (old == e) throw new IllegalArgumentException("entity " + e.getId() + " is the model's own instance");
+                        if (old == null) {
+                            model.addEntity(e);
+                            d = EntityDelta.added(e.copy());
+                        } else {
+                            model.updateEntity(e);
+                            d = EntityDelta.changed(old, e);
+                        }
+                    }
+                    if (d == null) continue;
+                    EntityDelta prev = deltas.get(d.id);
+                    if (prev == null) deltas.put(d.id, d);
+                    else if (!prev.absorb(d)) deltas.remove(d.id);
+                }
+            } finally {
+                model.endBatch();
+            }
+            ops.clear();
+            if (deltas.isEmpty()) return null;
+            ModelEdit edit = new ModelEdit(model, name, coalesceKey, coalesceMillis, deltas);
+            addEdit(edit);
+            return edit;
+        }
+    }
+}
@@ -6,4 +6,10 @@
  */
 module VisualEditor {
 	requires java.desktop;
+	// the monitor API extends jdk.jfr.Event and throws JMException
+	requires transitive java.management;
+	requires transitive jdk.jfr;
+
+	// JFR events and MXBean interfaces, for the JDK's monitoring tools
+	exports com.example.swingapp.monitor;
 }